@@ -0,0 +1,19 @@
+#!/bin/sh
+# Build and run the benchmarks of alternet-parsing, with the gc profiler
+# for the allocation rate ; the results are stored in baseline/NAME.json
+#
+# usage : ./bench.sh NAME [JMH options]
+#    e.g. ./bench.sh master
+#         ./bench.sh my-branch ExpressionBench -p terms=100
+
+Name=${1:?"usage : ./bench.sh NAME [JMH options]"}
+shift
+
+cd "$(dirname "$0")" || exit 1
+
+echo "====== Building alternet-parsing-bench ======"
+(cd ../alternet-libs && mvn -Pbench -DskipTests install) || exit 1
+
+echo "====== Running benchmarks ======"
+mkdir -p baseline
+java -jar target/benchmarks.jar -prof gc -rf json -rff baseline/$Name.json "$@"
@@ -0,0 +1,68 @@
+package ml.alternet.parser.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.alternet.parser.ast.NodeBuilder;
+import ml.alternet.parser.www.WAuth;
+
+/**
+ * Parse HTTP authentication challenges with the
+ * <code>WAuth</code> grammar.
+ *
+ * @author Philippe Poulard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChallengeBench {
+
+    @Param({ "1", "10", "1000" })
+    int parameters;
+
+    @Param({ Inputs.STRING, Inputs.READER })
+    String scanner;
+
+    @Param({ "false", "true" })
+    boolean tracked;
+
+    String challenge;
+
+    /**
+     * Create the inputs.
+     */
+    @Setup
+    public void setup() {
+        this.challenge = Inputs.challenge(this.parameters);
+    }
+
+    /**
+     * Parse a challenge to a node.
+     *
+     * @return The challenge.
+     *
+     * @throws IOException Never.
+     */
+    @Benchmark
+    public WAuth.Challenge wauthNodeBuilder() throws IOException {
+        return new NodeBuilder<WAuth.Challenge>(WAuth.$)
+            .parse(Inputs.scanner(this.challenge, this.scanner, this.tracked), true)
+            .get();
+    }
+
+}
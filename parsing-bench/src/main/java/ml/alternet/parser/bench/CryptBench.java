@@ -0,0 +1,78 @@
+package ml.alternet.parser.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.alternet.encode.BytesEncoder;
+import ml.alternet.parser.examples.Argon2CryptFormatter;
+import ml.alternet.security.auth.Hasher;
+import ml.alternet.security.auth.crypt.Argon2Parts;
+import ml.alternet.security.auth.hasher.Argon2Hasher;
+
+/**
+ * Parse Argon2 crypts with the <code>Argon2Format</code> grammar.
+ *
+ * @author Philippe Poulard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptBench {
+
+    static final String CRYPT = "$argon2i$v=19$m=512,t=2,p=2$aI2R0hpDyLm3ltLa+1/rvQ$LqPKjd6n8yniKtAithoR7A";
+
+    @Param({ Inputs.STRING, Inputs.READER })
+    String scanner;
+
+    @Param({ "false", "true" })
+    boolean tracked;
+
+    Hasher hasher;
+
+    /**
+     * Create the hasher.
+     */
+    @Setup
+    public void setup() {
+        this.hasher = Hasher.Builder.builder()
+            .setClass(Argon2Hasher.class)
+            .setScheme("Argon2")
+            .setVariant("argon2i")
+            .setAlgorithm("Blake2b") // because it is its name
+            .setHashByteSize(32)
+            .setSaltByteSize(16)
+            .setEncoding(BytesEncoder.base64_no_padding)
+            .setFormatter(new Argon2CryptFormatter())
+            .build();
+    }
+
+    /**
+     * Parse a crypt to a value.
+     *
+     * @return The parts of the crypt.
+     *
+     * @throws IOException Never.
+     */
+    @Benchmark
+    public Argon2Parts argon2ValueBuilder() throws IOException {
+        return new Argon2CryptFormatter.Argon2PartsBuilder(this.hasher)
+            .parse(Inputs.scanner(CRYPT, this.scanner, this.tracked), true)
+            .get();
+    }
+
+}
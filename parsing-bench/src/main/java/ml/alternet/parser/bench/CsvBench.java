@@ -0,0 +1,73 @@
+package ml.alternet.parser.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.alternet.grammars.CsvBuilder;
+import ml.alternet.grammars.CsvGrammar;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Parse CSV records with the <code>CsvGrammar</code>,
+ * and with a hand-written parser.
+ *
+ * @author Philippe Poulard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvBench {
+
+    @Param({ "1", "100", "10000" })
+    int records;
+
+    String input;
+    CsvBuilder builder;
+
+    /**
+     * Create the input and the builder.
+     */
+    @Setup
+    public void setup() {
+        this.input = Inputs.csv(this.records);
+        this.builder = new CsvBuilder();
+    }
+
+    /**
+     * Parse the records with the grammar.
+     *
+     * @return The records.
+     */
+    @Benchmark
+    public List<List<String>> csvBuilder() {
+        return this.builder.parseAll(Scanner.of(this.input), CsvGrammar.EOL)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Parse the records with the hand-written parser.
+     *
+     * @return The records.
+     */
+    @Benchmark
+    public List<List<String>> csvHandWritten() {
+        return HandWritten.csv(this.input);
+    }
+
+}
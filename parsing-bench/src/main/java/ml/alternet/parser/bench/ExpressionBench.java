@@ -0,0 +1,99 @@
+package ml.alternet.parser.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.step6.Calc;
+import ml.alternet.parser.step6.ExpressionBuilder;
+import ml.alternet.parser.step6.MathExpressionBuilder;
+import ml.alternet.parser.step6.NumericExpression;
+
+/**
+ * Parse arithmetic expressions with the <code>Calc</code>
+ * and <code>Math</code> grammars.
+ *
+ * @author Philippe Poulard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBench {
+
+    @Param({ "1", "100", "10000" })
+    int terms;
+
+    @Param({ Inputs.STRING, Inputs.READER })
+    String scanner;
+
+    @Param({ "false", "true" })
+    boolean tracked;
+
+    String calc;
+    String math;
+
+    /**
+     * Create the inputs.
+     */
+    @Setup
+    public void setup() {
+        this.calc = Inputs.expression(this.terms, "*", "x");
+        this.math = Inputs.expression(this.terms, "×", "X");
+    }
+
+    /**
+     * Parse without building anything.
+     *
+     * @return <code>true</code>
+     *
+     * @throws IOException Never.
+     */
+    @Benchmark
+    public boolean calcEvents() throws IOException {
+        return Calc.$.parse(Inputs.scanner(this.calc, this.scanner, this.tracked), Handler.NULL_HANDLER, true);
+    }
+
+    /**
+     * Parse and build the AST.
+     *
+     * @return The expression.
+     *
+     * @throws IOException Never.
+     */
+    @Benchmark
+    public NumericExpression calcNodeBuilder() throws IOException {
+        return new ExpressionBuilder()
+            .parse(Inputs.scanner(this.calc, this.scanner, this.tracked), true)
+            .get();
+    }
+
+    /**
+     * Parse and build the AST, with an extended grammar.
+     *
+     * @return The expression.
+     *
+     * @throws IOException Never.
+     */
+    @Benchmark
+    public NumericExpression mathNodeBuilder() throws IOException {
+        return new MathExpressionBuilder()
+            .parse(Inputs.scanner(this.math, this.scanner, this.tracked), true)
+            .get();
+    }
+
+}
@@ -0,0 +1,402 @@
+package ml.alternet.parser.bench;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ml.alternet.grammars.JsonBuilder;
+
+/**
+ * Hand-written parsers, that build the same values as the
+ * builders of the reference grammars, in order to compare
+ * them with the grammar engine.
+ *
+ * These parsers are written for speed : a single pass over
+ * a string, without backtracking, and with a minimal error
+ * reporting (an <code>IllegalArgumentException</code> with
+ * the offset of the error).
+ *
+ * @author Philippe Poulard
+ */
+public class HandWritten {
+
+    final String input;
+    int pos;
+
+    HandWritten(String input) {
+        this.input = input;
+    }
+
+    IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + this.pos);
+    }
+
+    boolean more() {
+        return this.pos < this.input.length();
+    }
+
+    // ========== CSV
+
+    /**
+     * Parse CSV records.
+     *
+     * @param input The records.
+     *
+     * @return The fields of each record.
+     *
+     * @see ml.alternet.grammars.CsvBuilder
+     */
+    public static List<List<String>> csv(String input) {
+        HandWritten parser = new HandWritten(input);
+        List<List<String>> records = new ArrayList<>();
+        while (parser.more()) {
+            records.add(parser.record());
+            if (parser.more()) {
+                parser.eol();
+            }
+        }
+        return records;
+    }
+
+    List<String> record() {
+        List<String> fields = new ArrayList<>();
+        fields.add(field());
+        while (more() && this.input.charAt(this.pos) == ',') {
+            this.pos++;
+            fields.add(field());
+        }
+        return fields;
+    }
+
+    String field() {
+        if (more() && this.input.charAt(this.pos) == '"') {
+            StringBuilder buf = new StringBuilder();
+            int start = ++this.pos;
+            while (true) {
+                int quote = this.input.indexOf('"', this.pos);
+                if (quote == -1) {
+                    throw error("Unterminated field");
+                }
+                if (quote + 1 < this.input.length() && this.input.charAt(quote + 1) == '"') {
+                    buf.append(this.input, start, quote + 1);
+                    start = this.pos = quote + 2;
+                } else {
+                    this.pos = quote + 1;
+                    return buf.append(this.input, start, quote).toString();
+                }
+            }
+        } else {
+            int start = this.pos;
+            while (more()) {
+                char c = this.input.charAt(this.pos);
+                if (c == ',' || c == '\r' || c == '\n') {
+                    break;
+                } else if (c == '"') {
+                    throw error("Unexpected quote");
+                }
+                this.pos++;
+            }
+            return this.input.substring(start, this.pos);
+        }
+    }
+
+    void eol() {
+        if (this.input.startsWith("\r\n", this.pos)) {
+            this.pos += 2;
+        } else if (this.input.charAt(this.pos) == '\n') {
+            this.pos++;
+        } else {
+            throw error("Line break expected");
+        }
+    }
+
+    // ========== JSON
+
+    /**
+     * Parse a JSON value.
+     *
+     * @param input The JSON text.
+     *
+     * @return The value.
+     *
+     * @see JsonBuilder
+     */
+    public static Object json(String input) {
+        HandWritten parser = new HandWritten(input);
+        Object value = parser.value();
+        parser.ws();
+        if (parser.more()) {
+            throw parser.error("Unexpected char");
+        }
+        return value;
+    }
+
+    void ws() {
+        while (more()) {
+            char c = this.input.charAt(this.pos);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                this.pos++;
+            } else {
+                break;
+            }
+        }
+    }
+
+    void expect(char c) {
+        ws();
+        if (! more() || this.input.charAt(this.pos) != c) {
+            throw error("'" + c + "' expected");
+        }
+        this.pos++;
+    }
+
+    boolean eat(char c) {
+        ws();
+        if (more() && this.input.charAt(this.pos) == c) {
+            this.pos++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    Object value() {
+        ws();
+        if (! more()) {
+            throw error("Value expected");
+        }
+        char c = this.input.charAt(this.pos);
+        switch (c) {
+        case '{':
+            this.pos++;
+            Map<String, Object> object = new LinkedHashMap<>();
+            if (! eat('}')) {
+                do {
+                    ws();
+                    String name = string();
+                    expect(':');
+                    object.put(name, value());
+                } while (eat(','));
+                expect('}');
+            }
+            return object;
+        case '[':
+            this.pos++;
+            List<Object> array = new ArrayList<>();
+            if (! eat(']')) {
+                do {
+                    array.add(value());
+                } while (eat(','));
+                expect(']');
+            }
+            return array;
+        case '"':
+            return string();
+        case 't':
+            return literal("true", Boolean.TRUE);
+        case 'f':
+            return literal("false", Boolean.FALSE);
+        case 'n':
+            return literal("null", JsonBuilder.NULL);
+        default:
+            return number();
+        }
+    }
+
+    Object literal(String literal, Object value) {
+        if (! this.input.startsWith(literal, this.pos)) {
+            throw error("Value expected");
+        }
+        this.pos += literal.length();
+        return value;
+    }
+
+    String string() {
+        if (! more() || this.input.charAt(this.pos) != '"') {
+            throw error("String expected");
+        }
+        int start = ++this.pos;
+        StringBuilder buf = null;
+        while (more()) {
+            char c = this.input.charAt(this.pos);
+            if (c == '"') {
+                String s = buf == null
+                    ? this.input.substring(start, this.pos)
+                    : buf.append(this.input, start, this.pos).toString();
+                this.pos++;
+                return s;
+            } else if (c == '\\') {
+                if (buf == null) {
+                    buf = new StringBuilder();
+                }
+                buf.append(this.input, start, this.pos);
+                if (this.pos + 1 >= this.input.length()) {
+                    break;
+                }
+                c = this.input.charAt(this.pos + 1);
+                this.pos += 2;
+                switch (c) {
+                case '"': case '\\': case '/': buf.append(c); break;
+                case 'b': buf.append('\b'); break;
+                case 'f': buf.append('\f'); break;
+                case 'n': buf.append('\n'); break;
+                case 'r': buf.append('\r'); break;
+                case 't': buf.append('\t'); break;
+                case 'u':
+                    if (this.pos + 4 > this.input.length()) {
+                        throw error("Malformed escape");
+                    }
+                    buf.append((char) Integer.parseInt(this.input.substring(this.pos, this.pos + 4), 16));
+                    this.pos += 4;
+                    break;
+                default:
+                    throw error("Malformed escape");
+                }
+                start = this.pos;
+            } else if (c < 0x20) {
+                throw error("Control char in string");
+            } else {
+                this.pos++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    Number number() {
+        int start = this.pos;
+        boolean integer = true;
+        if (more() && this.input.charAt(this.pos) == '-') {
+            this.pos++;
+        }
+        if (more() && this.input.charAt(this.pos) == '0') {
+            this.pos++;
+        } else if (digits() == 0) {
+            throw error("Value expected");
+        }
+        if (more() && this.input.charAt(this.pos) == '.') {
+            this.pos++;
+            integer = false;
+            if (digits() == 0) {
+                throw error("Digit expected");
+            }
+        }
+        if (more() && (this.input.charAt(this.pos) == 'e' || this.input.charAt(this.pos) == 'E')) {
+            this.pos++;
+            integer = false;
+            if (more() && (this.input.charAt(this.pos) == '+' || this.input.charAt(this.pos) == '-')) {
+                this.pos++;
+            }
+            if (digits() == 0) {
+                throw error("Digit expected");
+            }
+        }
+        String number = this.input.substring(start, this.pos);
+        if (! integer) {
+            return Double.valueOf(number);
+        } else if (number.length() < 19) {
+            return Long.valueOf(number);
+        } else {
+            BigInteger big = new BigInteger(number);
+            return big.bitLength() < 64 ? (Number) big.longValue() : big;
+        }
+    }
+
+    int digits() {
+        int start = this.pos;
+        while (more() && this.input.charAt(this.pos) >= '0' && this.input.charAt(this.pos) <= '9') {
+            this.pos++;
+        }
+        return this.pos - start;
+    }
+
+    // ========== key=value
+
+    /**
+     * Parse key=value log lines.
+     *
+     * @param input The lines.
+     *
+     * @return The pairs of each line.
+     *
+     * @see ml.alternet.grammars.KeyValueBuilder
+     */
+    public static List<Map<String, String>> keyValue(String input) {
+        HandWritten parser = new HandWritten(input);
+        List<Map<String, String>> lines = new ArrayList<>();
+        while (parser.more()) {
+            lines.add(parser.line());
+            if (parser.more()) {
+                parser.eol();
+            }
+        }
+        return lines;
+    }
+
+    void sp() {
+        while (more() && (this.input.charAt(this.pos) == ' ' || this.input.charAt(this.pos) == '\t')) {
+            this.pos++;
+        }
+    }
+
+    Map<String, String> line() {
+        Map<String, String> line = new LinkedHashMap<>();
+        sp();
+        while (more()) {
+            char c = this.input.charAt(this.pos);
+            if (c == '\r' || c == '\n') {
+                break;
+            }
+            int start = this.pos;
+            while (more() && ! isSpace(c = this.input.charAt(this.pos)) && c != '=' && c != '"') {
+                this.pos++;
+            }
+            if (start == this.pos) {
+                throw error("Key expected");
+            }
+            String key = this.input.substring(start, this.pos);
+            sp();
+            if (more() && this.input.charAt(this.pos) == '=') {
+                this.pos++;
+                line.put(key, more() && this.input.charAt(this.pos) == '"' ? quoted() : bare());
+            } else {
+                line.put(key, "true");
+            }
+            sp();
+        }
+        return line;
+    }
+
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f' || c == 0x0B;
+    }
+
+    String bare() {
+        int start = this.pos;
+        while (more() && ! isSpace(this.input.charAt(this.pos)) && this.input.charAt(this.pos) != '"') {
+            this.pos++;
+        }
+        return this.input.substring(start, this.pos);
+    }
+
+    String quoted() {
+        StringBuilder buf = new StringBuilder();
+        this.pos++;
+        while (more()) {
+            char c = this.input.charAt(this.pos++);
+            if (c == '"') {
+                return buf.toString();
+            } else if (c == '\\' && more()) {
+                c = this.input.charAt(this.pos++);
+                buf.append(c == 'n' ? '\n' : c == 'r' ? '\r' : c == 't' ? '\t' : c);
+            } else if (c == '\r' || c == '\n') {
+                break;
+            } else {
+                buf.append(c);
+            }
+        }
+        throw error("Unterminated value");
+    }
+
+}
@@ -0,0 +1,119 @@
+package ml.alternet.parser.bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import ml.alternet.scan.Scanner;
+import ml.alternet.scan.TrackableScanner;
+
+/**
+ * The inputs of the benchmarks.
+ *
+ * @author Philippe Poulard
+ */
+public class Inputs {
+
+    /** The scanner of a string. */
+    public static final String STRING = "string";
+
+    /** The scanner of a reader. */
+    public static final String READER = "reader";
+
+    /**
+     * Create a scanner.
+     *
+     * @param input The input.
+     * @param kind {@link #STRING} or {@link #READER}.
+     * @param tracked <code>true</code> to track the
+     *      line, column, and offset of the input.
+     *
+     * @return The scanner.
+     *
+     * @throws IOException When the scanner can't be created.
+     */
+    public static Scanner scanner(String input, String kind, boolean tracked) throws IOException {
+        Scanner scanner = READER.equals(kind)
+            ? Scanner.of(new StringReader(input))
+            : Scanner.of(input);
+        return tracked ? new TrackableScanner(scanner) : scanner;
+    }
+
+    /**
+     * Create an arithmetic expression, such as
+     * <code>(1 * 2 - x) + (2 * 3 - x) + ...</code>
+     *
+     * @param terms The number of terms.
+     * @param mult The multiplication sign.
+     * @param variable The name of a variable.
+     *
+     * @return The expression.
+     */
+    public static String expression(int terms, String mult, String variable) {
+        return IntStream.range(1, terms + 1)
+            .mapToObj(i -> "(" + i + " " + mult + " " + (i + 1) + " - " + variable + ")")
+            .collect(Collectors.joining(" + "));
+    }
+
+    /**
+     * Create a HTTP authentication challenge, such as
+     * <code>Basic realm="FooCorp", p1=v1, p2="v \"2\"", ...</code>
+     *
+     * @param parameters The number of parameters.
+     *
+     * @return The challenge.
+     */
+    public static String challenge(int parameters) {
+        return IntStream.range(1, parameters + 1)
+            .mapToObj(i -> i % 2 == 0
+                ? "p" + i + "=\"v \\\"" + i + "\\\"\""
+                : "p" + i + "=v" + i)
+            .collect(Collectors.joining(", ", "Basic realm=\"FooCorp\", ", ""));
+    }
+
+    /**
+     * Create CSV records, such as
+     * <code>1,name 1,"quoted, ""1""",1.5\r\n...</code>
+     *
+     * @param records The number of records.
+     *
+     * @return The records.
+     */
+    public static String csv(int records) {
+        return IntStream.range(1, records + 1)
+            .mapToObj(i -> i + ",name " + i + ",\"quoted, \"\"" + i + "\"\"\"," + i + ".5\r\n")
+            .collect(Collectors.joining());
+    }
+
+    /**
+     * Create a JSON array of objects, such as
+     * <code>[{"id": 1, "name": "item \"1\"", "price": 1.5, "tags": ["a", "b"], "stock": null}, ...]</code>
+     *
+     * @param objects The number of objects.
+     *
+     * @return The JSON text.
+     */
+    public static String json(int objects) {
+        return IntStream.range(1, objects + 1)
+            .mapToObj(i -> "{\"id\": " + i + ", \"name\": \"item \\\"" + i + "\\\"\", \"price\": " + i
+                + ".5, \"tags\": [\"a\", \"b\"], \"available\": " + (i % 2 == 0) + ", \"stock\": null}")
+            .collect(Collectors.joining(",\n  ", "[\n  ", "\n]"));
+    }
+
+    /**
+     * Create key=value log lines, such as
+     * <code>ts=2018-06-01T12:00:01Z level=info msg="request 1 done" status=200 cached\n...</code>
+     *
+     * @param lines The number of lines.
+     *
+     * @return The lines.
+     */
+    public static String keyValue(int lines) {
+        return IntStream.range(1, lines + 1)
+            .mapToObj(i -> "ts=2018-06-01T12:00:" + (i % 60 < 10 ? "0" : "") + (i % 60) + "Z level=info msg=\"request "
+                + i + " done\" status=200 duration=" + i + "ms cached\n")
+            .collect(Collectors.joining());
+    }
+
+}
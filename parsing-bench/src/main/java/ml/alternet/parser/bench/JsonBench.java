@@ -0,0 +1,72 @@
+package ml.alternet.parser.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.alternet.grammars.JsonBuilder;
+
+/**
+ * Parse JSON documents with the <code>JsonGrammar</code>,
+ * and with a hand-written parser.
+ *
+ * @author Philippe Poulard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBench {
+
+    @Param({ "1", "100", "10000" })
+    int objects;
+
+    String input;
+    JsonBuilder builder;
+
+    /**
+     * Create the input and the builder.
+     */
+    @Setup
+    public void setup() {
+        this.input = Inputs.json(this.objects);
+        this.builder = new JsonBuilder();
+    }
+
+    /**
+     * Parse the document with the grammar.
+     *
+     * @return The JSON value.
+     *
+     * @throws IOException Never.
+     */
+    @Benchmark
+    public Object jsonBuilder() throws IOException {
+        this.builder.reset();
+        return this.builder.parse(this.input, true).get();
+    }
+
+    /**
+     * Parse the document with the hand-written parser.
+     *
+     * @return The JSON value.
+     */
+    @Benchmark
+    public Object jsonHandWritten() {
+        return HandWritten.json(this.input);
+    }
+
+}
@@ -0,0 +1,74 @@
+package ml.alternet.parser.bench;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.alternet.grammars.KeyValueBuilder;
+import ml.alternet.grammars.KeyValueGrammar;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Parse key=value log lines with the <code>KeyValueGrammar</code>,
+ * and with a hand-written parser.
+ *
+ * @author Philippe Poulard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyValueBench {
+
+    @Param({ "1", "100", "10000" })
+    int lines;
+
+    String input;
+    KeyValueBuilder builder;
+
+    /**
+     * Create the input and the builder.
+     */
+    @Setup
+    public void setup() {
+        this.input = Inputs.keyValue(this.lines);
+        this.builder = new KeyValueBuilder();
+    }
+
+    /**
+     * Parse the lines with the grammar.
+     *
+     * @return The lines.
+     */
+    @Benchmark
+    public List<Map<String, String>> keyValueBuilder() {
+        return this.builder.parseAll(Scanner.of(this.input), KeyValueGrammar.EOL)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Parse the lines with the hand-written parser.
+     *
+     * @return The lines.
+     */
+    @Benchmark
+    public List<Map<String, String>> keyValueHandWritten() {
+        return HandWritten.keyValue(this.input);
+    }
+
+}
@@ -0,0 +1,103 @@
+package ml.alternet.grammars;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import ml.alternet.parser.ast.RuleMapper;
+import ml.alternet.parser.ast.TokenMapper;
+import ml.alternet.parser.ast.ValueBuilder;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Build the fields of a CSV record.
+ *
+ * <pre>CsvBuilder builder = new CsvBuilder();
+ *List&lt;String&gt; record = builder.parse("a,\"b \"\"c\"\"\",", true).get(); // [a, b "c", ]
+ *List&lt;List&lt;String&gt;&gt; records = builder.parseAll(scanner, CsvGrammar.EOL)
+ *    .collect(Collectors.toList());</pre>
+ *
+ * An empty field is an empty string, and the quotes of
+ * an escaped field are removed. When the records are
+ * built with {@link #parseAll(ml.alternet.scan.Scanner, ml.alternet.parser.Grammar.Rule)},
+ * a line break at the end of the input doesn't start
+ * another record, and the stream ends on the first malformed
+ * record : the scanner then contains the remainder.
+ *
+ * @see CsvGrammar
+ *
+ * @author Philippe Poulard
+ */
+public class CsvBuilder extends ValueBuilder<List<String>> {
+
+    /**
+     * Create a CSV builder.
+     */
+    public CsvBuilder() {
+        super(CsvGrammar.$);
+        // fields are holding strings
+        setTokenMapper(TokenMapper.<Object> $()
+            .add(CsvGrammar.TEXTDATA, (stack, token, next) -> token.getValue())
+            .add(CsvGrammar.ESCAPED, (stack, token, next) -> unescape(token.getValue()))
+            .get()
+        );
+        // an empty field has no argument
+        setRuleMapper(RuleMapper.<Object> $()
+            .add(CsvGrammar.Field, (stack, rule, args) ->
+                args.isEmpty() ? "" : args.getFirst().getTarget())
+            .add(CsvGrammar.Record, (stack, rule, args) -> {
+                List<String> fields = new ArrayList<>(args.size());
+                args.forEach(field -> fields.add((String) field.getTarget()));
+                return fields;
+            }).get()
+        );
+    }
+
+    /**
+     * Build a CSV record.
+     *
+     * @param input The input.
+     * @param matchAll <code>true</code> to build nothing when
+     *      characters remain after the CSV record, <code>false</code>
+     *      to leave them in the input.
+     *
+     * @return The CSV record, or empty if the input is malformed.
+     *
+     * @throws IOException When an I/O error occurs.
+     */
+    @Override
+    public Optional<List<String>> parse(Scanner input, boolean matchAll) throws IOException {
+        Optional<List<String>> value = super.parse(input, matchAll);
+        if (matchAll && input.hasNext()) {
+            return Optional.empty();
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Remove the quotes around an escaped field, and
+     * unescape the quotes within.
+     *
+     * @param escaped The escaped field, e.g. <code>"a ""b"""</code>
+     *
+     * @return The field, e.g. <code>a "b"</code>
+     */
+    static String unescape(String escaped) {
+        int end = escaped.length() - 1;
+        int quote = escaped.indexOf('"', 1);
+        if (quote == end) {
+            return escaped.substring(1, end);
+        }
+        StringBuilder buf = new StringBuilder(end);
+        int start = 1;
+        while (quote < end) { // a double quote
+            buf.append(escaped, start, quote + 1);
+            start = quote + 2;
+            quote = escaped.indexOf('"', start);
+        }
+        return buf.append(escaped, start, end).toString();
+    }
+
+}
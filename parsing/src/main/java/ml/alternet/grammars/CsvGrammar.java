@@ -0,0 +1,52 @@
+package ml.alternet.grammars;
+
+import static ml.alternet.parser.Grammar.*;
+
+import ml.alternet.parser.Grammar;
+
+/**
+ * The syntax of comma-separated values, as defined by RFC 4180.
+ *
+ * <pre>record      = field *(COMMA field)
+ *field       = (escaped / non-escaped)
+ *escaped     = DQUOTE *(TEXTDATA / COMMA / CR / LF / 2DQUOTE) DQUOTE
+ *non-escaped = *TEXTDATA</pre>
+ *
+ * The main rule is a single record : the records of a file are
+ * separated by an {@link #EOL}, which is a <code>CRLF</code> or a
+ * single <code>LF</code>. The fields are matched by regular expressions
+ * in a single pass, and an escaped field may contain commas and line
+ * breaks.
+ *
+ * <pre>CsvBuilder builder = new CsvBuilder();
+ *builder.parseAll(scanner, CsvGrammar.EOL).forEach(record -&gt; ...);</pre>
+ *
+ * @see CsvBuilder
+ * @see <a href="https://tools.ietf.org/html/rfc4180">RFC 4180</a>
+ *
+ * @author Philippe Poulard
+ */
+public interface CsvGrammar extends Grammar {
+
+    // EOL ::= CR? LF
+    Token EOL = regex("\r?\n");
+
+    @Fragment
+    Token COMMA = is(',');
+
+    // ESCAPED ::= '"' ( [^"] | '""' )* '"'
+    Token ESCAPED = regex("\"(?:[^\"]|\"\")*\"");
+
+    // TEXTDATA ::= [^,"\r\n]+
+    Token TEXTDATA = regex("[^,\"\r\n]+");
+
+    // Field ::= ( ESCAPED | TEXTDATA )?
+    Rule Field = ESCAPED.or(TEXTDATA).optional();
+
+    // Record ::= Field ( COMMA Field )*
+    @MainRule
+    Rule Record = Field.seq(COMMA.seq(Field).zeroOrMore());
+
+    CsvGrammar $ = $();
+
+}
@@ -0,0 +1,163 @@
+package ml.alternet.grammars;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import ml.alternet.parser.ast.RuleMapper;
+import ml.alternet.parser.ast.TokenMapper;
+import ml.alternet.parser.ast.ValueBuilder;
+import ml.alternet.parser.handlers.ValueMapper.Value;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Build a JSON value.
+ *
+ * <ul>
+ * <li>an object is a <code>Map&lt;String, Object&gt;</code> that keeps
+ * the order of its members,</li>
+ * <li>an array is a <code>List&lt;Object&gt;</code>,</li>
+ * <li>a string is a <code>String</code>, and <code>true</code> and
+ * <code>false</code> are <code>Boolean</code>s,</li>
+ * <li>an integer is a <code>Long</code>, or a <code>BigInteger</code>
+ * when it is too large, and the other numbers are <code>Double</code>s,</li>
+ * <li><code>null</code> is {@link #NULL}.</li>
+ * </ul>
+ *
+ * <pre>Map&lt;String, Object&gt; person = (Map&lt;String, Object&gt;) new JsonBuilder()
+ *    .parse("{ \"name\": \"Doe\", \"age\": 42 }", true).get();</pre>
+ *
+ * @see JsonGrammar
+ *
+ * @author Philippe Poulard
+ */
+public class JsonBuilder extends ValueBuilder<Object> {
+
+    /**
+     * The JSON <code>null</code> value.
+     */
+    public static final Object NULL = new Object() {
+        @Override
+        public String toString() {
+            return "null";
+        }
+    };
+
+    /**
+     * Create a JSON builder.
+     */
+    public JsonBuilder() {
+        super(JsonGrammar.$);
+        // tokens are holding values
+        setTokenMapper(TokenMapper.<Object> $()
+            .add(JsonGrammar.STRING, (stack, token, next) -> unescape(token.getValue()))
+            .add(JsonGrammar.NUMBER, (stack, token, next) -> number(token.getValue()))
+            .add(JsonGrammar.TRUE, (stack, token, next) -> Boolean.TRUE)
+            .add(JsonGrammar.FALSE, (stack, token, next) -> Boolean.FALSE)
+            .add(JsonGrammar.NULL, (stack, token, next) -> NULL)
+            .get()
+        );
+        // objects and arrays have their members as arguments
+        setRuleMapper(RuleMapper.<Object> $()
+            .add(JsonGrammar.JsonObject, (stack, rule, args) -> {
+                Map<String, Object> object = new LinkedHashMap<>();
+                for (Iterator<Value<Object>> it = args.iterator(); it.hasNext(); ) {
+                    String name = (String) it.next().getTarget();
+                    object.put(name, it.next().getTarget());
+                }
+                return object;
+            }).add(JsonGrammar.JsonArray, (stack, rule, args) -> {
+                List<Object> array = new ArrayList<>(args.size());
+                args.forEach(item -> array.add(item.getTarget()));
+                return array;
+            }).get()
+        );
+    }
+
+    /**
+     * Build a JSON value.
+     *
+     * @param input The input.
+     * @param matchAll <code>true</code> to build nothing when
+     *      characters remain after the JSON value, <code>false</code>
+     *      to leave them in the input.
+     *
+     * @return The JSON value, or empty if the input is malformed.
+     *
+     * @throws IOException When an I/O error occurs.
+     */
+    @Override
+    public Optional<Object> parse(Scanner input, boolean matchAll) throws IOException {
+        Optional<Object> value = super.parse(input, matchAll);
+        if (matchAll && input.hasNext()) {
+            return Optional.empty();
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Parse a JSON number.
+     *
+     * @param number A valid JSON number.
+     *
+     * @return A <code>Long</code>, a <code>BigInteger</code>,
+     *      or a <code>Double</code>.
+     */
+    static Number number(String number) {
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return Double.valueOf(number);
+            }
+        }
+        if (number.length() < 19) { // can't overflow
+            return Long.valueOf(number);
+        }
+        BigInteger integer = new BigInteger(number);
+        return integer.bitLength() < 64 ? (Number) integer.longValue() : integer;
+    }
+
+    /**
+     * Remove the quotes around a JSON string, and
+     * unescape the chars within.
+     *
+     * @param string A valid JSON string, e.g. <code>"a\"bé"</code>
+     *
+     * @return The string, e.g. <code>a"bé</code>
+     */
+    static String unescape(String string) {
+        int end = string.length() - 1;
+        int escape = string.indexOf('\\', 1);
+        if (escape == -1) {
+            return string.substring(1, end);
+        }
+        StringBuilder buf = new StringBuilder(end);
+        int start = 1;
+        while (escape != -1) {
+            buf.append(string, start, escape);
+            char c = string.charAt(escape + 1);
+            start = escape + 2;
+            switch (c) {
+            case 'b': buf.append('\b'); break;
+            case 'f': buf.append('\f'); break;
+            case 'n': buf.append('\n'); break;
+            case 'r': buf.append('\r'); break;
+            case 't': buf.append('\t'); break;
+            case 'u':
+                buf.append((char) Integer.parseInt(string.substring(start, start + 4), 16));
+                start += 4;
+                break;
+            default: buf.append(c); // " \ /
+            }
+            escape = string.indexOf('\\', start);
+        }
+        return buf.append(string, start, end).toString();
+    }
+
+}
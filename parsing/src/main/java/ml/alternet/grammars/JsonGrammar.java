@@ -0,0 +1,84 @@
+package ml.alternet.grammars;
+
+import static ml.alternet.parser.Grammar.*;
+
+import ml.alternet.parser.Grammar;
+
+/**
+ * The syntax of JSON, as defined by RFC 8259.
+ *
+ * <pre>value  = object / array / string / number / true / false / null
+ *object = '{' [ member *( ',' member ) ] '}'
+ *member = string ':' value
+ *array  = '[' [ value *( ',' value ) ] ']'</pre>
+ *
+ * The strings and the numbers are matched by regular expressions
+ * in a single pass, and the whitespaces are skipped straight from
+ * the scanner. The values are nested recursively : a document
+ * deeply nested can be parsed with a
+ * {@link ml.alternet.parser.util.StackParser}.
+ *
+ * @see JsonBuilder
+ * @see <a href="https://tools.ietf.org/html/rfc8259">RFC 8259</a>
+ *
+ * @author Philippe Poulard
+ */
+@Skip(token = "WS")
+public interface JsonGrammar extends Grammar {
+
+    @Fragment
+    CharToken WS = isOneOf(" \t\n\r");
+
+    @Fragment @Skip(token = "WS")
+    Token LBRACE = is('{');
+
+    @Fragment @Skip(token = "WS")
+    Token RBRACE = is('}');
+
+    @Fragment @Skip(token = "WS")
+    Token LBRACKET = is('[');
+
+    @Fragment @Skip(token = "WS")
+    Token RBRACKET = is(']');
+
+    @Fragment @Skip(token = "WS")
+    Token COLON = is(':');
+
+    @Fragment @Skip(token = "WS")
+    Token COMMA = is(',');
+
+    // STRING ::= '"' ( [^"\\#x0-#x1F] | '\' ( ["\\/bfnrt] | 'u' HEX HEX HEX HEX ) )* '"'
+    Token STRING = regex("\"(?:[^\"\\\\\\u0000-\\u001F]|\\\\(?:[\"\\\\/bfnrt]|u[0-9a-fA-F]{4}))*\"");
+
+    // NUMBER ::= '-'? ( '0' | [1-9] [0-9]* ) ( '.' [0-9]+ )? ( [eE] [+-]? [0-9]+ )?
+    Token NUMBER = regex("-?(?:0|[1-9][0-9]*)(?:\\.[0-9]+)?(?:[eE][+-]?[0-9]+)?");
+
+    Token TRUE = is("true");
+
+    Token FALSE = is("false");
+
+    Token NULL = is("null");
+
+    @Fragment
+    Proxy Value = $();
+
+    // Member ::= STRING COLON Value
+    @Fragment
+    Rule Member = STRING.seq(COLON, Value);
+
+    // JsonObject ::= LBRACE ( Member ( COMMA Member )* )? RBRACE
+    Rule JsonObject = LBRACE.seq(Member.seq(COMMA.seq(Member).zeroOrMore()).optional(), RBRACE);
+
+    // JsonArray ::= LBRACKET ( Value ( COMMA Value )* )? RBRACKET
+    Rule JsonArray = LBRACKET.seq(Value.seq(COMMA.seq(Value).zeroOrMore()).optional(), RBRACKET);
+
+    // Value ::= JsonObject | JsonArray | STRING | NUMBER | TRUE | FALSE | NULL
+    boolean b1 = Value.is(JsonObject.or(JsonArray, STRING, NUMBER, TRUE, FALSE, NULL));
+
+    @MainRule
+    @Fragment
+    Rule Json = is(Value);
+
+    JsonGrammar $ = $();
+
+}
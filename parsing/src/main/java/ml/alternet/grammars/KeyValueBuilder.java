@@ -0,0 +1,95 @@
+package ml.alternet.grammars;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import ml.alternet.parser.ast.RuleMapper;
+import ml.alternet.parser.ast.TokenMapper;
+import ml.alternet.parser.ast.ValueBuilder;
+
+/**
+ * Build the pairs of a key=value log line.
+ *
+ * <pre>KeyValueBuilder builder = new KeyValueBuilder();
+ *Map&lt;String, String&gt; line = builder.parse("level=info msg=\"logged in\" cached", true).get();
+ * // line : {level=info, msg=logged in, cached=true}</pre>
+ *
+ * The pairs are in the order of the line ; a key without
+ * value is a flag, set to <code>"true"</code>, and when
+ * a key appears several times, the last value wins. When
+ * the lines are built with {@link #parseAll(ml.alternet.scan.Scanner, ml.alternet.parser.Grammar.Rule)},
+ * the stream ends after the first line that is not entirely
+ * matched, such as a line with an unterminated quoted value :
+ * the scanner then contains the remainder of that line.
+ *
+ * @see KeyValueGrammar
+ *
+ * @author Philippe Poulard
+ */
+public class KeyValueBuilder extends ValueBuilder<Map<String, String>> {
+
+    /**
+     * Create a key=value builder.
+     */
+    public KeyValueBuilder() {
+        super(KeyValueGrammar.$);
+        // keys and values are holding strings
+        setTokenMapper(TokenMapper.<Object> $()
+            .add(KeyValueGrammar.KEY, (stack, token, next) -> token.getValue())
+            .add(KeyValueGrammar.BARE, (stack, token, next) -> token.getValue())
+            .add(KeyValueGrammar.QUOTED, (stack, token, next) -> unescape(token.getValue()))
+            .get()
+        );
+        // a pair is an entry of the line : KEY ( EQUAL value? )?
+        setRuleMapper(RuleMapper.<Object> $()
+            .add(KeyValueGrammar.Pair, (stack, rule, args) -> new SimpleImmutableEntry<>(
+                (String) args.getFirst().getTarget(),
+                args.size() == 1 ? "true"
+                    : args.size() == 2 ? ""
+                    : (String) args.getLast().getTarget()))
+            .add(KeyValueGrammar.Line, (stack, rule, args) -> {
+                Map<String, String> line = new LinkedHashMap<>();
+                args.forEach(pair -> {
+                    @SuppressWarnings("unchecked")
+                    Entry<String, String> entry = (Entry<String, String>) pair.getTarget();
+                    line.put(entry.getKey(), entry.getValue());
+                });
+                return line;
+            }).get()
+        );
+    }
+
+    /**
+     * Remove the quotes around a quoted value, and
+     * unescape the chars within.
+     *
+     * @param quoted The quoted value, e.g. <code>"a\"b"</code>
+     *
+     * @return The value, e.g. <code>a"b</code>
+     */
+    static String unescape(String quoted) {
+        int end = quoted.length() - 1;
+        int escape = quoted.indexOf('\\', 1);
+        if (escape == -1) {
+            return quoted.substring(1, end);
+        }
+        StringBuilder buf = new StringBuilder(end);
+        int start = 1;
+        while (escape != -1) {
+            buf.append(quoted, start, escape);
+            char c = quoted.charAt(escape + 1);
+            switch (c) {
+            case 'n': buf.append('\n'); break;
+            case 'r': buf.append('\r'); break;
+            case 't': buf.append('\t'); break;
+            default: buf.append(c); // " \ and the others
+            }
+            start = escape + 2;
+            escape = quoted.indexOf('\\', start);
+        }
+        return buf.append(quoted, start, end).toString();
+    }
+
+}
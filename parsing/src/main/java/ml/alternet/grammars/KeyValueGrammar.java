@@ -0,0 +1,60 @@
+package ml.alternet.grammars;
+
+import static ml.alternet.parser.Grammar.*;
+
+import ml.alternet.parser.Grammar;
+
+/**
+ * The syntax of the key=value log lines (a.k.a. "logfmt").
+ *
+ * <pre>level=info msg="user logged in" user=jdoe duration=12ms cached</pre>
+ *
+ * A value is either bare (up to the next whitespace), or quoted,
+ * with the backslash escapes <code>\"</code>, <code>\\</code>,
+ * <code>\n</code>, <code>\r</code> and <code>\t</code> ; a key
+ * may have an empty value (<code>key=</code>) or no value at all.
+ * The main rule is a single line : the lines of a log are separated
+ * by an {@link #EOL}.
+ *
+ * <pre>KeyValueBuilder builder = new KeyValueBuilder();
+ *builder.parseAll(scanner, KeyValueGrammar.EOL).forEach(line -&gt; ...);</pre>
+ *
+ * @see KeyValueBuilder
+ *
+ * @author Philippe Poulard
+ */
+@Skip(token = "SP")
+public interface KeyValueGrammar extends Grammar {
+
+    @Fragment
+    CharToken SP = isOneOf(" \t");
+
+    // EOL ::= CR? LF
+    @Fragment
+    Token EOL = regex("\r?\n");
+
+    // KEY ::= [^\s="]+
+    Token KEY = regex("[^\\s=\"]+");
+
+    // not a fragment, to tell "key=" from "key" ; "key= next=1" has an empty value
+    @Skip(token = "SP", after = false)
+    Token EQUAL = is('=');
+
+    // QUOTED ::= '"' ( [^"\\#xD#xA] | '\' [^#xD#xA] )* '"'
+    @Skip(token = "SP", before = false)
+    Token QUOTED = regex("\"(?:[^\"\\\\\r\n]|\\\\[^\r\n])*\"");
+
+    // BARE ::= [^\s"]+
+    @Skip(token = "SP", before = false)
+    Token BARE = regex("[^\\s\"]+");
+
+    // Pair ::= KEY ( EQUAL ( QUOTED | BARE )? )?
+    Rule Pair = KEY.seq(EQUAL.seq(QUOTED.or(BARE).optional()).optional());
+
+    // Line ::= Pair*
+    @MainRule
+    Rule Line = Pair.zeroOrMore();
+
+    KeyValueGrammar $ = $();
+
+}
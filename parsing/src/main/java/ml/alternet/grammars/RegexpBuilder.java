@@ -0,0 +1,181 @@
+package ml.alternet.grammars;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import ml.alternet.misc.CharRange;
+import ml.alternet.misc.CharRange.BoundRange;
+import ml.alternet.parser.EventsHandler.TokenValue;
+import ml.alternet.parser.ast.RuleMapper;
+import ml.alternet.parser.ast.TokenMapper;
+import ml.alternet.parser.ast.ValueBuilder;
+import ml.alternet.parser.handlers.ValueMapper.Value;
+import ml.alternet.parser.util.Dfa;
+import ml.alternet.parser.util.Dfa.Node;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Build the nodes of a regular expression, from which
+ * a deterministic automaton is compiled.
+ *
+ * <pre>Dfa.Node node = new RegexpBuilder().parse("[a-z_]\\w*", true).get();</pre>
+ *
+ * @see RegexpGrammar
+ * @see Dfa
+ *
+ * @author Philippe Poulard
+ */
+public class RegexpBuilder extends ValueBuilder<Node> {
+
+    static final CharRange DIGIT = CharRange.range('0', '9');
+    static final CharRange WORD = CharRange.range('a', 'z')
+        .union(CharRange.range('A', 'Z'), DIGIT, CharRange.is('_'));
+    static final CharRange SPACE = CharRange.isOneOf(" \t\n\u000B\f\r");
+    static final CharRange ANY = CharRange.ANY.except(CharRange.isOneOf("\n\r"));
+
+    /**
+     * Create a regular expression builder.
+     */
+    public RegexpBuilder() {
+        super(RegexpGrammar.$);
+        // chars are holding char ranges
+        setTokenMapper(TokenMapper.<Object> $()
+            .add(RegexpGrammar.CHAR, (stack, token, next) -> CharRange.is(codepoint(token.getValue())))
+            .add(RegexpGrammar.SET_CHAR, (stack, token, next) -> CharRange.is(codepoint(token.getValue())))
+            .add(RegexpGrammar.FIRST_CHAR, (stack, token, next) -> CharRange.is(']'))
+            .add(RegexpGrammar.ANY_CHAR, (stack, token, next) -> ANY)
+            .add(RegexpGrammar.ESCAPE, (stack, token, next) -> escape(token.getValue()))
+            .add(RegexpGrammar.NUMBER, (stack, token, next) -> Integer.valueOf(token.getValue()))
+            .get()
+        );
+        setRuleMapper(RuleMapper.<Object> $()
+            .add(RegexpGrammar.Bounds, (stack, rule, args) -> {
+                // n | n , | n , m
+                int min = (Integer) args.removeFirst().getTarget();
+                int max = args.isEmpty() ? min
+                    : args.size() == 1 ? -1
+                    : (Integer) args.getLast().getTarget();
+                if (max != -1 && max < min) {
+                    throw new IllegalArgumentException("Malformed quantifier {" + min + ',' + max + '}');
+                }
+                return new int[] { min, max };
+            }).add(RegexpGrammar.Quantifier, (stack, rule, args) -> {
+                Value<Object> quantifier = args.getFirst();
+                if (quantifier.isSource()) {
+                    // the alternatives '?', '*' and '+' are merged in a single char token
+                    String c = ((TokenValue<?>) quantifier.getSource()).getValue();
+                    return c.equals("?") ? new int[] { 0, 1 }
+                        : new int[] { c.equals("*") ? 0 : 1, -1 };
+                } else {
+                    return quantifier.getTarget(); // bounds
+                }
+            }).add(RegexpGrammar.Range, (stack, rule, args) -> {
+                int start = single(args.getFirst().getTarget());
+                int end = single(args.getLast().getTarget());
+                if (end < start) {
+                    throw new IllegalArgumentException("Malformed range "
+                        + new StringBuilder().appendCodePoint(start).append('-').appendCodePoint(end));
+                }
+                return CharRange.range(start, end);
+            }).add(RegexpGrammar.Set, (stack, rule, args) -> {
+                boolean negate = args.getFirst().isSource(); // the '^' is not mapped
+                if (negate) {
+                    args.removeFirst();
+                }
+                CharRange range = CharRange.EMPTY;
+                for (Value<Object> item : args) {
+                    range = range.union((CharRange) item.getTarget());
+                }
+                return negate ? CharRange.ANY.except(range) : range;
+            }).add(RegexpGrammar.BasicExp, (stack, rule, args) -> {
+                Iterator<Value<Object>> it = args.iterator();
+                Object exp = it.next().getTarget();
+                Node node = exp instanceof CharRange ? new Dfa.Chars((CharRange) exp) : (Node) exp;
+                while (it.hasNext()) {
+                    int[] bounds = (int[]) it.next().getTarget();
+                    node = new Dfa.Repeat(node, bounds[0], bounds[1]);
+                }
+                return node;
+            }).add(RegexpGrammar.SimpleExp, (stack, rule, args) -> {
+                List<Node> nodes = nodes(args);
+                return nodes.size() == 1 ? nodes.get(0) : new Dfa.Sequence(nodes);
+            }).add(RegexpGrammar.Exp, (stack, rule, args) -> {
+                List<Node> nodes = nodes(args);
+                return nodes.size() == 1 ? nodes.get(0) : new Dfa.Alternation(nodes);
+            }).get()
+        );
+    }
+
+    /**
+     * Build the nodes of a regular expression.
+     *
+     * @param input The input.
+     * @param matchAll <code>true</code> to build nothing when
+     *      characters remain after the regular expression,
+     *      <code>false</code> to leave them in the input.
+     *
+     * @return The root node, or empty if the input is malformed.
+     *
+     * @throws IOException When an I/O error occurs.
+     * @throws IllegalArgumentException When a quantifier or
+     *      a range is malformed.
+     */
+    @Override
+    public Optional<Node> parse(Scanner input, boolean matchAll) throws IOException {
+        Optional<Node> value = super.parse(input, matchAll);
+        if (matchAll && input.hasNext()) {
+            return Optional.empty();
+        } else {
+            return value;
+        }
+    }
+
+    static List<Node> nodes(Iterable<Value<Object>> args) {
+        List<Node> nodes = new ArrayList<>();
+        args.forEach(arg -> nodes.add((Node) arg.getTarget()));
+        return nodes;
+    }
+
+    static int codepoint(String c) {
+        return c.codePointAt(0);
+    }
+
+    // the char of a range boundary
+    static int single(Object range) {
+        if (range instanceof BoundRange && ((BoundRange) range).start() == ((BoundRange) range).end()) {
+            return ((BoundRange) range).start();
+        } else {
+            throw new IllegalArgumentException("Malformed range " + range);
+        }
+    }
+
+    /**
+     * Return the chars of an escape.
+     *
+     * @param escape A valid escape, e.g. <code>\d</code>
+     *      or <code>&#92;u00e9</code>
+     *
+     * @return The chars matched by the escape.
+     */
+    static CharRange escape(String escape) {
+        int c = escape.codePointAt(1);
+        switch (c) {
+        case 'd': return DIGIT;
+        case 'D': return CharRange.ANY.except(DIGIT);
+        case 'w': return WORD;
+        case 'W': return CharRange.ANY.except(WORD);
+        case 's': return SPACE;
+        case 'S': return CharRange.ANY.except(SPACE);
+        case 't': return CharRange.is('\t');
+        case 'n': return CharRange.is('\n');
+        case 'r': return CharRange.is('\r');
+        case 'f': return CharRange.is('\f');
+        case 'u': return CharRange.is(Integer.parseInt(escape.substring(2), 16));
+        default: return CharRange.is(c);
+        }
+    }
+
+}
@@ -1,113 +1,110 @@
 package ml.alternet.grammars;
 
-import static ml.alternet.parser.Grammar.is;
+import static ml.alternet.parser.Grammar.*;
 
-import java.io.IOException;
-
-import ml.alternet.misc.TodoException;
-
-import static ml.alternet.parser.Grammar.$;
-
-import ml.alternet.parser.EventsHandler;
 import ml.alternet.parser.Grammar;
-import ml.alternet.scan.Scanner;
 
 /**
- * TODO
+ * The syntax of regular expressions, as a grammar.
  *
- * @author Philippe Poulard
+ * <pre>Exp           ::= SimpleExp ( '|' SimpleExp )*
+ *SimpleExp     ::= BasicExp*
+ *BasicExp      ::= ElementaryExp Quantifier*
+ *Quantifier    ::= '?' | '*' | '+' | Bounds
+ *Bounds        ::= '{' NUMBER ( ',' NUMBER? )? '}'
+ *ElementaryExp ::= Group | Set | '.' | ESCAPE | CHAR
+ *Group         ::= '(' '?:'? Exp ')'
+ *Set           ::= '[' '^'? ( ']' | SetItem ) SetItem* ']'
+ *SetItem       ::= Range | Chr
+ *Range         ::= Chr '-' Chr
+ *Chr           ::= ESCAPE | SET_CHAR</pre>
+ *
+ * The groups don't capture anything, the quantifiers are greedy,
+ * and the escapes are <code>\d \D \w \W \s \S \t \n \r \f &#92;uXXXX</code>,
+ * or <code>\</code> followed by any char that is not an ASCII letter
+ * or digit for that char.
+ *
+ * To match a regular expression, use {@link Grammar#regex(String)} : the
+ * expression is parsed with this grammar, and compiled to a deterministic
+ * automaton, which is faster than parsing with a grammar.
  *
- * @see <a href="http://www.unicode.org/reports/tr18/">Unicode TR 18</a>
+ * @see RegexpBuilder
+ * @see ml.alternet.parser.util.Dfa
+ *
+ * @author Philippe Poulard
  */
 public interface RegexpGrammar extends Grammar {
 
-    @Override
-    default boolean parse(Scanner scanner, EventsHandler handler, Rule rule, boolean matchAll) throws IOException {
-        throw new TodoException("GRAMMAR NOT YET IMPLEMENTED");
-    }
-
-    Proxy SimpleExp = $();
-
     Token OPTIONAL = is('?');
     Token ZERO_OR_MORE = is('*');
     Token ONE_OR_MORE = is('+');
+    @Fragment
     Token ALTERATION = is('|');
     Token ANY_CHAR = is('.');
+    @Fragment
     Token LEFT_BRACE = is('(');
+    @Fragment
+    Token NON_CAPTURING = is("?:");
+    @Fragment
     Token RIGHT_BRACE = is(')');
+    @Fragment
+    Token LEFT_BRACKET = is('[');
+    @Fragment
+    Token RIGHT_BRACKET = is(']');
+    @Fragment
+    Token LEFT_CURLY = is('{');
+    @Fragment
+    Token RIGHT_CURLY = is('}');
+
+    // not a fragment, to tell "{2}" from "{2,}"
+    Token UNBOUNDED = is(',');
+    Token NUMBER = range('0', '9').oneOrMore().asToken();
+
+    Token NEGATE = is('^');
+    @Fragment
+    Token RANGE = is('-');
+    // a ']' at the beginning of a set
+    Token FIRST_CHAR = is(']');
+    Token SET_CHAR = isNotOneOf("]\\");
+    Token CHAR = isNotOneOf("()[].\\?*+{|");
 
-    @MainRule
-    Rule Exp = SimpleExp.seq(ALTERATION.seq(SimpleExp).zeroOrMore());
+    @Fragment
+    Token HEX = isOneOf("0123456789abcdefABCDEF");
+    // ESCAPE ::= '\' ( 'u' HEX HEX HEX HEX | [dDwWsStnrf] | [^a-zA-Z0-9] )
+    Token ESCAPE = is('\\').seq(
+            is('u').seq(HEX, HEX, HEX, HEX)
+            .or(isOneOf("dDwWsStnrf"), isNot(range('a', 'z'), range('A', 'Z'), range('0', '9')))
+        ).asToken();
+
+    Rule Bounds = LEFT_CURLY.seq(NUMBER, UNBOUNDED.seq(NUMBER.optional()).optional(), RIGHT_CURLY);
+
+    Rule Quantifier = OPTIONAL.or(ZERO_OR_MORE, ONE_OR_MORE, Bounds);
 
+    @Fragment
     Proxy ElementaryExp = $();
 
-    boolean b1 = SimpleExp.is( ElementaryExp.oneOrMore() );
+    Rule BasicExp = ElementaryExp.seq(Quantifier.zeroOrMore());
 
-    // mandatory groups are not processed as optional groups
-    // (optional groups must not fire characters as one goes along
-    // rather they have to ensure that the group does match)
-    Proxy ZeroOrMoreGroup = $();
-    Proxy OptionalGroup = $();
-    Proxy OneOrMoreGroup = $();
-    Proxy MandatoryGroup = $();
-    Rule Group = OptionalGroup.or(ZeroOrMoreGroup, OneOrMoreGroup);
+    Rule SimpleExp = BasicExp.zeroOrMore();
 
-    boolean b2 =  OptionalGroup.  is( LEFT_BRACE.seq(Exp, RIGHT_BRACE, OPTIONAL) ) // optional
-                ^ ZeroOrMoreGroup.is( LEFT_BRACE.seq(Exp, RIGHT_BRACE, ZERO_OR_MORE) ) // optional
-                ^ OneOrMoreGroup. is( LEFT_BRACE.seq(Exp, RIGHT_BRACE, ONE_OR_MORE ) ) // can fire characters
-                ^ MandatoryGroup .is( LEFT_BRACE.seq(Exp, RIGHT_BRACE) ); // can fire characters
+    @MainRule
+    Rule Exp = SimpleExp.seq(ALTERATION.seq(SimpleExp).zeroOrMore());
+
+    @Fragment
+    Rule Group = LEFT_BRACE.seq(NON_CAPTURING.optional(), Exp, RIGHT_BRACE);
+
+    @Fragment
+    Rule Chr = ESCAPE.or(SET_CHAR);
 
-    Token RANGE = is('-');
-    Proxy Chr = $();
     Rule Range = Chr.seq(RANGE, Chr);
 
+    @Fragment
     Rule SetItem = Range.or(Chr);
-    Rule SetItems = SetItem.zeroOrMore();
-
-/*
-    <RE>    ::=     <union> | <simple-RE>
-    <union>     ::= <RE> "|" <simple-RE>
-    <simple-RE>     ::=     <concatenation> | <basic-RE>
-    <concatenation>     ::= <simple-RE> <basic-RE>
-    <basic-RE>  ::= <star> | <plus> | <elementary-RE>
-    <star>  ::= <elementary-RE> "*"
-    <plus>  ::= <elementary-RE> "+"
-    <elementary-RE>     ::= <group> | <any> | <eos> | <char> | <set>
-    <group>     ::=     "(" <RE> ")"
-    <any>   ::=     "."
-    <eos>   ::=     "$"
-    <char>  ::=     any non metacharacter | "\" metacharacter
-    <set>   ::=     <positive-set> | <negative-set>
-    <positive-set>  ::=     "[" <set-items> "]"
-    <negative-set>  ::=     "[^" <set-items> "]"
-    <set-items>     ::=     <set-item> | <set-item> <set-items>
-    <set-items>     ::=     <range> | <char>
-    <range>     ::=     <char> "-" <char>
-*/
- // * is not zeroOrMore because it is greedy (each repetition have to be marked and backtrack occurs for the last-1 after a fail and so on)
-
-//    static class Expr extends Token {
-//        String string;
-//        NFA nfa;
-//        public Expr(String string) {
-//            this.string = string;
-//            this.nfa = new NFAFactory().createNFA(string);
-//        }
-//
-//        @Override
-//        public boolean parse(Scanner scanner, HandlerBuffer handler) throws IOException {
-//            // TODO : once the regexp doesn't match anymore, it success if it is at the end, and fails if more regexp have to match
-//            scanner.mark();
-//            String input = scanner.getRemainderString();
-//            if (this.nfa.test(input)) {
-//                scanner.consume();
-//                handler.emit(this, input);
-//                return true;
-//            } else {
-//                scanner.cancel();
-//                return false;
-//            }
-//        }
-//    }
+
+    Rule Set = LEFT_BRACKET.seq(NEGATE.optional(), FIRST_CHAR.or(SetItem), SetItem.zeroOrMore(), RIGHT_BRACKET);
+
+    boolean b1 = ElementaryExp.is(Group.or(Set, ANY_CHAR, ESCAPE, CHAR));
+
+    RegexpGrammar $ = $();
 
 }
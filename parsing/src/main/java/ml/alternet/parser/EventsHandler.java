@@ -138,6 +138,9 @@ public interface EventsHandler {
      */
     abstract class RuleEvent<R extends Rule> implements Trackable {
 
+        // the position is resolved on demand from the offset and the line table
+        long offset = -1;
+        TrackableScanner.LineTable lines;
         Optional<Position> pos;
         R rule;
 
@@ -153,7 +156,20 @@ public interface EventsHandler {
          */
         public RuleEvent(R rule, Trackable trackable) {
             this.rule = rule;
-            this.pos = trackable.getPosition();
+            if (trackable instanceof TrackableScanner) {
+                // just keep the offset, the position is built if necessary
+                TrackableScanner scanner = (TrackableScanner) trackable;
+                this.offset = scanner.getOffset();
+                this.lines = scanner.getLineTable();
+            } else if (trackable instanceof RuleEvent) {
+                RuleEvent<?> event = (RuleEvent<?>) trackable;
+                this.offset = event.offset;
+                this.lines = event.lines;
+                this.pos = event.pos;
+            } else {
+                this.pos = trackable.getPosition();
+                this.pos.ifPresent(p -> this.offset = p.getOffset());
+            }
         }
 
         /**
@@ -174,9 +190,37 @@ public interface EventsHandler {
          */
         @Override
         public Optional<Position> getPosition() {
+            if (this.pos == null) {
+                this.pos = Optional.of(this.lines.at(this.offset));
+            }
             return this.pos;
         }
 
+        /**
+         * Return the offset of this event, which is cheaper
+         * than getting its position.
+         *
+         * @return The offset, or -1 if the scanner doesn't track it.
+         *
+         * @see #getPosition()
+         */
+        public long getOffset() {
+            return this.offset;
+        }
+
+        /**
+         * Relocate this event, when the input has been
+         * edited before its position.
+         *
+         * @param position The new position.
+         *
+         * @see ml.alternet.parser.util.IncrementalParser
+         */
+        public void setPosition(Position position) {
+            this.pos = Optional.of(position);
+            this.offset = position.getOffset();
+        }
+
         /**
          * Emit this event to the target handler.
          *
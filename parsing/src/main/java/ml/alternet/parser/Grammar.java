@@ -11,10 +11,17 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -22,6 +29,7 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import ml.alternet.parser.visit.TraversableRule;
 import ml.alternet.facet.Initializable;
@@ -40,10 +48,16 @@ import ml.alternet.parser.ast.NodeBuilder;
 import ml.alternet.parser.ast.ValueBuilder;
 import ml.alternet.parser.handlers.DataHandler;
 import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.util.Batch;
+import ml.alternet.parser.util.Budget;
 import ml.alternet.parser.util.ComposedRule;
+import ml.alternet.parser.util.Dfa;
 import ml.alternet.parser.util.Grammar$;
+import ml.alternet.parser.util.Interception;
+import ml.alternet.parser.util.ParseSession;
 import ml.alternet.parser.util.Parser;
 import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.parser.util.TokenIterator;
 import ml.alternet.scan.EnumValues;
 import ml.alternet.scan.NumberConstraint;
 import ml.alternet.scan.Scanner;
@@ -274,11 +288,35 @@ public interface Grammar {
      * @param dataHandler A data handler for the given grammar.
      *
      * @return The given grammar exposed as a token.
+     *
+     * @see #embed(Grammar, Supplier)
      */
     static Token is(Grammar grammar, Supplier<DataHandler<?>> dataHandler) {
         return new GrammarToken(grammar, dataHandler);
     }
 
+    /**
+     * Embed a grammar as a token.
+     *
+     * Like {@link #is(Grammar, Supplier)}, but the data handlers
+     * supplied are reused from one value to the next one, therefore
+     * they MUST clear their state on {@link DataHandler#reset()},
+     * like {@link NodeBuilder} and {@link ValueBuilder} ; the
+     * embedded grammar costs then almost the same as its rules
+     * would cost in this grammar.
+     *
+     * <pre>// EXPRESSION ::= Calc
+     *Token EXPRESSION = embed(Calc.$, ExpressionBuilder::new);</pre>
+     *
+     * @param grammar The other grammar.
+     * @param dataHandler A data handler for the given grammar.
+     *
+     * @return The given grammar exposed as a token.
+     */
+    static Token embed(Grammar grammar, Supplier<DataHandler<?>> dataHandler) {
+        return new GrammarToken(grammar, dataHandler, true);
+    }
+
     /**
      * Create a range rule.
      *
@@ -332,6 +370,53 @@ public interface Grammar {
         return new Number(constraint);
     }
 
+    /**
+     * Create a token that matches a regular expression.
+     *
+     * <pre>// IDENTIFIER ::= [a-zA-Z_] [a-zA-Z0-9_]*
+     *Token IDENTIFIER = regex("[a-zA-Z_]\\w*");</pre>
+     *
+     * Unlike a combination of rules, the regular expression
+     * is matched greedily in a single pass, without backtracking :
+     * the longest match is read from the input. The token value
+     * is the string matched ; a regular expression that matches
+     * nothing (an empty string) fails.
+     *
+     * @see Dfa
+     *
+     * @param regex The regular expression.
+     *
+     * @return A regex token.
+     *
+     * @throws IllegalArgumentException When the regular expression is malformed.
+     */
+    static RegexToken regex(String regex) {
+        return new RegexToken(regex);
+    }
+
+    /**
+     * Create a cut : once passed, the input and the events
+     * so far are committed.
+     *
+     * <pre>// Record ::= Field ( ',' Field )* '\n'
+     *Rule Records = Record.seq(cut()).zeroOrMore();</pre>
+     *
+     * A failure that would backtrack before the cut makes the
+     * enclosing rules fail, without trying the other alternatives
+     * of choices or ending repetitions. In return, the scanner
+     * releases the characters read so far, and the handler buffer
+     * flushes the pending events to its target, which allow to
+     * parse a large input in constant memory.
+     *
+     * @see Commit
+     * @see ml.alternet.facet.Rewindable#cut()
+     *
+     * @return A cut rule, that matches an empty string.
+     */
+    static Cut cut() {
+        return new Cut();
+    }
+
     /**
      * Create a proxy rule, useful when a rule reference is expected while its
      * definition will be specified later.
@@ -388,6 +473,169 @@ public interface Grammar {
      */
     boolean parse(Scanner scanner, EventsHandler handler, Rule rule, boolean matchAll) throws IOException;
 
+    /**
+     * Parse an input with the main rule of this grammar,
+     * within a budget.
+     *
+     * @param scanner The input.
+     * @param handler The receiver.
+     * @param budget The limits of the parsing.
+     * @param matchAll <code>true</code> to indicates that the
+     *      rule must match the entire input, <code>false</code>
+     *      otherwise.
+     *
+     * @return <code>true</code> if the rule was matched, and
+     *          if required no character remains in the input,
+     *          <code>false</code> otherwise.
+     *
+     * @throws IOException When the input cause an error.
+     * @throws Budget.Exceeded When a limit of the budget
+     *      has been exceeded : the parsing is aborted.
+     *
+     * @see ParseSession#setBudget(Budget)
+     */
+    default boolean parse(Scanner scanner, EventsHandler handler, Budget budget, boolean matchAll)
+            throws IOException
+    {
+        ParseSession session = newSession(scanner, handler).setBudget(budget);
+        session.parse();
+        return matchAll ? session.isComplete() : session.isMatched();
+    }
+
+    /**
+     * Prepare the parsing of an input with the main rule
+     * of this grammar.
+     *
+     * @param scanner The input.
+     * @param handler The receiver.
+     *
+     * @return A new session, ready to parse.
+     *
+     * @throws IllegalStateException When this grammar
+     *      doesn't have a main rule.
+     *
+     * @see #newSession(Scanner, EventsHandler, Rule)
+     */
+    default ParseSession newSession(Scanner scanner, EventsHandler handler) {
+        return newSession(scanner, handler, mainRule().orElseThrow(
+            () -> new IllegalStateException("No main rule found in " + getClass().getName())));
+    }
+
+    /**
+     * Prepare the parsing of an input with a rule of
+     * this grammar.
+     *
+     * The state of the parsing belongs to the session : a grammar
+     * can be shared by several threads, each of them parsing with
+     * its own sessions.
+     *
+     * @param scanner The input.
+     * @param handler The receiver.
+     * @param rule The rule to use for parsing the input.
+     *
+     * @return A new session, ready to parse.
+     */
+    default ParseSession newSession(Scanner scanner, EventsHandler handler, Rule rule) {
+        return new ParseSession(this, rule, scanner, handler);
+    }
+
+    /**
+     * Pull the tokens of an input one at a time, with
+     * the tokens of the "tokenizer rule".
+     *
+     * Each token is parsed on demand, and only the backtracking
+     * state of the current token is kept. The iteration ends
+     * when the input is exhausted or when no token matches : the
+     * scanner then contains the remainder.
+     *
+     * @param scanner The input.
+     *
+     * @return The tokens.
+     *
+     * @see #tokenizer()
+     * @see #tokens(Scanner)
+     */
+    default Iterator<TokenValue<?>> tokenIterator(Scanner scanner) {
+        return new TokenIterator(((ZeroOrMore) tokenizer()).getComponent(), scanner);
+    }
+
+    /**
+     * Stream the tokens of an input, with the tokens of the
+     * "tokenizer rule" ; the tokens are parsed on demand, and the
+     * parsing stops as soon as the stream is short-circuited.
+     *
+     * <pre>Optional&lt;TokenValue&lt;?&gt;&gt; first = Calc.$.tokens(scanner).findFirst();</pre>
+     *
+     * @param scanner The input.
+     *
+     * @return The tokens, in the order of the input.
+     *
+     * @see #tokenIterator(Scanner)
+     */
+    default Stream<TokenValue<?>> tokens(Scanner scanner) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(tokenIterator(scanner),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Parse concurrently a batch of inputs with the main rule of
+     * this grammar ; the results are in the order of the inputs.
+     *
+     * @param inputs The inputs, pulled on demand.
+     * @param handler Supply the data handler of a thread.
+     * @param executor Run the parsing of each input, e.g.
+     *      <code>ForkJoinPool.commonPool()</code>.
+     *
+     * @return The results, including the failures.
+     *
+     * @param <T> The type of the values built.
+     *
+     * @see #parseAll(Stream, Supplier, Executor, boolean)
+     */
+    default <T> Stream<Batch.Result<T>> parseAll(Stream<? extends CharSequence> inputs,
+            Supplier<? extends DataHandler<T>> handler, Executor executor)
+    {
+        return parseAll(inputs, handler, executor, true);
+    }
+
+    /**
+     * Parse concurrently a batch of inputs with the main rule of
+     * this grammar.
+     *
+     * Each input is parsed by a task of the executor, with the data
+     * handler of the thread that runs the task : the handler is
+     * created once per thread with the supplier, and reset before
+     * each input. An input that is not entirely matched, or that
+     * causes an error, gives a result without value.
+     *
+     * <pre>Calc.$.parseAll(lines, () -&gt; new ExpressionBuilder(), ForkJoinPool.commonPool(), false)
+     *    .filter(r -&gt; ! r.isMatched())
+     *    .forEach(r -&gt; System.err.println("Line " + r.getIndex() + " : " + r.getInput()));</pre>
+     *
+     * @param inputs The inputs, pulled on demand.
+     * @param handler Supply the data handler of a thread.
+     * @param executor Run the parsing of each input, e.g.
+     *      <code>ForkJoinPool.commonPool()</code>.
+     * @param ordered <code>true</code> to get the results in
+     *      the order of the inputs, <code>false</code> to get
+     *      them as soon as they are available.
+     *
+     * @return The results, including the failures.
+     *
+     * @param <T> The type of the values built.
+     */
+    default <T> Stream<Batch.Result<T>> parseAll(Stream<? extends CharSequence> inputs,
+            Supplier<? extends DataHandler<T>> handler, Executor executor, boolean ordered)
+    {
+        int window = 4 * (executor instanceof ForkJoinPool
+            ? ((ForkJoinPool) executor).getParallelism()
+            : Runtime.getRuntime().availableProcessors());
+        Batch<T> batch = new Batch<>(this, inputs.iterator(), handler, executor, ordered, window);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batch,
+                (ordered ? Spliterator.ORDERED : 0) | Spliterator.NONNULL), false)
+            .onClose(inputs::close);
+    }
+
     /**
      * Mark the main rule of a grammar with this annotation.
      *
@@ -502,6 +750,18 @@ public interface Grammar {
 
     }
 
+    /**
+     * Cut once the annotated rule is matched, that is to
+     * say that the rule is committed like if it was followed
+     * by {@link Grammar#cut()}.
+     *
+     * @author Philippe Poulard
+     */
+    @Documented
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ ElementType.FIELD })
+    @interface Commit { }
+
     /**
      * Replace a rule/token field when extending
      * a grammar. The replacement is made on the
@@ -666,11 +926,16 @@ public interface Grammar {
          */
         @SuppressWarnings("unchecked")
         public final Match parse(Scanner scanner, Handler handler) {
-            return this.parser.parse(this, scanner, handler);
+            return Interception.invoke(this.parser, this, scanner, handler);
         };
 
         /**
          * The active part of the rule when it is applied on the input to parse.
+         *
+         * <p>It is set while the grammar is initialized, and is not modified
+         * after : the tools that observe a parsing intercept the invocations
+         * of the parser in the thread that parses instead, see
+         * {@link Interception}.</p>
          */
         @SuppressWarnings("rawtypes")
         public Parser parser;
@@ -866,14 +1131,7 @@ public interface Grammar {
         @SuppressWarnings("unchecked")
         public <T extends Rule> T drop() {
             if (isGrammarField()) {
-                @SuppressWarnings("rawtypes")
-                Parser p = this.parser;
-                this.parser = new Parser<Rule>() {
-                    @Override
-                    public Match parse(Rule rule, Scanner scanner, Handler handler) {
-                        return p.parse(rule, scanner, Handler.NULL_HANDLER);
-                    }
-                };
+                this.parser = new Parser.Drop(this.parser);
                 return (T) this;
             } else {
                 return (T) new DropToken(this);
@@ -933,6 +1191,32 @@ public interface Grammar {
 
     }
 
+    /**
+     * A cut, that commits the input and the events so far.
+     *
+     * @see Grammar#cut()
+     *
+     * @author Philippe Poulard
+     */
+    class Cut extends Rule implements TraversableRule.StandaloneRule {
+
+        /**
+         * Create a cut.
+         */
+        public Cut() {
+            this.parser = (Parser<Cut>) (cut, scanner, handler) -> {
+                Parser.Commit.cut(scanner, handler);
+                return Match.EMPTY;
+            };
+        }
+
+        @Override
+        public StringBuilder toPrettyString(StringBuilder buf) {
+            return buf.append('^');
+        }
+
+    }
+
     /**
      * A rule skeleton for composing rules.
      *
@@ -998,17 +1282,22 @@ public interface Grammar {
             setParser();
         }
 
-        void setParser() {
-            this.parser = (Parser<Proxy>) (proxy, scanner, handler) -> {
-                handler.mark();
+        /**
+         * The parser of proxies.
+         */
+        public static final Parser<Proxy> PARSER = (proxy, scanner, handler) -> {
+            handler.mark();
 
-                handler.receive(new RuleStart(proxy, scanner));
-                Match match = proxy.getComponent().parse(scanner, handler);
-                handler.receive(new RuleEnd(proxy, scanner, ! match.fail()));
+            handler.receive(new RuleStart(proxy, scanner));
+            Match match = proxy.getComponent().parse(scanner, handler);
+            handler.receive(new RuleEnd(proxy, scanner, ! match.fail()));
 
-                handler.commit(! match.fail());
-                return match;
-            };
+            handler.commit(! match.fail());
+            return match;
+        };
+
+        void setParser() {
+            this.parser = PARSER;
         }
 
         @Override
@@ -1139,14 +1428,25 @@ public interface Grammar {
          */
         public Optional(Rule optionalRule) {
             super(optionalRule);
-            this.parser = (Parser<Optional>) (optional, scanner, handler) -> {
-                handler.receive(new RuleStart(optional, scanner));
-                Match match = optional.getComponent().parse(scanner, handler);
-                handler.receive(new RuleEnd(optional, scanner, true));
-                return match.asOptional();
-            };
+            this.parser = PARSER;
         }
 
+        /**
+         * The parser of optional rules.
+         */
+        public static final Parser<Optional> PARSER = (optional, scanner, handler) -> {
+            handler.receive(new RuleStart(optional, scanner));
+            int cuts = scanner.getCuts();
+            Match match = optional.getComponent().parse(scanner, handler);
+            if (match.fail() && scanner.getCuts() != cuts) {
+                // can't backtrack before the cut
+                handler.receive(new RuleEnd(optional, scanner, false));
+                return Match.FAIL;
+            }
+            handler.receive(new RuleEnd(optional, scanner, true));
+            return match.asOptional();
+        };
+
         @Override
         public StringBuilder toPrettyString(StringBuilder buf) {
             return getComponent().toStringBuilder(buf).append('?');
@@ -1178,25 +1478,34 @@ public interface Grammar {
          */
         public ZeroOrMore(Rule repeatableRule) {
             super(repeatableRule);
-            this.parser = (Parser<ZeroOrMore>) (zeroOrMore, scanner, handler) -> {
-                // never fail, don't need to mark
-                handler.receive(new RuleStart(zeroOrMore, scanner));
-                Match ruleMatch = Match.EMPTY;
-                if (scanner.hasNext()) {
-                    do {
-                        Match match = zeroOrMore.getComponent().parse(scanner, handler);
-                        if (match.empty()) {
-                            break;
-                        } else {
-                            ruleMatch = Match.SUCCESS;
-                        }
-                    } while (scanner.hasNext());
-                }
-                handler.receive(new RuleEnd(zeroOrMore, scanner, true));
-                return ruleMatch;
-            };
+            this.parser = PARSER;
         }
 
+        /**
+         * The parser of optional repeatable rules.
+         */
+        public static final Parser<ZeroOrMore> PARSER = (zeroOrMore, scanner, handler) -> {
+            // never fail, don't need to mark
+            handler.receive(new RuleStart(zeroOrMore, scanner));
+            Match ruleMatch = Match.EMPTY;
+            if (scanner.hasNext()) {
+                do {
+                    int cuts = scanner.getCuts();
+                    Match match = zeroOrMore.getComponent().parse(scanner, handler);
+                    if (match.empty()) {
+                        if (match.fail() && scanner.getCuts() != cuts) {
+                            ruleMatch = Match.FAIL; // can't backtrack before the cut
+                        }
+                        break;
+                    } else {
+                        ruleMatch = Match.SUCCESS;
+                    }
+                } while (scanner.hasNext());
+            }
+            handler.receive(new RuleEnd(zeroOrMore, scanner, true));
+            return ruleMatch;
+        };
+
         @Override
         public StringBuilder toPrettyString(StringBuilder buf) {
             return getComponent().toStringBuilder( buf).append('*');
@@ -1227,28 +1536,37 @@ public interface Grammar {
         public AtLeast(Rule repeatable, int min) {
             super(repeatable);
             this.min = min;
-            this.parser = (Parser<AtLeast>) (atLeast, scanner, handler) -> {
-                int count = 0;
-                handler.mark();
-                handler.receive(new RuleStart(atLeast, scanner));
-                Match ruleMatch = scanner.hasNext()
-                        ? atLeast.getComponent().parse(scanner, handler)
-                        : Match.FAIL;
-                if (! ruleMatch.empty() && scanner.hasNext()) {
-                    do {
-                        Match match = atLeast.getComponent().parse(scanner, handler);
-                        if (match.empty()) {
-                            break;
-                        } else if (++count == this.min) {
-                            ruleMatch = Match.SUCCESS;
+            this.parser = PARSER;
+        }
+
+        /**
+         * The parser of repeatable rules.
+         */
+        public static final Parser<AtLeast> PARSER = (atLeast, scanner, handler) -> {
+            int count = 0;
+            handler.mark();
+            handler.receive(new RuleStart(atLeast, scanner));
+            Match ruleMatch = scanner.hasNext()
+                    ? atLeast.getComponent().parse(scanner, handler)
+                    : Match.FAIL;
+            if (! ruleMatch.empty() && scanner.hasNext()) {
+                do {
+                    int cuts = scanner.getCuts();
+                    Match match = atLeast.getComponent().parse(scanner, handler);
+                    if (match.empty()) {
+                        if (match.fail() && scanner.getCuts() != cuts) {
+                            ruleMatch = Match.FAIL; // can't backtrack before the cut
                         }
-                    } while (scanner.hasNext());
-                }
-                handler.receive(new RuleEnd(atLeast, scanner, ! ruleMatch.fail()));
-                handler.commit(! ruleMatch.fail());
-                return ruleMatch.asMandatory();
-            };
-        }
+                        break;
+                    } else if (++count == atLeast.min) {
+                        ruleMatch = Match.SUCCESS;
+                    }
+                } while (scanner.hasNext());
+            }
+            handler.receive(new RuleEnd(atLeast, scanner, ! ruleMatch.fail()));
+            handler.commit(! ruleMatch.fail());
+            return ruleMatch.asMandatory();
+        };
 
         @Override
         public StringBuilder toPrettyString(StringBuilder buf) {
@@ -1293,26 +1611,35 @@ public interface Grammar {
         public AtMost(Rule repeatable, int max) {
             super(repeatable);
             this.max = max;
-            this.parser = (Parser<AtMost>) (atMost, scanner, handler) -> {
-                int count = 0;
-                // never fail, don't need to mark
-                handler.receive(new RuleStart(atMost, scanner));
-                Match ruleMatch = Match.EMPTY;
-                if (scanner.hasNext()) {
-                    do {
-                        Match match = atMost.getComponent().parse(scanner, handler);
-                        if (match.empty()) {
-                            break;
-                        } else {
-                            ruleMatch = Match.SUCCESS;
-                        }
-                    } while (scanner.hasNext() && ++count <= this.max);
-                }
-                handler.receive(new RuleEnd(atMost, scanner, true));
-                return ruleMatch;
-            };
+            this.parser = PARSER;
         }
 
+        /**
+         * The parser of rules repeatable a maximal number of times.
+         */
+        public static final Parser<AtMost> PARSER = (atMost, scanner, handler) -> {
+            int count = 0;
+            // never fail, don't need to mark
+            handler.receive(new RuleStart(atMost, scanner));
+            Match ruleMatch = Match.EMPTY;
+            if (scanner.hasNext()) {
+                do {
+                    int cuts = scanner.getCuts();
+                    Match match = atMost.getComponent().parse(scanner, handler);
+                    if (match.empty()) {
+                        if (match.fail() && scanner.getCuts() != cuts) {
+                            ruleMatch = Match.FAIL; // can't backtrack before the cut
+                        }
+                        break;
+                    } else {
+                        ruleMatch = Match.SUCCESS;
+                    }
+                } while (scanner.hasNext() && ++count <= atMost.max);
+            }
+            handler.receive(new RuleEnd(atMost, scanner, true));
+            return ruleMatch;
+        };
+
         @Override
         public StringBuilder toPrettyString(StringBuilder buf) {
             return getComponent().toStringBuilder( buf ).append("{,").append(this.max).append('}');
@@ -1444,33 +1771,42 @@ public interface Grammar {
             super(repeatableRule);
             this.min = min;
             this.max = max;
-            this.parser = (Parser<Bounds>) (bounds, scanner, handler) -> {
-                int count = 0;
-                Match ruleMatch = Match.FAIL;
-                if (this.min > 0) {
-                    handler.mark();
-                    ruleMatch = Match.EMPTY;
-                } // else never fail, don't need to mark
-                handler.receive(new RuleStart(bounds, scanner));
-                if (scanner.hasNext()) {
-                    do {
-                        Match match = bounds.getComponent().parse(scanner, handler);
-                        if (match.empty()) {
-                            break;
-                        } else if (++count == this.min) {
-                            ruleMatch = Match.SUCCESS;
-                        }
-                    } while (scanner.hasNext() && count++ <= this.max);
-                }
-                handler.receive(new RuleEnd(bounds, scanner, true));
-                if (this.min > 0) {
-                    handler.commit(! ruleMatch.fail());
-                    return ruleMatch.asMandatory();
-                }
-                return ruleMatch;
-            };
+            this.parser = PARSER;
         }
 
+        /**
+         * The parser of rules repeatable in bounds.
+         */
+        public static final Parser<Bounds> PARSER = (bounds, scanner, handler) -> {
+            int count = 0;
+            Match ruleMatch = Match.FAIL;
+            if (bounds.min > 0) {
+                handler.mark();
+                ruleMatch = Match.EMPTY;
+            } // else never fail, don't need to mark
+            handler.receive(new RuleStart(bounds, scanner));
+            if (scanner.hasNext()) {
+                do {
+                    int cuts = scanner.getCuts();
+                    Match match = bounds.getComponent().parse(scanner, handler);
+                    if (match.empty()) {
+                        if (match.fail() && scanner.getCuts() != cuts) {
+                            ruleMatch = Match.FAIL; // can't backtrack before the cut
+                        }
+                        break;
+                    } else if (++count == bounds.min) {
+                        ruleMatch = Match.SUCCESS;
+                    }
+                } while (scanner.hasNext() && count++ <= bounds.max);
+            }
+            handler.receive(new RuleEnd(bounds, scanner, true));
+            if (bounds.min > 0) {
+                handler.commit(! ruleMatch.fail());
+                return ruleMatch.asMandatory();
+            }
+            return ruleMatch;
+        };
+
         @Override
         public StringBuilder toPrettyString(StringBuilder buf) {
             return getComponent().toStringBuilder( buf)
@@ -1629,19 +1965,47 @@ public interface Grammar {
         }
 
         void setParser() {
-            this.parser = (Parser<Choice>) (choice, scanner, handler) -> {
+            this.parser = parser(false);
+        }
+
+        /**
+         * Return a parser of choices.
+         *
+         * @param unskipped <code>true</code> to parse the alternatives
+         *      without skipping tokens around them, because the skip
+         *      has been hoisted to the choice, <code>false</code> to parse
+         *      the alternatives as-is.
+         *
+         * @return The parser.
+         *
+         * @see Parser.Skip.Hoisted
+         */
+        public static Parser<Choice> parser(boolean unskipped) {
+            return unskipped ? UNSKIPPED : REGULAR;
+        }
+
+        static final Parser<Choice> REGULAR = newParser(false);
+        static final Parser<Choice> UNSKIPPED = newParser(true);
+
+        static Parser<Choice> newParser(boolean unskipped) {
+            return (choice, scanner, handler) -> {
                 handler.mark();
                 handler.receive(new RuleStart(choice, scanner));
 
                 scanner.mark();
+                int cuts = scanner.getCuts();
                 for (Rule rule: choice.getComponent()) {
                     if (scanner.hasNext()) {
-                        Match match = rule.parse(scanner, handler);
+                        Match match = unskipped
+                            ? Parser.Skip.parseUnskipped(rule, scanner, handler)
+                            : rule.parse(scanner, handler);
                         if (! match.empty()) {
                             scanner.consume();
                             handler.receive(new RuleEnd(choice, scanner, true));
                             handler.commit(true);
                             return match;
+                        } else if (match.fail() && scanner.getCuts() != cuts) {
+                            break; // can't backtrack before the cut
                         }
                     }
                 }
@@ -1727,19 +2091,45 @@ public interface Grammar {
         }
 
         void setParser() {
-            this.parser = (Parser<Sequence>) (sequence, scanner, handler) -> {
+            this.parser = parser(false);
+        }
+
+        /**
+         * Return a parser of sequences.
+         *
+         * @param coalesceSkips <code>true</code> to not skip before a rule
+         *      the tokens skipped after the previous one, <code>false</code>
+         *      to parse the rules as-is.
+         *
+         * @return The parser.
+         *
+         * @see Parser.Skip#parseNext(Rule, Rule, Scanner, Handler)
+         */
+        public static Parser<Sequence> parser(boolean coalesceSkips) {
+            return coalesceSkips ? COALESCED : REGULAR;
+        }
+
+        static final Parser<Sequence> REGULAR = newParser(false);
+        static final Parser<Sequence> COALESCED = newParser(true);
+
+        static Parser<Sequence> newParser(boolean coalesceSkips) {
+            return (sequence, scanner, handler) -> {
                 handler.mark();
                 handler.receive(new RuleStart(sequence, scanner));
                 scanner.mark();
                 Match ruleMatch = Match.EMPTY;
+                Rule previous = null;
                 for (Rule rule: sequence.getComponent()) {
-                    Match match = rule.parse(scanner, handler);
+                    Match match = coalesceSkips && previous != null
+                        ? Parser.Skip.parseNext(previous, rule, scanner, handler)
+                        : rule.parse(scanner, handler);
                     if (match.fail()) {
                         ruleMatch = Match.FAIL;
                         break;
                     } else if (! match.empty()) {
                         ruleMatch = Match.SUCCESS;
                     }
+                    previous = rule;
                 }
                 scanner.commit(! ruleMatch.fail());
                 handler.receive(new RuleEnd(sequence, scanner, ! ruleMatch.fail()));
@@ -1828,6 +2218,15 @@ public interface Grammar {
             this.charRange = charRange;
         }
 
+        /**
+         * Return the char range of this char token.
+         *
+         * @return The underlying char range.
+         */
+        public CharRange getCharRange() {
+            return this.charRange;
+        }
+
         /**
          * Combine this char token with the given Unicode codepoint.
          *
@@ -1964,10 +2363,11 @@ public interface Grammar {
 
         @Override
         public boolean parse(Scanner scanner, Handler handler, boolean alreadyMarked) throws IOException {
-            java.util.Optional<String> car = scanner.nextChar(this.charRange)
-                    .map(c -> new String(Character.toChars(c)));
-            if (car.isPresent()) {
-                handler.receive(new StringValue(this, car.get(), scanner));
+            // like scanner.nextChar(this.charRange), without boxing
+            int c = scanner.lookAhead();
+            if (this.charRange.contains(c)) {
+                scanner.read(); // consume
+                handler.receive(new StringValue(this, new String(Character.toChars(c)), scanner));
                 return true;
             } else {
                 return false;
@@ -2082,6 +2482,25 @@ public interface Grammar {
             this.equal = equal;
         }
 
+        /**
+         * Return the string of this token.
+         *
+         * @return The string to match, or not to match.
+         */
+        public String getString() {
+            return this.string;
+        }
+
+        /**
+         * Indicates whether the string has to match or must not.
+         *
+         * @return <code>true</code> if the string has to match,
+         *      <code>false</code> if it must not.
+         */
+        public boolean isEqual() {
+            return this.equal;
+        }
+
         @Override
         public boolean parse(Scanner scanner, Handler handler, boolean alreadyMarked) throws IOException {
             if (! (equal ^ scanner.hasNextString(string, true))) {
@@ -2112,6 +2531,55 @@ public interface Grammar {
 
     }
 
+    /**
+     * A token that matches a regular expression.
+     *
+     * @see Grammar#regex(String)
+     *
+     * @author Philippe Poulard
+     */
+    class RegexToken extends Token implements TraversableRule.StandaloneRule {
+
+        Dfa dfa;
+
+        /**
+         * Create a regex token.
+         *
+         * @param regex The regular expression.
+         *
+         * @throws IllegalArgumentException When the regular expression is malformed.
+         */
+        public RegexToken(String regex) {
+            this.dfa = new Dfa(regex);
+        }
+
+        /**
+         * Return the regular expression of this token.
+         *
+         * @return The regular expression.
+         */
+        public String getRegex() {
+            return this.dfa.getRegex();
+        }
+
+        @Override
+        public boolean parse(Scanner scanner, Handler handler, boolean alreadyMarked) throws IOException {
+            StringBuilder buf = new StringBuilder();
+            if (this.dfa.match(scanner, buf)) {
+                handler.receive(new StringValue(this, buf.toString(), scanner));
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public StringBuilder toPrettyString(StringBuilder buf) {
+            return buf.append('/').append(this.dfa.getRegex()).append('/');
+        }
+
+    }
+
     /**
      * A token made from an enum class or a list of string values ;
      * the order of the enum values doesn’t matter ; the longest value
@@ -2144,6 +2612,15 @@ public interface Grammar {
             this.values = (EnumValues<T>) EnumValues.from(values);
         }
 
+        /**
+         * Return the values of this enum token.
+         *
+         * @return The values, that are matched by their string representation.
+         */
+        public EnumValues<T> getValues() {
+            return this.values;
+        }
+
         @Override
         public boolean parse(Scanner scanner, Handler handler, boolean alreadyMarked) throws IOException {
             java.util.Optional<T> value = this.values.nextValue(scanner);
@@ -2259,12 +2736,28 @@ public interface Grammar {
     /**
      * A token based on a grammar.
      *
+     * <p>The main rule of the grammar is linked when the token is
+     * created, and applied directly on the input, without a new
+     * parse session ; without main rule, the token never matches.</p>
+     *
+     * <p>When the token is embedded, the data handlers are reused :
+     * each thread keeps the data handlers supplied, that are
+     * {@link DataHandler#reset() reset} before and after building
+     * a value ; a new one is supplied only when the token is nested
+     * in itself.</p>
+     *
+     * @see Grammar#is(Grammar, Supplier)
+     * @see Grammar#embed(Grammar, Supplier)
+     *
      * @author Philippe Poulard
      */
     class GrammarToken extends Token implements TraversableRule.StandaloneRule {
 
         Grammar grammar;
         Supplier<DataHandler<?>> dataHandlerSupplier;
+        Rule rule;
+        // the free data handlers of each thread, null if not embedded
+        ThreadLocal<Deque<DataHandler<?>>> dataHandlers;
 
         /**
          * Expose a grammar as a token.
@@ -2276,14 +2769,60 @@ public interface Grammar {
          * @see ValueBuilder
          */
         public GrammarToken(Grammar grammar, Supplier<DataHandler<?>> dataHandlerSupplier) {
+            this(grammar, dataHandlerSupplier, false);
+        }
+
+        /**
+         * Expose a grammar as a token.
+         *
+         * @param grammar The grammar instance.
+         * @param dataHandlerSupplier Allow to supply the result parsing object.
+         * @param embedded <code>true</code> to reuse the data handlers
+         *      supplied, <code>false</code> to supply a data handler
+         *      for each value.
+         *
+         * @see NodeBuilder
+         * @see ValueBuilder
+         */
+        public GrammarToken(Grammar grammar, Supplier<DataHandler<?>> dataHandlerSupplier, boolean embedded) {
             this.grammar = grammar;
             this.dataHandlerSupplier = dataHandlerSupplier;
+            this.rule = grammar.mainRule().map(grammar::adopt).orElse(null);
+            if (embedded) {
+                this.dataHandlers = ThreadLocal.withInitial(ArrayDeque::new);
+            }
+        }
+
+        /**
+         * Indicates whether the data handlers are reused.
+         *
+         * @return <code>true</code> if this token is embedded.
+         */
+        public boolean isEmbedded() {
+            return this.dataHandlers != null;
         }
 
         @Override
         public boolean parse(Scanner scanner, Handler handler, boolean alreadyMarked) throws IOException {
-            DataHandler<?> dataHandler = this.dataHandlerSupplier.get();
-            boolean parsed = this.grammar.parse(scanner, dataHandler, false);
+            if (this.rule == null) {
+                return false;
+            } else if (this.dataHandlers == null) {
+                return parse(scanner, handler, this.dataHandlerSupplier.get());
+            } else {
+                Deque<DataHandler<?>> free = this.dataHandlers.get();
+                DataHandler<?> dataHandler = free.isEmpty() ? this.dataHandlerSupplier.get() : free.pop();
+                try {
+                    dataHandler.reset();
+                    return parse(scanner, handler, dataHandler);
+                } finally {
+                    dataHandler.reset(); // don't retain the value
+                    free.push(dataHandler);
+                }
+            }
+        }
+
+        boolean parse(Scanner scanner, Handler handler, DataHandler<?> dataHandler) {
+            boolean parsed = ! this.rule.parse(scanner, dataHandler).fail();
             if (parsed) {
                 Object value = dataHandler.get();
                 TokenValue<?> tokenValue = new TokenValue<>(this, value, scanner);
@@ -2711,6 +3250,28 @@ public interface Grammar {
      */
     Rule tokenizer(); // see Grammar$
 
+    /**
+     * Return the "lexer rule", that is to say the
+     * tokens of the "tokenizer rule" matched by maximal
+     * munch : the longest token wins, and on equal length
+     * the token declared first.
+     *
+     * The regular tokens (chars, strings, enums, regex, and
+     * tokens made of them) are matched at once with a single
+     * automaton ; the other ones are measured one after
+     * the other, and compete with the longest match of the
+     * automaton.
+     *
+     * DO NOT IMPLEMENT THIS METHOD IN YOUR GRAMMAR !
+     *
+     * @return A rule with all the tokens that are not fragments :
+     *      the rule <code>(~(T1 | T2 | T3 ...))*</code>
+     *
+     * @see #tokenizer()
+     * @see ml.alternet.parser.util.Lexer
+     */
+    Rule lexer(); // see Grammar$
+
     /**
      * Return the main rule of the grammar.
      *
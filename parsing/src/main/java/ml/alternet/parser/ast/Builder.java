@@ -2,9 +2,22 @@ package ml.alternet.parser.ast;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import ml.alternet.misc.CharRange;
+import ml.alternet.misc.Thrower;
+import ml.alternet.parser.Grammar.CharToken;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Handler;
 import ml.alternet.parser.handlers.DataHandler;
+import ml.alternet.parser.util.Parser;
 import ml.alternet.scan.Scanner;
 
 /**
@@ -65,4 +78,154 @@ public interface Builder<T> extends DataHandler<T> {
      */
     Optional<T> parse(Scanner input, boolean matchAll) throws IOException;
 
+    /**
+     * Build the successive values of an input, that is to say the
+     * successive matches of the main rule, separated by a rule.
+     *
+     * <pre>// an expression per line
+     *builder.parseAll(scanner, Grammar.is('\n')).forEach(...);</pre>
+     *
+     * The values are built on demand, with this builder, which is
+     * reset between each value. The stream ends when the input is
+     * exhausted, when a value doesn't match, or when the separator
+     * doesn't match : the scanner then contains the remainder.
+     *
+     * @param input The input.
+     * @param separator The rule that separates the values, that
+     *      doesn't produce anything.
+     *
+     * @return The values, in the order of the input.
+     *
+     * @see #parseAll(Scanner, Rule, Supplier)
+     */
+    default Stream<T> parseAll(Scanner input, Rule separator) {
+        Iterator<T> values = new Iterator<T>() {
+
+            T next;
+            boolean first = true;
+            boolean end = false;
+
+            @Override
+            public boolean hasNext() {
+                if (this.next == null && ! this.end) {
+                    if (! this.first && separator.parse(input, Handler.NULL_HANDLER).fail()) {
+                        this.end = true;
+                    } else if (! input.hasNext()) {
+                        this.end = true;
+                    } else {
+                        this.first = false;
+                        reset();
+                        Optional<T> value = Thrower.safeCall(() -> parse(input, false));
+                        this.next = value.orElse(null);
+                        this.end = ! value.isPresent();
+                    }
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public T next() {
+                if (hasNext()) {
+                    T value = this.next;
+                    this.next = null;
+                    return value;
+                } else {
+                    throw new NoSuchElementException();
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(values,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Build the successive values of an input, separated by a rule
+     * that MUST NOT match within a value, such as a line separator.
+     *
+     * The input is sliced on demand at each separator, and each slice
+     * is built by a builder of the current thread ; therefore, the
+     * values can be built in parallel. The empty slices, e.g. blank
+     * lines, are skipped. When the separator is a char token, the
+     * input is sliced at its chars without parsing it :
+     *
+     * <pre>Builder.parseAll(scanner, Grammar.is('\n'), () -&gt; new NodeBuilder&lt;&gt;(g))
+     *    .parallel()
+     *    .forEach(...);</pre>
+     *
+     * @param input The input.
+     * @param separator The rule that separates the values.
+     * @param builder Supply a builder per thread.
+     *
+     * @return The values, in the order of the input.
+     *
+     * @throws IllegalArgumentException When a slice doesn't match,
+     *      while consuming the stream.
+     *
+     * @param <T> The type of the values.
+     *
+     * @see #parseAll(Scanner, Rule)
+     */
+    static <T> Stream<T> parseAll(Scanner input, Rule separator, Supplier<? extends Builder<T>> builder) {
+        // a char separator is found by its chars, without parsing it before each char
+        CharRange stop = separator instanceof CharToken && ! (separator.parser instanceof Parser.Skip)
+            ? ((CharToken) separator).getCharRange().compile()
+            : null;
+        Iterator<String> slices = new Iterator<String>() {
+
+            StringBuilder buf = new StringBuilder();
+            String next;
+
+            @Override
+            public boolean hasNext() {
+                while (this.next == null && input.hasNext()) {
+                    String slice = slice();
+                    if (! slice.isEmpty()) { // e.g. a blank line
+                        this.next = slice;
+                    }
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public String next() {
+                if (hasNext()) {
+                    String slice = this.next;
+                    this.next = null;
+                    return slice;
+                } else {
+                    throw new NoSuchElementException();
+                }
+            }
+
+            // read until the next separator, which is consumed
+            String slice() {
+                return Thrower.safeCall(() -> {
+                    this.buf.setLength(0);
+                    if (stop == null) {
+                        while (input.hasNext() && separator.parse(input, Handler.NULL_HANDLER).empty()) {
+                            this.buf.appendCodePoint(input.nextChar());
+                        }
+                    } else {
+                        while (input.hasNext() && ! stop.contains(input.lookAhead())) {
+                            this.buf.appendCodePoint(input.nextChar());
+                        }
+                        if (input.hasNext()) {
+                            input.nextChar(stop);
+                        }
+                    }
+                    return this.buf.toString();
+                });
+            }
+        };
+        ThreadLocal<Builder<T>> builders = ThreadLocal.withInitial(builder);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(slices,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .map(slice -> {
+                Builder<T> b = builders.get();
+                b.reset();
+                return Thrower.safeCall(() -> b.parse(slice, true))
+                    .orElseThrow(() -> new IllegalArgumentException("Unable to build a value from \"" + slice + '"'));
+            });
+    }
+
 }
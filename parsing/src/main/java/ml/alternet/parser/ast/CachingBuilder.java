@@ -0,0 +1,274 @@
+package ml.alternet.parser.ast;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import ml.alternet.parser.Handler;
+import ml.alternet.scan.Scanner;
+
+/**
+ * A builder that caches the values built from strings,
+ * for the inputs that are parsed again and again.
+ *
+ * The least recently used values are evicted when the
+ * weight of the inputs cached exceeds a bound. Only the
+ * values that the caller marks as immutable are cached,
+ * since the same instance is returned to all the callers :
+ *
+ * <pre>CachingBuilder&lt;NumericExpression&gt; builder = new CachingBuilder&lt;&gt;(
+ *    new ExpressionBuilder(), 1000, exp -&gt; true); // the expressions are never modified
+ *NumericExpression exp = builder.parse("sin(x) * 2", true).get();</pre>
+ *
+ * A miss resets the underlying builder before parsing. The inputs
+ * supplied by a scanner or a reader are not cached. A caching
+ * builder can be shared by several threads, but the parsing
+ * of the inputs not cached is serialized.
+ *
+ * @author Philippe Poulard
+ *
+ * @param <T> The type of the result value.
+ */
+public class CachingBuilder<T> implements Builder<T> {
+
+    // the key of an entry
+    static class Key {
+
+        String input;
+        boolean matchAll;
+
+        Key(String input, boolean matchAll) {
+            this.input = input;
+            this.matchAll = matchAll;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.matchAll ? this.input.hashCode() : ~ this.input.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).matchAll == this.matchAll
+                && ((Key) obj).input.equals(this.input);
+        }
+
+    }
+
+    Builder<T> builder;
+    Predicate<? super T> immutable;
+    ToIntFunction<String> weigher;
+    long maximumWeight;
+
+    // in access order
+    Map<Key, Optional<T>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    long weight;
+    long hits;
+    long misses;
+    long evictions;
+
+    // the value of the last input cached, or null if it has to be read from the builder
+    T value;
+
+    /**
+     * Create a caching builder bounded by a number of entries.
+     *
+     * @param builder The underlying builder.
+     * @param maximumSize The maximum number of entries.
+     * @param immutable Indicates whether a value can be shared
+     *      by the callers, that is to say cached.
+     */
+    public CachingBuilder(Builder<T> builder, int maximumSize, Predicate<? super T> immutable) {
+        this(builder, maximumSize, input -> 1, immutable);
+    }
+
+    /**
+     * Create a caching builder bounded by a weight.
+     *
+     * @param builder The underlying builder.
+     * @param maximumWeight The maximum weight of the entries.
+     * @param weigher Compute the weight of an input, e.g.
+     *      <code>String::length</code>.
+     * @param immutable Indicates whether a value can be shared
+     *      by the callers, that is to say cached.
+     *
+     * @throws IllegalArgumentException When the maximum weight
+     *      is negative.
+     */
+    public CachingBuilder(Builder<T> builder, long maximumWeight, ToIntFunction<String> weigher,
+            Predicate<? super T> immutable)
+    {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("The maximum weight can't be negative : " + maximumWeight);
+        }
+        this.builder = builder;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.immutable = immutable;
+    }
+
+    @Override
+    public synchronized Optional<T> parse(String input, boolean matchAll) throws IOException {
+        Key key = new Key(input, matchAll);
+        Optional<T> result = this.cache.get(key);
+        if (result == null) {
+            this.misses++;
+            this.builder.reset();
+            result = this.builder.parse(input, matchAll);
+            if (! result.isPresent() || this.immutable.test(result.get())) {
+                put(key, result);
+            }
+        } else {
+            this.hits++;
+        }
+        this.value = result.orElse(null);
+        return result;
+    }
+
+    // add an entry and evict the eldest entries
+    void put(Key key, Optional<T> result) {
+        int w = this.weigher.applyAsInt(key.input);
+        if (w <= this.maximumWeight) {
+            this.cache.put(key, result);
+            this.weight += w;
+            Iterator<Key> keys = this.cache.keySet().iterator();
+            while (this.weight > this.maximumWeight) {
+                Key eldest = keys.next();
+                keys.remove();
+                this.weight -= this.weigher.applyAsInt(eldest.input);
+                this.evictions++;
+            }
+        }
+    }
+
+    @Override
+    public synchronized Optional<T> parse(Scanner input, boolean matchAll) throws IOException {
+        this.value = null;
+        return this.builder.parse(input, matchAll);
+    }
+
+    /**
+     * Return the value of the last input parsed.
+     *
+     * @return The value, cached or built.
+     */
+    @Override
+    public synchronized T get() {
+        return this.value == null ? this.builder.get() : this.value;
+    }
+
+    @Override
+    public synchronized void reset() {
+        this.value = null;
+        this.builder.reset();
+    }
+
+    /**
+     * Discard all the entries ; the metrics are kept.
+     */
+    public synchronized void invalidateAll() {
+        this.cache.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * Return the number of inputs found in the cache.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Return the number of inputs not found in the cache,
+     * that have been parsed.
+     *
+     * @return The number of misses.
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Return the number of entries evicted because the
+     * bound has been exceeded.
+     *
+     * @return The number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Return the number of entries in the cache.
+     *
+     * @return The size of the cache.
+     */
+    public synchronized int getSize() {
+        return this.cache.size();
+    }
+
+    /**
+     * Return the weight of the entries in the cache.
+     *
+     * @return The weight of the cache.
+     */
+    public synchronized long getWeight() {
+        return this.weight;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "hits=" + this.hits + ", misses=" + this.misses + ", evictions=" + this.evictions
+            + ", size=" + this.cache.size() + ", weight=" + this.weight + '/' + this.maximumWeight;
+    }
+
+    // the events are received when the builder is used as a handler
+
+    @Override
+    public void receive(TokenValue<?> value) {
+        this.builder.receive(value);
+    }
+
+    @Override
+    public void receive(RuleStart ruleStart) {
+        this.builder.receive(ruleStart);
+    }
+
+    @Override
+    public void receive(RuleEnd ruleEnd) {
+        this.builder.receive(ruleEnd);
+    }
+
+    @Override
+    public void mark() {
+        this.value = null;
+        this.builder.mark();
+    }
+
+    @Override
+    public void cancel() throws IllegalStateException {
+        this.builder.cancel();
+    }
+
+    @Override
+    public void consume() throws IllegalStateException {
+        this.builder.consume();
+    }
+
+    @Override
+    public void cut() {
+        this.builder.cut();
+    }
+
+    @Override
+    public Handler asHandler() {
+        return this;
+    }
+
+}
@@ -0,0 +1,261 @@
+package ml.alternet.parser.handlers;
+
+import ml.alternet.parser.Grammar.Rule;
+
+/**
+ * A compact and immutable concrete syntax tree, that keeps
+ * for each node the rule or token that matched and the range
+ * of the input matched, in parallel arrays.
+ *
+ * <p>The nodes are stored in document order : the descendants
+ * of a node follow it, and end before the index of its
+ * <code>last</code> entry ; therefore the first child and the
+ * next sibling of a node are computed without storing them, and
+ * a node costs 5 <code>int</code>s, that is to say 20 bytes.</p>
+ *
+ * <p>The nodes are browsed with a {@link Cursor}, which is the
+ * only object created while navigating :</p>
+ *
+ * <pre>Cst.Cursor cursor = cst.cursor();
+ *if (cursor.toFirstChild()) {
+ *    do {
+ *        System.out.println(cursor.getRule().getName() + " : " + cursor.getText());
+ *    } while (cursor.toNextSibling());
+ *}</pre>
+ *
+ * <p>The offsets are those of the scanner, that count the
+ * Unicode codepoints read.</p>
+ *
+ * @see CstHandler
+ *
+ * @author Philippe Poulard
+ */
+public class Cst {
+
+    final CharSequence input;
+    final boolean bmp; // when true, the offsets are char indexes
+    final Rule[] rules;
+    final int size;
+    final int[] rule; // the index in rules
+    final int[] start;
+    final int[] end;
+    final int[] parent; // -1 for a root
+    final int[] last; // the index after the last descendant
+
+    Cst(CharSequence input, Rule[] rules, int size, int[] rule, int[] start, int[] end, int[] parent, int[] last) {
+        this.input = input;
+        this.bmp = input.length() == Character.codePointCount(input, 0, input.length());
+        this.rules = rules;
+        this.size = size;
+        this.rule = rule;
+        this.start = start;
+        this.end = end;
+        this.parent = parent;
+        this.last = last;
+    }
+
+    /**
+     * Return the input parsed.
+     *
+     * @return The input.
+     */
+    public CharSequence getInput() {
+        return this.input;
+    }
+
+    /**
+     * Return the number of nodes of this tree.
+     *
+     * @return The number of nodes.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Return a cursor on the first root of this tree.
+     *
+     * @return A new cursor.
+     *
+     * @throws IllegalStateException When this tree is empty.
+     */
+    public Cursor cursor() {
+        if (this.size == 0) {
+            throw new IllegalStateException("The syntax tree is empty");
+        }
+        return new Cursor(0);
+    }
+
+    int firstChild(int node) {
+        return node + 1 < this.last[node] ? node + 1 : -1;
+    }
+
+    int nextSibling(int node) {
+        int p = this.parent[node];
+        int next = this.last[node];
+        return next < (p == -1 ? this.size : this.last[p]) ? next : -1;
+    }
+
+    int index(int offset) {
+        return this.bmp ? offset : Character.offsetByCodePoints(this.input, 0, offset);
+    }
+
+    /**
+     * A cursor moves on the nodes of a syntax tree.
+     *
+     * @author Philippe Poulard
+     */
+    public class Cursor {
+
+        int node;
+
+        Cursor(int node) {
+            this.node = node;
+        }
+
+        /**
+         * Return the index of the current node.
+         *
+         * @return The index, in document order.
+         */
+        public int getIndex() {
+            return this.node;
+        }
+
+        /**
+         * Return the rule or token of the current node.
+         *
+         * @return The rule or token.
+         */
+        public Rule getRule() {
+            return Cst.this.rules[Cst.this.rule[this.node]];
+        }
+
+        /**
+         * Return the offset where the current node starts.
+         *
+         * @return The start offset.
+         */
+        public int getStart() {
+            return Cst.this.start[this.node];
+        }
+
+        /**
+         * Return the offset where the current node ends.
+         *
+         * @return The end offset, excluded.
+         */
+        public int getEnd() {
+            return Cst.this.end[this.node];
+        }
+
+        /**
+         * Return the text matched by the current node.
+         *
+         * @return The part of the input matched.
+         */
+        public CharSequence getText() {
+            return Cst.this.input.subSequence(index(getStart()), index(getEnd()));
+        }
+
+        /**
+         * Indicates whether the current node has children.
+         *
+         * @return <code>true</code> if it has children.
+         */
+        public boolean hasChildren() {
+            return firstChild(this.node) != -1;
+        }
+
+        /**
+         * Move to the first child of the current node.
+         *
+         * @return <code>false</code> if it has no children,
+         *      the cursor doesn't move.
+         */
+        public boolean toFirstChild() {
+            return moveTo(firstChild(this.node));
+        }
+
+        /**
+         * Move to the next sibling of the current node.
+         *
+         * @return <code>false</code> if it is the last
+         *      child, the cursor doesn't move.
+         */
+        public boolean toNextSibling() {
+            return moveTo(nextSibling(this.node));
+        }
+
+        /**
+         * Move to the parent of the current node.
+         *
+         * @return <code>false</code> if it is a root,
+         *      the cursor doesn't move.
+         */
+        public boolean toParent() {
+            return moveTo(Cst.this.parent[this.node]);
+        }
+
+        boolean moveTo(int node) {
+            if (node == -1) {
+                return false;
+            } else {
+                this.node = node;
+                return true;
+            }
+        }
+
+        /**
+         * Return a cursor on the same node.
+         *
+         * @return A new cursor.
+         */
+        public Cursor copy() {
+            return new Cursor(this.node);
+        }
+
+        @Override
+        public String toString() {
+            return getRule().getName() + '[' + getStart() + ',' + getEnd() + ']';
+        }
+
+    }
+
+    /**
+     * Return the nodes of this tree, for example
+     * <code>Sum[0,5](Product[0,1] ADDITIVE[1,3] Product[3,5])</code>.
+     *
+     * @return A string representation of this tree.
+     */
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        for (int node = 0; node < this.size; node++) {
+            Cursor cursor = new Cursor(node);
+            int p = this.parent[node];
+            if (node > 0 && node - 1 != p) {
+                // close the ancestors of the previous node up to the parent
+                for (int n = node - 1; n != p; n = this.parent[n]) {
+                    if (this.last[n] > n + 1) {
+                        buf.append(')');
+                    }
+                }
+                buf.append(' ');
+            }
+            buf.append(cursor);
+            if (cursor.hasChildren()) {
+                buf.append('(');
+            }
+        }
+        if (this.size > 0) {
+            for (int n = this.size - 1; n != -1; n = this.parent[n]) {
+                if (this.last[n] > n + 1) {
+                    buf.append(')');
+                }
+            }
+        }
+        return buf.toString();
+    }
+
+}
@@ -0,0 +1,217 @@
+package ml.alternet.parser.handlers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ml.alternet.parser.EventsHandler.RuleEvent;
+import ml.alternet.parser.Grammar.Rule;
+
+/**
+ * A handler that builds a compact concrete syntax tree,
+ * without creating an object per node.
+ *
+ * <p>Only the rules and tokens that are fields of the grammar
+ * and that are not fragments become nodes, the other ones
+ * are flattened in their enclosing node. The scanner must be
+ * trackable, because the nodes keep the offsets of the events.
+ * The start of a string token is computed from the length of its
+ * value ; the start of the other tokens is the end of what precedes
+ * them, including the characters skipped.</p>
+ *
+ * <pre>String input = "sin( x )* (1 + 3)";
+ *CstHandler handler = new CstHandler(input);
+ *Calc.$.parse(Scanner.of(input).asTrackable(), handler, true);
+ *Cst cst = handler.get();</pre>
+ *
+ * @see Cst
+ *
+ * @author Philippe Poulard
+ */
+public class CstHandler implements DataHandler<Cst> {
+
+    static final int[] NONE = new int[0];
+
+    CharSequence input;
+    final List<Rule> rules = new ArrayList<>();
+    final Map<Rule, Integer> ids = new IdentityHashMap<>();
+
+    int size;
+    int[] rule = NONE;
+    int[] start = NONE;
+    int[] end = NONE;
+    int[] parent = NONE;
+    int[] last = NONE;
+
+    // the rules started, with their node or -1 when flattened, and their offset
+    int[] open = new int[16];
+    int[] from = new int[16];
+    int depth;
+    int offset; // the offset after the last event
+
+    // the size, the depth and the offset at each mark
+    int[] marks = new int[24];
+    int marked;
+
+    /**
+     * Create a handler that builds a syntax tree.
+     *
+     * @param input The input that will be parsed.
+     */
+    public CstHandler(CharSequence input) {
+        this.input = input;
+    }
+
+    boolean isNode(Rule rule) {
+        return rule.isGrammarField() && ! rule.isFragment();
+    }
+
+    static int offset(RuleEvent<?> event) {
+        long offset = event.getOffset();
+        if (offset == -1) {
+            throw new IllegalStateException("The scanner must be trackable to build a syntax tree");
+        }
+        return (int) offset;
+    }
+
+    int add(Rule rule, int from, int to) {
+        if (this.size == this.rule.length) {
+            int length = Math.max(16, this.size * 2);
+            this.rule = Arrays.copyOf(this.rule, length);
+            this.start = Arrays.copyOf(this.start, length);
+            this.end = Arrays.copyOf(this.end, length);
+            this.parent = Arrays.copyOf(this.parent, length);
+            this.last = Arrays.copyOf(this.last, length);
+        }
+        int node = this.size++;
+        this.rule[node] = this.ids.computeIfAbsent(rule, r -> {
+            this.rules.add(r);
+            return this.rules.size() - 1;
+        });
+        this.start[node] = from;
+        this.end[node] = to;
+        this.parent[node] = current();
+        this.last[node] = this.size;
+        return node;
+    }
+
+    // the innermost node started
+    int current() {
+        for (int i = this.depth - 1; i >= 0; i--) {
+            if (this.open[i] != -1) {
+                return this.open[i];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void receive(TokenValue<?> value) {
+        int to = offset(value);
+        if (isNode(value.getRule())) {
+            int from = this.offset;
+            if (value instanceof StringValue) {
+                String string = value.getValue();
+                from = Math.max(from, to - string.codePointCount(0, string.length()));
+            }
+            add(value.getRule(), from, to);
+        }
+        this.offset = to;
+    }
+
+    @Override
+    public void receive(RuleStart ruleStart) {
+        int from = offset(ruleStart);
+        int node = isNode(ruleStart.getRule()) ? add(ruleStart.getRule(), from, from) : -1;
+        if (this.depth == this.open.length) {
+            this.open = Arrays.copyOf(this.open, this.depth * 2);
+            this.from = Arrays.copyOf(this.from, this.depth * 2);
+        }
+        this.open[this.depth] = node;
+        this.from[this.depth++] = from;
+        this.offset = from;
+    }
+
+    @Override
+    public void receive(RuleEnd ruleEnd) {
+        int to = offset(ruleEnd);
+        int node = this.open[--this.depth];
+        if (ruleEnd.matched) {
+            if (node != -1) {
+                this.end[node] = to;
+                this.last[node] = this.size;
+            }
+            this.offset = to;
+        } else {
+            if (node != -1) {
+                // the descendants follow the node
+                this.size = node;
+            }
+            // the input will be read again
+            this.offset = this.from[this.depth];
+        }
+    }
+
+    /**
+     * Return the syntax tree built.
+     *
+     * @return A tree that doesn't change when this handler
+     *      is reset.
+     */
+    @Override
+    public Cst get() {
+        return new Cst(this.input, this.rules.toArray(new Rule[this.rules.size()]), this.size,
+            Arrays.copyOf(this.rule, this.size), Arrays.copyOf(this.start, this.size),
+            Arrays.copyOf(this.end, this.size), Arrays.copyOf(this.parent, this.size),
+            Arrays.copyOf(this.last, this.size));
+    }
+
+    @Override
+    public void reset() {
+        this.size = 0;
+        this.depth = 0;
+        this.offset = 0;
+        this.marked = 0;
+    }
+
+    /**
+     * Reset this handler before parsing another input.
+     *
+     * @param input The input that will be parsed.
+     */
+    public void reset(CharSequence input) {
+        reset();
+        this.input = input;
+    }
+
+    @Override
+    public void mark() {
+        if (this.marked + 3 > this.marks.length) {
+            this.marks = Arrays.copyOf(this.marks, this.marks.length * 2);
+        }
+        this.marks[this.marked++] = this.size;
+        this.marks[this.marked++] = this.depth;
+        this.marks[this.marked++] = this.offset;
+    }
+
+    @Override
+    public void cancel() throws IllegalStateException {
+        if (this.marked == 0) {
+            throw new IllegalStateException("Can't cancel the nodes since no position was marked.");
+        }
+        this.offset = this.marks[--this.marked];
+        this.depth = this.marks[--this.marked];
+        this.size = this.marks[--this.marked];
+    }
+
+    @Override
+    public void consume() throws IllegalStateException {
+        if (this.marked == 0) {
+            throw new IllegalStateException("Can't consume the nodes since no position was marked.");
+        }
+        this.marked -= 3;
+    }
+
+}
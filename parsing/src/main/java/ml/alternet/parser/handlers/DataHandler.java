@@ -13,4 +13,10 @@ import ml.alternet.parser.Handler;
  */
 public interface DataHandler<T> extends Handler, Supplier<T> {
 
+    /**
+     * Reset this handler before supplying another data ;
+     * by default, nothing is done.
+     */
+    default void reset() { }
+
 }
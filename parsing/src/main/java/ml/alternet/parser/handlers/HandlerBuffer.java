@@ -75,6 +75,25 @@ public class HandlerBuffer extends HandlerAccumulator implements Handler, Rewind
         }
     }
 
+    /**
+     * Flush the pending events to the target handler : they
+     * can't be cancelled anymore.
+     */
+    @Override
+    public void cut() {
+        if (! this.marks.isEmpty()) {
+            super.emitAll(this.handler);
+            int marks = this.marks.size();
+            this.marks.clear();
+            for (int i = 0; i < marks; i++) {
+                this.marks.push(0);
+            }
+        }
+        if (this.handler instanceof Rewindable) {
+            ((Rewindable) this.handler).cut();
+        }
+    }
+
     @Override
     public void consume() throws IllegalStateException {
         if (! this.marks.isEmpty()) {
@@ -105,6 +105,13 @@ public abstract class TreeHandler<T, R extends T> implements DataHandler<R>, Val
         } // else ignore since the rule wasn't fulfilled
     }
 
+    /**
+     * Clear the stack of this handler, before building another value.
+     */
+    public void reset() {
+        getStack().clear();
+    }
+
     @Override
     public void mark() {
         getStack().mark();
@@ -120,4 +127,9 @@ public abstract class TreeHandler<T, R extends T> implements DataHandler<R>, Val
         getStack().consume();
     }
 
+    @Override
+    public void cut() {
+        getStack().cut();
+    }
+
 }
@@ -0,0 +1,227 @@
+package ml.alternet.parser.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+import ml.alternet.misc.Thrower;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.handlers.DataHandler;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Parse a batch of inputs concurrently with the main rule of a grammar.
+ *
+ * <p>Each input is parsed by a task submitted to an executor, with
+ * the data handler of the thread that runs the task : a handler is
+ * created once per thread, and reset before each input
+ * (see {@link DataHandler#reset()}). At most a window of inputs are
+ * submitted ahead of the results consumed, therefore the inputs are
+ * pulled on demand, and the results can be consumed while other
+ * inputs are still being parsed.</p>
+ *
+ * <p>The results are either in the order of the inputs, or in the
+ * order of their completion.</p>
+ *
+ * @param <T> The type of the values built.
+ *
+ * @see Grammar#parseAll(java.util.stream.Stream, Supplier, Executor, boolean)
+ *
+ * @author Philippe Poulard
+ */
+public class Batch<T> implements Iterator<Batch.Result<T>> {
+
+    /**
+     * The result of the parsing of an input.
+     *
+     * @param <T> The type of the value built.
+     *
+     * @author Philippe Poulard
+     */
+    public static class Result<T> {
+
+        final int index;
+        final CharSequence input;
+        final boolean matched;
+        final T value;
+        final Throwable error;
+
+        Result(int index, CharSequence input, boolean matched, T value, Throwable error) {
+            this.index = index;
+            this.input = input;
+            this.matched = matched;
+            this.value = value;
+            this.error = error;
+        }
+
+        /**
+         * Return the position of the input in the batch.
+         *
+         * @return The index of the input, starting from 0.
+         */
+        public int getIndex() {
+            return this.index;
+        }
+
+        /**
+         * Return the input parsed.
+         *
+         * @return The input.
+         */
+        public CharSequence getInput() {
+            return this.input;
+        }
+
+        /**
+         * Indicates whether the input was entirely matched
+         * by the main rule.
+         *
+         * @return <code>true</code> if the value is available,
+         *      <code>false</code> if the input didn't match or
+         *      if an error occurred.
+         */
+        public boolean isMatched() {
+            return this.matched;
+        }
+
+        /**
+         * Return the value built from the input.
+         *
+         * @return The value, if the input was matched.
+         */
+        public java.util.Optional<T> getValue() {
+            return java.util.Optional.ofNullable(this.value);
+        }
+
+        /**
+         * Return the error raised while parsing the input.
+         *
+         * @return The error, if any.
+         */
+        public java.util.Optional<Throwable> getError() {
+            return java.util.Optional.ofNullable(this.error);
+        }
+
+        @Override
+        public String toString() {
+            return "#" + this.index + (this.matched ? " " + this.value
+                : this.error == null ? " unmatched" : " " + this.error);
+        }
+
+    }
+
+    final Grammar grammar;
+    final Iterator<? extends CharSequence> inputs;
+    final Executor executor;
+    final ThreadLocal<DataHandler<T>> handlers;
+    final int window;
+    int index = 0;
+
+    // ordered : the tasks pending, in the order of the inputs
+    final Deque<Future<Result<T>>> pending;
+    // unordered : the tasks pending, in the order of their completion
+    final CompletionService<Result<T>> completed;
+    int running = 0;
+
+    /**
+     * Create a batch.
+     *
+     * @param grammar The grammar, that must have a main rule.
+     * @param inputs The inputs to parse.
+     * @param handler Supply the data handler of a thread.
+     * @param executor Run the tasks.
+     * @param ordered <code>true</code> to get the results in
+     *      the order of the inputs, <code>false</code> to get
+     *      them as soon as they are available.
+     * @param window The number of inputs that can be submitted
+     *      ahead of the results consumed.
+     */
+    public Batch(Grammar grammar, Iterator<? extends CharSequence> inputs,
+            Supplier<? extends DataHandler<T>> handler, Executor executor, boolean ordered, int window)
+    {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must be at least 1, found " + window);
+        }
+        this.grammar = grammar;
+        this.inputs = inputs;
+        this.executor = executor;
+        this.handlers = ThreadLocal.withInitial(handler::get);
+        this.window = window;
+        if (ordered) {
+            this.pending = new ArrayDeque<>(window);
+            this.completed = null;
+        } else {
+            this.pending = null;
+            this.completed = new ExecutorCompletionService<>(executor);
+        }
+    }
+
+    Result<T> parse(int index, CharSequence input) {
+        DataHandler<T> handler = this.handlers.get();
+        try {
+            handler.reset();
+            ParseSession session = this.grammar.newSession(Scanner.of(input), handler);
+            if (session.parse() && session.isComplete()) {
+                return new Result<>(index, input, true, handler.get(), null);
+            } else {
+                return new Result<>(index, input, false, null, null);
+            }
+        } catch (Exception e) {
+            return new Result<>(index, input, false, null, e);
+        } finally {
+            handler.reset(); // don't retain the value
+        }
+    }
+
+    // submit the next inputs, up to the window
+    void submit() {
+        while (size() < this.window && this.inputs.hasNext()) {
+            CharSequence input = this.inputs.next();
+            int i = this.index++;
+            if (this.pending == null) {
+                this.completed.submit(() -> parse(i, input));
+                this.running++;
+            } else {
+                FutureTask<Result<T>> task = new FutureTask<>(() -> parse(i, input));
+                this.executor.execute(task);
+                this.pending.addLast(task);
+            }
+        }
+    }
+
+    int size() {
+        return this.pending == null ? this.running : this.pending.size();
+    }
+
+    @Override
+    public boolean hasNext() {
+        submit();
+        return size() > 0;
+    }
+
+    @Override
+    public Result<T> next() {
+        if (! hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            if (this.pending == null) {
+                this.running--;
+                return this.completed.take().get();
+            } else {
+                return this.pending.removeFirst().get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            return Thrower.doThrow(e);
+        }
+    }
+
+}
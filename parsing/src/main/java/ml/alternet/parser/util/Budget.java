@@ -0,0 +1,282 @@
+package ml.alternet.parser.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import ml.alternet.misc.Position;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.scan.Scanner;
+import ml.alternet.scan.TrackableScanner;
+
+/**
+ * Limit the resources that a parsing can use, in order
+ * to contain the inputs that would make a backtracking
+ * grammar parse for a long time.
+ *
+ * <p>A budget limits the number of invocations of the rules
+ * and of the tokens, the characters backtracked, the depth of
+ * the rules nested, and the time spent. When a limit is exceeded,
+ * the parsing is aborted with an {@link Exceeded} exception that
+ * reports the rules being parsed and the position where the budget
+ * ran out.</p>
+ *
+ * <p>The resources are counted where the parsers are invoked, in
+ * the thread that parses the session, therefore the rules parsed
+ * within the tokens, within the rules dropped, and within the
+ * embedded grammars are counted too.</p>
+ *
+ * <pre>Budget budget = new Budget()
+ *    .maxInvocations(1_000_000)
+ *    .maxDepth(500)
+ *    .maxTime(1, TimeUnit.SECONDS);
+ *try {
+ *    Calc.$.parse(Scanner.of(input).asTrackable(), handler, budget, true);
+ *} catch (Budget.Exceeded e) {
+ *    // e.getLimit(), e.getPath(), e.getPosition()
+ *}</pre>
+ *
+ * <p>The characters backtracked and the position are computed
+ * only if the scanner is trackable, see
+ * {@link ml.alternet.scan.Scanner#asTrackable()}.
+ * A budget can be shared by several sessions : the counters
+ * belong to each session.</p>
+ *
+ * @see ParseSession#setBudget(Budget)
+ *
+ * @author Philippe Poulard
+ */
+public class Budget {
+
+    /**
+     * The limits of a budget.
+     *
+     * @author Philippe Poulard
+     */
+    public enum Limit {
+
+        /** The number of invocations of the rules and of the tokens. */
+        INVOCATIONS,
+
+        /** The number of characters read again after a rule failed. */
+        BACKTRACK,
+
+        /** The depth of the rules nested. */
+        DEPTH,
+
+        /** The time spent, in nanoseconds. */
+        TIME;
+
+    }
+
+    /**
+     * Thrown when a limit of a budget is exceeded : the
+     * parsing is aborted.
+     *
+     * @author Philippe Poulard
+     */
+    public static class Exceeded extends RuntimeException {
+
+        private static final long serialVersionUID = -2637420596734498261L;
+
+        final Limit limit;
+        final long max;
+        final transient List<Rule> path;
+        final transient Optional<Position> position;
+
+        Exceeded(Limit limit, long max, List<Rule> path, Optional<Position> position) {
+            super("The budget of " + limit + " (" + max + ") has been exceeded"
+                + position.map(p -> " at line " + p.getLineNumber() + ", column " + p.getColumnNumber()).orElse("")
+                + " in " + path.stream()
+                    .map(r -> r.isGrammarField() ? r.getName() : r.toPrettyString().toString())
+                    .collect(Collectors.joining(" > ")));
+            this.limit = limit;
+            this.max = max;
+            this.path = path;
+            this.position = position;
+        }
+
+        /**
+         * Return the limit exceeded.
+         *
+         * @return The limit.
+         */
+        public Limit getLimit() {
+            return this.limit;
+        }
+
+        /**
+         * Return the maximum value of the limit exceeded.
+         *
+         * @return The maximum value.
+         */
+        public long getMax() {
+            return this.max;
+        }
+
+        /**
+         * Return the rules being parsed when the budget
+         * ran out, from the outermost to the innermost.
+         *
+         * @return The rules.
+         */
+        public List<Rule> getPath() {
+            return this.path;
+        }
+
+        /**
+         * Return the position where the budget ran out.
+         *
+         * @return The position, when the scanner is trackable.
+         */
+        public Optional<Position> getPosition() {
+            return this.position;
+        }
+
+    }
+
+    // the clock is read once every CLOCK invocations
+    static final int CLOCK = 0xFF;
+
+    long maxInvocations = Long.MAX_VALUE;
+    long maxBacktrack = Long.MAX_VALUE;
+    long maxDepth = Long.MAX_VALUE;
+    long maxTime = Long.MAX_VALUE;
+
+    /**
+     * Limit the number of invocations of the rules and of the tokens.
+     *
+     * @param invocations The maximum number of invocations.
+     *
+     * @return This budget.
+     */
+    public Budget maxInvocations(long invocations) {
+        this.maxInvocations = invocations;
+        return this;
+    }
+
+    /**
+     * Limit the number of characters read again after a rule failed.
+     *
+     * @param chars The maximum number of characters backtracked.
+     *
+     * @return This budget.
+     */
+    public Budget maxBacktrack(long chars) {
+        this.maxBacktrack = chars;
+        return this;
+    }
+
+    /**
+     * Limit the depth of the rules nested.
+     *
+     * @param depth The maximum depth.
+     *
+     * @return This budget.
+     */
+    public Budget maxDepth(long depth) {
+        this.maxDepth = depth;
+        return this;
+    }
+
+    /**
+     * Limit the time spent parsing.
+     *
+     * @param time The maximum time.
+     * @param unit The unit of the time.
+     *
+     * @return This budget.
+     */
+    public Budget maxTime(long time, TimeUnit unit) {
+        this.maxTime = unit.toNanos(time);
+        return this;
+    }
+
+    /**
+     * Count the resources consumed by a session with this budget.
+     *
+     * @return A listener of the invocations of the rules, that
+     *      throws an {@link Exceeded} exception when a limit
+     *      is exceeded.
+     */
+    Counter count() {
+        return new Counter(this);
+    }
+
+    // count the resources consumed by a session
+    static class Counter implements Interception.Listener {
+
+        final Budget budget;
+        final long start = System.nanoTime();
+        final List<Rule> rules = new ArrayList<>();
+        long[] starts = new long[32]; // the offset of each rule
+        long invocations;
+        long backtracked;
+        long highest; // the highest offset reached
+        Scanner scanner; // the position is resolved only if a limit is exceeded
+
+        Counter(Budget budget) {
+            this.budget = budget;
+        }
+
+        // track the offsets, when available
+        long reach(Scanner scanner) {
+            this.scanner = scanner;
+            long offset = scanner instanceof TrackableScanner ? ((TrackableScanner) scanner).getOffset() : 0;
+            if (offset > this.highest) {
+                this.highest = offset;
+            }
+            return offset;
+        }
+
+        void exceed(Limit limit, long max) {
+            throw new Exceeded(limit, max, Collections.unmodifiableList(new ArrayList<>(this.rules)),
+                    this.scanner instanceof TrackableScanner
+                        ? ((TrackableScanner) this.scanner).getPosition()
+                        : Optional.empty());
+        }
+
+        @Override
+        public void enter(Rule rule, Scanner scanner) {
+            long offset = reach(scanner);
+            int depth = this.rules.size();
+            if (depth == this.starts.length) {
+                this.starts = Arrays.copyOf(this.starts, depth * 2);
+            }
+            this.starts[depth] = offset;
+            this.rules.add(rule);
+            if (++this.invocations > this.budget.maxInvocations) {
+                exceed(Limit.INVOCATIONS, this.budget.maxInvocations);
+            }
+            if (depth >= this.budget.maxDepth) {
+                exceed(Limit.DEPTH, this.budget.maxDepth);
+            }
+            if ((this.invocations & CLOCK) == 0 && System.nanoTime() - this.start > this.budget.maxTime) {
+                exceed(Limit.TIME, this.budget.maxTime);
+            }
+        }
+
+        @Override
+        public void exit(Rule rule, Scanner scanner, Match match) {
+            reach(scanner);
+            int last = this.rules.size() - 1;
+            long from = this.starts[last];
+            this.rules.remove(last);
+            if (match != null && match.fail() && this.highest > from) {
+                // the characters will be read again
+                this.backtracked += this.highest - from;
+                this.highest = from;
+                if (this.backtracked > this.budget.maxBacktrack) {
+                    exceed(Limit.BACKTRACK, this.budget.maxBacktrack);
+                }
+            }
+        }
+
+    }
+
+}
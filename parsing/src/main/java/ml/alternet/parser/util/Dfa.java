@@ -0,0 +1,591 @@
+package ml.alternet.parser.util;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import ml.alternet.grammars.RegexpBuilder;
+import ml.alternet.grammars.RegexpGrammar;
+import ml.alternet.misc.CharRange;
+import ml.alternet.misc.CharRange.BoundRange;
+import ml.alternet.misc.Thrower;
+import ml.alternet.scan.Scanner;
+
+/**
+ * A deterministic finite automaton that matches a regular expression.
+ *
+ * <p>The regular expression is compiled to a non deterministic automaton
+ * with char range transitions, and the deterministic states are built
+ * lazily, when they are reached while matching an input : each state is
+ * a set of non deterministic states, and is computed once.</p>
+ *
+ * <p>The regular expression is parsed with the {@link RegexpGrammar}.</p>
+ *
+ * <p>The number of deterministic states kept is bounded by {@link #MAX_STATES} :
+ * beyond, the next states are computed on each transition, as in a non
+ * deterministic automaton, instead of being cached. Therefore, a regular
+ * expression whose deterministic automaton is exponentially large
+ * (e.g. <code>(a|b)*a(a|b){20}</code>) is matched slower, but in bounded
+ * memory.</p>
+ *
+ * @see ml.alternet.parser.Grammar#regex(String)
+ *
+ * @author Philippe Poulard
+ */
+public class Dfa {
+
+    /**
+     * A deterministic state.
+     *
+     * @author Philippe Poulard
+     */
+    public static final class State {
+
+        final Dfa dfa;
+        final BitSet nfaStates;
+        final int accepted;
+        final boolean cached; // false beyond MAX_STATES
+        volatile Transitions transitions;
+
+        State(Dfa dfa, BitSet nfaStates, boolean cached) {
+            this.dfa = dfa;
+            this.nfaStates = nfaStates;
+            this.cached = cached;
+            // the first alternative wins
+            this.accepted = IntStream.range(0, dfa.accepts.length)
+                .filter(i -> nfaStates.get(dfa.accepts[i]))
+                .findFirst()
+                .orElse(-1);
+        }
+
+        /**
+         * Indicates whether this state ends a match.
+         *
+         * @return <code>true</code> if the chars read so far match.
+         */
+        public boolean isAccepting() {
+            return this.accepted != -1;
+        }
+
+        /**
+         * Return the alternative matched by this state.
+         *
+         * @return The index of the first alternative that
+         *      matches the chars read so far, or -1.
+         */
+        public int getAccepted() {
+            return this.accepted;
+        }
+
+        /**
+         * Return the next state.
+         *
+         * @param codepoint The next char.
+         *
+         * @return The next state, or <code>null</code> if the char doesn't match.
+         */
+        public State next(int codepoint) {
+            if (! this.cached) {
+                return this.dfa.step(this, codepoint);
+            }
+            Transitions t = this.transitions;
+            if (t == null) {
+                t = this.dfa.transitions(this);
+            }
+            return t.next(codepoint);
+        }
+
+    }
+
+    // the transitions of a deterministic state, by disjoint intervals
+    static final class Transitions {
+
+        static final int LATIN1 = 256;
+
+        final int[] starts;
+        final int[] ends;
+        final State[] targets;
+        final State[] latin1 = new State[LATIN1];
+
+        Transitions(int[] starts, int[] ends, State[] targets) {
+            this.starts = starts;
+            this.ends = ends;
+            this.targets = targets;
+            for (int i = 0; i < starts.length && starts[i] < LATIN1; i++) {
+                Arrays.fill(this.latin1, starts[i], Math.min(ends[i], LATIN1 - 1) + 1, targets[i]);
+            }
+        }
+
+        State next(int codepoint) {
+            if (codepoint < 0) {
+                return null;
+            } else if (codepoint < LATIN1) {
+                return this.latin1[codepoint];
+            } else {
+                int i = Arrays.binarySearch(this.starts, codepoint);
+                if (i < 0) {
+                    i = -i - 2; // the interval that starts before
+                }
+                return i >= 0 && codepoint <= this.ends[i] ? this.targets[i] : null;
+            }
+        }
+
+    }
+
+    // a non deterministic state has either a char range transition or epsilon transitions
+    static final class NfaState {
+
+        final int id;
+        CharRange range;
+        NfaState next;
+        final List<NfaState> epsilons = new ArrayList<>(2);
+
+        NfaState(int id) {
+            this.id = id;
+        }
+
+    }
+
+    /**
+     * The maximum number of deterministic states
+     * cached by an automaton.
+     */
+    public static final int MAX_STATES = 4096;
+
+    final String regex;
+    final List<NfaState> nfa = new ArrayList<>();
+    final int[] accepts; // by alternative
+    final State start;
+    final Map<BitSet, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * Compile a regular expression.
+     *
+     * @param regex The regular expression.
+     *
+     * @throws IllegalArgumentException When the regular expression is malformed.
+     */
+    public Dfa(String regex) {
+        this(regex, Collections.singletonList(parse(regex)));
+    }
+
+    /**
+     * Compile alternatives to a single automaton.
+     *
+     * @param regex The description of this automaton.
+     * @param alternatives The alternatives.
+     */
+    Dfa(String regex, List<Node> alternatives) {
+        this.regex = regex;
+        this.accepts = new int[alternatives.size()];
+        NfaState init = newState();
+        for (int i = 0; i < this.accepts.length; i++) {
+            NfaState[] fragment = alternatives.get(i).build(this);
+            init.epsilons.add(fragment[0]);
+            this.accepts[i] = fragment[1].id;
+        }
+        BitSet states = new BitSet();
+        closure(init, states);
+        this.start = state(states);
+    }
+
+    /**
+     * Parse a regular expression.
+     *
+     * @param regex The regular expression.
+     *
+     * @return Its root node.
+     *
+     * @throws IllegalArgumentException When the regular expression is malformed.
+     */
+    static Node parse(String regex) {
+        java.util.Optional<Node> node;
+        try {
+            node = new RegexpBuilder().parse(regex, true);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(e.getMessage() + " in regex \"" + regex + '"', e);
+        } catch (IOException e) {
+            return Thrower.doThrow(e);
+        }
+        return node.orElseThrow(() -> new IllegalArgumentException("Malformed regex \"" + regex + '"'));
+    }
+
+    /**
+     * Return the initial state.
+     *
+     * @return The state before reading any char.
+     */
+    public State getStart() {
+        return this.start;
+    }
+
+    /**
+     * Return the regular expression of this automaton.
+     *
+     * @return The regular expression.
+     */
+    public String getRegex() {
+        return this.regex;
+    }
+
+    /**
+     * Match greedily the next chars of the input, in a single forward pass :
+     * the input is read until no transition is possible, and if the last chars
+     * read don't match, the input is rewound to the end of the longest match.
+     * An empty match is considered as a failure.
+     *
+     * @param scanner The input.
+     * @param buf The buffer that receives the chars matched.
+     *
+     * @return <code>true</code> if some chars were matched,
+     *      <code>false</code> otherwise (the input is left as-is).
+     *
+     * @throws IOException When an I/O error occurs.
+     */
+    public boolean match(Scanner scanner, StringBuilder buf) throws IOException {
+        return longestMatch(scanner, buf) != -1;
+    }
+
+    /**
+     * Match greedily the next chars of the input with the alternatives
+     * of this automaton, in a single forward pass.
+     *
+     * @param scanner The input.
+     * @param buf The buffer that receives the chars matched.
+     *
+     * @return The index of the first alternative that has the longest
+     *      match, or -1 if none matched (the input is left as-is).
+     *
+     * @throws IOException When an I/O error occurs.
+     *
+     * @see #match(Scanner, StringBuilder)
+     */
+    int longestMatch(Scanner scanner, StringBuilder buf) throws IOException {
+        int mark = buf.length();
+        int longest = -1;
+        int accepted = -1;
+        State state = this.start;
+        scanner.mark();
+        while (scanner.hasNext()) {
+            int c = scanner.lookAhead();
+            state = state.next(c);
+            if (state == null) {
+                break;
+            }
+            scanner.read();
+            buf.appendCodePoint(c);
+            if (state.accepted != -1) {
+                longest = buf.length();
+                accepted = state.accepted;
+            }
+        }
+        if (longest == buf.length() && longest > mark) {
+            scanner.consume();
+            return accepted;
+        } else {
+            scanner.cancel();
+            if (longest > mark) {
+                // read again up to the end of the longest match
+                int count = buf.codePointCount(mark, longest);
+                for (int i = 0; i < count; i++) {
+                    scanner.read();
+                }
+                buf.setLength(longest);
+                return accepted;
+            } else {
+                buf.setLength(mark);
+                return -1;
+            }
+        }
+    }
+
+    NfaState newState() {
+        NfaState state = new NfaState(this.nfa.size());
+        this.nfa.add(state);
+        return state;
+    }
+
+    // the states reachable by epsilon transitions, without recursion
+    // since the chains can be long, e.g. (a?){5000}
+    void closure(NfaState state, BitSet set) {
+        Deque<NfaState> pending = new ArrayDeque<>();
+        pending.push(state);
+        while (! pending.isEmpty()) {
+            NfaState s = pending.pop();
+            if (! set.get(s.id)) {
+                set.set(s.id);
+                for (NfaState eps : s.epsilons) {
+                    if (! set.get(eps.id)) {
+                        pending.push(eps);
+                    }
+                }
+            }
+        }
+    }
+
+    State state(BitSet nfaStates) {
+        State state = this.states.get(nfaStates);
+        if (state == null) {
+            if (this.states.size() < MAX_STATES) {
+                state = this.states.computeIfAbsent(nfaStates, s -> new State(this, s, true));
+            } else {
+                state = new State(this, nfaStates, false);
+            }
+        }
+        return state;
+    }
+
+    // the next state of a state that is not cached
+    State step(State state, int codepoint) {
+        BitSet target = new BitSet();
+        for (int i = state.nfaStates.nextSetBit(0); i >= 0; i = state.nfaStates.nextSetBit(i + 1)) {
+            NfaState s = this.nfa.get(i);
+            if (s.range != null && codepoint >= 0 && s.range.contains(codepoint)) {
+                closure(s.next, target);
+            }
+        }
+        return target.isEmpty() ? null : state(target);
+    }
+
+    // subset construction for a single state
+    synchronized Transitions transitions(State state) {
+        if (state.transitions != null) {
+            return state.transitions;
+        }
+        // the char range transitions of the non deterministic states
+        List<NfaState> moves = new ArrayList<>();
+        state.nfaStates.stream()
+            .mapToObj(this.nfa::get)
+            .filter(s -> s.range != null)
+            .forEach(moves::add);
+        // the boundaries of the disjoint intervals
+        List<BoundRange[]> intervals = new ArrayList<>(moves.size());
+        BitSet bounds = new BitSet();
+        for (NfaState s : moves) {
+            BoundRange[] br = s.range.asIntervals()
+                .filter(r -> ! r.isEmpty())
+                .toArray(BoundRange[]::new);
+            intervals.add(br);
+            for (BoundRange r : br) {
+                bounds.set(r.start());
+                bounds.set(r.end() + 1);
+            }
+        }
+        int[] starts = new int[bounds.cardinality()];
+        int[] ends = new int[starts.length];
+        State[] targets = new State[starts.length];
+        int size = 0;
+        for (int b = bounds.nextSetBit(0); b >= 0; ) {
+            int next = bounds.nextSetBit(b + 1);
+            int end = next < 0 ? Character.MAX_CODE_POINT : next - 1;
+            BitSet target = new BitSet();
+            for (int i = 0; i < moves.size(); i++) {
+                if (contains(intervals.get(i), b)) {
+                    closure(moves.get(i).next, target);
+                }
+            }
+            if (! target.isEmpty()) {
+                State s = state(target);
+                if (size > 0 && targets[size - 1] == s && ends[size - 1] == b - 1) {
+                    ends[size - 1] = end; // merge with the previous interval
+                } else {
+                    starts[size] = b;
+                    ends[size] = end;
+                    targets[size++] = s;
+                }
+            }
+            b = next;
+        }
+        Transitions t = new Transitions(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size),
+                Arrays.copyOf(targets, size));
+        state.transitions = t;
+        return t;
+    }
+
+    static boolean contains(BoundRange[] intervals, int codepoint) {
+        for (BoundRange r : intervals) {
+            if (codepoint >= r.start() && codepoint <= r.end()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A node of the regular expression.
+     *
+     * @see RegexpBuilder
+     *
+     * @author Philippe Poulard
+     */
+    public abstract static class Node {
+
+        /**
+         * Build the non deterministic states of this node.
+         *
+         * @param dfa The automaton that holds the states.
+         *
+         * @return The start state and the end state.
+         */
+        abstract NfaState[] build(Dfa dfa);
+
+    }
+
+    /**
+     * Match a char.
+     *
+     * @author Philippe Poulard
+     */
+    public static class Chars extends Node {
+
+        final CharRange range;
+
+        /**
+         * Create a node that matches a char.
+         *
+         * @param range The chars matched.
+         */
+        public Chars(CharRange range) {
+            this.range = range;
+        }
+
+        @Override
+        NfaState[] build(Dfa dfa) {
+            NfaState start = dfa.newState();
+            NfaState end = dfa.newState();
+            start.range = this.range;
+            start.next = end;
+            return new NfaState[] { start, end };
+        }
+
+    }
+
+    /**
+     * Match nodes one after the other.
+     *
+     * @author Philippe Poulard
+     */
+    public static class Sequence extends Node {
+
+        final List<Node> nodes;
+
+        /**
+         * Create a sequence.
+         *
+         * @param nodes The nodes of the sequence, may be empty.
+         */
+        public Sequence(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        NfaState[] build(Dfa dfa) {
+            NfaState start = dfa.newState();
+            NfaState end = start;
+            for (Node node : this.nodes) {
+                NfaState[] f = node.build(dfa);
+                end.epsilons.add(f[0]);
+                end = f[1];
+            }
+            return new NfaState[] { start, end };
+        }
+
+    }
+
+    /**
+     * Match one of several nodes.
+     *
+     * @author Philippe Poulard
+     */
+    public static class Alternation extends Node {
+
+        final List<Node> nodes;
+
+        /**
+         * Create an alternation.
+         *
+         * @param nodes The alternatives.
+         */
+        public Alternation(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        NfaState[] build(Dfa dfa) {
+            NfaState start = dfa.newState();
+            NfaState end = dfa.newState();
+            for (Node node : this.nodes) {
+                NfaState[] f = node.build(dfa);
+                start.epsilons.add(f[0]);
+                f[1].epsilons.add(end);
+            }
+            return new NfaState[] { start, end };
+        }
+
+    }
+
+    /**
+     * Match a node repeatedly.
+     *
+     * @author Philippe Poulard
+     */
+    public static class Repeat extends Node {
+
+        final Node node;
+        final int min;
+        final int max; // -1 for unbounded
+
+        /**
+         * Create a repetition.
+         *
+         * @param node The node to repeat.
+         * @param min The minimal number of times.
+         * @param max The maximal number of times, or -1 if unbounded.
+         */
+        public Repeat(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        NfaState[] build(Dfa dfa) {
+            NfaState start = dfa.newState();
+            NfaState end = start;
+            for (int i = 0; i < this.min; i++) {
+                NfaState[] f = this.node.build(dfa);
+                end.epsilons.add(f[0]);
+                end = f[1];
+            }
+            if (this.max == -1) {
+                NfaState[] f = this.node.build(dfa);
+                NfaState loop = dfa.newState();
+                end.epsilons.add(loop);
+                loop.epsilons.add(f[0]);
+                f[1].epsilons.add(loop);
+                end = loop;
+            } else {
+                NfaState last = dfa.newState();
+                for (int i = this.min; i < this.max; i++) {
+                    NfaState[] f = this.node.build(dfa);
+                    end.epsilons.add(f[0]);
+                    end.epsilons.add(last);
+                    end = f[1];
+                }
+                end.epsilons.add(last);
+                end = last;
+            }
+            return new NfaState[] { start, end };
+        }
+
+    }
+
+}
@@ -9,6 +9,7 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -22,13 +23,14 @@ import ml.alternet.facet.Initializable;
 import ml.alternet.misc.Thrower;
 import ml.alternet.parser.EventsHandler;
 import ml.alternet.parser.Grammar;
-import ml.alternet.parser.Handler;
+import ml.alternet.parser.visit.Analyzer;
 import ml.alternet.parser.visit.Dump;
+import ml.alternet.parser.visit.Optimizer;
 import ml.alternet.parser.visit.TransformTrackingHost;
 import ml.alternet.parser.visit.TraversableRule;
+import ml.alternet.parser.visit.Traverse;
 import ml.alternet.scan.Scanner;
 import ml.alternet.util.ByteCodeFactory;
-import ml.alternet.util.ClassUtil;
 import ml.alternet.util.gen.ByteCodeSpec;
 
 /**
@@ -110,6 +112,7 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
             try {
                 Grammar$ g = (Grammar$) BYTECODE_FACTORY.getInstance(grammar);
                 g.grammar = grammar;
+                g.descriptor = GrammarDescriptor.of(grammar);
                 g.log = Logger.getLogger(g.getGrammarName());
                 g.log.setLevel(Level.ALL);
                 g.log.info("Creating grammar " + g.getGrammarName());
@@ -211,12 +214,12 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
     public static <T> T $() {
         Class<? extends Grammar> g = GIF.getGrammarInterface();
         // check preconditions : all Rules must be non-null
-        Field[] fields = g.getDeclaredFields();
-        for (int i = fields.length - 1 ; i >= 0; i--) { // start from the end for fail fast
-            Field f = fields[i];
+        List<Field> fields = GrammarDescriptor.of(g).getRuleFields();
+        for (int i = fields.size() - 1 ; i >= 0; i--) { // start from the end for fail fast
+            Field f = fields.get(i);
             try {
                 // if it remains a rule not initialized, return a Proxy()
-                if (Rule.class.isAssignableFrom(f.getType()) && f.get(null) == null) {
+                if (f.get(null) == null) {
                     return (T) new Grammar.Proxy();
                 }
             } catch (IllegalArgumentException | IllegalAccessException e) {
@@ -230,11 +233,15 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
     // =============== GRAMMAR STATE
 
     private Class<? extends Grammar> grammar; // the underlying grammar
-    private Rule tokenizer; // once it has been computed, it is stored for later use
-    private java.util.Optional<Rule> mainRule; // same comment
+    private GrammarDescriptor descriptor; // the wiring of the grammar, set with $(g)
+    private List<RuleField> ruleFields; // computed once from the descriptor
+    // once it has been computed, it is stored for later use, and safely published to other threads
+    private volatile Rule tokenizer;
+    private volatile Rule lexer; // same comment
+    private volatile java.util.Optional<Rule> mainRule; // same comment
     private final Map<String, Substitution> substitutions = new HashMap<>(); // contain rules that replace other ones
-    private Map<Rule, Rule> adopted = new HashMap<>(); // contain rules taken from another grammar
-    private boolean init = false;
+    private Map<Rule, Rule> adopted = new HashMap<>(); // contain rules taken from another grammar, guarded by this
+    private boolean init = false; // guarded by this
     private Logger log; // set with $(g)
 
     private static class Substitution {
@@ -249,7 +256,7 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
     // =============== BASIC METHODS
 
     @Override
-    public Grammar init() { // see below INITIALIZERS
+    public synchronized Grammar init() { // see below INITIALIZERS
         if (! this.init) {
             // preconditions will be checked by RuleField on the first field browse
             this.init = true;
@@ -269,6 +276,10 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
                 processSubstitutions();
                 // @Skip and @Drop
                 processAnnotations();
+                // reorder the choices with the profile of the grammar
+                processProfile();
+                // on demand, report the hazards
+                processAnalysis();
             } catch (IllegalArgumentException | IllegalAccessException e) {
                 return Thrower.doThrow(e);
             }
@@ -285,15 +296,20 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
      */
     @Override
     public java.util.Optional<Rule> mainRule() {
-        if (this.mainRule == null) {
-            // works on init() grammars only
-            this.mainRule = fields()
-                .filter(f -> f.getAnnotation(MainRule.class) != null)
-                .map(f -> (Rule) safeCall(() -> f.get(null)))
-                .map(this::adopt) // if it comes from an inherited grammar
-                .findFirst();
+        java.util.Optional<Rule> rule = this.mainRule;
+        if (rule == null) {
+            synchronized (this) {
+                rule = this.mainRule;
+                if (rule == null) {
+                    // works on init() grammars only
+                    this.mainRule = rule = java.util.Optional.ofNullable(this.descriptor.mainRule)
+                        .map(ref -> ref.resolve(this.grammar.getClassLoader()))
+                        .map(f -> (Rule) safeCall(() -> f.get(null)))
+                        .map(this::adopt); // if it comes from an inherited grammar
+                }
+            }
         }
-        return this.mainRule;
+        return rule;
     }
 
     /**
@@ -307,17 +323,49 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
      */
     @Override
     public Rule tokenizer() {
-        if (this.tokenizer == null) {
-            // works on init() grammars only
-            Stream<Token> tokens = fields()
-                .filter(f ->   Token.class.isAssignableFrom(f.getType()) // keep tokens
-                            && f.getAnnotation(Fragment.class) == null)  // that ARE NOT fragments
-                .map(f -> (Token) safeCall(() -> f.get(null)))
-                .map(this::adopt) // if it comes from an inherited grammar
-                .map(t -> (Token) t);
-            this.tokenizer = new Choice(tokens).zeroOrMore();
+        Rule rule = this.tokenizer;
+        if (rule == null) {
+            synchronized (this) {
+                rule = this.tokenizer;
+                if (rule == null) {
+                    // works on init() grammars only
+                    // non-fragment tokens, as described
+                    Stream<Token> tokens = this.descriptor.tokens.stream()
+                        .map(ref -> ref.resolve(this.grammar.getClassLoader()))
+                        .map(f -> (Token) safeCall(() -> f.get(null)))
+                        .map(this::adopt) // if it comes from an inherited grammar
+                        .map(t -> (Token) t);
+                    this.tokenizer = rule = new Choice(tokens).zeroOrMore();
+                }
+            }
+        }
+        return rule;
+    }
+
+    /**
+     * Return the "lexer rule", that is to say the tokens
+     * of the "tokenizer rule" matched by maximal munch.
+     *
+     * @return The rule <code>(~(T1 | T2 | T3 ...))*</code>
+     *
+     * @see Grammar#lexer()
+     */
+    @Override
+    public Rule lexer() {
+        Rule rule = this.lexer;
+        if (rule == null) {
+            synchronized (this) {
+                rule = this.lexer;
+                if (rule == null) {
+                    List<Token> tokens = ((Choice) ((ZeroOrMore) tokenizer()).getComponent()).getComponent().stream()
+                        .map(t -> (Token) t)
+                        .collect(Collectors.toList());
+                    Lexer lexer = new Lexer(tokens);
+                    this.lexer = rule = new Choice(Stream.of(lexer)).zeroOrMore();
+                }
+            }
         }
-        return this.tokenizer;
+        return rule;
     }
 
     /**
@@ -338,17 +386,15 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
      */
     @Override
     public boolean parse(Scanner scanner, EventsHandler handler, Rule rule, boolean matchAll) throws IOException {
-        Handler h = handler.asHandler();
-        // process substitutions if the rule belongs to another grammar
-        Rule r = adopt(rule);
-        log.fine(() -> "Parsing with rule " + r.toPrettyString() + "\n" + Dump.tree(r));
+        ParseSession session = newSession(scanner, handler, rule);
+        log.fine(() -> "Parsing with rule " + session.getRule().toPrettyString() + "\n" + Dump.tree(session.getRule()));
 
-        Parser.Match match = r.parse(scanner, h);
+        boolean matched = session.parse();
         // TODO : notification that characters are available
         if (matchAll && scanner.hasNext()) {
 //            handler.warning(); // TODO
         }
-        return ! match.fail();
+        return matched;
     };
 
     // =============== UTILITIES
@@ -398,23 +444,12 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
     }
 
     private Stream<RuleField> getRuleFields() {
-        return Arrays.stream(this.grammar.getDeclaredFields())
-            .map(field -> {
-                if (Rule.class.isAssignableFrom(field.getType())) {
-                    return new RuleField(this.grammar, field);
-                }
-                return null;
-            })
-            .filter(o -> o != null);
-    }
-
-    // the fields declared by this grammar and its interfaces
-    private Stream<Field> fields() {
-        Stream<Field> fields = ClassUtil.getClasses(this.grammar)
-            .filter(g -> g != Grammar.class)
-            .flatMap(c -> Arrays.asList(c.getDeclaredFields()).stream())
-            .filter(f -> ! "$any".equals(f.getName()) && ! "$empty".equals(f.getName()));
-        return fields;
+        if (this.ruleFields == null) {
+            this.ruleFields = this.descriptor.getRuleFields().stream()
+                .map(field -> new RuleField(this.grammar, field))
+                .collect(Collectors.toList());
+        }
+        return this.ruleFields.stream();
     }
 
     // =============== INITIALIZERS
@@ -433,51 +468,42 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
             String name = rf.field.getName();
             rule.setName(name);
             log.finest(() -> "Setting rule/token name " + name );
-            if (rf.field.getAnnotation(Fragment.class) == null) {
-                rule.setFragment(false);
-            } else { // assume true by default
-                rule.setFragment(true);
-            }
+            rule.setFragment(this.descriptor.fragments.contains(name));
 
             // 2) set fields declaration that are proxies
             if (rule instanceof Proxy) {
                 // lookup for a method that has the same name as the field
                 // Proxy foo = proxy();
                 Proxy proxy = (Proxy) rule;
-                if (proxy.getComponent() == null) {
+                GrammarDescriptor.ProxyInit init = this.descriptor.proxies.get(name);
+                // unwrap() doesn't turn an unassigned proxy to a proxy of itself
+                if (proxy.unwrap() == null && init != null) {
                     try {
-                        // static Rule foo() {
-                        //     return SomeRule.zeroOrMore();
-                        // }
-                        Method method = this.grammar.getDeclaredMethod(name);
-                        try {
+                        Rule r;
+                        if (init == GrammarDescriptor.ProxyInit.METHOD) {
+                            // static Rule foo() {
+                            //     return SomeRule.zeroOrMore();
+                            // }
+                            Method method = this.grammar.getDeclaredMethod(name);
                             // call the method
                             // Rule rule = foo();
-                            Rule r = (Rule) method.invoke(proxy);
-                            // set it to the proxy
-                            proxy.is(r);
-                            log.finest(() -> "Setting proxy " + name + " to " + method);
-                        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-                            Thrower.doThrow(e);
-                        }
-                    } catch (NoSuchMethodException | SecurityException e) {
-                        // lookup for a field that has the same name as the field prepend with $
-                        try {
+                            r = (Rule) method.invoke(proxy);
+                        } else {
                             // Supplier<Rule> $foo = () -> SomeRule.zeroOrMore();
                             Field field = this.grammar.getDeclaredField('$' + name);
-                            try {
-                                // get the field and get the rule
-                                @SuppressWarnings("unchecked")
-                                Rule r = ((Supplier<Rule>) field.get(null)).get();
-                                // set it to the proxy
-                                proxy.is(r);
-                                log.finest(() -> "Setting proxy " + name + " to " + r.toString());
-                            } catch (IllegalArgumentException | IllegalAccessException e1) {
-                                Thrower.doThrow(e);
-                            }
-                        } catch (NoSuchFieldException | SecurityException e1) {
-                            // ignore : the proxy is initialize by other mean
+                            // get the field and get the rule
+                            @SuppressWarnings("unchecked")
+                            Supplier<Rule> supplier = (Supplier<Rule>) field.get(null);
+                            r = supplier.get();
                         }
+                        // set it to the proxy
+                        proxy.is(r);
+                        // the rules are not yet all named : don't print them
+                        log.finest(() -> "Setting proxy " + name + " by " + init);
+                    } catch (NoSuchMethodException | NoSuchFieldException | IllegalAccessException
+                            | IllegalArgumentException | InvocationTargetException e)
+                    {
+                        Thrower.doThrow(e);
                     }
                 }
             }
@@ -540,6 +566,40 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
                 // don't simplify named rules
             }
         });
+        // collapse, fuse, merge, and factor
+        getRuleFields().forEach(rf ->
+            Optimizer.optimize(rf.rule(), this.descriptor.drops.contains(rf.field.getName()))
+        );
+    }
+
+    // see GrammarProfile
+    private void processProfile() {
+        try {
+            GrammarProfile.of(this.grammar).ifPresent(profile -> {
+                Analyzer analyzer = Analyzer.analyze(getRuleFields().map(RuleField::rule).toArray(Rule[]::new));
+                getRuleFields()
+                    .map(RuleField::rule)
+                    .filter(rule -> rule instanceof Choice)
+                    .filter(rule -> profile.reorder((Choice) rule, analyzer))
+                    .forEach(rule -> log.fine(() -> "Reordering " + rule.getName() + " to " + rule.toPrettyString()));
+            });
+        } catch (IOException e) {
+            log.warning("Unable to read the profile of " + getGrammarName() + " : " + e.getMessage());
+        }
+    }
+
+    // see the system property ml.alternet.parser.Grammar.analysis
+    private void processAnalysis() {
+        String analysis = System.getProperty("ml.alternet.parser.Grammar.analysis");
+        if ("warn".equals(analysis) || "fail".equals(analysis)) {
+            Analyzer analyzer = Analyzer.analyze(getRuleFields().map(RuleField::rule).toArray(Rule[]::new));
+            analyzer.getHazards().forEach(hazard -> log.warning(() -> "In " + getGrammarName() + " " + hazard));
+            if ("fail".equals(analysis)) {
+                analyzer.failFast();
+            }
+        } else if (analysis != null) {
+            log.warning(analysis + " is a bad value for ml.alternet.parser.Grammar.analysis (warn or fail expected)");
+        }
     }
 
     // when a grammar extends another grammar and extend or overload some fields
@@ -548,37 +608,9 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
         getRuleFields().forEach(rf -> {
             // a substitution is either declared explicitly by @Replace
             // or because a field has the same name of a field in an inherited grammar
-            Grammar.Replace replace = rf.field.getAnnotation(Grammar.Replace.class);
-            if (replace == null) { // field override ?
-                // find a rule with the same name in the inherited interfaces
-                ClassUtil.getClasses(this.grammar)
-                    .filter(i -> i != this.grammar && i != Grammar.class)
-                    .flatMap(c -> Arrays.asList(c.getDeclaredFields()).stream())
-                    .filter(f -> rf.rule().isGrammarField()
-                        && f.getName().equals(rf.rule().getName())
-                        && Rule.class.isAssignableFrom(f.getType()))
-                    .findFirst()
-                    .ifPresent(f -> addSubstitution(f, rf.rule()));
-                    // else it is not a replacement... go on
-            } else if (! replace.disable()) {
-                // @Replace was set
-                Stream<Class<?>> interfaces;
-                if (replace.grammar() == Grammar.class) { // means : not specified
-                    // find a rule with the given name in the inherited interfaces
-                    interfaces = ClassUtil.getClasses(this.grammar)
-                        .filter(i -> i != this.grammar && i != Grammar.class);
-                } else {
-                    // find a rule with the given name in the given interface
-                    interfaces = Stream.of(replace.grammar());
-                }
-                Field source = interfaces
-                    .flatMap(c -> Arrays.asList(c.getDeclaredFields()).stream())
-                    .filter(f -> f.getName().equals(replace.field())
-                        && Rule.class.isAssignableFrom(f.getType()))
-                    .findFirst() // with @Replace, we MUST find one
-                    .orElseThrow(() -> new NoSuchFieldError("Substitution not found "
-                                    + replace + " in " + this.grammar.getName()));
-                addSubstitution(source, rf.rule());
+            GrammarDescriptor.FieldRef source = this.descriptor.substitutions.get(rf.field.getName());
+            if (source != null) {
+                addSubstitution(source.resolve(this.grammar.getClassLoader()), rf.rule());
             } // else it is not a substitution
         });
 
@@ -640,118 +672,109 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
         }
     }
 
-    // @Drop & @Skip
+    // @Drop & @Skip & @Commit
     private void processAnnotations() {
-        Skip globalSkip = this.grammar.getAnnotation(Skip.class);
         getRuleFields().forEach(rf -> {
             Rule rule = rf.rule();
-            if (rf.field.getAnnotation(Drop.class) != null) {
+            String name = rf.field.getName();
+            if (this.descriptor.drops.contains(name)) {
                 rule.drop();
             }
-            boolean isFragment = rf.field.getAnnotation(Fragment.class) != null;
-            Skip skip = rf.field.getAnnotation(Skip.class);
-            if (skip == null && ! isFragment && globalSkip != null) {
-                // apply global skip
-                skip = globalSkip;
-            }
-            if (skip != null && ! skip.token().equals($empty.getName())) {
-                boolean before = skip.before();
-                boolean after = skip.after();
-                if (before || after) {
-                    String skipName = skip.token();
-                    Class<? extends Grammar> g = skip.grammar() == Grammar.class
-                        ? this.grammar
-                        : skip.grammar();
+            GrammarDescriptor.SkipRef skip = this.descriptor.skips.get(name);
+            if (skip != null) {
+                String skipName = skip.token.field;
+                try {
+                    Class<?> g = Class.forName(skip.token.grammar, false, this.grammar.getClassLoader());
                     try {
                         Field f = g.getDeclaredField(skipName);
                         Rule skipRule = ((Rule) f.get(null)).zeroOrMore();
                         @SuppressWarnings("rawtypes")
                         Parser p = rule.parser;
-                        rule.parser = new Parser.Skip(skipRule, p, before, after);
+                        rule.parser = new Parser.Skip(skipRule, p, skip.before, skip.after);
                     } catch (NoSuchFieldException e) {
                         throw new IllegalArgumentException("Skip token "
-                                + (g == this.grammar ? "" : ((Grammar$) $(g)).getGrammarName() + ".")
+                                + (g == this.grammar ? "" : g.getTypeName() + ".")
                                 + skipName + " not found for " + rule.getName() + " in " + getGrammarName());
-                    } catch (Exception e) {
-                        Thrower.doThrow(e);
                     }
+                } catch (Exception e) {
+                    Thrower.doThrow(e);
                 }
             }
+            if (this.descriptor.commits.contains(name)) {
+                @SuppressWarnings("rawtypes")
+                Parser p = rule.parser;
+                rule.parser = new Parser.Commit(p);
+            }
+        });
+        // optimization for consecutive @Skip
+        // don't try to mix this loop with the one above
+        getRuleFields().forEach(rf -> {
+            Rule rule = rf.rule();
+            String name = rf.field.getName();
+            if (! this.descriptor.drops.contains(name)) {
+                coalesceSkips(rule, this.descriptor.skips.containsKey(name));
+            }
+            rule.accept(new Traverse() {
+                @Override
+                public void visit(TraversableRule.CombinedRule combinedRule) {
+                    if (combinedRule == rule || ! combinedRule.isGrammarField()) {
+                        super.visit(combinedRule);
+                    } // else named rules are processed on their own
+                }
+                @Override
+                public void visit(TraversableRule.SimpleRule simpleRule) {
+                    if (simpleRule == rule || ! simpleRule.isGrammarField()) {
+                        super.visit(simpleRule);
+                    }
+                }
+                @Override
+                public void accept(Rule r) {
+                    if (! r.isGrammarField()) {
+                        coalesceSkips(r, false);
+                    }
+                }
+            });
         });
-//        // optimization for consecutive @Skip
-//        // don't try to mix this loop with the one above
-//        getRuleFields()
-//            .map(rf -> rf.rule())
-//            .forEach(rule -> {
-//                // optimize for Choice : if all items have the same @Skip.token(),
-//                // remove it and apply it on the Choice
-//
-//                // optimize for Sequence : if the @Skip[after].token() of an item is the same
-//                // than @Skip[before].token() of its next item, remove one of them.
-//                // remove it and apply it on the Choice
-//
-//// TODO : if we have a named rule, should we allow to change that on substitution ???
-//// FIXME : stupid optimization : it is filtered on named rules, but only named rule may have @Skip !!!!!!!!!!!!!!!
-//
-//                rule.accept(new Traverse() {
-//                    @Override
-//                    public void accept(Rule r) {
-//                        if (r instanceof Choice) {
-//                            Choice choice = (Choice) r;
-//                            Rule ref = choice.parser instanceof Parser.Skip
-//                                    ? choice
-//                                    : choice.getComponent().get(0);
-//                            SkipRule sr = ref.parser instanceof Parser.Skip
-//                                ? ((Parser.Skip) ref.parser).skipRule
-//                                : null;
-//                            // all items have the same skip rule ?
-//                            if (choice.getComponent().stream()
-//                                .allMatch(comp -> {
-//                                    if (comp.isGrammarField()) {
-//                                        return false; // don't change named rules
-//                                    }
-//                                    if (comp.parser instanceof Parser.Skip) {
-//                                        if (sr == null) {
-//                                            return false; // we are after the first that wasn't skip
-//                                        } else {
-//                                            SkipRule skip = ((Parser.Skip) r.parser).skipRule;
-//                                            return skip.skipRule.isGrammarField()
-//                                                    && skip.after == sr.after
-//                                                    && skip.before == sr.before
-//                                                    && skip.skipRule.getName().equals(sr.skipRule.getName());
-//                                        }
-//                                    } else {
-//                                        return sr == null;
-//                                    }
-//                                })
-//                            ) {
-//                                // YES
-//                                if (sr != null) {
-//                                    if (! (choice.parser instanceof Parser.Skip)) {
-//                                        // => set the common @Skip to the choice
-//                                        choice.parser = new Parser.Skip(sr.skipRule, choice.parser, sr.before, sr.after);
-//                                    } // else it already has it
-//                                    // => unset @Skip of each items
-//                                    choice.setComponent(choice.getComponents().peek(cr -> {
-//                                        Parser.Skip skip = (Parser.Skip) cr.parser;
-//                                        cr.parser = skip.parser; // unwrap
-////                                        // we must create a clone if the rule has a name
-////                                        // because it may be reused elsewhere (with a different
-////                                        // inherited WSP)
-////                                        if (cr.isGrammarField()) {
-////                                            cr = (Rule) safeCall(cr::clone);
-////    //                                            cr = cloneRule(cr);
-////                                        }
-////                                        ((HasWhitespacePolicy) cr)
-////                                              .setWhitespacePolicy(java.util.Optional.empty());
-////                                        return cr;
-//                                    }).collect(Collectors.toList()));
-//                                }
-//                            }
-//                        }
-//                    }
-//                });
-//            });
+    }
+
+    // optimize for Choice : if all items have the same @Skip, apply it on the Choice instead
+    // optimize for Sequence : if the @Skip[after] of an item is the same than the
+    //     @Skip[before] of its next item, skip only once
+    // the named items are left as-is, since they may be used elsewhere
+    // the @Skip and @Commit of the rule are kept around its new parser
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void coalesceSkips(Rule rule, boolean skipped) {
+        if (! (rule instanceof Choice || rule instanceof Sequence)) {
+            return;
+        }
+        // the parser of the rule, possibly wrapped by its own @Commit and @Skip
+        Parser.Commit commit = rule.parser instanceof Parser.Commit ? (Parser.Commit) rule.parser : null;
+        Parser wrapped = commit == null ? rule.parser : commit.getParser();
+        Parser.Skip skip = skipped ? (Parser.Skip) wrapped : null;
+        Parser parser = skipped ? skip.parser : wrapped;
+        List<Rule> items = ((Combine) rule).getComponent();
+        if (rule instanceof Choice) {
+            Rule first = items.isEmpty() ? null : items.get(0);
+            if (first != null && first.parser instanceof Parser.Skip
+                    && Parser.Skip.Hoisted.isHoistable(((Parser.Skip) first.parser).getSkipRule(), items))
+            {
+                parser = new Parser.Skip.Hoisted(((Parser.Skip) first.parser).getSkipRule(), parser);
+            }
+        } else if (rule instanceof Sequence) {
+            for (int i = 1; i < items.size(); i++) {
+                if (items.get(i - 1).parser instanceof Parser.Skip && items.get(i).parser instanceof Parser.Skip) {
+                    parser = Sequence.parser(true);
+                    break;
+                }
+            }
+        }
+        if (skipped) {
+            skip.parser = parser;
+        } else if (commit == null) {
+            rule.parser = parser;
+        } else if (parser != wrapped) {
+            rule.parser = new Parser.Commit(parser);
+        }
     }
 
     /**
@@ -765,7 +788,7 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
      */
     @Override
     public Rule adopt(Rule rule) {
-        if (rule == this.tokenizer) { // || rule == this.mainRule.orElse(null)) {
+        if (rule == this.tokenizer || rule == this.lexer) { // || rule == this.mainRule.orElse(null)) {
             return rule;
         }
         if (rule.isGrammarField()) {
@@ -780,7 +803,7 @@ public abstract class Grammar$ implements Grammar, Initializable<Grammar> {
         }
     }
 
-    private Rule adoption(Rule rule) {
+    private synchronized Rule adoption(Rule rule) {
         Rule adoptedRule = this.adopted.computeIfAbsent(rule, rul -> {
             log.fine(() -> "Adopting " + rul + " in " + getGrammarName() + "\n" + Dump.tree(rul));
             if (this.substitutions.isEmpty()) {
@@ -0,0 +1,427 @@
+package ml.alternet.parser.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import ml.alternet.misc.Thrower;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Grammar.Commit;
+import ml.alternet.parser.Grammar.Drop;
+import ml.alternet.parser.Grammar.Fragment;
+import ml.alternet.parser.Grammar.MainRule;
+import ml.alternet.parser.Grammar.Replace;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Grammar.Skip;
+import ml.alternet.parser.Grammar.Token;
+import ml.alternet.util.ClassUtil;
+
+/**
+ * The wiring of a grammar interface : its rule fields,
+ * fragments, commits, proxy initializers, substitutions, skips,
+ * main rule and tokens.
+ *
+ * <p>The descriptor is precomputed at compile time by
+ * the annotation processor {@code GrammarDescriptorGenerator}
+ * of the module <code>alternet-tools-generator</code>, as a
+ * resource named after the grammar, e.g.
+ * <code>org/example/Foo$Bar.grammar</code> for the grammar
+ * <code>org.example.Foo.Bar</code>. When that resource is
+ * missing, or stale (another version of the format, or rule
+ * fields that were added or removed since), the descriptor is
+ * computed by reflection. The descriptor is also stale when an
+ * inherited grammar was changed since : its fingerprint, computed
+ * from the names, the kinds, and the annotations of its rule fields,
+ * is different, or a field referred by the descriptor is missing.</p>
+ *
+ * <p>Format of the resource (a properties file) :</p>
+ * <pre>version=3
+ *grammar=org.example.Foo$Bar
+ *supers=org.example.Base:5e2f1a0c    # the fingerprints of the inherited grammars
+ *rules=A,B,C
+ *fragments=A
+ *drops=B
+ *commits=C
+ *proxy.C=method                  # or supplier
+ *substitution.B=org.example.Base#B
+ *skip.C=org.example.Foo$Bar#WS,true,false
+ *mainRule=org.example.Base#Expr
+ *tokens=org.example.Foo$Bar#A,org.example.Base#T</pre>
+ *
+ * @author Philippe Poulard
+ */
+class GrammarDescriptor {
+
+    /** The version of the format of the descriptor. */
+    static final String VERSION = "3";
+
+    /** The extension of the descriptor resource. */
+    static final String EXTENSION = ".grammar";
+
+    private static final ClassValue<GrammarDescriptor> DESCRIPTORS = new ClassValue<GrammarDescriptor>() {
+        @SuppressWarnings("unchecked")
+        @Override
+        protected GrammarDescriptor computeValue(Class<?> grammar) {
+            Class<? extends Grammar> g = (Class<? extends Grammar>) grammar;
+            GrammarDescriptor gd = load(g);
+            if (gd == null || ! gd.resolve()) {
+                gd = reflect(g);
+                gd.resolve();
+            }
+            return gd;
+        }
+    };
+
+    /**
+     * How a proxy rule field is initialized.
+     */
+    enum ProxyInit {
+        /** <code>static Rule foo() { ... }</code> */
+        METHOD,
+        /** <code>Supplier&lt;Rule&gt; $foo = () -&gt; ...</code> */
+        SUPPLIER;
+    }
+
+    /**
+     * A reference to a field, possibly in another grammar.
+     */
+    static class FieldRef {
+
+        final String grammar;
+        final String field;
+
+        FieldRef(String grammar, String field) {
+            this.grammar = grammar;
+            this.field = field;
+        }
+
+        static FieldRef parse(String ref) {
+            int sharp = ref.indexOf('#');
+            return new FieldRef(ref.substring(0, sharp), ref.substring(sharp + 1));
+        }
+
+        // return false if the field is missing, or is not of the expected type
+        boolean exists(ClassLoader cl, Class<?> type) {
+            try {
+                return type.isAssignableFrom(Class.forName(this.grammar, false, cl)
+                    .getDeclaredField(this.field).getType());
+            } catch (ClassNotFoundException | NoSuchFieldException | SecurityException | LinkageError e) {
+                return false;
+            }
+        }
+
+        Field resolve(ClassLoader cl) {
+            try {
+                return Class.forName(this.grammar, false, cl).getDeclaredField(this.field);
+            } catch (ClassNotFoundException | NoSuchFieldException | SecurityException e) {
+                return Thrower.doThrow(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.grammar + '#' + this.field;
+        }
+    }
+
+    /**
+     * A resolved {@code @Skip} annotation.
+     */
+    static class SkipRef {
+
+        final FieldRef token;
+        final boolean before;
+        final boolean after;
+
+        SkipRef(FieldRef token, boolean before, boolean after) {
+            this.token = token;
+            this.before = before;
+            this.after = after;
+        }
+
+        static SkipRef parse(String skip) {
+            String[] parts = skip.split(",");
+            return new SkipRef(FieldRef.parse(parts[0]), Boolean.parseBoolean(parts[1]), Boolean.parseBoolean(parts[2]));
+        }
+    }
+
+    final Class<? extends Grammar> grammar;
+    final boolean generated;
+    final List<String> rules = new ArrayList<>();
+    final Set<String> fragments = new HashSet<>();
+    final Set<String> drops = new HashSet<>();
+    final Set<String> commits = new HashSet<>();
+    final Map<String, ProxyInit> proxies = new HashMap<>();
+    final Map<String, FieldRef> substitutions = new LinkedHashMap<>();
+    final Map<String, SkipRef> skips = new HashMap<>();
+    final List<FieldRef> tokens = new ArrayList<>();
+    FieldRef mainRule;
+    final Map<String, String> supers = new LinkedHashMap<>(); // grammar name -> fingerprint
+    List<Field> ruleFields; // set by resolve()
+
+    private GrammarDescriptor(Class<? extends Grammar> grammar, boolean generated) {
+        this.grammar = grammar;
+        this.generated = generated;
+    }
+
+    /**
+     * Return the descriptor of a grammar ; the result
+     * is computed once.
+     *
+     * @param grammar The grammar interface.
+     * @return Its descriptor.
+     */
+    static GrammarDescriptor of(Class<? extends Grammar> grammar) {
+        return DESCRIPTORS.get(grammar);
+    }
+
+    /**
+     * Get the rule fields declared by the grammar.
+     *
+     * @return The fields, in the order of their declaration.
+     */
+    List<Field> getRuleFields() {
+        return this.ruleFields;
+    }
+
+    // return false if a field is missing or was added, or if an inherited
+    // grammar was changed, which means that the descriptor is stale
+    private boolean resolve() {
+        List<Field> fields = new ArrayList<>(this.rules.size());
+        for (String name : this.rules) {
+            try {
+                Field f = this.grammar.getDeclaredField(name);
+                if (! Rule.class.isAssignableFrom(f.getType())) {
+                    return false;
+                }
+                fields.add(f);
+            } catch (NoSuchFieldException e) {
+                return false;
+            }
+        }
+        if (this.generated && Arrays.stream(this.grammar.getDeclaredFields())
+                .filter(f -> Rule.class.isAssignableFrom(f.getType()))
+                .count() != fields.size())
+        {
+            return false;
+        }
+        if (this.generated && ! (supersUnchanged() && refsExist())) {
+            return false;
+        }
+        this.ruleFields = Collections.unmodifiableList(fields);
+        return true;
+    }
+
+    private boolean supersUnchanged() {
+        Map<String, String> supers = new LinkedHashMap<>();
+        ClassUtil.getClasses(this.grammar)
+            .filter(g -> g != Grammar.class && g != this.grammar)
+            .forEach(g -> supers.put(g.getName(), fingerprint(g)));
+        // same grammars, in the same order
+        return new ArrayList<>(supers.entrySet()).equals(new ArrayList<>(this.supers.entrySet()));
+    }
+
+    private boolean refsExist() {
+        ClassLoader cl = this.grammar.getClassLoader();
+        return (this.mainRule == null || this.mainRule.exists(cl, Rule.class))
+            && this.tokens.stream().allMatch(ref -> ref.exists(cl, Token.class))
+            && this.substitutions.values().stream().allMatch(ref -> ref.exists(cl, Rule.class))
+            && this.skips.values().stream().allMatch(skip -> skip.token.exists(cl, Rule.class));
+    }
+
+    /**
+     * Compute the fingerprint of a grammar, from the names, the kinds
+     * (token or rule) and the annotations {@code @Fragment} and
+     * {@code @MainRule} of its rule fields, in the order of their
+     * declaration ; the annotation processor computes the same.
+     *
+     * @param grammar The grammar interface.
+     * @return The fingerprint, as an hexadecimal string.
+     */
+    static String fingerprint(Class<?> grammar) {
+        StringBuilder buf = new StringBuilder();
+        for (Field f : grammar.getDeclaredFields()) {
+            if (Rule.class.isAssignableFrom(f.getType())) {
+                buf.append(f.getName())
+                    .append(Token.class.isAssignableFrom(f.getType()) ? ":T" : ":R")
+                    .append(f.getAnnotation(Fragment.class) == null ? "" : "F")
+                    .append(f.getAnnotation(MainRule.class) == null ? "" : "M")
+                    .append(';');
+            }
+        }
+        return Integer.toHexString(buf.toString().hashCode());
+    }
+
+    private static String resourceName(Class<?> grammar) {
+        String name = grammar.getName();
+        return name.substring(name.lastIndexOf('.') + 1) + EXTENSION;
+    }
+
+    // load the descriptor generated at compile time, if any
+    private static GrammarDescriptor load(Class<? extends Grammar> grammar) {
+        Properties props = new Properties();
+        try (InputStream in = grammar.getResourceAsStream(resourceName(grammar))) {
+            if (in == null) {
+                return null;
+            }
+            props.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        if (! VERSION.equals(props.getProperty("version"))
+                || ! grammar.getName().equals(props.getProperty("grammar")))
+        {
+            return null;
+        }
+        GrammarDescriptor gd = new GrammarDescriptor(grammar, true);
+        list(props, "rules").forEach(gd.rules::add);
+        list(props, "fragments").forEach(gd.fragments::add);
+        list(props, "drops").forEach(gd.drops::add);
+        list(props, "commits").forEach(gd.commits::add);
+        list(props, "tokens").map(FieldRef::parse).forEach(gd.tokens::add);
+        for (String sup : list(props, "supers").toArray(String[]::new)) {
+            int colon = sup.lastIndexOf(':');
+            if (colon == -1) {
+                return null;
+            }
+            gd.supers.put(sup.substring(0, colon), sup.substring(colon + 1));
+        }
+        String main = props.getProperty("mainRule");
+        if (main != null && ! main.isEmpty()) {
+            gd.mainRule = FieldRef.parse(main);
+        }
+        for (String name : gd.rules) {
+            String proxy = props.getProperty("proxy." + name);
+            if (proxy != null) {
+                gd.proxies.put(name, ProxyInit.valueOf(proxy.toUpperCase()));
+            }
+            String substitution = props.getProperty("substitution." + name);
+            if (substitution != null) {
+                gd.substitutions.put(name, FieldRef.parse(substitution));
+            }
+            String skip = props.getProperty("skip." + name);
+            if (skip != null) {
+                gd.skips.put(name, SkipRef.parse(skip));
+            }
+        }
+        return gd;
+    }
+
+    private static Stream<String> list(Properties props, String key) {
+        String value = props.getProperty(key, "").trim();
+        return value.isEmpty()
+            ? Stream.empty()
+            : Arrays.stream(value.split(",")).map(String::trim);
+    }
+
+    // compute the descriptor by reflection
+    private static GrammarDescriptor reflect(Class<? extends Grammar> grammar) {
+        GrammarDescriptor gd = new GrammarDescriptor(grammar, false);
+        List<Class<?>> hierarchy = ClassUtil.getClasses(grammar)
+            .filter(g -> g != Grammar.class)
+            .collect(Collectors.toList());
+        // the fields declared by this grammar and its interfaces
+        List<Field> fields = hierarchy.stream()
+            .flatMap(c -> Arrays.stream(c.getDeclaredFields()))
+            .filter(f -> ! "$any".equals(f.getName()) && ! "$empty".equals(f.getName()))
+            .collect(Collectors.toList());
+        Skip globalSkip = grammar.getAnnotation(Skip.class);
+        Set<String> methods = Arrays.stream(grammar.getDeclaredMethods())
+            .filter(m -> m.getParameterCount() == 0)
+            .map(m -> m.getName())
+            .collect(Collectors.toSet());
+        Set<String> declared = Arrays.stream(grammar.getDeclaredFields())
+            .map(f -> f.getName())
+            .collect(Collectors.toSet());
+        for (Field f : grammar.getDeclaredFields()) {
+            if (! Rule.class.isAssignableFrom(f.getType())) {
+                continue;
+            }
+            String name = f.getName();
+            gd.rules.add(name);
+            boolean isFragment = f.getAnnotation(Fragment.class) != null;
+            if (isFragment) {
+                gd.fragments.add(name);
+            }
+            if (f.getAnnotation(Drop.class) != null) {
+                gd.drops.add(name);
+            }
+            if (f.getAnnotation(Commit.class) != null) {
+                gd.commits.add(name);
+            }
+            if (methods.contains(name)) {
+                gd.proxies.put(name, ProxyInit.METHOD);
+            } else if (declared.contains('$' + name)) {
+                gd.proxies.put(name, ProxyInit.SUPPLIER);
+            }
+            substitution(grammar, hierarchy, f).ifPresent(ref -> gd.substitutions.put(name, ref));
+            Skip skip = f.getAnnotation(Skip.class);
+            if (skip == null && ! isFragment && globalSkip != null) {
+                // apply global skip
+                skip = globalSkip;
+            }
+            if (skip != null && ! skip.token().equals(Grammar.$empty.getName())
+                    && (skip.before() || skip.after()))
+            {
+                Class<? extends Grammar> g = skip.grammar() == Grammar.class
+                    ? grammar
+                    : skip.grammar();
+                gd.skips.put(name, new SkipRef(new FieldRef(g.getName(), skip.token()), skip.before(), skip.after()));
+            }
+        }
+        fields.stream()
+            .filter(f -> f.getAnnotation(MainRule.class) != null)
+            .findFirst()
+            .ifPresent(f -> gd.mainRule = new FieldRef(f.getDeclaringClass().getName(), f.getName()));
+        fields.stream()
+            .filter(f ->   Token.class.isAssignableFrom(f.getType()) // keep tokens
+                        && f.getAnnotation(Fragment.class) == null)  // that ARE NOT fragments
+            .map(f -> new FieldRef(f.getDeclaringClass().getName(), f.getName()))
+            .forEach(gd.tokens::add);
+        return gd;
+    }
+
+    // a substitution is either declared explicitly by @Replace
+    // or because a field has the same name of a field in an inherited grammar
+    private static java.util.Optional<FieldRef> substitution(Class<? extends Grammar> grammar,
+            List<Class<?>> hierarchy, Field field)
+    {
+        Replace replace = field.getAnnotation(Replace.class);
+        Stream<Class<?>> interfaces;
+        String name;
+        if (replace == null) { // field override ?
+            interfaces = hierarchy.stream().filter(i -> i != grammar);
+            name = field.getName();
+        } else if (replace.disable()) {
+            return java.util.Optional.empty();
+        } else {
+            interfaces = replace.grammar() == Grammar.class // means : not specified
+                ? hierarchy.stream().filter(i -> i != grammar)
+                : Stream.of(replace.grammar());
+            name = replace.field().isEmpty() ? field.getName() : replace.field();
+        }
+        java.util.Optional<FieldRef> ref = interfaces
+            .flatMap(c -> Arrays.stream(c.getDeclaredFields()))
+            .filter(f -> f.getName().equals(name)
+                && Rule.class.isAssignableFrom(f.getType()))
+            .map(f -> new FieldRef(f.getDeclaringClass().getName(), f.getName()))
+            .findFirst();
+        if (replace != null && ! ref.isPresent()) { // with @Replace, we MUST find one
+            throw new NoSuchFieldError("Substitution not found " + replace + " in " + grammar.getName());
+        }
+        return ref;
+    }
+
+}
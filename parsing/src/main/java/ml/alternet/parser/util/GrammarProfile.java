@@ -0,0 +1,202 @@
+package ml.alternet.parser.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Grammar.Choice;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.visit.Analyzer;
+
+/**
+ * The number of times each alternative of the choices
+ * of a grammar was selected during a training run.
+ *
+ * <p>A profile is recorded by a {@link Profiler}, and stored in
+ * a file <code>Foo.profile</code> next to the grammar <code>Foo</code>,
+ * that is to say as a resource of its class. When the grammar is
+ * initialized, the alternatives of its choices are tried in the
+ * order of their frequencies, when the reordering doesn't change
+ * what a choice matches : an alternative is moved before another one
+ * only if they are exclusive.</p>
+ *
+ * <pre>try (Profiler profiler = Profiler.profile(Calc.$)) {
+ *    // parse a representative input
+ *    try (Writer writer = Files.newBufferedWriter(Paths.get("src/main/resources/org/example/Calc.profile"))) {
+ *        profiler.toGrammarProfile().store(writer);
+ *    }
+ *}</pre>
+ *
+ * <p>Only the choices that are fields of the grammar are profiled,
+ * because their name identifies them ; the alternatives are
+ * identified by their name or their pretty string.</p>
+ *
+ * @see Analyzer#isExclusive(Rule, Rule)
+ *
+ * @author Philippe Poulard
+ */
+public class GrammarProfile {
+
+    /**
+     * The extension of the profile files.
+     */
+    public static final String EXTENSION = ".profile";
+
+    // choice name -> alternative label -> selections
+    final Map<String, Map<String, Long>> selections = new LinkedHashMap<>();
+
+    static String label(Rule rule) {
+        return rule.isGrammarField() ? rule.getName() : rule.toPrettyString().toString();
+    }
+
+    void add(String choice, String alternative, long count) {
+        this.selections.computeIfAbsent(choice, c -> new LinkedHashMap<>()).merge(alternative, count, Long::sum);
+    }
+
+    /**
+     * Return the number of times an alternative of a choice was selected.
+     *
+     * @param choice The name of the choice.
+     * @param alternative The name or the pretty string of the alternative.
+     *
+     * @return The number of selections, 0 if unknown.
+     */
+    public long getSelections(String choice, String alternative) {
+        return this.selections.getOrDefault(choice, new LinkedHashMap<>()).getOrDefault(alternative, 0L);
+    }
+
+    /**
+     * Store this profile.
+     *
+     * @param writer The target writer.
+     *
+     * @throws IOException When an I/O error occurs.
+     */
+    public void store(Writer writer) throws IOException {
+        writer.write("# the alternatives selected by the choices : choice<TAB>alternative=selections\n");
+        for (Map.Entry<String, Map<String, Long>> choice : this.selections.entrySet()) {
+            for (Map.Entry<String, Long> alternative : choice.getValue().entrySet()) {
+                writer.write(escape(choice.getKey() + '\t' + alternative.getKey()));
+                writer.write('=');
+                writer.write(alternative.getValue().toString());
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    // escape a key of the properties format
+    static String escape(String key) {
+        StringBuilder buf = new StringBuilder(key.length());
+        key.chars().forEach(c -> {
+            switch (c) {
+            case '\t': buf.append("\\t"); break;
+            case '\n': buf.append("\\n"); break;
+            case '\r': buf.append("\\r"); break;
+            case '\f': buf.append("\\f"); break;
+            case '\\': case ' ': case '=': case ':': case '#': case '!':
+                buf.append('\\').append((char) c); break;
+            default: buf.append((char) c);
+            }
+        });
+        return buf.toString();
+    }
+
+    /**
+     * Load a profile.
+     *
+     * @param reader The source reader.
+     *
+     * @return The profile.
+     *
+     * @throws IOException When an I/O error occurs.
+     * @throws IllegalArgumentException When an entry is malformed.
+     */
+    public static GrammarProfile load(Reader reader) throws IOException {
+        Properties props = new Properties();
+        props.load(reader);
+        GrammarProfile profile = new GrammarProfile();
+        for (String key : props.stringPropertyNames()) {
+            int tab = key.indexOf('\t');
+            if (tab == -1) {
+                throw new IllegalArgumentException("Malformed entry in the profile : " + key);
+            }
+            try {
+                profile.add(key.substring(0, tab), key.substring(tab + 1), Long.parseLong(props.getProperty(key)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed count in the profile : " + key, e);
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Load the profile of a grammar, stored next to its class.
+     *
+     * @param grammar The grammar interface.
+     *
+     * @return The profile, if any.
+     *
+     * @throws IOException When an I/O error occurs.
+     */
+    public static Optional<GrammarProfile> of(Class<? extends Grammar> grammar) throws IOException {
+        String name = grammar.getName();
+        try (InputStream in = grammar.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + EXTENSION)) {
+            if (in == null) {
+                return Optional.empty();
+            }
+            return Optional.of(load(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Reorder the alternatives of a choice, the most selected first,
+     * without moving an alternative before another one that is not
+     * exclusive with it.
+     *
+     * @param choice The choice, a field of a grammar.
+     * @param analyzer An analyzer of the rules of the grammar.
+     *
+     * @return <code>true</code> if the choice has been reordered.
+     */
+    boolean reorder(Choice choice, Analyzer analyzer) {
+        Map<String, Long> counts = this.selections.get(choice.getName());
+        if (counts == null) {
+            return false;
+        }
+        List<Rule> alternatives = new ArrayList<>(choice.getComponent());
+        long[] selected = alternatives.stream()
+            .mapToLong(alternative -> counts.getOrDefault(label(alternative), 0L))
+            .toArray();
+        boolean reordered = false;
+        // a stable insertion sort, that swaps only exclusive alternatives
+        for (int i = 1; i < alternatives.size(); i++) {
+            for (int j = i; j > 0 && selected[j] > selected[j - 1]
+                    && analyzer.isExclusive(alternatives.get(j - 1), alternatives.get(j)); j--)
+            {
+                Rule rule = alternatives.get(j);
+                alternatives.set(j, alternatives.get(j - 1));
+                alternatives.set(j - 1, rule);
+                long count = selected[j];
+                selected[j] = selected[j - 1];
+                selected[j - 1] = count;
+                reordered = true;
+            }
+        }
+        if (reordered) {
+            choice.setComponent(alternatives);
+        }
+        return reordered;
+    }
+
+}
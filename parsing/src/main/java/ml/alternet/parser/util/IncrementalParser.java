@@ -0,0 +1,484 @@
+package ml.alternet.parser.util;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ml.alternet.misc.Position;
+import ml.alternet.misc.Thrower;
+import ml.alternet.parser.EventsHandler;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.scan.Scanner;
+import ml.alternet.scan.TrackableScanner;
+
+/**
+ * Parse again an input after an edit, by reusing the results
+ * of the rules that are not affected by the edit.
+ *
+ * <p>An incremental parser memoizes each invocation of a rule by
+ * its position in the input : the match, the characters consumed,
+ * the characters examined (including the character read in advance,
+ * and the characters read by the sub-rules that failed), and the
+ * events emitted. After an edit, the invocations that have examined
+ * the characters edited are discarded, the invocations after the edit
+ * are shifted, and the others are kept as-is. When the input is parsed
+ * again, the invocations still valid are replayed : only the rules
+ * that enclose the edit are parsed again.</p>
+ *
+ * <pre>try (IncrementalParser parser = IncrementalParser.of(ValueTemplate.$)) {
+ *    ValueTemplateBuilder builder = ValueTemplateBuilder.forCalcGrammar();
+ *    parser.parse(text, builder, true);
+ *    // replace 3 characters at offset 12, and parse again
+ *    builder.reset();
+ *    parser.edit(12, 3, "x+1").reparse(builder, true);
+ *}</pre>
+ *
+ * <p>The events replayed are the instances received by the previous
+ * handler, relocated when they follow the edit ; the values of the tokens
+ * are restored before being replayed, in case a handler had changed them.
+ * The invocations that cut the input are not memoized.</p>
+ *
+ * <p>The results are memoized by the incremental parser, not by the
+ * rules : the invocations are intercepted only while the incremental
+ * parser parses, in its own thread, therefore the other parsings with
+ * the same grammar are not affected. An incremental parser is not thread
+ * safe.</p>
+ *
+ * @see Interception
+ *
+ * @author Philippe Poulard
+ */
+public class IncrementalParser implements AutoCloseable {
+
+    // a memoized invocation of a rule
+    static class Entry {
+        final Rule rule;
+        final Match match;
+        final EventsHandler.RuleEvent<?>[] events;
+        final Object[] values; // the original values of the tokens
+        long start;
+        long end;
+        long examined; // the offset of the last character examined
+
+        Entry(Rule rule, Match match, EventsHandler.RuleEvent<?>[] events, Object[] values,
+                long start, long end, long examined)
+        {
+            this.rule = rule;
+            this.match = match;
+            this.events = events;
+            this.values = values;
+            this.start = start;
+            this.end = end;
+            this.examined = examined;
+        }
+    }
+
+    // intercept the invocations of the rules parsed incrementally
+    class Memo implements Interception.Interceptor {
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        @Override
+        public Match intercept(Parser parser, Rule rule, Scanner scanner, Handler handler) {
+            if (scanner != IncrementalParser.this.scanner || ! IncrementalParser.this.rules.contains(rule)
+                    || (handler != IncrementalParser.this.recorder && handler != Handler.NULL_HANDLER))
+            {
+                return parser.parse(rule, scanner, handler);
+            } else {
+                return IncrementalParser.this.parse(parser, rule, handler);
+            }
+        }
+
+    }
+
+    // record the events that are not cancelled
+    static class Recorder implements Handler {
+
+        final Handler handler;
+        final List<EventsHandler.RuleEvent<?>> events = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+        final Deque<Integer> marks = new ArrayDeque<>();
+
+        Recorder(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void receive(TokenValue<?> value) {
+            this.events.add(value);
+            this.values.add(value.getValue());
+            this.handler.receive(value);
+        }
+
+        @Override
+        public void receive(RuleStart ruleStart) {
+            this.events.add(ruleStart);
+            this.values.add(null);
+            this.handler.receive(ruleStart);
+        }
+
+        @Override
+        public void receive(RuleEnd ruleEnd) {
+            this.events.add(ruleEnd);
+            this.values.add(null);
+            this.handler.receive(ruleEnd);
+        }
+
+        @Override
+        public void mark() {
+            this.marks.push(this.events.size());
+            this.handler.mark();
+        }
+
+        @Override
+        public void cancel() throws IllegalStateException {
+            if (this.marks.isEmpty()) {
+                throw new IllegalStateException("Can't cancel the events since no position was marked.");
+            }
+            int size = this.marks.pop();
+            this.events.subList(size, this.events.size()).clear();
+            this.values.subList(size, this.values.size()).clear();
+            this.handler.cancel();
+        }
+
+        @Override
+        public void consume() throws IllegalStateException {
+            if (this.marks.isEmpty()) {
+                throw new IllegalStateException("Can't consume the events since no position was marked.");
+            }
+            this.marks.pop();
+            this.handler.consume();
+        }
+
+        @Override
+        public void cut() {
+            this.handler.cut();
+        }
+
+    }
+
+    // track the offset and the characters examined
+    static class Tracker extends TrackableScanner {
+
+        long offset;
+        long examined; // the highest offset examined so far
+        boolean cancelling;
+
+        Tracker(String text) throws IOException {
+            super(Scanner.of(text));
+        }
+
+        @Override
+        public void read() throws IOException {
+            if (! this.cancelling && hasNext()) {
+                this.offset++;
+                if (this.offset > this.examined) {
+                    this.examined = this.offset;
+                }
+            }
+            super.read();
+        }
+
+        @Override
+        public void cancel() throws IllegalStateException {
+            this.cancelling = true;
+            try {
+                super.cancel();
+            } finally {
+                this.cancelling = false;
+            }
+            this.offset = getOffset();
+        }
+
+    }
+
+    // compute the positions like the trackable scanner does
+    static class Lines {
+
+        final int[] lines; // the offsets after a new line
+        final int[] breaks; // the offsets after '\r' or '\n'
+
+        Lines(String text) {
+            List<Integer> lines = new ArrayList<>();
+            List<Integer> breaks = new ArrayList<>();
+            int[] offset = { 0 };
+            boolean[] cr = { false };
+            text.codePoints().forEach(c -> {
+                offset[0]++;
+                if (c == '\r' || c == '\n') {
+                    if (c == '\r' || ! cr[0]) {
+                        lines.add(offset[0]);
+                    }
+                    breaks.add(offset[0]);
+                }
+                cr[0] = c == '\r';
+            });
+            this.lines = lines.stream().mapToInt(Integer::intValue).toArray();
+            this.breaks = breaks.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        Position at(long offset) {
+            int line = count(this.lines, offset);
+            int b = count(this.breaks, offset);
+            long column = offset - (b == 0 ? 0 : this.breaks[b - 1]);
+            return Position.$(column, line + 1, offset);
+        }
+
+        // the number of offsets lower or equal to an offset
+        static int count(int[] offsets, long offset) {
+            int i = Arrays.binarySearch(offsets, (int) offset);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+    }
+
+    final Grammar grammar;
+    final Rule rule;
+    final Set<Rule> rules; // the rules memoized
+    final Memo interceptor = new Memo();
+    Map<Long, Map<Rule, Entry>> memo = new HashMap<>();
+    String text = "";
+    Tracker scanner;
+    Recorder recorder;
+    long reused;
+    long parsed;
+
+    IncrementalParser(Grammar grammar, Rule rule) {
+        this.grammar = grammar;
+        this.rule = rule;
+        this.rules = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.rules.addAll(Profiler.reachable(rule));
+    }
+
+    /**
+     * Create an incremental parser for the main rule of a grammar.
+     *
+     * @param grammar The grammar.
+     *
+     * @return The incremental parser.
+     *
+     * @throws IllegalArgumentException When the grammar
+     *      doesn't have a main rule.
+     */
+    public static IncrementalParser of(Grammar grammar) {
+        return new IncrementalParser(grammar, grammar.mainRule().orElseThrow(() -> new IllegalArgumentException(
+            "No main rule found in " + grammar.getClass().getName())));
+    }
+
+    /**
+     * Create an incremental parser for a rule of a grammar.
+     *
+     * @param grammar The grammar.
+     * @param rule The rule to use for parsing the input, a rule
+     *      of the grammar or of an inherited grammar.
+     *
+     * @return The incremental parser.
+     */
+    public static IncrementalParser of(Grammar grammar, Rule rule) {
+        return new IncrementalParser(grammar, grammar.adopt(rule));
+    }
+
+    /**
+     * Parse a new input ; nothing is reused.
+     *
+     * @param input The input.
+     * @param handler The receiver.
+     * @param matchAll <code>true</code> to indicates that the
+     *      rule must match the entire input, <code>false</code>
+     *      otherwise.
+     *
+     * @return <code>true</code> if the rule was matched,
+     *          <code>false</code> otherwise.
+     *
+     * @throws IOException When the input cause an error.
+     */
+    public boolean parse(CharSequence input, EventsHandler handler, boolean matchAll) throws IOException {
+        this.text = input.toString();
+        this.memo.clear();
+        return reparse(handler, matchAll);
+    }
+
+    /**
+     * Edit the input ; the results that are not
+     * affected by the edit are kept.
+     *
+     * @param offset The offset of the edit, in chars.
+     * @param removed The number of chars removed.
+     * @param inserted The chars inserted.
+     *
+     * @return This incremental parser, ready to parse again.
+     *
+     * @throws IllegalArgumentException When the chars to
+     *      remove are out of the input.
+     *
+     * @see #reparse(EventsHandler, boolean)
+     */
+    public IncrementalParser edit(int offset, int removed, CharSequence inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > this.text.length()) {
+            throw new IllegalArgumentException("Can't remove " + removed + " chars at offset " + offset
+                    + " of an input of " + this.text.length() + " chars");
+        }
+        String chars = inserted.toString();
+        // the scanner counts the code points
+        long from = this.text.codePointCount(0, offset);
+        long to = from + this.text.codePointCount(offset, offset + removed);
+        long delta = from + chars.codePointCount(0, chars.length()) - to;
+        this.text = this.text.substring(0, offset) + chars + this.text.substring(offset + removed);
+        Lines lines = new Lines(this.text);
+        Set<EventsHandler.RuleEvent<?>> relocated = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Long, Map<Rule, Entry>> memo = new HashMap<>();
+        for (Map<Rule, Entry> entries : this.memo.values()) {
+            for (Entry entry : entries.values()) {
+                if (entry.examined < from) {
+                    // before the edit : as-is
+                } else if (entry.start >= Math.max(to, from + 1)) {
+                    // after the edit : shift
+                    entry.start += delta;
+                    entry.end += delta;
+                    entry.examined += delta;
+                    for (EventsHandler.RuleEvent<?> event : entry.events) {
+                        if (relocated.add(event)) {
+                            if (event.getOffset() >= 0) {
+                                event.setPosition(lines.at(event.getOffset() + delta));
+                            }
+                        }
+                    }
+                } else {
+                    continue; // affected by the edit : discarded
+                }
+                memo.computeIfAbsent(entry.start, start -> new IdentityHashMap<>()).put(entry.rule, entry);
+            }
+        }
+        this.memo = memo;
+        return this;
+    }
+
+    /**
+     * Parse the input again, after some edits.
+     *
+     * @param handler The receiver.
+     * @param matchAll <code>true</code> to indicates that the
+     *      rule must match the entire input, <code>false</code>
+     *      otherwise.
+     *
+     * @return <code>true</code> if the rule was matched,
+     *          <code>false</code> otherwise.
+     *
+     * @throws IOException When the input cause an error.
+     *
+     * @see #edit(int, int, CharSequence)
+     */
+    public boolean reparse(EventsHandler handler, boolean matchAll) throws IOException {
+        this.reused = 0;
+        this.parsed = 0;
+        this.scanner = new Tracker(this.text);
+        this.recorder = new Recorder(handler.asHandler());
+        boolean bound = Interception.bind(this.interceptor);
+        try {
+            Match match = this.rule.parse(this.scanner, this.recorder);
+            return ! match.fail() && ! (matchAll && this.scanner.hasNext());
+        } finally {
+            if (bound) {
+                Interception.unbind(this.interceptor);
+            }
+            this.scanner = null;
+            this.recorder = null;
+        }
+    }
+
+    // parse a rule, or replay it
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    Match parse(Parser parser, Rule rule, Handler handler) {
+        Tracker tracker = this.scanner;
+        long start = tracker.offset;
+        Map<Rule, Entry> entries = this.memo.get(start);
+        Entry entry = entries == null ? null : entries.get(rule);
+        if (entry != null) {
+            this.reused++;
+            for (int i = 0; i < entry.events.length; i++) {
+                EventsHandler.RuleEvent<?> event = entry.events[i];
+                if (event instanceof EventsHandler.TokenValue) {
+                    ((EventsHandler.TokenValue<?>) event).setValue(entry.values[i]);
+                }
+                event.emit(handler);
+            }
+            Thrower.safeCall(() -> {
+                for (long i = entry.start; i < entry.end; i++) {
+                    tracker.read();
+                }
+            });
+            tracker.examined = Math.max(tracker.examined, entry.examined);
+            return entry.match;
+        }
+        this.parsed++;
+        long examined = tracker.examined;
+        tracker.examined = start;
+        int from = this.recorder.events.size();
+        int cuts = tracker.getCuts();
+        Match match = null;
+        try {
+            match = parser.parse(rule, tracker, handler);
+            return match;
+        } finally {
+            long last = tracker.examined;
+            tracker.examined = Math.max(examined, last);
+            if (match != null && handler == this.recorder && cuts == tracker.getCuts()) {
+                int size = this.recorder.events.size();
+                from = Math.min(from, size);
+                Entry memoized = new Entry(rule, match,
+                        this.recorder.events.subList(from, size).toArray(new EventsHandler.RuleEvent<?>[0]),
+                        this.recorder.values.subList(from, size).toArray(),
+                        start, tracker.offset, last);
+                this.memo.computeIfAbsent(start, s -> new IdentityHashMap<>()).put(rule, memoized);
+            }
+        }
+    }
+
+    /**
+     * Return the input.
+     *
+     * @return The input, after the edits.
+     */
+    public String getText() {
+        return this.text;
+    }
+
+    /**
+     * Return the number of invocations of the rules
+     * that have been replayed during the last parse.
+     *
+     * @return The number of invocations reused.
+     */
+    public long getReused() {
+        return this.reused;
+    }
+
+    /**
+     * Return the number of invocations of the rules
+     * that have been parsed during the last parse.
+     *
+     * @return The number of invocations parsed.
+     */
+    public long getParsed() {
+        return this.parsed;
+    }
+
+    /**
+     * Discard the results memoized.
+     */
+    @Override
+    public void close() {
+        this.memo.clear();
+    }
+
+}
@@ -0,0 +1,225 @@
+package ml.alternet.parser.util;
+
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Intercept the invocations of the parsers of the rules in a
+ * thread, without modifying the rules.
+ *
+ * <p>The parsers of an initialized grammar are not modified anymore :
+ * the tools that observe or alter a parsing, such as a {@link Profiler},
+ * an {@link IncrementalParser} or a {@link Budget}, are bound to the
+ * thread that parses, and each invocation of the innermost parser of a
+ * rule (inside its skip, drop and commit policies) is intercepted by
+ * them. The other threads that parse with the same grammar are not
+ * affected.</p>
+ *
+ * <p>The interceptors are held by the thread only : binding or
+ * unbinding them doesn't write any state shared by the threads,
+ * and the cost of an invocation in a thread where no interceptor
+ * is bound is a single thread-local read, whatever is bound to the
+ * other threads.</p>
+ *
+ * @author Philippe Poulard
+ */
+public final class Interception {
+
+    /**
+     * An interceptor around the parser of a rule.
+     *
+     * @author Philippe Poulard
+     */
+    @FunctionalInterface
+    interface Interceptor {
+
+        /**
+         * Parse an input with the parser of a rule.
+         *
+         * @param parser The parser to invoke, that is to say
+         *      the next interceptors and the parser of the rule.
+         * @param rule The rule.
+         * @param scanner The input.
+         * @param handler The receiver.
+         *
+         * @return Indicates whether the rule matched or not.
+         */
+        @SuppressWarnings("rawtypes")
+        Match intercept(Parser parser, Rule rule, Scanner scanner, Handler handler);
+
+    }
+
+    /**
+     * An interceptor that is notified before and after the
+     * invocation of the parser of a rule ; unlike the other
+     * interceptors, it doesn't prevent a {@link StackParser}
+     * to parse without recursion.
+     *
+     * @author Philippe Poulard
+     */
+    interface Listener extends Interceptor {
+
+        /**
+         * Notified before the parser of a rule is invoked.
+         *
+         * @param rule The rule.
+         * @param scanner The input.
+         */
+        void enter(Rule rule, Scanner scanner);
+
+        /**
+         * Notified after the parser of a rule was invoked.
+         *
+         * @param rule The rule.
+         * @param scanner The input.
+         * @param match The result, or <code>null</code> if
+         *      the parser has thrown an exception.
+         */
+        void exit(Rule rule, Scanner scanner, Match match);
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        @Override
+        default Match intercept(Parser parser, Rule rule, Scanner scanner, Handler handler) {
+            enter(rule, scanner);
+            Match match = null;
+            try {
+                match = parser.parse(rule, scanner, handler);
+                return match;
+            } finally {
+                exit(rule, scanner, match);
+            }
+        }
+
+    }
+
+    // the interceptors bound to a thread, the outermost first
+    static final ThreadLocal<Interception> CURRENT = new ThreadLocal<>();
+
+    final Interceptor interceptor;
+    final Interception next;
+    final boolean listening; // all the interceptors are listeners
+
+    Interception(Interceptor interceptor, Interception next) {
+        this.interceptor = interceptor;
+        this.next = next;
+        this.listening = interceptor instanceof Listener && (next == null || next.listening);
+    }
+
+    /**
+     * Invoke the parser of a rule, through the interceptors
+     * bound to the current thread if any.
+     *
+     * @param parser The parser of the rule ; the wrappers
+     *      (skip, drop, commit) are invoked as-is, since they
+     *      invoke in turn their inner parser.
+     * @param rule The rule.
+     * @param scanner The input.
+     * @param handler The receiver.
+     *
+     * @return Indicates whether the rule matched or not.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static Match invoke(Parser parser, Rule rule, Scanner scanner, Handler handler) {
+        if (parser instanceof Parser.Skip || parser instanceof Parser.Drop
+                || parser instanceof Parser.Commit)
+        {
+            return parser.parse(rule, scanner, handler);
+        }
+        Interception interception = CURRENT.get();
+        if (interception == null) {
+            return parser.parse(rule, scanner, handler);
+        } else {
+            return interception.parse(parser, rule, scanner, handler);
+        }
+    }
+
+    // parse with this interceptor and the next ones
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    Match parse(Parser parser, Rule rule, Scanner scanner, Handler handler) {
+        Interception next = this.next;
+        Parser inner = next == null
+            ? parser
+            : (Parser<Rule>) (r, s, h) -> next.parse(parser, r, s, h);
+        return this.interceptor.intercept(inner, rule, scanner, handler);
+    }
+
+    // notify the listeners, the outermost first
+    void enter(Rule rule, Scanner scanner) {
+        for (Interception i = this; i != null; i = i.next) {
+            ((Listener) i.interceptor).enter(rule, scanner);
+        }
+    }
+
+    // notify the listeners, the innermost first
+    void exit(Rule rule, Scanner scanner, Match match) {
+        if (this.next != null) {
+            this.next.exit(rule, scanner, match);
+        }
+        ((Listener) this.interceptor).exit(rule, scanner, match);
+    }
+
+    /**
+     * Return the interceptors bound to the current thread.
+     *
+     * @return The outermost interceptor, or <code>null</code>.
+     */
+    static Interception current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind an interceptor to the current thread, as the outermost one.
+     *
+     * @param interceptor The interceptor.
+     *
+     * @return <code>false</code> if it was already bound
+     *      to the current thread, <code>true</code> otherwise.
+     */
+    static boolean bind(Interceptor interceptor) {
+        Interception current = CURRENT.get();
+        for (Interception i = current; i != null; i = i.next) {
+            if (i.interceptor == interceptor) {
+                return false;
+            }
+        }
+        CURRENT.set(new Interception(interceptor, current));
+        return true;
+    }
+
+    /**
+     * Unbind an interceptor from the current thread.
+     *
+     * @param interceptor The interceptor.
+     *
+     * @return <code>true</code> if it was bound to the
+     *      current thread, <code>false</code> otherwise.
+     */
+    static boolean unbind(Interceptor interceptor) {
+        Interception current = CURRENT.get();
+        Interception remaining = without(current, interceptor);
+        if (remaining == current) {
+            return false;
+        }
+        if (remaining == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(remaining);
+        }
+        return true;
+    }
+
+    // the chain without an interceptor
+    static Interception without(Interception interception, Interceptor interceptor) {
+        if (interception == null) {
+            return null;
+        } else if (interception.interceptor == interceptor) {
+            return interception.next;
+        } else {
+            Interception next = without(interception.next, interceptor);
+            return next == interception.next ? interception : new Interception(interception.interceptor, next);
+        }
+    }
+
+}
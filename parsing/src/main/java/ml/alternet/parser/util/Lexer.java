@@ -0,0 +1,416 @@
+package ml.alternet.parser.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import ml.alternet.misc.CharRange;
+import ml.alternet.parser.EventsHandler.StringValue;
+import ml.alternet.parser.EventsHandler.TokenValue;
+import ml.alternet.parser.Grammar.AtLeast;
+import ml.alternet.parser.Grammar.CharToken;
+import ml.alternet.parser.Grammar.Choice;
+import ml.alternet.parser.Grammar.EnumToken;
+import ml.alternet.parser.Grammar.Optional;
+import ml.alternet.parser.Grammar.Proxy;
+import ml.alternet.parser.Grammar.RegexToken;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Grammar.Sequence;
+import ml.alternet.parser.Grammar.StringToken;
+import ml.alternet.parser.Grammar.Token;
+import ml.alternet.parser.Grammar.TypedToken;
+import ml.alternet.parser.Grammar.ZeroOrMore;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.parser.util.Parser.Skip.SkipRule;
+import ml.alternet.parser.visit.TraversableRule;
+import ml.alternet.scan.Scanner;
+
+/**
+ * A token that matches the tokens of a grammar by maximal munch :
+ * the longest match wins, and on equal length the token declared
+ * first.
+ *
+ * <p>Char tokens, string tokens, enum tokens and regex tokens are
+ * compiled to a single automaton and emitted directly. Typed tokens
+ * made of such tokens (e.g. with {@link Rule#asToken()}) are compiled
+ * too, but once the automaton selected such a token, it is parsed
+ * again with its rule, and accepted if it matches exactly the same
+ * chars ; otherwise, the tokens compiled are measured one after
+ * the other.</p>
+ *
+ * <p>The tokens that can't be compiled (see {@link #getUncompiled()}),
+ * e.g. number tokens, or tokens that skip other tokens than the first
+ * token compiled, are measured one after the other before the
+ * automaton, and compete with the longest match of the automaton.
+ * The token that wins is parsed again, unless a token has cut the
+ * input while it was measured : since the input can't be read again,
+ * that token wins.</p>
+ *
+ * @see ml.alternet.parser.Grammar#lexer()
+ *
+ * @author Philippe Poulard
+ */
+public class Lexer extends Token implements TraversableRule.StandaloneRule {
+
+    // what to do when a token is matched by the automaton
+    interface Emitter {
+        boolean emit(Scanner scanner, Handler handler, String matched) throws IOException;
+    }
+
+    // the result of a measure when a token has cut the input
+    static final int CUT_MATCH = -1;
+    static final int CUT_FAIL = -2;
+
+    final List<Token> tokens = new ArrayList<>(); // in their declaration order
+    final List<Token> compiled = new ArrayList<>(); // by alternative
+    final List<Token> uncompiled = new ArrayList<>();
+    final Emitter[] emitters;
+    final Dfa dfa;
+    final SkipRule skipRule; // around the tokens compiled, or null
+
+    /**
+     * Compile the given tokens.
+     *
+     * @param tokens The tokens, in their declaration order.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Lexer(Collection<Token> tokens) {
+        List<Dfa.Node> alternatives = new ArrayList<>();
+        List<Emitter> emitters = new ArrayList<>();
+        SkipRule skipRule = null;
+        for (Token token : tokens) {
+            this.tokens.add(token);
+            Parser parser = token.parser;
+            SkipRule skip = null;
+            if (parser instanceof Parser.Skip) {
+                skip = ((Parser.Skip) parser).skipRule;
+                parser = ((Parser.Skip) parser).parser;
+            }
+            boolean dropped = parser instanceof Parser.Drop;
+            Dfa.Node node = parser instanceof Parser.Commit ? null : compile(token);
+            if (node != null && (this.compiled.isEmpty() || sameSkip(skipRule, skip))) {
+                skipRule = skip;
+                alternatives.add(node);
+                emitters.add(emitter(token, dropped));
+                this.compiled.add(token);
+            } else {
+                this.uncompiled.add(token);
+            }
+        }
+        this.emitters = emitters.toArray(new Emitter[emitters.size()]);
+        this.dfa = new Dfa(this.compiled.stream()
+                .map(Rule::toPrettyString)
+                .map(Object::toString)
+                .collect(Collectors.joining("|")),
+            alternatives);
+        // skip once around the longest match
+        this.skipRule = skipRule;
+    }
+
+    /**
+     * Return the tokens compiled by this lexer.
+     *
+     * @return The tokens, in their declaration order.
+     */
+    public List<Token> getCompiled() {
+        return this.compiled;
+    }
+
+    /**
+     * Return the tokens that can't be compiled by this lexer :
+     * they are measured one after the other.
+     *
+     * @return The tokens, in their declaration order.
+     */
+    public List<Token> getUncompiled() {
+        return this.uncompiled;
+    }
+
+    static boolean sameSkip(SkipRule skip1, SkipRule skip2) {
+        if (skip1 == null || skip2 == null) {
+            return skip1 == skip2;
+        } else {
+            return skip1.skipSameTokens(skip2) && skip1.before == skip2.before && skip1.after == skip2.after;
+        }
+    }
+
+    // the regular expression of a token, or null
+    static Dfa.Node compile(Token token) {
+        if (token instanceof TypedToken) {
+            return compile(((TypedToken<?>) token).getComponent(), new HashSet<>());
+        } else {
+            return terminal(token);
+        }
+    }
+
+    // the regular expression of a rule within a typed token, or null
+    static Dfa.Node compile(Rule rule, Set<Rule> visiting) {
+        if (rule.parser instanceof Parser.Skip || rule.parser instanceof Parser.Drop) {
+            return null; // the chars matched wouldn't be the chars collected
+        } else if (rule instanceof Proxy) {
+            if (! visiting.add(rule)) {
+                return null; // recursive
+            }
+            Dfa.Node node = compile(((Proxy) rule).getComponent(), visiting);
+            visiting.remove(rule);
+            return node;
+        } else if (rule instanceof Sequence) {
+            List<Dfa.Node> nodes = compile(((Sequence) rule).getComponent(), visiting);
+            return nodes == null ? null : new Dfa.Sequence(nodes);
+        } else if (rule instanceof Choice) {
+            List<Dfa.Node> nodes = compile(((Choice) rule).getComponent(), visiting);
+            return nodes == null ? null : new Dfa.Alternation(nodes);
+        } else if (rule instanceof Optional) {
+            Dfa.Node node = compile(((Optional) rule).getComponent(), visiting);
+            return node == null ? null : new Dfa.Repeat(node, 0, 1);
+        } else if (rule instanceof ZeroOrMore) {
+            Dfa.Node node = compile(((ZeroOrMore) rule).getComponent(), visiting);
+            return node == null ? null : new Dfa.Repeat(node, 0, -1);
+        } else if (rule instanceof AtLeast) {
+            Dfa.Node node = compile(((AtLeast) rule).getComponent(), visiting);
+            return node == null ? null : new Dfa.Repeat(node, ((AtLeast) rule).getMinimal(), -1);
+        } else {
+            // nested typed tokens may alter their value, and are not compiled
+            return terminal(rule);
+        }
+    }
+
+    // the regular expression of a token that emits the chars it matches, or null
+    static Dfa.Node terminal(Rule rule) {
+        if (rule instanceof CharToken) {
+            return new Dfa.Chars(((CharToken) rule).getCharRange());
+        } else if (rule instanceof StringToken) {
+            StringToken token = (StringToken) rule;
+            if (! token.isEqual() || token.getString().isEmpty()) {
+                return null;
+            }
+            return new Dfa.Sequence(token.getString().codePoints()
+                .mapToObj(c -> new Dfa.Chars(CharRange.is(c)))
+                .collect(Collectors.toList()));
+        } else if (rule instanceof EnumToken) {
+            List<Dfa.Node> nodes = new ArrayList<>();
+            ((EnumToken<?>) rule).getValues().values()
+                .map(value -> terminal(new StringToken(value.toString(), true)))
+                .forEach(nodes::add);
+            return nodes.contains(null) ? null : new Dfa.Alternation(nodes);
+        } else if (rule instanceof RegexToken) {
+            return Dfa.parse(((RegexToken) rule).getRegex());
+        } else {
+            return null;
+        }
+    }
+
+    static List<Dfa.Node> compile(List<Rule> rules, Set<Rule> visiting) {
+        List<Dfa.Node> nodes = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            Dfa.Node node = compile(rule, visiting);
+            if (node == null) {
+                return null;
+            }
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    Emitter emitter(Token token, boolean dropped) {
+        if (token instanceof TypedToken) {
+            TypedToken<?> typedToken = (TypedToken<?>) token;
+            return (scanner, handler, matched) -> {
+                // parse again, to get the value of the token
+                TokensCollector<?> collector = typedToken.collector();
+                if (! typedToken.getComponent().parse(scanner, collector).fail()
+                        && ! collector.isEmpty()
+                        && matched.equals(collected(collector)))
+                {
+                    try {
+                        TokenValue<?> value = typedToken.newTokenValue(collector, scanner);
+                        if (! dropped) {
+                            handler.receive(value);
+                        }
+                        return true;
+                    } catch (Exception e) {
+                        // if the value can't be created, the token didn't matched
+                    }
+                }
+                return false;
+            };
+        } else if (token instanceof EnumToken) {
+            Map<String, Object> values = new HashMap<>();
+            ((EnumToken<?>) token).getValues().values()
+                .forEach(value -> values.putIfAbsent(value.toString(), value));
+            return (scanner, handler, matched) -> {
+                if (! dropped) {
+                    handler.receive(new TokenValue<>(token, values.get(matched), scanner));
+                }
+                return true;
+            };
+        } else {
+            return (scanner, handler, matched) -> {
+                if (! dropped) {
+                    handler.receive(new StringValue(token, matched, scanner));
+                }
+                return true;
+            };
+        }
+    }
+
+    // the chars collected by a token
+    static String collected(TokensCollector<?> collector) {
+        Object tokens = collector.get();
+        if (tokens instanceof Collection) {
+            return ((Collection<?>) tokens).stream()
+                .map(Object::toString)
+                .collect(Collectors.joining());
+        } else {
+            return tokens.toString();
+        }
+    }
+
+    @Override
+    public boolean parse(Scanner scanner, Handler handler, boolean alreadyMarked) throws IOException {
+        int cuts = scanner.getCuts();
+        // the longest token, and on equal length the first declared
+        Token best = null;
+        int bestLength = 0;
+        boolean bestCompiled = false;
+        for (Token token : this.uncompiled) {
+            int length = measure(token, false, scanner, handler, cuts);
+            if (length < 0) {
+                return length == CUT_MATCH;
+            } else if (wins(token, length, best, bestLength)) {
+                best = token;
+                bestLength = length;
+            }
+        }
+        if (! this.compiled.isEmpty()) {
+            scanner.mark(); // before the skip
+            skipBefore(scanner);
+            int skipped = scanner.getMarkedLength();
+            scanner.mark(); // after the skip
+            StringBuilder buf = new StringBuilder();
+            int i = this.dfa.longestMatch(scanner, buf);
+            if (i != -1 && wins(this.compiled.get(i), skipped + scanner.getMarkedLength(), best, bestLength)) {
+                if (this.compiled.get(i) instanceof TypedToken) {
+                    scanner.cancel(); // the token will be parsed again
+                    scanner.mark();
+                }
+                if (this.emitters[i].emit(scanner, handler, buf.toString())) {
+                    scanner.consume();
+                    skipAfter(scanner);
+                    scanner.consume();
+                    return true;
+                }
+                scanner.cancel();
+                scanner.cancel();
+                // the longest match is not the match of the rule,
+                // measure the tokens compiled one after the other
+                for (Token token : this.compiled) {
+                    int length = measure(token, true, scanner, handler, cuts);
+                    if (length < 0) {
+                        return length == CUT_MATCH;
+                    } else if (wins(token, length, best, bestLength)) {
+                        best = token;
+                        bestLength = length;
+                        bestCompiled = true;
+                    }
+                }
+            } else {
+                scanner.cancel();
+                scanner.cancel();
+            }
+        }
+        if (best == null) {
+            return false;
+        }
+        // parse again the longest token, for its events
+        scanner.mark();
+        boolean parsed = ! parseBefore(best, bestCompiled, scanner, handler).fail();
+        if (parsed) {
+            skipAfter(best, bestCompiled, scanner);
+        }
+        scanner.commit(parsed);
+        return parsed;
+    }
+
+    // whether a token that matched some chars is better than the best one
+    boolean wins(Token token, int length, Token best, int bestLength) {
+        return length > bestLength
+            || length > 0 && length == bestLength && this.tokens.indexOf(token) < this.tokens.indexOf(best);
+    }
+
+    // the number of chars matched by a token, 0 if it doesn't match,
+    // or CUT_MATCH / CUT_FAIL if it has cut the input
+    int measure(Token token, boolean compiled, Scanner scanner, Handler handler, int cuts) {
+        handler.mark();
+        scanner.mark();
+        Match match = parseBefore(token, compiled, scanner, handler);
+        if (scanner.getCuts() != cuts) {
+            // the input can't be read again
+            if (! match.fail()) {
+                skipAfter(token, compiled, scanner);
+            }
+            scanner.commit(! match.fail());
+            handler.commit(! match.fail());
+            return match.fail() ? CUT_FAIL : CUT_MATCH;
+        }
+        int length = match.empty() ? 0 : scanner.getMarkedLength();
+        scanner.cancel();
+        handler.cancel();
+        return length;
+    }
+
+    // parse a token, and skip the tokens before it, but not after
+    @SuppressWarnings("rawtypes")
+    Match parseBefore(Token token, boolean compiled, Scanner scanner, Handler handler) {
+        if (compiled) {
+            scanner.mark();
+            skipBefore(scanner);
+            Match match = Parser.Skip.parseUnskipped(token, scanner, handler);
+            scanner.commit(! match.fail());
+            return match;
+        } else if (token.parser instanceof Parser.Skip) {
+            Parser.Skip skip = (Parser.Skip) token.parser;
+            return skip.parse(token, scanner, handler, skip.skipRule.before, false);
+        } else {
+            return token.parse(scanner, handler);
+        }
+    }
+
+    void skipAfter(Token token, boolean compiled, Scanner scanner) {
+        if (compiled) {
+            skipAfter(scanner);
+        } else if (token.parser instanceof Parser.Skip && ((Parser.Skip) token.parser).skipRule.after) {
+            ((Parser.Skip) token.parser).skipRule.skip(scanner);
+        }
+    }
+
+    // skip before the tokens compiled
+    void skipBefore(Scanner scanner) {
+        if (this.skipRule != null && this.skipRule.before) {
+            this.skipRule.skip(scanner);
+        }
+    }
+
+    // skip after the tokens compiled
+    void skipAfter(Scanner scanner) {
+        if (this.skipRule != null && this.skipRule.after) {
+            this.skipRule.skip(scanner);
+        }
+    }
+
+    @Override
+    public StringBuilder toPrettyString(StringBuilder buf) {
+        return buf.append('~').append(this.tokens.stream()
+            .map(Rule::toPrettyString)
+            .collect(Collectors.joining(" | ", "( ", " )")));
+    }
+
+}
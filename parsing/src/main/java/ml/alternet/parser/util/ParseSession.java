@@ -0,0 +1,273 @@
+package ml.alternet.parser.util;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import ml.alternet.parser.EventsHandler;
+import ml.alternet.parser.EventsHandler.RuleEnd;
+import ml.alternet.parser.EventsHandler.RuleStart;
+import ml.alternet.parser.EventsHandler.TokenValue;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.scan.Scanner;
+import ml.alternet.util.JfrUtil;
+
+/**
+ * Hold the state of a single parsing.
+ *
+ * <p>Once initialized, a grammar and its rules are not modified
+ * anymore : all the state that changes while parsing belongs to
+ * the session, that is to say to its scanner (the position, the
+ * marks, and the cuts) and to its handler (the events buffered,
+ * the values built). Therefore, a grammar can be shared by
+ * many threads, each parsing with its own session.</p>
+ *
+ * <p>A session is not thread safe, and can parse only once.</p>
+ *
+ * <p>When Java Flight Recorder is available, each parsing is
+ * recorded as an event "ml.alternet.parser.ParseSession".</p>
+ *
+ * @see JfrUtil
+ * @see Grammar#newSession(Scanner, EventsHandler, Rule)
+ *
+ * @author Philippe Poulard
+ */
+public class ParseSession {
+
+    final Grammar grammar;
+    final Rule rule;
+    final Scanner scanner;
+    final Handler handler;
+    Budget budget;
+    Profiler profiler;
+    StackParser stackParser;
+    Match match;
+
+    /**
+     * Create a parse session.
+     *
+     * @param grammar The grammar.
+     * @param rule The rule to use for parsing the input, a rule
+     *      of the grammar or of an inherited grammar.
+     * @param scanner The input.
+     * @param handler The receiver.
+     */
+    public ParseSession(Grammar grammar, Rule rule, Scanner scanner, EventsHandler handler) {
+        // process substitutions if the rule belongs to another grammar
+        this.grammar = grammar;
+        this.rule = grammar.adopt(rule);
+        this.scanner = scanner;
+        this.handler = handler.asHandler();
+    }
+
+    /**
+     * Parse the input of this session.
+     *
+     * @return <code>true</code> if the rule was matched,
+     *          <code>false</code> otherwise.
+     *
+     * @throws IOException When the input cause an error.
+     * @throws IllegalStateException When this session has
+     *      already been parsed, or when the maximal depth of
+     *      its stack parser has been exceeded.
+     * @throws Budget.Exceeded When the budget of this session
+     *      has been exceeded : the parsing is aborted.
+     */
+    public boolean parse() throws IOException {
+        if (this.match != null) {
+            throw new IllegalStateException("The session has already been parsed with " + this.rule);
+        }
+        Handler handler = this.handler;
+        Recording recording = Recording.start(this);
+        if (recording != null) {
+            handler = recording.watch(handler);
+        }
+        Budget.Counter counter = this.budget == null ? null : this.budget.count();
+        if (counter != null) {
+            Interception.bind(counter);
+        }
+        boolean profiled = this.profiler != null && Interception.bind(this.profiler.probe);
+        try {
+            this.match = this.stackParser == null
+                ? this.rule.parse(this.scanner, handler)
+                : this.stackParser.parse(this.rule, this.scanner, handler);
+        } catch (Throwable t) {
+            if (recording != null) {
+                recording.stop(this, t);
+            }
+            throw t;
+        } finally {
+            if (profiled) {
+                Interception.unbind(this.profiler.probe);
+            }
+            if (counter != null) {
+                Interception.unbind(counter);
+            }
+        }
+        if (recording != null) {
+            recording.stop(this, null);
+        }
+        return ! this.match.fail();
+    }
+
+    /**
+     * Limit the resources that this session can use.
+     *
+     * @param budget The budget, or <code>null</code>
+     *      for an unlimited parsing.
+     *
+     * @return This session.
+     */
+    public ParseSession setBudget(Budget budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    /**
+     * Profile the parsing of this session.
+     *
+     * @param profiler The profiler, that may be shared
+     *      by several sessions, or <code>null</code>.
+     *
+     * @return This session.
+     *
+     * @see Profiler#of(Rule...)
+     */
+    public ParseSession setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+        return this;
+    }
+
+    /**
+     * Parse the input of this session without recursion,
+     * for inputs deeply nested.
+     *
+     * @param stackParser The stack parser, or <code>null</code>
+     *      for a recursive parsing.
+     *
+     * @return This session.
+     */
+    public ParseSession setStackParser(StackParser stackParser) {
+        this.stackParser = stackParser;
+        return this;
+    }
+
+    /**
+     * Return the rule of this session.
+     *
+     * @return The rule, after the substitutions of the grammar.
+     */
+    public Rule getRule() {
+        return this.rule;
+    }
+
+    /**
+     * Return the input of this session.
+     *
+     * @return The scanner, that contains the remainder
+     *      after parsing.
+     */
+    public Scanner getScanner() {
+        return this.scanner;
+    }
+
+    /**
+     * Return the handler of this session.
+     *
+     * @return The receiver of the events.
+     */
+    public Handler getHandler() {
+        return this.handler;
+    }
+
+    /**
+     * Indicates whether the rule was matched.
+     *
+     * @return <code>true</code> if the input has been
+     *      parsed and the rule was matched.
+     */
+    public boolean isMatched() {
+        return this.match != null && ! this.match.fail();
+    }
+
+    /**
+     * Indicates whether the rule was matched by the entire input.
+     *
+     * @return <code>true</code> if the rule was matched and
+     *      no character remains in the input.
+     */
+    public boolean isComplete() {
+        return isMatched() && ! this.scanner.hasNext();
+    }
+
+    // the JFR event of a parsing, see ParseSessionEvent, loaded only if JFR is available
+    interface Recording {
+
+        Supplier<Recording> EVENTS = JfrUtil.events(Recording.class, "ml.alternet.parser.util.ParseSessionEvent");
+
+        // null if the event is not recorded
+        static Recording start(ParseSession session) {
+            Recording recording = EVENTS == null ? null : EVENTS.get();
+            return recording == null || ! recording.open(session) ? null : recording;
+        }
+
+        // false if the event is not recorded
+        boolean open(ParseSession session);
+
+        Handler watch(Handler handler);
+
+        void stop(ParseSession session, Throwable error);
+
+    }
+
+    // count the cancellations
+    static class Backtracks implements Handler {
+
+        final Handler handler;
+        long count;
+
+        Backtracks(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void receive(TokenValue<?> value) {
+            this.handler.receive(value);
+        }
+
+        @Override
+        public void receive(RuleStart ruleStart) {
+            this.handler.receive(ruleStart);
+        }
+
+        @Override
+        public void receive(RuleEnd ruleEnd) {
+            this.handler.receive(ruleEnd);
+        }
+
+        @Override
+        public void mark() {
+            this.handler.mark();
+        }
+
+        @Override
+        public void cancel() throws IllegalStateException {
+            this.count++;
+            this.handler.cancel();
+        }
+
+        @Override
+        public void consume() throws IllegalStateException {
+            this.handler.consume();
+        }
+
+        @Override
+        public void cut() {
+            this.handler.cut();
+        }
+
+    }
+
+}
@@ -1,7 +1,14 @@
 package ml.alternet.parser.util;
 
+import java.util.List;
+
+import ml.alternet.misc.CharRange;
+import ml.alternet.misc.Thrower;
 import ml.alternet.parser.Handler;
+import ml.alternet.parser.Grammar.CharToken;
+import ml.alternet.parser.Grammar.Choice;
 import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Grammar.ZeroOrMore;
 import ml.alternet.scan.Scanner;
 
 /**
@@ -121,9 +128,112 @@ public interface Parser<T extends Rule>  {
 
     }
 
+    /**
+     * Drop the tokens produced by a parser.
+     *
+     * @see Rule#drop()
+     *
+     * @author Philippe Poulard
+     */
+    @SuppressWarnings("rawtypes")
+    class Drop implements Parser {
+
+        final Parser parser;
+
+        /**
+         * Don't forward the events of a parser.
+         *
+         * @param parser The parser to wrap.
+         */
+        public Drop(Parser parser) {
+            this.parser = parser;
+        }
+
+        /**
+         * Return the parser wrapped.
+         *
+         * @return The parser whose events are dropped.
+         */
+        public Parser getParser() {
+            return this.parser;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Match parse(Rule rule, Scanner scanner, Handler handler) {
+            return Interception.invoke(this.parser, rule, scanner, Handler.NULL_HANDLER);
+        }
+
+    }
+
+    /**
+     * Cut after a parser : once matched, the input and
+     * the events so far are committed.
+     *
+     * @see ml.alternet.parser.Grammar.Commit
+     *
+     * @author Philippe Poulard
+     */
+    @SuppressWarnings("rawtypes")
+    class Commit implements Parser {
+
+        final Parser parser;
+
+        /**
+         * Commit a parser.
+         *
+         * @param parser The parser to wrap.
+         */
+        public Commit(Parser parser) {
+            this.parser = parser;
+        }
+
+        /**
+         * Return the parser wrapped.
+         *
+         * @return The parser committed.
+         */
+        public Parser getParser() {
+            return this.parser;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Match parse(Rule rule, Scanner scanner, Handler handler) {
+            Match match = Interception.invoke(this.parser, rule, scanner, handler);
+            if (! match.fail()) {
+                cut(scanner, handler);
+            }
+            return match;
+        }
+
+        /**
+         * Cut the input and the events so far.
+         *
+         * @param scanner The input.
+         * @param handler The receiver.
+         *
+         * @see ml.alternet.parser.Grammar#cut()
+         */
+        public static void cut(Scanner scanner, Handler handler) {
+            scanner.cut();
+            handler.cut();
+        }
+
+    }
+
     /**
      * Allow to skip tokens around a parser.
      *
+     * <p>When the same tokens are skipped around consecutive
+     * rules, they are skipped only once :</p>
+     * <ul>
+     * <li>in a sequence, the tokens skipped after a rule are not
+     * skipped again before the next rule ({@link #parseNext(Rule, Rule, Scanner, Handler)}),</li>
+     * <li>in a choice, the tokens skipped around each alternative
+     * are skipped around the choice ({@link Hoisted}).</li>
+     * </ul>
+     *
      * @author Philippe Poulard
      */
     @SuppressWarnings("rawtypes")
@@ -147,6 +257,13 @@ public interface Parser<T extends Rule>  {
                 this.skipRule = skipRule;
                 this.before = before;
                 this.after = after;
+                this.token = skipRule instanceof ZeroOrMore
+                    ? ((ZeroOrMore) skipRule).getComponent()
+                    : skipRule;
+                if (skipRule instanceof ZeroOrMore && this.token instanceof CharToken) {
+                    // a repeated char token : just advance while the next char is in the range
+                    this.charRange = ((CharToken) this.token).getCharRange().compile();
+                }
             }
 
             /**
@@ -164,6 +281,44 @@ public interface Parser<T extends Rule>  {
              */
             boolean after;
 
+            /**
+             * The token repeated by the skip rule.
+             */
+            Rule token;
+
+            /**
+             * The chars to skip in bulk, if the skip rule is
+             * a repeated char token.
+             */
+            CharRange charRange;
+
+            /**
+             * Skip the tokens.
+             *
+             * @param scanner The input.
+             */
+            void skip(Scanner scanner) {
+                if (this.charRange == null) {
+                    this.skipRule.parse(scanner, Handler.NULL_HANDLER);
+                } else {
+                    Thrower.safeCall(() -> {
+                        while (scanner.hasNext() && this.charRange.contains(scanner.lookAhead())) {
+                            scanner.read();
+                        }
+                    });
+                }
+            }
+
+            /**
+             * Indicates whether the same tokens are skipped.
+             *
+             * @param skipRule The other skip rule.
+             * @return <code>true</code> if both skip rules repeat the same token.
+             */
+            boolean skipSameTokens(SkipRule skipRule) {
+                return this.token == skipRule.token;
+            }
+
         }
 
         SkipRule skipRule;
@@ -182,21 +337,180 @@ public interface Parser<T extends Rule>  {
             this.skipRule = new SkipRule(skipRule, before, after);
         }
 
-        @SuppressWarnings("unchecked")
+        /**
+         * Return the tokens skipped.
+         *
+         * @return The skip rule.
+         */
+        public SkipRule getSkipRule() {
+            return this.skipRule;
+        }
+
+        /**
+         * Return the parser wrapped.
+         *
+         * @return The parser around which tokens are skipped.
+         */
+        public Parser getParser() {
+            return this.parser;
+        }
+
         @Override
         public Match parse(Rule rule, Scanner scanner, Handler handler) {
+            return parse(rule, scanner, handler, this.skipRule.before, this.skipRule.after);
+        }
+
+        // the tokens skipped after the rule if it didn't fail, or null
+        SkipRule skippedAfter(Rule rule) {
+            return this.skipRule.after ? this.skipRule : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Match parse(Rule rule, Scanner scanner, Handler handler, boolean before, boolean after) {
             scanner.mark();
-            if (skipRule.before) {
-                skipRule.skipRule.parse(scanner, Handler.NULL_HANDLER);
+            if (before) {
+                skipRule.skip(scanner);
             }
-            Match match = parser.parse(rule, scanner, handler);
-            if (skipRule.after && ! match.fail()) { // fail will cancel
-                skipRule.skipRule.parse(scanner, Handler.NULL_HANDLER);
+            Match match = Interception.invoke(this.parser, rule, scanner, handler);
+            if (after && ! match.fail()) { // fail will cancel
+                skipRule.skip(scanner);
             }
             scanner.commit(! match.fail());
             return match;
         }
 
+        /**
+         * Parse a rule of a sequence after the previous one : if the previous
+         * rule skipped tokens after it, the same tokens are not skipped
+         * before this rule, since there are none left.
+         *
+         * @param previous The previous rule in the sequence, that didn't fail.
+         * @param rule The rule to parse.
+         * @param scanner The input.
+         * @param handler The receiver.
+         *
+         * @return Indicates whether the rule matched or not.
+         */
+        @SuppressWarnings("unchecked")
+        public static Match parseNext(Rule previous, Rule rule, Scanner scanner, Handler handler) {
+            if (rule.parser instanceof Skip && previous.parser instanceof Skip) {
+                Skip skip = (Skip) rule.parser;
+                SkipRule previousSkip = ((Skip) previous.parser).skippedAfter(previous);
+                if (skip.skipRule.before && previousSkip != null && skip.skipRule.skipSameTokens(previousSkip)) {
+                    return skip.parse(rule, scanner, handler, false, skip.skipRule.after);
+                }
+            }
+            return rule.parse(scanner, handler);
+        }
+
+        /**
+         * Parse a rule without skipping tokens around it,
+         * because they have been skipped by the enclosing choice.
+         *
+         * @param rule The rule to parse.
+         * @param scanner The input.
+         * @param handler The receiver.
+         *
+         * @return Indicates whether the rule matched or not.
+         *
+         * @see Hoisted
+         */
+        public static Match parseUnskipped(Rule rule, Scanner scanner, Handler handler) {
+            if (rule.parser instanceof Skip) {
+                return ((Skip) rule.parser).parse(rule, scanner, handler, false, false);
+            } else {
+                return rule.parse(scanner, handler);
+            }
+        }
+
+        /**
+         * Skip tokens around a choice instead of around each
+         * of its alternatives, when they all skip the same tokens.
+         *
+         * <p>The alternatives are checked again if they were
+         * replaced, e.g. by a substitution after the choice
+         * was cloned ; if they don't skip the same tokens anymore,
+         * the choice is parsed as usual.</p>
+         *
+         * @author Philippe Poulard
+         */
+        public static class Hoisted extends Skip {
+
+            // the alternatives checked and the result
+            static class Check {
+                final List<Rule> alternatives;
+                final boolean hoistable;
+                Check(List<Rule> alternatives, boolean hoistable) {
+                    this.alternatives = alternatives;
+                    this.hoistable = hoistable;
+                }
+            }
+
+            final Parser regular;
+            volatile Check check;
+
+            /**
+             * Skip tokens around a choice.
+             *
+             * @param skipRule The skip rule of the alternatives.
+             * @param regular The parser of the choice, that parses
+             *      the alternatives with their skip rule.
+             */
+            public Hoisted(SkipRule skipRule, Parser<Choice> regular) {
+                super(skipRule.skipRule, Choice.parser(true), skipRule.before, skipRule.after);
+                this.regular = regular;
+            }
+
+            /**
+             * Indicates whether all the alternatives skip the same tokens,
+             * before and after.
+             *
+             * @param skipRule The skip rule.
+             * @param alternatives The alternatives of a choice.
+             * @return <code>true</code> if the skip rule can be hoisted
+             *      to the choice, <code>false</code> otherwise.
+             */
+            public static boolean isHoistable(SkipRule skipRule, List<Rule> alternatives) {
+                return ! alternatives.isEmpty() && alternatives.stream().allMatch(alt -> {
+                    if (alt.parser instanceof Skip && ! (alt.parser instanceof Hoisted)) {
+                        SkipRule sr = ((Skip) alt.parser).skipRule;
+                        return sr.skipSameTokens(skipRule)
+                            && sr.before == skipRule.before
+                            && sr.after == skipRule.after;
+                    } else {
+                        return false;
+                    }
+                });
+            }
+
+            boolean isHoistable(Rule rule) {
+                List<Rule> alternatives = ((Choice) rule).getComponent();
+                Check c = this.check;
+                if (c == null || c.alternatives != alternatives) {
+                    c = new Check(alternatives, isHoistable(this.skipRule, alternatives));
+                    this.check = c;
+                }
+                return c.hoistable;
+            }
+
+            @Override
+            SkipRule skippedAfter(Rule rule) {
+                // if not hoistable, the alternatives may skip something else
+                return isHoistable(rule) ? super.skippedAfter(rule) : null;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            Match parse(Rule rule, Scanner scanner, Handler handler, boolean before, boolean after) {
+                if (isHoistable(rule)) {
+                    return super.parse(rule, scanner, handler, before, after);
+                } else {
+                    return Interception.invoke(this.regular, rule, scanner, handler);
+                }
+            }
+
+        }
+
     }
 
 }
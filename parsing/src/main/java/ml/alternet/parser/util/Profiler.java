@@ -0,0 +1,530 @@
+package ml.alternet.parser.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Grammar.Choice;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.parser.visit.Dump;
+import ml.alternet.parser.visit.Traverse;
+import ml.alternet.scan.Scanner;
+import ml.alternet.scan.TrackableScanner;
+
+/**
+ * Profile the rules of a grammar.
+ *
+ * <p>A profiler listens to the invocations of the rules reachable from
+ * the rules profiled, and records for each rule : the number of invocations, of
+ * successes, of failures and of empty matches, the total time spent
+ * in the rule and the time spent by the rule itself (without its
+ * sub-rules), the characters consumed, and the characters backtracked,
+ * that is to say consumed by the sub-rules of a rule that failed, and
+ * that will be read again.</p>
+ *
+ * <p>The characters are counted only if the scanner is trackable,
+ * see {@link Scanner#asTrackable()}.</p>
+ *
+ * <pre>try (Profiler profiler = Profiler.profile(Calc.$)) {
+ *    Calc.$.parse(Scanner.of(input).asTrackable(), handler, true);
+ *    System.out.println(profiler.dump());
+ *}</pre>
+ *
+ * <p>The rules are not modified : a profiler records the parsings of
+ * the thread that created it, until it is closed, and the sessions
+ * that it is set to ; the other threads that parse with the same
+ * grammar are neither recorded nor slowed down, even by a profiler
+ * that is never closed. A profiler can be set to several
+ * sessions, that may run concurrently :</p>
+ *
+ * <pre>Profiler profiler = Profiler.of(Calc.Expression);
+ *Calc.$.newSession(Scanner.of(input).asTrackable(), handler)
+ *    .setProfiler(profiler)
+ *    .parse();</pre>
+ *
+ * @see Interception
+ *
+ * @author Philippe Poulard
+ */
+public class Profiler implements AutoCloseable {
+
+    /**
+     * The statistics of a rule.
+     *
+     * @author Philippe Poulard
+     */
+    public static class Stats {
+
+        final Rule rule;
+        final LongAdder invocations = new LongAdder();
+        final LongAdder successes = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder empties = new LongAdder();
+        final LongAdder totalTime = new LongAdder();
+        final LongAdder selfTime = new LongAdder();
+        final LongAdder consumed = new LongAdder();
+        final LongAdder backtracked = new LongAdder();
+        final Map<Rule, LongAdder> selected = new ConcurrentHashMap<>(); // for a choice
+
+        Stats(Rule rule) {
+            this.rule = rule;
+        }
+
+        /**
+         * Return the rule profiled.
+         *
+         * @return The rule.
+         */
+        public Rule getRule() {
+            return this.rule;
+        }
+
+        /**
+         * Return the label of the rule.
+         *
+         * @return Its name if it is a grammar field,
+         *      its pretty string otherwise.
+         */
+        public String getLabel() {
+            return this.rule.isGrammarField()
+                ? this.rule.getName()
+                : this.rule.toPrettyString().toString();
+        }
+
+        /**
+         * Return the number of times the rule was parsed.
+         *
+         * @return The number of invocations.
+         */
+        public long getInvocations() {
+            return this.invocations.sum();
+        }
+
+        /**
+         * Return the number of times the rule matched.
+         *
+         * @return The number of successes.
+         */
+        public long getSuccesses() {
+            return this.successes.sum();
+        }
+
+        /**
+         * Return the number of times the rule failed.
+         *
+         * @return The number of failures.
+         */
+        public long getFailures() {
+            return this.failures.sum();
+        }
+
+        /**
+         * Return the number of times the rule matched nothing.
+         *
+         * @return The number of empty matches.
+         */
+        public long getEmpties() {
+            return this.empties.sum();
+        }
+
+        /**
+         * Return the time spent in the rule ; the time of
+         * recursive invocations is counted once.
+         *
+         * @return The time, in nanoseconds.
+         */
+        public long getTotalTime() {
+            return this.totalTime.sum();
+        }
+
+        /**
+         * Return the time spent in the rule, without
+         * the time spent in its sub-rules.
+         *
+         * @return The time, in nanoseconds.
+         */
+        public long getSelfTime() {
+            return this.selfTime.sum();
+        }
+
+        /**
+         * Return the number of characters consumed
+         * by the rule when it didn't fail.
+         *
+         * @return The number of characters.
+         */
+        public long getConsumed() {
+            return this.consumed.sum();
+        }
+
+        /**
+         * Return the number of characters consumed by the
+         * sub-rules of the rule when it failed : they will
+         * be read again.
+         *
+         * @return The number of characters.
+         */
+        public long getBacktracked() {
+            return this.backtracked.sum();
+        }
+
+        /**
+         * Return the number of times each alternative
+         * of a choice was selected.
+         *
+         * @return The alternatives that matched, with their
+         *      number of successes ; empty if the rule is
+         *      not a choice.
+         */
+        public Map<Rule, Long> getSelected() {
+            Map<Rule, Long> selected = new IdentityHashMap<>();
+            this.selected.forEach((rule, count) -> selected.put(rule, count.sum()));
+            return selected;
+        }
+
+        void reset() {
+            this.selected.clear();
+            this.invocations.reset();
+            this.successes.reset();
+            this.failures.reset();
+            this.empties.reset();
+            this.totalTime.reset();
+            this.selfTime.reset();
+            this.consumed.reset();
+            this.backtracked.reset();
+        }
+
+    }
+
+    // an invocation of a rule
+    static class Frame {
+        final Stats stats;
+        final long start = System.nanoTime();
+        final long offset;
+        long children; // time spent in the sub-rules
+        long childrenConsumed; // chars consumed by the sub-rules
+
+        Frame(Stats stats, long offset) {
+            this.stats = stats;
+            this.offset = offset;
+        }
+    }
+
+    // the listener of the invocations of the rules
+    class Probe implements Interception.Listener {
+
+        @Override
+        public void enter(Rule rule, Scanner scanner) {
+            if (Profiler.this.closed) {
+                // closed from another thread : stop intercepting this one
+                Interception.unbind(this);
+            } else if (isProfiled(rule)) {
+                Stats stats = stats(rule);
+                Profiler.this.active.get().computeIfAbsent(stats, s -> new int[1])[0]++;
+                Profiler.this.stacks.get().push(new Frame(stats, offset(scanner)));
+            }
+        }
+
+        @Override
+        public void exit(Rule rule, Scanner scanner, Match match) {
+            if (! isProfiled(rule)) {
+                return;
+            }
+            Deque<Frame> stack = Profiler.this.stacks.get();
+            Frame frame = stack.pop();
+            Stats stats = frame.stats;
+            long elapsed = System.nanoTime() - frame.start;
+            int[] depth = Profiler.this.active.get().get(stats);
+            depth[0]--;
+            long consumed = 0;
+            if (match != null) {
+                stats.invocations.increment();
+                if (match.fail()) {
+                    stats.failures.increment();
+                    stats.backtracked.add(frame.childrenConsumed);
+                } else {
+                    if (match.empty()) {
+                        stats.empties.increment();
+                    } else {
+                        stats.successes.increment();
+                    }
+                    if (frame.offset != -1) {
+                        consumed = offset(scanner) - frame.offset;
+                        stats.consumed.add(consumed);
+                    }
+                }
+            }
+            if (depth[0] == 0) {
+                stats.totalTime.add(elapsed);
+            }
+            stats.selfTime.add(elapsed - frame.children);
+            Frame parent = stack.peek();
+            if (parent != null) {
+                parent.children += elapsed;
+                parent.childrenConsumed += consumed;
+                if (parent.stats.rule instanceof Choice && match != null && ! match.empty()) {
+                    parent.stats.selected.computeIfAbsent(rule, r -> new LongAdder()).increment();
+                }
+            }
+        }
+
+    }
+
+    final List<Rule> roots = new ArrayList<>();
+    final BitSet profiled = new BitSet(); // the IDs of the rules profiled, shared by their clones
+    final Map<Rule, Stats> stats = new ConcurrentHashMap<>();
+    final List<Stats> ordered = new ArrayList<>(); // in the order of the traversal
+    final Probe probe = new Probe();
+    final ThreadLocal<Deque<Frame>> stacks = ThreadLocal.withInitial(ArrayDeque::new);
+    final ThreadLocal<Map<Stats, int[]>> active = ThreadLocal.withInitial(IdentityHashMap::new);
+    volatile boolean closed;
+
+    /**
+     * Profile the main rule of a grammar, and all the
+     * rules reachable from it, in the current thread.
+     *
+     * @param grammar The grammar.
+     *
+     * @return The profiler, bound to the current thread.
+     *
+     * @throws IllegalArgumentException When the grammar
+     *      doesn't have a main rule.
+     */
+    public static Profiler profile(Grammar grammar) {
+        return profile(grammar.mainRule().orElseThrow(() -> new IllegalArgumentException(
+            "No main rule found in " + grammar.getClass().getName())));
+    }
+
+    /**
+     * Profile some rules, and all the rules reachable from them,
+     * in the current thread.
+     *
+     * @param rules The rules to profile.
+     *
+     * @return The profiler, bound to the current thread.
+     */
+    public static Profiler profile(Rule... rules) {
+        Profiler profiler = of(rules);
+        Interception.bind(profiler.probe);
+        return profiler;
+    }
+
+    /**
+     * Create a profiler for some rules, and all the rules reachable
+     * from them, that is not bound to a thread : it records only the
+     * sessions that it is set to.
+     *
+     * @param rules The rules to profile.
+     *
+     * @return The profiler.
+     *
+     * @see ParseSession#setProfiler(Profiler)
+     */
+    public static Profiler of(Rule... rules) {
+        Profiler profiler = new Profiler();
+        profiler.roots.addAll(Arrays.asList(rules));
+        reachable(rules).forEach(rule -> {
+            profiler.profiled.set(rule.id());
+            profiler.stats(rule);
+        });
+        return profiler;
+    }
+
+    boolean isProfiled(Rule rule) {
+        return ! this.closed && this.profiled.get(rule.id());
+    }
+
+    // the rules, and all the rules reachable from them
+    static Set<Rule> reachable(Rule... rules) {
+        Set<Rule> all = new LinkedHashSet<>();
+        Traverse traverse = new Traverse() {
+            @Override
+            public void accept(Rule rule) {
+                all.add(rule);
+            }
+        }.inDepthBefore();
+        for (Rule rule : rules) {
+            all.add(rule);
+            rule.accept(traverse);
+        }
+        return all;
+    }
+
+    Stats stats(Rule rule) {
+        Stats s = this.stats.get(rule);
+        if (s == null) {
+            synchronized (this.ordered) {
+                s = this.stats.computeIfAbsent(rule, Stats::new);
+                if (! this.ordered.contains(s)) {
+                    this.ordered.add(s);
+                }
+            }
+        }
+        return s;
+    }
+
+    static long offset(Scanner scanner) {
+        if (scanner instanceof TrackableScanner) {
+            return ((TrackableScanner) scanner).getOffset();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Return the statistics of the rules.
+     *
+     * @return The statistics, in the order of the rules
+     *      traversed from the rules profiled.
+     */
+    public List<Stats> getStats() {
+        synchronized (this.ordered) {
+            return new ArrayList<>(this.ordered);
+        }
+    }
+
+    /**
+     * Return the statistics of a rule.
+     *
+     * @param rule The rule.
+     *
+     * @return The statistics, if the rule was profiled.
+     */
+    public java.util.Optional<Stats> getStats(Rule rule) {
+        return java.util.Optional.ofNullable(this.stats.get(rule));
+    }
+
+    /**
+     * Reset the statistics.
+     */
+    public void reset() {
+        getStats().forEach(Stats::reset);
+    }
+
+    /**
+     * Stop profiling ; the statistics are still available.
+     * When it is closed from another thread, the thread that
+     * created this profiler is released at its next invocation
+     * of a rule.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        Interception.unbind(this.probe);
+    }
+
+    /**
+     * Dump the rules profiled with their statistics.
+     *
+     * @return The tree-string representation of the rules
+     *      profiled, with in front of each rule : the invocations,
+     *      the failures, the self time and the total time in
+     *      microseconds, the characters consumed and backtracked.
+     */
+    public String dump() {
+        String header = String.format("%10s %10s %10s %10s %10s %10s", "calls", "fails", "self µs", "total µs",
+                "consumed", "backtrack");
+        return this.roots.stream()
+            .map(root -> {
+                Dump dump = new Dump().withoutClass().withoutHash().withInfo(rule -> getStats(rule)
+                    .map(s -> String.format("%10d %10d %10d %10d %10d %10d",
+                            s.getInvocations(), s.getFailures(), s.getSelfTime() / 1000,
+                            s.getTotalTime() / 1000, s.getConsumed(), s.getBacktracked()))
+                    .orElse(String.format("%65s", "")));
+                root.accept(dump);
+                return header + '\n' + dump;
+            })
+            .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Export the statistics to CSV, with a header.
+     *
+     * @return The statistics, one rule per line, the times are in nanoseconds.
+     */
+    public String toCSV() {
+        StringBuilder buf = new StringBuilder(
+            "rule,invocations,successes,failures,empties,totalTime,selfTime,consumed,backtracked\n");
+        for (Stats s : getStats()) {
+            buf.append('"').append(s.getLabel().replace("\"", "\"\"")).append('"');
+            for (long value : values(s)) {
+                buf.append(',').append(value);
+            }
+            buf.append('\n');
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Export the statistics to JSON.
+     *
+     * @return An array of objects, one per rule, the times are in nanoseconds.
+     */
+    public String toJSON() {
+        String[] names = { "invocations", "successes", "failures", "empties", "totalTime", "selfTime",
+                "consumed", "backtracked" };
+        return getStats().stream()
+            .map(s -> {
+                StringBuilder buf = new StringBuilder("{\"rule\":");
+                appendJSONString(buf, s.getLabel());
+                long[] values = values(s);
+                for (int i = 0; i < names.length; i++) {
+                    buf.append(",\"").append(names[i]).append("\":").append(values[i]);
+                }
+                return buf.append('}').toString();
+            })
+            .collect(Collectors.joining(",\n", "[\n", "\n]\n"));
+    }
+
+    /**
+     * Export the alternatives selected by the choices that
+     * are fields of the grammar, in order to reorder them
+     * when the grammar is initialized.
+     *
+     * @return The profile of the grammar.
+     *
+     * @see GrammarProfile#store(java.io.Writer)
+     */
+    public GrammarProfile toGrammarProfile() {
+        GrammarProfile profile = new GrammarProfile();
+        getStats().stream()
+            .filter(s -> s.rule instanceof Choice && s.rule.isGrammarField())
+            .forEach(s -> ((Choice) s.rule).getComponent().forEach(alternative -> {
+                LongAdder count = s.selected.get(alternative);
+                profile.add(s.rule.getName(), GrammarProfile.label(alternative), count == null ? 0 : count.sum());
+            }));
+        return profile;
+    }
+
+    static long[] values(Stats s) {
+        return new long[] { s.getInvocations(), s.getSuccesses(), s.getFailures(), s.getEmpties(),
+                s.getTotalTime(), s.getSelfTime(), s.getConsumed(), s.getBacktracked() };
+    }
+
+    static void appendJSONString(StringBuilder buf, String string) {
+        buf.append('"');
+        string.chars().forEach(c -> {
+            if (c == '"' || c == '\\') {
+                buf.append('\\').append((char) c);
+            } else if (c < ' ') {
+                buf.append(String.format("\\u%04x", c));
+            } else {
+                buf.append((char) c);
+            }
+        });
+        buf.append('"');
+    }
+
+}
@@ -0,0 +1,192 @@
+package ml.alternet.parser.util;
+
+import java.nio.CharBuffer;
+
+import ml.alternet.parser.EventsHandler;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.scan.PushScanner;
+
+/**
+ * Parse an input pushed by chunks, without blocking : the parsing
+ * goes as far as possible with the characters fed, then is suspended
+ * until the next chunk, for example in the event loop of a
+ * non-blocking server that parses many streams with few threads.
+ *
+ * <pre>PushParser parser = new PushParser(Calc.$, handler);
+ * // on each chunk received
+ *parser.feed(chunk);
+ * // at the end of the stream
+ *boolean matched = parser.end();</pre>
+ *
+ * <p>The rules being parsed are kept in a {@link StackParser},
+ * therefore the state of the parsing is kept in the heap when it
+ * is suspended. A step that would read beyond the characters fed
+ * (a token, or the characters to skip) is cancelled, and parsed
+ * again with the next chunk ; since the scanner reads a character
+ * in advance, a token that ends a chunk is parsed with the next
+ * chunk, or on the end of the input.</p>
+ *
+ * <p>The events are sent to the handler as the parsing progresses :
+ * the handler receives and commits them like for the other parsings,
+ * the events of the cancelled steps being cancelled with
+ * {@link Handler#cancel()}.</p>
+ *
+ * <p>The characters fed are kept only while they can be read
+ * again : a cut releases the characters before it. A push parser
+ * is not thread safe, and can parse only once.</p>
+ *
+ * @see PushScanner
+ *
+ * @author Philippe Poulard
+ */
+public class PushParser {
+
+    final PushScanner scanner = new PushScanner();
+    final Handler handler;
+    final StackParser.Run run;
+    Match match;
+
+    /**
+     * Create a push parser with the main rule of a grammar.
+     *
+     * @param grammar The grammar.
+     * @param handler The receiver.
+     *
+     * @throws IllegalStateException When the grammar
+     *      doesn't have a main rule.
+     */
+    public PushParser(Grammar grammar, EventsHandler handler) {
+        this(grammar, grammar.mainRule().orElseThrow(
+            () -> new IllegalStateException("No main rule found in " + grammar.getClass().getName())),
+            handler, new StackParser());
+    }
+
+    /**
+     * Create a push parser.
+     *
+     * @param grammar The grammar.
+     * @param rule The rule to use for parsing the input, a rule
+     *      of the grammar or of an inherited grammar.
+     * @param handler The receiver.
+     * @param stackParser The stack parser, that bounds the depth
+     *      of the rules.
+     */
+    public PushParser(Grammar grammar, Rule rule, EventsHandler handler, StackParser stackParser) {
+        this.handler = handler.asHandler();
+        this.run = stackParser.new Run(grammar.adopt(rule), this.scanner, this.handler) {
+            @Override
+            StackParser.Frame step(StackParser.Frame frame, Match match) {
+                return PushParser.this.step(frame, match);
+            }
+        };
+    }
+
+    // the steps that read are cancelled when starved
+    StackParser.Frame step(StackParser.Frame frame, Match match) {
+        if (frame instanceof StackParser.LeafFrame) {
+            this.scanner.checkpoint();
+            this.handler.mark();
+            try {
+                StackParser.Frame child = frame.step(match);
+                this.handler.consume();
+                return child;
+            } catch (PushScanner.Starved e) {
+                this.scanner.rollback();
+                this.handler.cancel();
+                throw e;
+            }
+        } else if (frame instanceof StackParser.SkipFrame) {
+            this.scanner.checkpoint();
+            try {
+                return frame.step(match);
+            } catch (PushScanner.Starved e) {
+                this.scanner.rollback();
+                throw e;
+            }
+        } else {
+            return frame.step(match);
+        }
+    }
+
+    /**
+     * Feed a chunk, and parse it as far as possible.
+     *
+     * @param chunk The characters from its position to its
+     *      limit are fed, and its position is set to its
+     *      limit ; the chunk can be reused after.
+     *
+     * @return <code>true</code> if the parsing is done (the
+     *      rule has been matched or not), <code>false</code>
+     *      if more characters are needed.
+     *
+     * @throws IllegalStateException When the end of the
+     *      input has already been reached, or when the
+     *      maximal depth of the stack parser has been exceeded.
+     */
+    public boolean feed(CharBuffer chunk) {
+        this.scanner.feed(chunk);
+        return resume();
+    }
+
+    /**
+     * Indicates that no more characters will be fed,
+     * and parse the characters left.
+     *
+     * @return <code>true</code> if the rule was matched,
+     *          <code>false</code> otherwise.
+     *
+     * @throws IllegalStateException When the maximal
+     *      depth of the stack parser has been exceeded.
+     */
+    public boolean end() {
+        this.scanner.end();
+        resume();
+        return isMatched();
+    }
+
+    // parse until starved
+    boolean resume() {
+        if (this.match == null && this.scanner.isStarted()) {
+            try {
+                this.match = this.run.run();
+            } catch (PushScanner.Starved e) {
+                // wait for the next chunk
+            }
+        }
+        return this.match != null;
+    }
+
+    /**
+     * Indicates whether the parsing is done.
+     *
+     * @return <code>true</code> if the rule has been
+     *      matched or not.
+     */
+    public boolean isDone() {
+        return this.match != null;
+    }
+
+    /**
+     * Indicates whether the rule was matched.
+     *
+     * @return <code>true</code> if the parsing is done
+     *      and the rule was matched.
+     */
+    public boolean isMatched() {
+        return this.match != null && ! this.match.fail();
+    }
+
+    /**
+     * Return the input of this parser.
+     *
+     * @return The scanner, that contains the remainder
+     *      after parsing.
+     */
+    public PushScanner getScanner() {
+        return this.scanner;
+    }
+
+}
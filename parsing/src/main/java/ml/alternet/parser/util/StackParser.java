@@ -0,0 +1,632 @@
+package ml.alternet.parser.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ml.alternet.parser.EventsHandler.RuleEnd;
+import ml.alternet.parser.EventsHandler.RuleStart;
+import ml.alternet.parser.Grammar.AtLeast;
+import ml.alternet.parser.Grammar.AtMost;
+import ml.alternet.parser.Grammar.Bounds;
+import ml.alternet.parser.Grammar.Choice;
+import ml.alternet.parser.Grammar.Optional;
+import ml.alternet.parser.Grammar.Proxy;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Grammar.Sequence;
+import ml.alternet.parser.Grammar.ZeroOrMore;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Parse an input without recursion : the rules being parsed
+ * are kept in a stack allocated in the heap, instead of the
+ * stack of the thread, in order to parse deeply nested inputs
+ * such as <code>((((...))))</code>.
+ *
+ * <p>The combinators (proxies, sequences, choices, optional
+ * and repeatable rules), and the skip, drop and commit policies,
+ * are interpreted by this parser when they have their standard
+ * parser ; the tokens and the other parsers are invoked as-is,
+ * therefore with recursion. The listeners bound to the thread, such
+ * as a {@link Profiler} or a {@link Budget}, are notified at the bounds
+ * of the frames, but the other interceptors, such as those of an
+ * {@link IncrementalParser}, make every rule to be parsed with
+ * recursion.</p>
+ *
+ * <pre>ParseSession session = Calc.$.newSession(Scanner.of(input), handler)
+ *    .setStackParser(new StackParser(1_000_000));
+ *boolean matched = session.parse();</pre>
+ *
+ * <p>The events and the result are the same as the recursive
+ * parsing. A stack parser is stateless and can be shared.</p>
+ *
+ * @see ParseSession#setStackParser(StackParser)
+ *
+ * @author Philippe Poulard
+ */
+public class StackParser {
+
+    /**
+     * The default maximal depth.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 1 << 20;
+
+    final int maxDepth;
+
+    /**
+     * Create a stack parser with the default maximal depth.
+     *
+     * @see #DEFAULT_MAX_DEPTH
+     */
+    public StackParser() {
+        this(DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Create a stack parser.
+     *
+     * @param maxDepth The maximal number of rules being parsed
+     *      at the same time, that bounds the memory used.
+     */
+    public StackParser(int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("The maximal depth must be positive : " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Parse an input with a rule.
+     *
+     * @param rule The rule.
+     * @param scanner The input.
+     * @param handler The receiver.
+     *
+     * @return Indicates whether the rule matched or not.
+     *
+     * @throws IllegalStateException When the maximal depth is exceeded.
+     */
+    public Match parse(Rule rule, Scanner scanner, Handler handler) {
+        return new Run(rule, scanner, handler).run();
+    }
+
+    // a parsing in progress ; when a step throws an exception, the run
+    // is left unchanged and can be resumed, see PushParser
+    class Run {
+
+        Frame[] stack = new Frame[64];
+        int depth = 0;
+        Frame frame;
+        Match match = null;
+
+        Run(Rule rule, Scanner scanner, Handler handler) {
+            this.frame = frame(rule, rule.parser, scanner, handler);
+        }
+
+        // perform the next step of a frame
+        Frame step(Frame frame, Match match) {
+            return frame.step(match);
+        }
+
+        Match run() {
+            while (true) {
+                Frame child = step(this.frame, this.match);
+                if (child == null) {
+                    this.match = this.frame.match;
+                    if (this.depth == 0) {
+                        return this.match;
+                    }
+                    this.frame = this.stack[--this.depth];
+                    this.stack[this.depth] = null;
+                } else {
+                    if (this.depth == this.stack.length) {
+                        if (this.depth >= StackParser.this.maxDepth) {
+                            throw new IllegalStateException("The maximal depth of " + StackParser.this.maxDepth
+                                + " rules has been exceeded while parsing " + child.rule);
+                        }
+                        this.stack = Arrays.copyOf(this.stack,
+                            (int) Math.min(StackParser.this.maxDepth, this.depth * 2L));
+                    }
+                    this.stack[this.depth++] = this.frame;
+                    this.frame = child;
+                    this.match = null;
+                }
+            }
+        }
+
+    }
+
+    // the frame of a rule, according to its parser
+    @SuppressWarnings("rawtypes")
+    static Frame frame(Rule rule, Parser parser, Scanner scanner, Handler handler) {
+        if (parser instanceof Parser.Skip) {
+            Parser.Skip skip = (Parser.Skip) parser;
+            return skipFrame(rule, skip, skip.skipRule.before, skip.skipRule.after, scanner, handler);
+        } else if (parser instanceof Parser.Drop) {
+            return frame(rule, ((Parser.Drop) parser).parser, scanner, Handler.NULL_HANDLER);
+        } else if (parser instanceof Parser.Commit) {
+            return new CommitFrame(rule, ((Parser.Commit) parser).parser, scanner, handler);
+        }
+        Interception interception = Interception.current();
+        if (interception == null) {
+            return innermost(rule, parser, scanner, handler);
+        } else if (interception.listening) {
+            // the listeners are notified at the bounds of the frame
+            interception.enter(rule, scanner);
+            Frame frame = innermost(rule, parser, scanner, handler);
+            frame.interception = interception;
+            return frame;
+        } else {
+            return new LeafFrame(rule, (Parser<Rule>) (r, s, h) -> interception.parse(parser, r, s, h),
+                scanner, handler);
+        }
+    }
+
+    // the frame of a rule, according to its innermost parser
+    @SuppressWarnings("rawtypes")
+    static Frame innermost(Rule rule, Parser parser, Scanner scanner, Handler handler) {
+        if (parser == Proxy.PARSER) {
+            return new ProxyFrame(rule, scanner, handler);
+        } else if (parser == Optional.PARSER) {
+            return new OptionalFrame(rule, scanner, handler);
+        } else if (parser == ZeroOrMore.PARSER) {
+            return new ZeroOrMoreFrame(rule, scanner, handler);
+        } else if (parser == AtLeast.PARSER) {
+            return new AtLeastFrame((AtLeast) rule, scanner, handler);
+        } else if (parser == AtMost.PARSER) {
+            return new AtMostFrame((AtMost) rule, scanner, handler);
+        } else if (parser == Bounds.PARSER) {
+            return new BoundsFrame((Bounds) rule, scanner, handler);
+        } else if (parser == Choice.parser(false) || parser == Choice.parser(true)) {
+            return new ChoiceFrame((Choice) rule, parser == Choice.parser(true), scanner, handler);
+        } else if (parser == Sequence.parser(false) || parser == Sequence.parser(true)) {
+            return new SequenceFrame((Sequence) rule, parser == Sequence.parser(true), scanner, handler);
+        } else {
+            return new LeafFrame(rule, parser, scanner, handler);
+        }
+    }
+
+    // see Parser.Skip#parse(Rule, Scanner, Handler, boolean, boolean)
+    static Frame skipFrame(Rule rule, Parser.Skip skip, boolean before, boolean after,
+            Scanner scanner, Handler handler)
+    {
+        if (skip instanceof Parser.Skip.Hoisted && ! ((Parser.Skip.Hoisted) skip).isHoistable(rule)) {
+            return frame(rule, ((Parser.Skip.Hoisted) skip).regular, scanner, handler);
+        } else {
+            return new SkipFrame(rule, skip, before, after, scanner, handler);
+        }
+    }
+
+    // a rule being parsed
+    abstract static class Frame {
+
+        final Rule rule;
+        final Scanner scanner;
+        final Handler handler;
+        Match match; // the result when done
+        Interception interception; // the listeners to notify when done
+
+        Frame(Rule rule, Scanner scanner, Handler handler) {
+            this.rule = rule;
+            this.scanner = scanner;
+            this.handler = handler;
+        }
+
+        /**
+         * Perform the next step of the parsing.
+         *
+         * @param match <code>null</code> for the first step,
+         *      otherwise the result of the child.
+         *
+         * @return The child to parse, or <code>null</code>
+         *      when done with the result set.
+         */
+        abstract Frame step(Match match);
+
+        Frame child(Rule rule) {
+            return frame(rule, rule.parser, this.scanner, this.handler);
+        }
+
+        Frame done(Match match) {
+            this.match = match;
+            if (this.interception != null) {
+                this.interception.exit(this.rule, this.scanner, match);
+            }
+            return null;
+        }
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class LeafFrame extends Frame {
+
+        final Parser parser;
+
+        LeafFrame(Rule rule, Parser parser, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+            this.parser = parser;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Frame step(Match match) {
+            return done(this.parser.parse(this.rule, this.scanner, this.handler));
+        }
+
+    }
+
+    static class SkipFrame extends Frame {
+
+        final Parser.Skip skip;
+        final boolean before;
+        final boolean after;
+
+        SkipFrame(Rule rule, Parser.Skip skip, boolean before, boolean after, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+            this.skip = skip;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        Frame step(Match match) {
+            if (match == null) {
+                this.scanner.mark();
+                if (this.before) {
+                    this.skip.skipRule.skip(this.scanner);
+                }
+                return frame(this.rule, this.skip.parser, this.scanner, this.handler);
+            }
+            if (this.after && ! match.fail()) { // fail will cancel
+                this.skip.skipRule.skip(this.scanner);
+            }
+            this.scanner.commit(! match.fail());
+            return done(match);
+        }
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class CommitFrame extends Frame {
+
+        final Parser parser;
+
+        CommitFrame(Rule rule, Parser parser, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+            this.parser = parser;
+        }
+
+        @Override
+        Frame step(Match match) {
+            if (match == null) {
+                return frame(this.rule, this.parser, this.scanner, this.handler);
+            }
+            if (! match.fail()) {
+                Parser.Commit.cut(this.scanner, this.handler);
+            }
+            return done(match);
+        }
+
+    }
+
+    static class ProxyFrame extends Frame {
+
+        ProxyFrame(Rule rule, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+        }
+
+        @Override
+        Frame step(Match match) {
+            if (match == null) {
+                this.handler.mark();
+                this.handler.receive(new RuleStart(this.rule, this.scanner));
+                return child(((Proxy) this.rule).getComponent());
+            }
+            this.handler.receive(new RuleEnd(this.rule, this.scanner, ! match.fail()));
+            this.handler.commit(! match.fail());
+            return done(match);
+        }
+
+    }
+
+    static class OptionalFrame extends Frame {
+
+        int cuts;
+
+        OptionalFrame(Rule rule, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+        }
+
+        @Override
+        Frame step(Match match) {
+            if (match == null) {
+                this.handler.receive(new RuleStart(this.rule, this.scanner));
+                this.cuts = this.scanner.getCuts();
+                return child(((Optional) this.rule).getComponent());
+            }
+            if (match.fail() && this.scanner.getCuts() != this.cuts) {
+                // can't backtrack before the cut
+                this.handler.receive(new RuleEnd(this.rule, this.scanner, false));
+                return done(Match.FAIL);
+            }
+            this.handler.receive(new RuleEnd(this.rule, this.scanner, true));
+            return done(match.asOptional());
+        }
+
+    }
+
+    // the repeatable rules that never fail, unless they can't backtrack
+    static class ZeroOrMoreFrame extends Frame {
+
+        Match ruleMatch = Match.EMPTY;
+        int cuts;
+
+        ZeroOrMoreFrame(Rule rule, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+        }
+
+        // whether to parse the component again
+        boolean again() {
+            return this.scanner.hasNext();
+        }
+
+        Frame repeat() {
+            this.cuts = this.scanner.getCuts();
+            return child(((ZeroOrMore) this.rule).getComponent());
+        }
+
+        @Override
+        Frame step(Match match) {
+            if (match == null) {
+                // never fail, don't need to mark
+                this.handler.receive(new RuleStart(this.rule, this.scanner));
+                if (this.scanner.hasNext()) {
+                    return repeat();
+                }
+            } else if (match.empty()) {
+                if (match.fail() && this.scanner.getCuts() != this.cuts) {
+                    this.ruleMatch = Match.FAIL; // can't backtrack before the cut
+                }
+            } else {
+                this.ruleMatch = Match.SUCCESS;
+                if (again()) {
+                    return repeat();
+                }
+            }
+            this.handler.receive(new RuleEnd(this.rule, this.scanner, true));
+            return done(this.ruleMatch);
+        }
+
+    }
+
+    static class AtMostFrame extends ZeroOrMoreFrame {
+
+        int count;
+
+        AtMostFrame(AtMost rule, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+        }
+
+        @Override
+        boolean again() {
+            return this.scanner.hasNext() && ++this.count <= ((AtMost) this.rule).getMaximal();
+        }
+
+        @Override
+        Frame repeat() {
+            this.cuts = this.scanner.getCuts();
+            return child(((AtMost) this.rule).getComponent());
+        }
+
+    }
+
+    static class AtLeastFrame extends Frame {
+
+        Match ruleMatch;
+        int count;
+        int cuts;
+
+        AtLeastFrame(AtLeast rule, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+        }
+
+        Frame repeat() {
+            this.cuts = this.scanner.getCuts();
+            return child(((AtLeast) this.rule).getComponent());
+        }
+
+        @Override
+        Frame step(Match match) {
+            if (match == null) {
+                this.handler.mark();
+                this.handler.receive(new RuleStart(this.rule, this.scanner));
+                if (this.scanner.hasNext()) {
+                    return child(((AtLeast) this.rule).getComponent());
+                }
+                this.ruleMatch = Match.FAIL;
+            } else if (this.ruleMatch == null) {
+                // the first occurrence
+                this.ruleMatch = match;
+                if (! match.empty() && this.scanner.hasNext()) {
+                    return repeat();
+                }
+            } else if (match.empty()) {
+                if (match.fail() && this.scanner.getCuts() != this.cuts) {
+                    this.ruleMatch = Match.FAIL; // can't backtrack before the cut
+                }
+            } else {
+                if (++this.count == ((AtLeast) this.rule).getMinimal()) {
+                    this.ruleMatch = Match.SUCCESS;
+                }
+                if (this.scanner.hasNext()) {
+                    return repeat();
+                }
+            }
+            this.handler.receive(new RuleEnd(this.rule, this.scanner, ! this.ruleMatch.fail()));
+            this.handler.commit(! this.ruleMatch.fail());
+            return done(this.ruleMatch.asMandatory());
+        }
+
+    }
+
+    static class BoundsFrame extends Frame {
+
+        Match ruleMatch = Match.FAIL;
+        int count;
+        int cuts;
+
+        BoundsFrame(Bounds rule, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+        }
+
+        Frame repeat() {
+            this.cuts = this.scanner.getCuts();
+            return child(((Bounds) this.rule).getComponent());
+        }
+
+        @Override
+        Frame step(Match match) {
+            Bounds bounds = (Bounds) this.rule;
+            if (match == null) {
+                if (bounds.getMinimal() > 0) {
+                    this.handler.mark();
+                    this.ruleMatch = Match.EMPTY;
+                } // else never fail, don't need to mark
+                this.handler.receive(new RuleStart(this.rule, this.scanner));
+                if (this.scanner.hasNext()) {
+                    return repeat();
+                }
+            } else if (match.empty()) {
+                if (match.fail() && this.scanner.getCuts() != this.cuts) {
+                    this.ruleMatch = Match.FAIL; // can't backtrack before the cut
+                }
+            } else {
+                if (++this.count == bounds.getMinimal()) {
+                    this.ruleMatch = Match.SUCCESS;
+                }
+                if (this.scanner.hasNext() && this.count++ <= bounds.getMaximal()) {
+                    return repeat();
+                }
+            }
+            this.handler.receive(new RuleEnd(this.rule, this.scanner, true));
+            if (bounds.getMinimal() > 0) {
+                this.handler.commit(! this.ruleMatch.fail());
+                return done(this.ruleMatch.asMandatory());
+            }
+            return done(this.ruleMatch);
+        }
+
+    }
+
+    static class ChoiceFrame extends Frame {
+
+        final boolean unskipped;
+        List<Rule> alternatives;
+        int next;
+        int cuts;
+
+        ChoiceFrame(Choice rule, boolean unskipped, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+            this.unskipped = unskipped;
+        }
+
+        @Override
+        Frame step(Match match) {
+            if (match == null) {
+                this.handler.mark();
+                this.handler.receive(new RuleStart(this.rule, this.scanner));
+                this.scanner.mark();
+                this.cuts = this.scanner.getCuts();
+                this.alternatives = ((Choice) this.rule).getComponent();
+            } else if (! match.empty()) {
+                this.scanner.consume();
+                this.handler.receive(new RuleEnd(this.rule, this.scanner, true));
+                this.handler.commit(true);
+                return done(match);
+            } else if (match.fail() && this.scanner.getCuts() != this.cuts) {
+                return fail(); // can't backtrack before the cut
+            }
+            while (this.next < this.alternatives.size()) {
+                Rule alternative = this.alternatives.get(this.next++);
+                if (this.scanner.hasNext()) {
+                    if (this.unskipped && alternative.parser instanceof Parser.Skip) {
+                        // see Parser.Skip#parseUnskipped()
+                        return skipFrame(alternative, (Parser.Skip) alternative.parser, false, false,
+                            this.scanner, this.handler);
+                    } else {
+                        return child(alternative);
+                    }
+                }
+            }
+            return fail();
+        }
+
+        Frame fail() {
+            this.scanner.cancel();
+            this.handler.receive(new RuleEnd(this.rule, this.scanner, false));
+            this.handler.commit(false);
+            return done(Match.FAIL);
+        }
+
+    }
+
+    static class SequenceFrame extends Frame {
+
+        final boolean coalesceSkips;
+        List<Rule> items;
+        int next;
+        Match ruleMatch = Match.EMPTY;
+
+        SequenceFrame(Sequence rule, boolean coalesceSkips, Scanner scanner, Handler handler) {
+            super(rule, scanner, handler);
+            this.coalesceSkips = coalesceSkips;
+        }
+
+        @Override
+        Frame step(Match match) {
+            if (match == null) {
+                this.handler.mark();
+                this.handler.receive(new RuleStart(this.rule, this.scanner));
+                this.scanner.mark();
+                this.items = ((Sequence) this.rule).getComponent();
+            } else if (match.fail()) {
+                this.ruleMatch = Match.FAIL;
+                return end();
+            } else if (! match.empty()) {
+                this.ruleMatch = Match.SUCCESS;
+            }
+            if (this.next < this.items.size()) {
+                Rule item = this.items.get(this.next);
+                if (this.coalesceSkips && this.next > 0) {
+                    return nextFrame(this.items.get(this.next++ - 1), item);
+                } else {
+                    this.next++;
+                    return child(item);
+                }
+            }
+            return end();
+        }
+
+        // see Parser.Skip#parseNext()
+        Frame nextFrame(Rule previous, Rule rule) {
+            if (rule.parser instanceof Parser.Skip && previous.parser instanceof Parser.Skip) {
+                Parser.Skip skip = (Parser.Skip) rule.parser;
+                Parser.Skip.SkipRule previousSkip = ((Parser.Skip) previous.parser).skippedAfter(previous);
+                if (skip.skipRule.before && previousSkip != null && skip.skipRule.skipSameTokens(previousSkip)) {
+                    return skipFrame(rule, skip, false, skip.skipRule.after, this.scanner, this.handler);
+                }
+            }
+            return child(rule);
+        }
+
+        Frame end() {
+            this.scanner.commit(! this.ruleMatch.fail());
+            this.handler.receive(new RuleEnd(this.rule, this.scanner, ! this.ruleMatch.fail()));
+            this.handler.commit(! this.ruleMatch.fail());
+            return done(this.ruleMatch);
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+package ml.alternet.parser.util;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+import ml.alternet.parser.EventsHandler.TokenValue;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Pull the tokens of an input one at a time.
+ *
+ * <p>Each call to {@link #hasNext()} parses at most one more
+ * token with the rule supplied, typically the alternatives
+ * of the "tokenizer rule" ; the tokens that don't produce a
+ * value (dropped tokens) are parsed until a value is produced.
+ * The iteration ends when the input is exhausted or when the
+ * rule doesn't match : the scanner then contains the remainder.</p>
+ *
+ * @see ml.alternet.parser.Grammar#tokens(Scanner)
+ *
+ * @author Philippe Poulard
+ */
+public class TokenIterator implements Iterator<TokenValue<?>> {
+
+    Rule rule;
+    Scanner scanner;
+    TokensCollector<LinkedList<TokenValue<?>>> collector = TokensCollector.newTokenValueHandler();
+    boolean end = false;
+
+    /**
+     * Create a token iterator.
+     *
+     * @param rule The rule that parses a single token.
+     * @param scanner The input.
+     */
+    public TokenIterator(Rule rule, Scanner scanner) {
+        this.rule = rule;
+        this.scanner = scanner;
+    }
+
+    @Override
+    public boolean hasNext() {
+        LinkedList<TokenValue<?>> tokens = this.collector.get();
+        while (tokens.isEmpty() && ! this.end) {
+            if (! this.scanner.hasNext() || this.rule.parse(this.scanner, this.collector).empty()) {
+                this.end = true;
+            }
+        }
+        return ! tokens.isEmpty();
+    }
+
+    @Override
+    public TokenValue<?> next() {
+        if (hasNext()) {
+            LinkedList<TokenValue<?>> tokens = this.collector.get();
+            return tokens.removeFirst();
+        } else {
+            throw new NoSuchElementException();
+        }
+    }
+
+}
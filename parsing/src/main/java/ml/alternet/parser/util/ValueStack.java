@@ -130,6 +130,15 @@ public class ValueStack<V> implements Rewindable, Iterable<V>, Supplier<V> {
         this.marks.pop();
     }
 
+    @Override
+    public void cut() {
+        int marks = this.marks.size();
+        this.marks.clear();
+        for (int i = 0; i < marks; i++) {
+            this.marks.push(this.head);
+        }
+    }
+
     /**
      * Push a value
      *
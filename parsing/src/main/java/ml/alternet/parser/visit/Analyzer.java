@@ -0,0 +1,728 @@
+package ml.alternet.parser.visit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import ml.alternet.misc.CharRange;
+import ml.alternet.misc.CharRange.BoundRange;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Grammar.CharToken;
+import ml.alternet.parser.Grammar.Choice;
+import ml.alternet.parser.Grammar.Cut;
+import ml.alternet.parser.Grammar.Proxy;
+import ml.alternet.parser.Grammar.Repeatable;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Grammar.Sequence;
+import ml.alternet.parser.Grammar.StringToken;
+import ml.alternet.parser.Grammar.Token;
+import ml.alternet.parser.util.ComposedRule;
+import ml.alternet.parser.util.Parser;
+import ml.alternet.parser.visit.TraversableRule.SimpleRule;
+
+/**
+ * Analyze statically the rules of a grammar, in order to
+ * report the shapes that cause infinite loops or useless
+ * backtracking.
+ *
+ * <p>The analyzer computes for each rule reachable from the
+ * rules analyzed :</p>
+ * <ul>
+ * <li>whether it is nullable, that is to say whether it can
+ * match without consuming a character,</li>
+ * <li>its FIRST set, the tokens that can start it,</li>
+ * <li>its FOLLOW set, the tokens that can follow it.</li>
+ * </ul>
+ * <p>The tokens are compared by identity : two distinct
+ * tokens that match the same characters are not considered
+ * to overlap.</p>
+ *
+ * <pre>Analyzer analyzer = Analyzer.analyze(Calc.$);
+ *analyzer.getHazards().forEach(System.out::println);</pre>
+ *
+ * <p>The grammars can be analyzed at initialization by setting
+ * the system property <code>ml.alternet.parser.Grammar.analysis</code>
+ * to <code>warn</code> (the hazards are logged), or to <code>fail</code>
+ * (the initialization fails on infinite loops).</p>
+ *
+ * @see Hazard.Kind
+ *
+ * @author Philippe Poulard
+ */
+public class Analyzer {
+
+    /**
+     * A shape of rule that may cause troubles.
+     *
+     * @author Philippe Poulard
+     */
+    public static class Hazard {
+
+        /**
+         * The kinds of hazards.
+         *
+         * @author Philippe Poulard
+         */
+        public enum Kind {
+
+            /** A rule can invoke itself without consuming a character : infinite loop. */
+            LEFT_RECURSION(true, "invokes itself without consuming a character"),
+
+            /** A repetition of a rule that can succeed without consuming a character : infinite loop. */
+            INFINITE_REPETITION(true, "repeats a rule that can succeed without consuming a character"),
+
+            /** A repetition of a rule that can match an empty input : the repetition stops on an empty match. */
+            NULLABLE_REPETITION(false, "repeats a rule that can match an empty input"),
+
+            /** A repetition of an optional repetition : the outer repetition is useless. */
+            NESTED_REPETITION(false, "repeats an optional repetition"),
+
+            /** An alternative is matched by an earlier alternative : it is never matched. */
+            SHADOWED_ALTERNATIVE(false, "has an alternative matched by an earlier alternative"),
+
+            /** Some alternatives start with the same token : parsing them backtracks. */
+            OVERLAPPING_ALTERNATIVES(false, "has alternatives that start with the same tokens"),
+
+            /** A repetition may consume the tokens expected after it. */
+            GREEDY_REPETITION(false, "may consume the tokens expected after it");
+
+            final boolean infinite;
+            final String message;
+
+            Kind(boolean infinite, String message) {
+                this.infinite = infinite;
+                this.message = message;
+            }
+
+            /**
+             * Indicates whether this kind of hazard is an infinite loop.
+             *
+             * @return <code>true</code> for an infinite loop,
+             *      <code>false</code> for a performance issue.
+             */
+            public boolean isInfiniteLoop() {
+                return this.infinite;
+            }
+
+        }
+
+        final Kind kind;
+        final Rule rule;
+        final List<Rule> path;
+        final String detail;
+
+        Hazard(Kind kind, Rule rule, List<Rule> path, String detail) {
+            this.kind = kind;
+            this.rule = rule;
+            this.path = path;
+            this.detail = detail;
+        }
+
+        /**
+         * Return the kind of this hazard.
+         *
+         * @return The kind.
+         */
+        public Kind getKind() {
+            return this.kind;
+        }
+
+        /**
+         * Return the rule that causes this hazard.
+         *
+         * @return The rule.
+         */
+        public Rule getRule() {
+            return this.rule;
+        }
+
+        /**
+         * Return the path to the rule.
+         *
+         * @return The rules from a rule analyzed to the
+         *      rule that causes this hazard.
+         */
+        public List<Rule> getPath() {
+            return this.path;
+        }
+
+        /**
+         * Return the path to the rule.
+         *
+         * @return The labels of the rules in the path.
+         */
+        public String getPathString() {
+            return this.path.stream()
+                .map(Analyzer::label)
+                .collect(Collectors.joining(" > "));
+        }
+
+        @Override
+        public String toString() {
+            return this.kind + " : " + label(this.rule) + ' ' + this.kind.message
+                + (this.detail.isEmpty() ? "" : " (" + this.detail + ')')
+                + "\n    at " + getPathString();
+        }
+
+    }
+
+    final List<Rule> rules = new ArrayList<>(); // in the order of the traversal
+    final Map<Rule, Rule> parents = new IdentityHashMap<>();
+    final Set<Rule> nullable = Collections.newSetFromMap(new IdentityHashMap<>());
+    final Set<Rule> succeedsEmpty = Collections.newSetFromMap(new IdentityHashMap<>());
+    final Map<Rule, Set<Token>> first = new IdentityHashMap<>();
+    final Map<Rule, Set<Token>> follow = new IdentityHashMap<>();
+    final Map<Rule, Set<Token>> after = new IdentityHashMap<>();
+    final List<Hazard> hazards = new ArrayList<>();
+
+    Analyzer() { }
+
+    /**
+     * Analyze the main rule of a grammar, and all the
+     * rules reachable from it.
+     *
+     * @param grammar The grammar.
+     *
+     * @return The analyzer.
+     *
+     * @throws IllegalArgumentException When the grammar
+     *      doesn't have a main rule.
+     */
+    public static Analyzer analyze(Grammar grammar) {
+        return analyze(grammar.mainRule().orElseThrow(() -> new IllegalArgumentException(
+            "No main rule found in " + grammar.getClass().getName())));
+    }
+
+    /**
+     * Analyze some rules, and all the rules reachable from them.
+     *
+     * @param roots The rules to analyze.
+     *
+     * @return The analyzer.
+     */
+    public static Analyzer analyze(Rule... roots) {
+        Analyzer analyzer = new Analyzer();
+        analyzer.collect(roots);
+        analyzer.computeNullable();
+        analyzer.computeFirst();
+        analyzer.computeFollow();
+        analyzer.findLeftRecursions();
+        analyzer.findHazards();
+        return analyzer;
+    }
+
+    static String label(Rule rule) {
+        return rule.isGrammarField()
+            ? rule.getName()
+            : rule.toPrettyString().toString();
+    }
+
+    static Stream<Rule> components(Rule rule) {
+        if (rule instanceof ComposedRule && ! isTerminal(rule)) {
+            return ((ComposedRule<?>) rule).getComponents().filter(Objects::nonNull);
+        } else {
+            return Stream.empty();
+        }
+    }
+
+    // a token is parsed as a whole
+    static boolean isTerminal(Rule rule) {
+        return rule instanceof Token;
+    }
+
+    // the token that actually matches, under the typed or dropped tokens
+    static Token terminal(Token token) {
+        Token terminal = token;
+        while (terminal instanceof SimpleRule && ((SimpleRule) terminal).getComponent() instanceof Token) {
+            terminal = (Token) ((SimpleRule) terminal).getComponent();
+        }
+        return terminal;
+    }
+
+    static int minimal(Repeatable repeatable) {
+        return repeatable instanceof Repeatable.Minimal ? ((Repeatable.Minimal) repeatable).getMinimal() : 1;
+    }
+
+    static int maximal(Repeatable repeatable) {
+        return repeatable instanceof Repeatable.Maximal
+            ? ((Repeatable.Maximal) repeatable).getMaximal()
+            : Integer.MAX_VALUE;
+    }
+
+    void collect(Rule... roots) {
+        Set<Rule> all = new LinkedHashSet<>();
+        Traverse traverse = new Traverse() {
+            @Override
+            public void accept(Rule rule) {
+                all.add(rule);
+            }
+        }.inDepthBefore();
+        for (Rule root : roots) {
+            all.add(root);
+            root.accept(traverse);
+        }
+        this.rules.addAll(all);
+        // the shortest paths
+        Deque<Rule> queue = new ArrayDeque<>();
+        for (Rule root : roots) {
+            this.parents.putIfAbsent(root, root);
+            queue.add(root);
+        }
+        while (! queue.isEmpty()) {
+            Rule rule = queue.poll();
+            components(rule).forEach(c -> {
+                if (! this.parents.containsKey(c)) {
+                    this.parents.put(c, rule);
+                    queue.add(c);
+                }
+            });
+        }
+    }
+
+    List<Rule> path(Rule rule) {
+        Deque<Rule> path = new ArrayDeque<>();
+        Rule r = rule;
+        path.push(r);
+        Rule parent = this.parents.get(r);
+        while (parent != null && parent != r) {
+            path.push(parent);
+            r = parent;
+            parent = this.parents.get(r);
+        }
+        return new ArrayList<>(path);
+    }
+
+    void computeNullable() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Rule rule : this.rules) {
+                if (! this.nullable.contains(rule) && isNullable0(rule)) {
+                    this.nullable.add(rule);
+                    changed = true;
+                }
+                if (! this.succeedsEmpty.contains(rule) && succeedsEmpty0(rule)) {
+                    this.succeedsEmpty.add(rule);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // according to the parsers : a choice or a repetition with a minimum
+    // fail on an empty match, and a sequence succeeds if one of its
+    // rules has succeeded, even without consuming a character
+    boolean isNullable0(Rule rule) {
+        if (rule instanceof Token) {
+            return succeedsEmpty0(rule);
+        } else if (rule instanceof Cut) {
+            return true;
+        } else if (rule instanceof Choice) {
+            return ((Choice) rule).getComponents().anyMatch(this.succeedsEmpty::contains);
+        } else if (rule instanceof Sequence) {
+            return ((Sequence) rule).getComponents().allMatch(this.nullable::contains);
+        } else if (rule instanceof Repeatable) {
+            Repeatable repeatable = (Repeatable) rule;
+            return minimal(repeatable) == 0 || this.succeedsEmpty.contains(repeatable.getComponent());
+        } else if (rule instanceof SimpleRule) {
+            return this.nullable.contains(((SimpleRule) rule).getComponent());
+        } else {
+            return false;
+        }
+    }
+
+    boolean succeedsEmpty0(Rule rule) {
+        if (rule instanceof Token) {
+            Token token = terminal((Token) rule);
+            return token instanceof StringToken && ((StringToken) token).isEqual()
+                && ((StringToken) token).getString().isEmpty();
+        } else if (rule instanceof Cut) {
+            return false;
+        } else if (rule instanceof Sequence) {
+            return ((Sequence) rule).getComponents().allMatch(this.nullable::contains)
+                && ((Sequence) rule).getComponents().anyMatch(this.succeedsEmpty::contains);
+        } else if (rule instanceof ComposedRule) {
+            return components(rule).anyMatch(this.succeedsEmpty::contains);
+        } else {
+            return false;
+        }
+    }
+
+    void computeFirst() {
+        this.rules.forEach(rule -> this.first.put(rule, new LinkedHashSet<>()));
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Rule rule : this.rules) {
+                Set<Token> first = this.first.get(rule);
+                int size = first.size();
+                if (rule instanceof Token) {
+                    first.add(terminal((Token) rule));
+                } else if (rule instanceof Sequence) {
+                    for (Rule item : ((Sequence) rule).getComponent()) {
+                        first.addAll(getFirst(item));
+                        if (! this.nullable.contains(item)) {
+                            break;
+                        }
+                    }
+                } else {
+                    components(rule).forEach(c -> first.addAll(getFirst(c)));
+                }
+                changed |= first.size() != size;
+            }
+        }
+    }
+
+    void computeFollow() {
+        computeFollow(this.follow, true);
+        computeFollow(this.after, false);
+    }
+
+    // without loop, a repetition is not followed by its own tokens
+    void computeFollow(Map<Rule, Set<Token>> target, boolean loop) {
+        this.rules.forEach(rule -> target.put(rule, new LinkedHashSet<>()));
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Rule rule : this.rules) {
+                Set<Token> follow = target.get(rule);
+                if (rule instanceof Sequence) {
+                    List<Rule> items = ((Sequence) rule).getComponent();
+                    for (int i = 0; i < items.size(); i++) {
+                        Set<Token> next = new LinkedHashSet<>();
+                        int j = i + 1;
+                        for ( ; j < items.size(); j++) {
+                            next.addAll(getFirst(items.get(j)));
+                            if (! this.nullable.contains(items.get(j))) {
+                                break;
+                            }
+                        }
+                        if (j == items.size()) {
+                            next.addAll(follow);
+                        }
+                        changed |= target.get(items.get(i)).addAll(next);
+                    }
+                } else if (! isTerminal(rule)) {
+                    for (Rule c : components(rule).collect(Collectors.toList())) {
+                        changed |= target.get(c).addAll(follow);
+                        if (loop && rule instanceof Repeatable && maximal((Repeatable) rule) > 1) {
+                            changed |= target.get(c).addAll(getFirst(c));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // the rules that can be invoked at the same position
+    Stream<Rule> leftmost(Rule rule) {
+        if (rule instanceof Sequence) {
+            List<Rule> items = ((Sequence) rule).getComponent();
+            int i = 0;
+            while (i < items.size() - 1 && this.nullable.contains(items.get(i))) {
+                i++;
+            }
+            return items.subList(0, Math.min(i + 1, items.size())).stream();
+        } else {
+            return components(rule);
+        }
+    }
+
+    void findLeftRecursions() {
+        Set<Rule> done = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Rule> reported = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Rule rule : this.rules) {
+            findLeftRecursions(rule, new ArrayList<>(), Collections.newSetFromMap(new IdentityHashMap<>()),
+                    done, reported);
+        }
+    }
+
+    void findLeftRecursions(Rule rule, List<Rule> stack, Set<Rule> onStack, Set<Rule> done, Set<Rule> reported) {
+        if (onStack.contains(rule)) {
+            List<Rule> cycle = new ArrayList<>(stack.subList(stack.indexOf(rule), stack.size()));
+            if (cycle.stream().noneMatch(reported::contains)) {
+                reported.add(rule);
+                cycle.add(rule);
+                this.hazards.add(new Hazard(Hazard.Kind.LEFT_RECURSION, rule, path(rule),
+                    cycle.stream().map(Analyzer::label).collect(Collectors.joining(" > "))));
+            }
+        } else if (done.add(rule)) {
+            stack.add(rule);
+            onStack.add(rule);
+            leftmost(rule).forEach(r -> findLeftRecursions(r, stack, onStack, done, reported));
+            onStack.remove(rule);
+            stack.remove(stack.size() - 1);
+        }
+    }
+
+    void findHazards() {
+        for (Rule rule : this.rules) {
+            if (rule instanceof Repeatable && maximal((Repeatable) rule) > 1) {
+                Repeatable repeatable = (Repeatable) rule;
+                Rule component = repeatable.getComponent();
+                Rule unwrapped = component;
+                while (unwrapped instanceof Proxy && ((Proxy) unwrapped).getComponent() != null) {
+                    unwrapped = ((Proxy) unwrapped).getComponent();
+                }
+                if (this.succeedsEmpty.contains(component)) {
+                    if (maximal(repeatable) == Integer.MAX_VALUE) {
+                        addHazard(Hazard.Kind.INFINITE_REPETITION, rule, label(component));
+                    }
+                } else if (unwrapped instanceof Repeatable && minimal((Repeatable) unwrapped) == 0) {
+                    addHazard(Hazard.Kind.NESTED_REPETITION, rule, label(component));
+                } else if (this.nullable.contains(component)) {
+                    addHazard(Hazard.Kind.NULLABLE_REPETITION, rule, label(component));
+                }
+            }
+            if (rule instanceof Repeatable) {
+                Set<Token> greedy = new LinkedHashSet<>(getFirst(((Repeatable) rule).getComponent()));
+                // the next iteration of an enclosing repetition is not starved
+                greedy.retainAll(this.after.get(rule));
+                if (! greedy.isEmpty()) {
+                    addHazard(Hazard.Kind.GREEDY_REPETITION, rule, labels(greedy));
+                }
+            }
+            if (rule instanceof Choice) {
+                List<Rule> alternatives = ((Choice) rule).getComponent();
+                List<String> shadowed = new ArrayList<>();
+                Set<Token> overlap = new LinkedHashSet<>();
+                for (int j = 1; j < alternatives.size(); j++) {
+                    String later = literal(alternatives.get(j), new HashSet<>());
+                    for (int i = 0; i < j; i++) {
+                        String earlier = literal(alternatives.get(i), new HashSet<>());
+                        if (earlier != null && later != null && later.startsWith(earlier)) {
+                            shadowed.add(label(alternatives.get(j)) + " by " + label(alternatives.get(i)));
+                            break;
+                        }
+                        Set<Token> common = new LinkedHashSet<>(getFirst(alternatives.get(i)));
+                        common.retainAll(getFirst(alternatives.get(j)));
+                        overlap.addAll(common);
+                    }
+                }
+                if (! shadowed.isEmpty()) {
+                    addHazard(Hazard.Kind.SHADOWED_ALTERNATIVE, rule, String.join(", ", shadowed));
+                }
+                if (! overlap.isEmpty()) {
+                    addHazard(Hazard.Kind.OVERLAPPING_ALTERNATIVES, rule, labels(overlap));
+                }
+            }
+        }
+    }
+
+    void addHazard(Hazard.Kind kind, Rule rule, String detail) {
+        this.hazards.add(new Hazard(kind, rule, path(rule), detail));
+    }
+
+    static String labels(Set<Token> tokens) {
+        return tokens.stream()
+            .map(Analyzer::label)
+            .collect(Collectors.joining(", "));
+    }
+
+    // the string matched by a rule, or null
+    static String literal(Rule rule, Set<Rule> traversed) {
+        if (! traversed.add(rule)) {
+            return null;
+        } else if (rule instanceof Token) {
+            Token token = terminal((Token) rule);
+            if (token instanceof StringToken && ((StringToken) token).isEqual()) {
+                return ((StringToken) token).getString();
+            } else if (token instanceof CharToken.Single) {
+                List<BoundRange> intervals = ((CharToken) token).getCharRange().asIntervals()
+                    .limit(2)
+                    .collect(Collectors.toList());
+                return intervals.size() == 1 && intervals.get(0).start() == intervals.get(0).end()
+                    ? new String(Character.toChars(intervals.get(0).start()))
+                    : null;
+            } else {
+                return null;
+            }
+        } else if (rule instanceof Proxy) {
+            Rule proxied = ((Proxy) rule).getComponent();
+            return proxied == null ? null : literal(proxied, traversed);
+        } else if (rule instanceof Sequence) {
+            StringBuilder buf = new StringBuilder();
+            for (Rule item : ((Sequence) rule).getComponent()) {
+                String literal = literal(item, traversed);
+                if (literal == null) {
+                    return null;
+                }
+                buf.append(literal);
+            }
+            return buf.toString();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Return the hazards found.
+     *
+     * @return The hazards, the infinite loops first.
+     */
+    public List<Hazard> getHazards() {
+        List<Hazard> hazards = new ArrayList<>(this.hazards);
+        hazards.sort((h1, h2) -> Boolean.compare(h2.kind.infinite, h1.kind.infinite));
+        return hazards;
+    }
+
+    /**
+     * Return the hazards of a given kind.
+     *
+     * @param kind The kind of hazard.
+     *
+     * @return The hazards found.
+     */
+    public List<Hazard> getHazards(Hazard.Kind kind) {
+        return this.hazards.stream()
+            .filter(h -> h.kind == kind)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Fail if an infinite loop was found.
+     *
+     * @return This analyzer.
+     *
+     * @throws IllegalStateException When an infinite loop was found.
+     */
+    public Analyzer failFast() throws IllegalStateException {
+        List<Hazard> loops = this.hazards.stream()
+            .filter(h -> h.kind.infinite)
+            .collect(Collectors.toList());
+        if (! loops.isEmpty()) {
+            throw new IllegalStateException("Infinite loops found :\n" + loops.stream()
+                .map(Hazard::toString)
+                .collect(Collectors.joining("\n")));
+        }
+        return this;
+    }
+
+    /**
+     * Indicates whether a rule can match without consuming a character.
+     *
+     * @param rule The rule, reachable from the rules analyzed.
+     *
+     * @return <code>true</code> if the rule is nullable.
+     */
+    public boolean isNullable(Rule rule) {
+        return this.nullable.contains(rule);
+    }
+
+    /**
+     * Return the tokens that can start a rule.
+     *
+     * @param rule The rule, reachable from the rules analyzed.
+     *
+     * @return The FIRST set of the rule.
+     */
+    public Set<Token> getFirst(Rule rule) {
+        return this.first.getOrDefault(rule, Collections.emptySet());
+    }
+
+    /**
+     * Return the tokens that can follow a rule.
+     *
+     * @param rule The rule, reachable from the rules analyzed.
+     *
+     * @return The FOLLOW set of the rule.
+     */
+    public Set<Token> getFollow(Rule rule) {
+        return this.follow.getOrDefault(rule, Collections.emptySet());
+    }
+
+    /**
+     * Indicates whether two rules can't match the same input :
+     * they can't be empty, and their first characters are
+     * disjoint, or they are distinct literals, none of them
+     * being the prefix of the other. Two exclusive alternatives
+     * of a choice can be swapped without changing what the
+     * choice matches.
+     *
+     * <p>A rule that commits the input, or that contains a cut,
+     * is not exclusive : once committed, the input can't be read
+     * again by the next alternatives, therefore swapping it may
+     * change whether the parsing fails.</p>
+     *
+     * @param rule1 A rule, reachable from the rules analyzed.
+     * @param rule2 Another rule, reachable from the rules analyzed.
+     *
+     * @return <code>true</code> if the rules are proven to
+     *      be exclusive, <code>false</code> otherwise.
+     */
+    public boolean isExclusive(Rule rule1, Rule rule2) {
+        if (! this.first.containsKey(rule1) || ! this.first.containsKey(rule2)
+                || isNullable(rule1) || isNullable(rule2) || commits(rule1) || commits(rule2))
+        {
+            return false;
+        }
+        String literal1 = literal(rule1, new HashSet<>());
+        String literal2 = literal(rule2, new HashSet<>());
+        if (literal1 != null && literal2 != null) {
+            return ! literal1.startsWith(literal2) && ! literal2.startsWith(literal1);
+        }
+        CharRange chars1 = firstChars(rule1);
+        CharRange chars2 = firstChars(rule2);
+        if (chars1 == null || chars2 == null) {
+            return false;
+        }
+        List<BoundRange> intervals = chars1.asIntervals().collect(Collectors.toList());
+        return intervals.equals(chars1.except(chars2).asIntervals().collect(Collectors.toList()));
+    }
+
+    // whether a rule, or a rule reachable from it, cuts the input
+    static boolean commits(Rule rule) {
+        Set<Rule> all = new LinkedHashSet<>();
+        all.add(rule);
+        rule.accept(new Traverse() {
+            @Override
+            public void accept(Rule r) {
+                all.add(r);
+            }
+        });
+        return all.stream().anyMatch(r -> r instanceof Cut || commits(r.parser));
+    }
+
+    // whether a parser, or the parser wrapped by it, commits
+    @SuppressWarnings("rawtypes")
+    static boolean commits(Parser parser) {
+        if (parser instanceof Parser.Commit) {
+            return true;
+        } else if (parser instanceof Parser.Skip) {
+            return commits(((Parser.Skip) parser).getParser());
+        } else if (parser instanceof Parser.Drop) {
+            return commits(((Parser.Drop) parser).getParser());
+        } else {
+            return false;
+        }
+    }
+
+    // the characters that can start a rule, or null if unknown
+    CharRange firstChars(Rule rule) {
+        CharRange chars = CharRange.EMPTY;
+        for (Token token : getFirst(rule)) {
+            Token terminal = terminal(token);
+            if (terminal instanceof CharToken) {
+                chars = chars.union(((CharToken) terminal).getCharRange());
+            } else if (terminal instanceof StringToken && ((StringToken) terminal).isEqual()
+                    && ! ((StringToken) terminal).getString().isEmpty())
+            {
+                chars = chars.union(CharRange.is(((StringToken) terminal).getString().codePointAt(0)));
+            } else {
+                return null;
+            }
+        }
+        return chars;
+    }
+
+}
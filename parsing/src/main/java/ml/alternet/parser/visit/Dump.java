@@ -3,6 +3,7 @@ package ml.alternet.parser.visit;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import ml.alternet.parser.Grammar;
@@ -123,6 +124,7 @@ public class Dump extends Traverse implements Visitor, Supplier<StringBuffer> {
 
     boolean withHash = true;
     boolean withClass = true;
+    Function<Rule, String> info;
 
     StringBuffer buf = new StringBuffer();
 
@@ -186,6 +188,20 @@ public class Dump extends Traverse implements Visitor, Supplier<StringBuffer> {
         return this;
     }
 
+    /**
+     * Configure this dump :
+     * display some information in a column before each rule.
+     *
+     * @param info Supply the information of a rule, all the
+     *      strings supplied must have the same width.
+     *
+     * @return {@code this}, for chaining
+     */
+    public Dump withInfo(Function<Rule, String> info) {
+        this.info = info;
+        return this;
+    }
+
     /**
      * Configure this dump by setting a set of rules
      * considered to be already visited.
@@ -298,6 +314,9 @@ public class Dump extends Traverse implements Visitor, Supplier<StringBuffer> {
             }
             buf.append(cl).append(" ┊ ");
         }
+        if (this.info != null) {
+            buf.append(this.info.apply(rule)).append(" ┊ ");
+        }
         buf.append(prefix)
             .append(isTop ? "" : isTail ? "┗━━ " : "┣━━ ")
             .append(rule.isGrammarField() ? rule.getName() : rule.toPrettyString().toString());
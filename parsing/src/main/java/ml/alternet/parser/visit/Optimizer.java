@@ -0,0 +1,494 @@
+package ml.alternet.parser.visit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import ml.alternet.misc.CharRange.BoundRange;
+import ml.alternet.parser.Grammar.AtLeast;
+import ml.alternet.parser.Grammar.Bounds;
+import ml.alternet.parser.Grammar.CharToken;
+import ml.alternet.parser.Grammar.Choice;
+import ml.alternet.parser.Grammar.DropToken;
+import ml.alternet.parser.Grammar.EnumToken;
+import ml.alternet.parser.Grammar.Optional;
+import ml.alternet.parser.Grammar.Proxy;
+import ml.alternet.parser.Grammar.Repeatable;
+import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Grammar.Sequence;
+import ml.alternet.parser.Grammar.StringToken;
+import ml.alternet.parser.Grammar.Token;
+import ml.alternet.parser.Grammar.TypedToken;
+import ml.alternet.parser.Grammar.ZeroOrMore;
+import ml.alternet.parser.visit.TraversableRule.CombinedRule;
+import ml.alternet.parser.visit.TraversableRule.SimpleRule;
+
+/**
+ * Optimization passes applied on the rules of a grammar, after
+ * flattening.
+ *
+ * <ol>
+ * <li>Nested repeatable rules are collapsed : <code>(X+)*</code>
+ * becomes <code>X*</code>.</li>
+ * <li>Sequences of single-char tokens are fused to a string token,
+ * when the token values are concatenated anyway (typed tokens such
+ * as <code>asToken()</code> or <code>asNumber()</code>) or dropped :
+ * <code>'a' 'b' 'c'</code> becomes <code>'abc'</code>.</li>
+ * <li>Choices of string tokens are merged to a single enum token,
+ * which is backed by a trie, provided that the longest match
+ * of the enum token is what the ordered choice would match :
+ * <code>'abc' | 'abd' | 'b'</code> is merged, whereas <code>'a' | 'ab'</code>
+ * is not.</li>
+ * <li>The common prefixes of alternatives are factored : <code>( A B | A C )</code>
+ * becomes <code>A ( B | C )</code>, provided that the rest of each alternative
+ * can't match an empty input.</li>
+ * </ol>
+ *
+ * A named rule (a grammar field) is never replaced, and the passes
+ * don't enter the named rules other than the one optimized : they
+ * are optimized on their own, and they are subject to substitutions
+ * when a grammar is extended. For the same reason, a named rule
+ * which is not a token is not considered to be unable to match
+ * an empty input, since its substitution may.
+ *
+ * @author Philippe Poulard
+ */
+public class Optimizer {
+
+    private Optimizer() { }
+
+    /**
+     * Optimize a rule.
+     *
+     * @param rule The rule to optimize, typically a grammar field.
+     * @param dropped <code>true</code> if the rule doesn't
+     *      transmit its tokens to the event handler.
+     */
+    public static void optimize(Rule rule, boolean dropped) {
+        rule.accept(new RepeatableCollapse(rule));
+        rule.accept(new CharSequenceFusion(rule, dropped));
+        rule.accept(new LiteralMerge(rule));
+        rule.accept(new PrefixFactoring(rule));
+    }
+
+    /**
+     * Base class of the passes, that doesn't enter named
+     * rules other than the root.
+     *
+     * @author Philippe Poulard
+     */
+    abstract static class Pass extends Transform {
+
+        Rule root;
+
+        Pass(Rule root) {
+            this.root = root;
+        }
+
+        boolean isForeign(Object rule) {
+            return rule != this.root && ((Rule) rule).isGrammarField();
+        }
+
+        @Override
+        public void visit(CombinedRule combinedRule) {
+            if (! isForeign(combinedRule)) {
+                super.visit(combinedRule);
+            }
+        }
+
+        @Override
+        public void visit(SimpleRule simpleRule) {
+            if (! isForeign(simpleRule)) {
+                super.visit(simpleRule);
+            }
+        }
+
+        @Override
+        public Rule apply(Rule rule) {
+            return rule;
+        }
+
+    }
+
+    /**
+     * Collapse <code>(X?)?</code> to <code>X?</code>,
+     * <code>(X?)*</code>, <code>(X+)?</code>, <code>(X*)*</code>... to <code>X*</code>,
+     * and <code>(X?)+</code>, <code>(X*)+</code>, <code>(X+)+</code> to <code>X+</code>.
+     *
+     * @author Philippe Poulard
+     */
+    static class RepeatableCollapse extends Pass {
+
+        RepeatableCollapse(Rule root) {
+            super(root);
+        }
+
+        // '?', '*', '+', or 0 for other repeatable rules
+        static char kind(Rule rule) {
+            if (rule.getClass() == Optional.class) {
+                return '?';
+            } else if (rule.getClass() == ZeroOrMore.class) {
+                return '*';
+            } else if (rule.getClass() == AtLeast.class && ((AtLeast) rule).getMinimal() == 1) {
+                return '+';
+            } else {
+                return 0;
+            }
+        }
+
+        static char collapse(char outer, char inner) {
+            if (outer == '*' || outer == '+') {
+                return outer;
+            } else { // '?'
+                return inner == '?' ? '?' : '*';
+            }
+        }
+
+        // the nested repeatable that can be collapsed, or null
+        static Repeatable nested(Rule rule) {
+            if (kind(rule) != 0) {
+                Rule nested = ((Repeatable) rule).getComponent();
+                if (! nested.isGrammarField() && kind(nested) != 0) {
+                    return (Repeatable) nested;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void visit(SimpleRule simpleRule) {
+            if (! isForeign(simpleRule)) {
+                // collapse in place when the kind is unchanged
+                Rule rule = (Rule) simpleRule;
+                Repeatable nested;
+                while ((nested = nested(rule)) != null
+                        && collapse(kind(rule), kind(nested)) == kind(rule))
+                {
+                    simpleRule.setComponent(nested.getComponent());
+                }
+            }
+            super.visit(simpleRule);
+        }
+
+        @Override
+        public Rule apply(Rule rule) {
+            Repeatable nested;
+            while (! rule.isGrammarField() && (nested = nested(rule)) != null) {
+                char kind = collapse(kind(rule), kind(nested));
+                Rule component = nested.getComponent();
+                rule = kind == '?' ? component.optional()
+                     : kind == '*' ? component.zeroOrMore()
+                                   : component.oneOrMore();
+            }
+            return rule;
+        }
+
+    }
+
+    /**
+     * Fuse sequences of single-char tokens to string tokens,
+     * when the token values are concatenated or dropped.
+     *
+     * @author Philippe Poulard
+     */
+    static class CharSequenceFusion extends Pass {
+
+        // > 0 when the token values are concatenated or dropped
+        int textDepth;
+
+        CharSequenceFusion(Rule root, boolean dropped) {
+            super(root);
+            this.textDepth = dropped ? 1 : 0;
+        }
+
+        static boolean isText(Object rule) {
+            return rule instanceof DropToken
+                || rule instanceof TypedToken.String
+                || rule instanceof TypedToken.Number
+                || rule instanceof TypedToken.TypedNumber;
+        }
+
+        // the single char of an unnamed char token, or -1
+        static int singleChar(Rule rule) {
+            if (rule instanceof CharToken.Single && ! rule.isGrammarField()) {
+                List<BoundRange> intervals = ((CharToken) rule).getCharRange().asIntervals()
+                    .limit(2)
+                    .collect(Collectors.toList());
+                if (intervals.size() == 1 && intervals.get(0).start() == intervals.get(0).end()) {
+                    return intervals.get(0).start();
+                }
+            }
+            return -1;
+        }
+
+        // the fused rules, or null if unchanged
+        static List<Rule> fuse(List<Rule> rules) {
+            List<Rule> fused = new ArrayList<>(rules.size());
+            StringBuilder buf = new StringBuilder();
+            int count = 0;
+            boolean changed = false;
+            for (Rule rule : rules) {
+                int c = singleChar(rule);
+                if (c == -1) {
+                    changed |= flush(fused, buf, count, rules);
+                    count = 0;
+                    fused.add(rule);
+                } else {
+                    buf.appendCodePoint(c);
+                    count++;
+                }
+            }
+            changed |= flush(fused, buf, count, rules);
+            return changed ? fused : null;
+        }
+
+        static boolean flush(List<Rule> fused, StringBuilder buf, int count, List<Rule> rules) {
+            boolean changed = false;
+            if (count == 1) {
+                // keep the char token as-is
+                fused.add(rules.get(fused.size()));
+            } else if (count > 1) {
+                fused.add(new StringToken(buf.toString(), true));
+                changed = true;
+            }
+            buf.setLength(0);
+            return changed;
+        }
+
+        @Override
+        public void visit(CombinedRule combinedRule) {
+            if (combinedRule == this.root && this.textDepth > 0 && combinedRule instanceof Sequence) {
+                List<Rule> fused = fuse(combinedRule.getComponent());
+                if (fused != null) {
+                    combinedRule.setComponent(fused);
+                }
+            }
+            super.visit(combinedRule);
+        }
+
+        @Override
+        public void visit(SimpleRule simpleRule) {
+            boolean text = ! isForeign(simpleRule) && isText(simpleRule);
+            if (text) {
+                this.textDepth++;
+            }
+            super.visit(simpleRule);
+            if (text) {
+                this.textDepth--;
+            }
+        }
+
+        @Override
+        public Rule apply(Rule rule) {
+            if (this.textDepth > 0 && rule instanceof Sequence && ! rule.isGrammarField()) {
+                // don't modify the rule in place : it may be shared
+                List<Rule> fused = fuse(((Sequence) rule).getComponent());
+                if (fused != null) {
+                    return fused.size() == 1
+                        ? fused.get(0)
+                        : new Sequence(fused.stream());
+                }
+            }
+            return rule;
+        }
+
+    }
+
+    /**
+     * Merge consecutive string tokens of a choice to a single enum token.
+     *
+     * @author Philippe Poulard
+     */
+    static class LiteralMerge extends Pass {
+
+        LiteralMerge(Rule root) {
+            super(root);
+        }
+
+        static boolean isLiteral(Rule rule) {
+            return rule instanceof StringToken && ! rule.isGrammarField()
+                && ((StringToken) rule).isEqual() && ! ((StringToken) rule).getString().isEmpty();
+        }
+
+        // the merged rules, or null if unchanged
+        static List<Rule> merge(List<Rule> rules) {
+            List<Rule> merged = new ArrayList<>(rules.size());
+            boolean changed = false;
+            int i = 0;
+            while (i < rules.size()) {
+                // the longest run of literals that can be merged
+                Set<String> run = new LinkedHashSet<>();
+                int j = i;
+                while (j < rules.size() && isLiteral(rules.get(j))
+                        && canAppend(run, ((StringToken) rules.get(j)).getString()))
+                {
+                    run.add(((StringToken) rules.get(j)).getString());
+                    j++;
+                }
+                if (j - i > 1 && run.size() > 1) {
+                    merged.add(new EnumToken<String>(run.toArray(new String[run.size()])));
+                    changed = true;
+                    i = j;
+                } else {
+                    merged.add(rules.get(i++));
+                }
+            }
+            return changed ? merged : null;
+        }
+
+        // the ordered choice and the longest match are the same
+        // if a previous string is not a proper prefix of the next one
+        static boolean canAppend(Set<String> run, String next) {
+            return run.stream().noneMatch(s -> next.startsWith(s) && ! next.equals(s));
+        }
+
+        static void merge(Choice choice) {
+            List<Rule> merged = merge(choice.getComponent());
+            if (merged != null) {
+                choice.setComponent(merged);
+            }
+        }
+
+        @Override
+        public void visit(CombinedRule combinedRule) {
+            if (combinedRule == this.root && combinedRule instanceof Choice) {
+                merge((Choice) combinedRule);
+            }
+            super.visit(combinedRule);
+        }
+
+        @Override
+        public Rule apply(Rule rule) {
+            if (rule instanceof Choice && ! rule.isGrammarField()) {
+                merge((Choice) rule);
+                return ((Choice) rule).simplify().orElse(rule);
+            }
+            return rule;
+        }
+
+    }
+
+    /**
+     * Factor the common prefixes of consecutive alternatives of a choice.
+     *
+     * @author Philippe Poulard
+     */
+    static class PrefixFactoring extends Pass {
+
+        PrefixFactoring(Rule root) {
+            super(root);
+        }
+
+        // the rules of an alternative
+        static List<Rule> items(Rule rule) {
+            if (rule instanceof Sequence && ! rule.isGrammarField()) {
+                return ((Sequence) rule).getComponent();
+            } else {
+                List<Rule> items = new ArrayList<>(1);
+                items.add(rule);
+                return items;
+            }
+        }
+
+        // the rule can't return an empty match
+        static boolean isMandatory(Rule rule, Set<Rule> traversed) {
+            if (rule instanceof Token) {
+                return true;
+            } else if (rule.isGrammarField() || ! traversed.add(rule)) {
+                return false; // may be substituted, or in a loop
+            } else if (rule instanceof Choice) {
+                return true;
+            } else if (rule.getClass() == AtLeast.class) {
+                return true;
+            } else if (rule instanceof Bounds) {
+                return ((Bounds) rule).getMinimal() > 0;
+            } else if (rule instanceof Sequence) {
+                return ((Sequence) rule).getComponents().anyMatch(r -> isMandatory(r, traversed));
+            } else if (rule instanceof Proxy) {
+                Rule proxied = ((Proxy) rule).unwrap();
+                return proxied != null && isMandatory(proxied, traversed);
+            } else {
+                return false;
+            }
+        }
+
+        static int commonPrefix(List<Rule> items1, List<Rule> items2) {
+            int max = Math.min(items1.size(), items2.size());
+            int i = 0;
+            while (i < max && items1.get(i) == items2.get(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        static Rule of(List<Rule> items) {
+            return items.size() == 1 ? items.get(0) : new Sequence(items.stream());
+        }
+
+        // the factored rules, or null if unchanged
+        static List<Rule> factor(List<Rule> rules) {
+            List<Rule> factored = new ArrayList<>(rules.size());
+            boolean changed = false;
+            int i = 0;
+            while (i < rules.size()) {
+                List<Rule> first = items(rules.get(i));
+                int prefix = first.size();
+                int j = i + 1;
+                // consecutive alternatives that start with the same rule
+                for ( ; j < rules.size(); j++) {
+                    int common = commonPrefix(first, items(rules.get(j)));
+                    if (common == 0) {
+                        break;
+                    }
+                    prefix = Math.min(prefix, common);
+                }
+                int p = prefix;
+                if (j - i > 1 && rules.subList(i, j).stream()
+                        .map(Optimizer.PrefixFactoring::items)
+                        .allMatch(items -> items.size() > p
+                            && isMandatory(of(items.subList(p, items.size())), new HashSet<>())))
+                {
+                    List<Rule> sequence = new ArrayList<>(first.subList(0, prefix));
+                    sequence.add(new Choice(rules.subList(i, j).stream()
+                        .map(Optimizer.PrefixFactoring::items)
+                        .map(items -> of(new ArrayList<>(items.subList(p, items.size()))))));
+                    factored.add(new Sequence(sequence.stream()));
+                    changed = true;
+                    i = j;
+                } else {
+                    factored.add(rules.get(i++));
+                }
+            }
+            return changed ? factored : null;
+        }
+
+        static void factor(Choice choice) {
+            List<Rule> factored = factor(choice.getComponent());
+            if (factored != null) {
+                choice.setComponent(factored);
+            }
+        }
+
+        @Override
+        public void visit(CombinedRule combinedRule) {
+            if (combinedRule == this.root && combinedRule instanceof Choice) {
+                factor((Choice) combinedRule);
+            }
+            super.visit(combinedRule);
+        }
+
+        @Override
+        public Rule apply(Rule rule) {
+            if (rule instanceof Choice && ! rule.isGrammarField()) {
+                factor((Choice) rule);
+                return ((Choice) rule).simplify().orElse(rule);
+            }
+            return rule;
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+package ml.alternet.parser.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.util.ParseSession.Backtracks;
+import ml.alternet.scan.TrackableScanner;
+import ml.alternet.util.JfrUtil;
+
+/**
+ * The JFR event of a parsing.
+ *
+ * <p>This class is compiled only with a JDK that contains JFR.</p>
+ *
+ * @see ParseSession
+ *
+ * @author Philippe Poulard
+ */
+@Name("ml.alternet.parser.ParseSession")
+@Label("Parse Session")
+@Description("The parsing of an input with a rule of a grammar")
+@Category({ JfrUtil.CATEGORY, "Parsing" })
+@StackTrace(false)
+class ParseSessionEvent extends jdk.jfr.Event implements ParseSession.Recording {
+
+    @Label("Grammar")
+    String grammar;
+
+    @Label("Main Rule")
+    String mainRule;
+
+    @Label("Input Length")
+    @Description("The number of characters consumed, or -1 if the scanner is not trackable")
+    long inputLength;
+
+    @Label("Backtracks")
+    @Description("The number of times the parser went back in the input")
+    long backtracks;
+
+    @Label("Outcome")
+    @Description("SUCCESS, EMPTY, FAIL, or the class of the exception thrown")
+    String outcome;
+
+    transient long offset;
+    transient Backtracks watcher;
+
+    @Override
+    public boolean open(ParseSession session) {
+        if (! isEnabled()) {
+            return false;
+        }
+        if (session.scanner instanceof TrackableScanner) {
+            this.offset = ((TrackableScanner) session.scanner).getOffset();
+        } else {
+            this.offset = -1;
+        }
+        begin();
+        return true;
+    }
+
+    @Override
+    public Handler watch(Handler handler) {
+        this.watcher = new Backtracks(handler);
+        return this.watcher;
+    }
+
+    @Override
+    public void stop(ParseSession session, Throwable error) {
+        end();
+        if (shouldCommit()) {
+            String name = session.grammar.getClass().getName();
+            // the generated grammar class is named after its interface
+            this.grammar = name.endsWith("$") ? name.substring(0, name.length() - 1) : name;
+            this.mainRule = session.rule.getName();
+            this.inputLength = this.offset == -1 ? -1
+                : ((TrackableScanner) session.scanner).getOffset() - this.offset;
+            this.backtracks = this.watcher.count;
+            this.outcome = error == null ? session.match.name() : error.getClass().getName();
+            commit();
+        }
+    }
+
+}
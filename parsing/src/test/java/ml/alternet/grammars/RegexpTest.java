@@ -2,6 +2,8 @@ package ml.alternet.grammars;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static ml.alternet.parser.Grammar.$;
 
 import java.io.IOException;
 import java.util.List;
@@ -9,18 +11,94 @@ import java.util.List;
 import org.testng.annotations.Test;
 
 import ml.alternet.parser.Grammar;
+import ml.alternet.parser.util.Dfa;
+import ml.alternet.scan.Scanner;
 import ml.alternet.parser.Grammar.Rule;
+import ml.alternet.parser.Grammar.Token;
 import ml.alternet.parser.tests.GrammarTestBase;
 
 public class RegexpTest extends GrammarTestBase {
 
-    @Test(enabled=false)
+    public interface Regexps extends Grammar {
+
+        Token XC_OR_YC = Grammar.regex("Xc|Yc");
+        Token IDENTIFIER = Grammar.regex("[a-zA-Z_]\\w*");
+        Token HEX = Grammar.regex("0x[0-9a-fA-F]{1,4}");
+        Token REPEATED = Grammar.regex("a(bc)*");
+        Token NOT_DIGITS = Grammar.regex("[^0-9]+");
+
+        Rule Words = IDENTIFIER.seq(Grammar.is(' ').drop(), IDENTIFIER);
+
+        Regexps $ = $();
+
+    }
+
+    @Test
     public void simpleRegexp_Should_consumeCharacters() throws IOException {
-//        Rule rule = Grammar.matches("Xc|Yc");
-//
-//        List<String> res = parseToAcc("Xc", Grammar.class, rule);
-//        assertThat(res).contains("Token:Xc");
+        List<String> res = parseToAcc("Xc", Regexps.class, Regexps.XC_OR_YC);
+        assertThat(res).containsExactly("String:Xc");
+
+        res = parseToAcc("Yc", Regexps.class, Regexps.XC_OR_YC);
+        assertThat(res).containsExactly("String:Yc");
+
+        res = parseToAcc("Zc", Regexps.class, Regexps.XC_OR_YC);
+        assertThat(res).isEmpty();
+    }
+
+    @Test
+    public void regexp_Should_matchTheLongestInput() throws IOException {
+        List<String> res = parseToAcc("foo_12 bar", Regexps.class, Regexps.Words);
+        assertThat(res).containsExactly("String:foo_12", "String:bar");
+
+        res = parseToAcc("0x1f2e3d", Regexps.class, Regexps.HEX);
+        assertThat(res).containsExactly("String:0x1f2e");
+
+        res = parseToAcc("é&!9", Regexps.class, Regexps.NOT_DIGITS);
+        assertThat(res).containsExactly("String:é&!");
+    }
+
+    @Test
+    public void regexp_Should_rewindToTheLongestMatch() throws IOException {
+        List<String> res = parseToAcc("abcbcb", Regexps.class, Regexps.REPEATED);
+        assertThat(res).containsExactly("String:abcbc");
+    }
+
+    @Test
+    public void malformedRegexp_Should_fail() {
+        for (String regex : new String[] { "(a", "a)", "[a-", "*a", "a{2,1}", "\\q" }) {
+            try {
+                Grammar.regex(regex);
+                fail("Regex \"" + regex + "\" should be malformed");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).contains(regex);
+            }
+        }
+    }
+
+    boolean matches(String regex, String input) throws IOException {
+        Scanner scanner = Scanner.of(input);
+        return new Dfa(regex).match(scanner, new StringBuilder()) && ! scanner.hasNext();
+    }
+
+    @Test
+    public void regexpGrammar_Should_parseTheSyntax() throws IOException {
+        for (String regex : new String[] { "", "a|", "(?:a|b)+c?", "[]a-c^-]", "[^\\]]", "x{2}y{1,}z{0,3}", "\\u00e9\\." }) {
+            assertThat(new RegexpBuilder().parse(regex, true).isPresent()).isTrue();
+        }
+        for (String regex : new String[] { "a{2", "(?=a)", "[]", "\\uZZ", "a**(" }) {
+            assertThat(new RegexpBuilder().parse(regex, true).isPresent()).isFalse();
+        }
+    }
 
+    @Test
+    public void regexpGrammar_Should_buildTheAutomaton() throws IOException {
+        assertThat(matches("(?:a|b)+c?", "abbac")).isTrue();
+        assertThat(matches("[]a-c^-]+", "]b^-")).isTrue();
+        assertThat(matches("[^\\]]", "]")).isFalse();
+        assertThat(matches("x{2}y{1,}z{0,3}", "xxyyyzzz")).isTrue();
+        assertThat(matches("x{2}y{1,}z{0,3}", "xyz")).isFalse();
+        assertThat(matches("\\u00e9\\.\\d\\s", "é.7 ")).isTrue();
+        assertThat(matches("a|", "a")).isTrue();
     }
 
 }
@@ -5,7 +5,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.testng.annotations.Test;
 
@@ -15,6 +17,7 @@ import ml.alternet.parser.Grammar.Rule;
 import ml.alternet.parser.Grammar.ZeroOrMore;
 import ml.alternet.parser.handlers.HandlerAccumulator;
 import ml.alternet.parser.EventsHandler;
+import ml.alternet.parser.EventsHandler.TokenValue;
 import ml.alternet.scan.Scanner;
 
 public class CalcTest {
@@ -86,6 +89,33 @@ public class CalcTest {
         assertThat(res).containsExactly("Function:sin", "String:(", "String:x", "String:)");
     }
 
+    @Test
+    public void calcGrammarTokens_Should_bePulled() throws IOException {
+        List<String> res = Calc.$.tokens(Scanner.of("sin(x)*(1+var_12)"))
+            .map(value -> value.getType().getSimpleName() + ":" + value.getValue())
+            .collect(Collectors.toList());
+        assertThat(res).containsExactly("Function:sin", "String:(", "String:x", "String:)", "Multiplicative:*",
+                                "String:(", "Number:1", "Additive:+", "String:var_12", "String:)");
+    }
+
+    @Test
+    public void calcGrammarTokens_Should_stopOnShortCircuit() throws IOException {
+        Scanner scanner = Scanner.of("sin(x)*(1+var_12)");
+        assertThat(Calc.$.tokens(scanner).limit(2).count()).isEqualTo(2);
+        assertThat(scanner.getRemainderString().get()).isEqualTo("x)*(1+var_12)");
+    }
+
+    @Test
+    public void calcGrammarTokens_Should_stopOnUnknownToken() throws IOException {
+        Scanner scanner = Scanner.of("1+x ?");
+        Iterator<TokenValue<?>> tokens = Calc.$.tokenIterator(scanner);
+        assertThat(tokens.next().toString()).isEqualTo("1");
+        assertThat(tokens.next().toString()).isEqualTo("+");
+        assertThat(tokens.next().toString()).isEqualTo("x");
+        assertThat(tokens.hasNext()).isFalse();
+        assertThat(scanner.getRemainderString().get()).isEqualTo(" ?");
+    }
+
     @Test
     public void calcGrammar_Should_consumeMult() throws IOException {
         List<String> res = parseToAcc("*", Calc.class, Calc.$.tokenizer());
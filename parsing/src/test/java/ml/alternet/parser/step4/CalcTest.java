@@ -4,13 +4,22 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import ml.alternet.parser.Grammar;
+import ml.alternet.parser.ast.Builder;
+import ml.alternet.parser.util.Batch;
+import ml.alternet.scan.Scanner;
 
 public class CalcTest {
 
@@ -38,6 +47,80 @@ public class CalcTest {
         assertThat(res).isEqualTo(expected);
     }
 
+    @Test
+    public void calcExpressions_CanBe_streamed() throws IOException {
+        Map<String, Number> variables = new HashMap<>();
+        List<Double> res = new ExpressionBuilder().parseAll(Scanner.of("1 + 20 ; 2*3;(1+1)*4"), Grammar.is(';'))
+            .map(exp -> exp.eval(variables).doubleValue())
+            .collect(Collectors.toList());
+        assertThat(res).containsExactly(21d, 6d, 8d);
+    }
+
+    @Test
+    public void calcExpressions_CanBe_streamedInParallel() throws IOException {
+        Map<String, Number> variables = new HashMap<>();
+        String input = IntStream.range(0, 1000)
+            .mapToObj(i -> i + "*2")
+            .collect(Collectors.joining("\n"));
+        List<Double> res = Builder.parseAll(Scanner.of(input), Grammar.is('\n'), ExpressionBuilder::new)
+            .parallel()
+            .map(exp -> exp.eval(variables).doubleValue())
+            .collect(Collectors.toList());
+        assertThat(res).hasSize(1000);
+        assertThat(res.get(0)).isEqualTo(0d);
+        assertThat(res.get(999)).isEqualTo(1998d);
+    }
+
+    @Test
+    public void blankLines_Should_beSkippedWhenStreamedInParallel() throws IOException {
+        Map<String, Number> variables = new HashMap<>();
+        List<Double> res = Builder.parseAll(Scanner.of("\n1\n\n2*3\n\n"), Grammar.is('\n'), ExpressionBuilder::new)
+            .parallel()
+            .map(exp -> exp.eval(variables).doubleValue())
+            .collect(Collectors.toList());
+        assertThat(res).containsExactly(1d, 6d);
+        res = Builder.parseAll(Scanner.of("1\r\n\r\n2*3"), Grammar.is("\r\n"), ExpressionBuilder::new)
+            .map(exp -> exp.eval(variables).doubleValue())
+            .collect(Collectors.toList());
+        assertThat(res).containsExactly(1d, 6d);
+    }
+
+    @Test
+    public void calcExpressions_CanBe_parsedInBatch() throws IOException {
+        Map<String, Number> variables = new HashMap<>();
+        List<Batch.Result<NumericExpression>> res = Calc.$.parseAll(
+                IntStream.range(0, 1000).mapToObj(i -> i % 100 == 99 ? i + "*" : i + "*2"),
+                ExpressionBuilder::new, ForkJoinPool.commonPool())
+            .collect(Collectors.toList());
+        assertThat(res).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            Batch.Result<NumericExpression> r = res.get(i);
+            assertThat(r.getIndex()).isEqualTo(i);
+            if (i % 100 == 99) {
+                assertThat(r.isMatched()).isFalse();
+                assertThat(r.getValue().isPresent()).isFalse();
+            } else {
+                assertThat(r.isMatched()).isTrue();
+                assertThat(r.getValue().get().eval(variables).doubleValue()).isEqualTo(i * 2d);
+            }
+        }
+    }
+
+    @Test
+    public void calcExpressions_CanBe_parsedInBatchUnordered() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Map<String, Number> variables = new HashMap<>();
+            double sum = Calc.$.parseAll(IntStream.range(0, 1000).mapToObj(i -> i + "+1"),
+                    ExpressionBuilder::new, executor, false)
+                .mapToDouble(r -> r.getValue().get().eval(variables).doubleValue())
+                .sum();
+            assertThat(sum).isEqualTo(1000 * 1001 / 2d);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @DataProvider(name = "expressions")
     public static Object[][] createData() {
         Object[][] data = {
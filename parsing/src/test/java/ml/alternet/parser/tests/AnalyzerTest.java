@@ -0,0 +1,118 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.visit.Analyzer;
+import ml.alternet.parser.visit.Analyzer.Hazard;
+
+/**
+ * Allow to test the static analyzer.
+ *
+ * The analyzer MUST report the rules that loop forever,
+ * and the rules that backtrack uselessly.
+ *
+ * @see Analyzer
+ */
+public class AnalyzerTest {
+
+    public interface Hazardous extends Grammar {
+
+        Token PLUS = is('+');
+        Token NUM = range('0', '9');
+        Token A = is('a');
+        Token B = is('b');
+
+        // Expr ::= Expr '+' NUM | NUM
+        Rule Expr = $self.seq(PLUS, NUM).or(NUM);
+
+        Rule Loop = is("").zeroOrMore();
+
+        Rule Greedy = A.zeroOrMore().seq(A);
+
+        Rule Prefixed = is('a').or(is("ab"));
+
+        Rule Overlap = A.seq(B).or(A);
+
+        @MainRule
+        Rule Fine = A.zeroOrMore().seq(B);
+
+        Hazardous $ = $();
+
+    }
+
+    public interface Committing extends Grammar {
+
+        Token A = is('a');
+        Token B = is('b');
+
+        Rule AB = A.seq(B);
+
+        Rule BA = B.seq(A);
+
+        Rule CutAB = A.seq(cut(), B);
+
+        @Commit
+        Rule CommittedBA = B.seq(A);
+
+        @MainRule
+        Rule Choice = AB.or(BA, CutAB, CommittedBA);
+
+        Committing $ = $();
+
+    }
+
+    @Test
+    public void analyzer_Should_reportLeftRecursion() {
+        Analyzer analyzer = Analyzer.analyze(Hazardous.Expr);
+        Hazard hazard = analyzer.getHazards().get(0);
+        assertThat(hazard.getKind()).isEqualTo(Hazard.Kind.LEFT_RECURSION);
+        assertThat(hazard.getKind().isInfiniteLoop()).isTrue();
+        assertThat(hazard.getRule()).isSameAs(Hazardous.Expr);
+        assertThat(hazard.toString()).contains("Expr");
+    }
+
+    @Test
+    public void analyzer_Should_reportInfiniteRepetition() {
+        assertThat(Analyzer.analyze(Hazardous.Loop).getHazards(Hazard.Kind.INFINITE_REPETITION)).hasSize(1);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void analyzer_Should_failOnInfiniteLoops() {
+        Analyzer.analyze(Hazardous.Expr).failFast();
+    }
+
+    @Test
+    public void analyzer_Should_reportBacktracking() {
+        assertThat(Analyzer.analyze(Hazardous.Greedy).getHazards(Hazard.Kind.GREEDY_REPETITION)).hasSize(1);
+        assertThat(Analyzer.analyze(Hazardous.Prefixed).getHazards(Hazard.Kind.SHADOWED_ALTERNATIVE)).hasSize(1);
+        Analyzer overlap = Analyzer.analyze(Hazardous.Overlap).failFast(); // not an infinite loop
+        assertThat(overlap.getHazards(Hazard.Kind.OVERLAPPING_ALTERNATIVES)).hasSize(1);
+    }
+
+    @Test
+    public void analyzer_Should_computeTheSets() {
+        Analyzer analyzer = Analyzer.analyze(Hazardous.$);
+        assertThat(analyzer.getHazards()).isEmpty();
+        Rule as = ((Sequence) Hazardous.Fine).getComponent().get(0);
+        assertThat(analyzer.isNullable(as)).isTrue();
+        assertThat(analyzer.isNullable(Hazardous.Fine)).isFalse();
+        assertThat(analyzer.getFirst(Hazardous.Fine)).containsOnly(Hazardous.A, Hazardous.B);
+        assertThat(analyzer.getFollow(as)).containsOnly(Hazardous.B);
+        assertThat(analyzer.getFollow(Hazardous.A)).containsOnly(Hazardous.A, Hazardous.B);
+    }
+
+    @Test
+    public void committedAlternatives_ShouldNot_beExclusive() {
+        Analyzer analyzer = Analyzer.analyze(Committing.Choice);
+        assertThat(analyzer.isExclusive(Committing.AB, Committing.BA)).isTrue();
+        // swapping them may change where the parsing fails
+        assertThat(analyzer.isExclusive(Committing.CutAB, Committing.BA)).isFalse();
+        assertThat(analyzer.isExclusive(Committing.BA, Committing.CutAB)).isFalse();
+        assertThat(analyzer.isExclusive(Committing.AB, Committing.CommittedBA)).isFalse();
+    }
+
+}
@@ -0,0 +1,167 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.util.Budget;
+import ml.alternet.parser.util.Budget.Exceeded;
+import ml.alternet.parser.util.Budget.Limit;
+import ml.alternet.parser.util.StackParser;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the budgets.
+ *
+ * A parsing MUST be aborted when it exceeds its budget,
+ * and MUST NOT be affected by a budget large enough.
+ *
+ * @see Budget
+ */
+public class BudgetTest {
+
+    public interface Exponential extends Grammar {
+
+        Token A = is('a');
+        Token B = is('b');
+        Token C = is('c');
+
+        // X ::= 'a' X 'b' | 'a' X 'c' | 'a'
+        @MainRule
+        Rule X = A.seq($self, B).or(A.seq($self, C)).or(A);
+
+        Exponential $ = $();
+
+    }
+
+    public interface Tokenized extends Grammar {
+
+        Token A = is('a');
+        Token B = is('b');
+        Token SEMICOLON = is(';');
+
+        Token WORD = A.or(B).oneOrMore().asToken();
+
+        @Drop
+        Token DROPPED = A.or(B).oneOrMore().asToken();
+
+        @MainRule
+        Rule Main = WORD.seq(SEMICOLON);
+
+        Rule Dropped = DROPPED.seq(SEMICOLON);
+
+        Tokenized $ = $();
+
+    }
+
+    static Exceeded exceed(Budget budget, String input) throws IOException {
+        try {
+            Exponential.$.parse(Scanner.of(input).asTrackable(), Handler.NULL_HANDLER, budget, true);
+        } catch (Exceeded e) {
+            return e;
+        }
+        throw new AssertionError("The budget was not exceeded");
+    }
+
+    static String input(int n) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            buf.append('a');
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void budget_ShouldNot_affectTheParsing() throws IOException {
+        Budget budget = new Budget().maxInvocations(1000).maxDepth(100).maxTime(1, TimeUnit.MINUTES);
+        assertThat(Exponential.$.parse(Scanner.of("aaabb").asTrackable(), Handler.NULL_HANDLER, budget, true))
+            .isTrue();
+    }
+
+    @Test
+    public void budget_Should_limitTheInvocations() throws IOException {
+        Exceeded e = exceed(new Budget().maxInvocations(10_000), input(30));
+        assertThat(e.getLimit()).isEqualTo(Limit.INVOCATIONS);
+        assertThat(e.getMax()).isEqualTo(10_000L);
+        assertThat(e.getPath().get(0)).isSameAs(Exponential.X);
+        assertThat(e.getPosition().isPresent()).isTrue();
+        assertThat(e.getMessage()).contains("INVOCATIONS", "X");
+    }
+
+    @Test
+    public void budget_Should_limitTheDepth() throws IOException {
+        Exceeded e = exceed(new Budget().maxDepth(20), input(30));
+        assertThat(e.getLimit()).isEqualTo(Limit.DEPTH);
+        assertThat(e.getPath()).hasSize(21);
+        // without recursion
+        try {
+            Exponential.$.newSession(Scanner.of(input(30)).asTrackable(), Handler.NULL_HANDLER)
+                .setBudget(new Budget().maxDepth(20))
+                .setStackParser(new StackParser())
+                .parse();
+            throw new AssertionError("The budget was not exceeded");
+        } catch (Exceeded ex) {
+            assertThat(ex.getLimit()).isEqualTo(Limit.DEPTH);
+            assertThat(ex.getPath()).isEqualTo(e.getPath());
+        }
+    }
+
+    @Test
+    public void budget_Should_limitTheBacktracking() throws IOException {
+        assertThat(exceed(new Budget().maxBacktrack(1000), input(30)).getLimit()).isEqualTo(Limit.BACKTRACK);
+    }
+
+    @Test
+    public void budget_Should_limitTheTime() throws IOException {
+        assertThat(exceed(new Budget().maxTime(0, TimeUnit.SECONDS), input(30)).getLimit()).isEqualTo(Limit.TIME);
+    }
+
+    static String words(int n) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            buf.append(i % 3 == 0 ? 'b' : 'a');
+        }
+        return buf.append(';').toString();
+    }
+
+    @Test
+    public void budget_Should_limitTheRulesWithinTheTokens() throws IOException {
+        Budget budget = new Budget().maxInvocations(50).maxDepth(5);
+        assertThat(Tokenized.$.parse(Scanner.of("abba;").asTrackable(), Handler.NULL_HANDLER, budget, true))
+            .isTrue();
+        for (Rule rule : new Rule[] { Tokenized.Main, Tokenized.Dropped }) {
+            try {
+                Tokenized.$.newSession(Scanner.of(words(100_000)).asTrackable(), Handler.NULL_HANDLER, rule)
+                    .setBudget(budget)
+                    .parse();
+                throw new AssertionError("The budget was not exceeded with " + rule);
+            } catch (Exceeded e) {
+                assertThat(e.getLimit()).isEqualTo(Limit.INVOCATIONS);
+                assertThat(e.getPath().get(0)).isSameAs(rule);
+                // within the token
+                assertThat(e.getPath().size()).isGreaterThan(2);
+            }
+        }
+        try {
+            Tokenized.$.parse(Scanner.of(words(100)), Handler.NULL_HANDLER, new Budget().maxDepth(3), true);
+            throw new AssertionError("The budget was not exceeded");
+        } catch (Exceeded e) {
+            assertThat(e.getLimit()).isEqualTo(Limit.DEPTH);
+        }
+    }
+
+    @Test
+    public void budget_Should_matchAll() throws IOException {
+        Budget budget = new Budget().maxInvocations(1000);
+        assertThat(Exponential.$.parse(Scanner.of("ab"), Handler.NULL_HANDLER, budget, false)).isTrue();
+        assertThat(Exponential.$.parse(Scanner.of("ab"), Handler.NULL_HANDLER, budget, true)).isFalse();
+        assertThat(Exponential.$.parse(Scanner.of("aab"), Handler.NULL_HANDLER, budget, true)).isTrue();
+    }
+
+}
@@ -0,0 +1,67 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.ast.CachingBuilder;
+import ml.alternet.parser.step4.ExpressionBuilder;
+import ml.alternet.parser.step4.NumericExpression;
+
+/**
+ * Allow to test the caching builder.
+ *
+ * The caching builder MUST return the same value for the
+ * same input, and MUST NOT exceed its bound.
+ *
+ * @see CachingBuilder
+ */
+public class CachingBuilderTest {
+
+    @Test
+    public void cachingBuilder_Should_returnTheSameValue() throws IOException {
+        CachingBuilder<NumericExpression> builder = new CachingBuilder<>(new ExpressionBuilder(), 10, exp -> true);
+        NumericExpression exp = builder.parse("sin( x )* (1 + 3)", true).get();
+        assertThat(builder.parse("sin( x )* (1 + 3)", true).get()).isSameAs(exp);
+        assertThat(builder.get()).isSameAs(exp);
+        assertThat(builder.parse("2 * 3", true).get()).isNotSameAs(exp);
+        assertThat(builder.parse(") 3", true).isPresent()).isFalse();
+        assertThat(builder.parse(") 3", true).isPresent()).isFalse();
+
+        Map<String, Number> variables = new HashMap<>();
+        assertThat(builder.parse("2 * 3", true).get().eval(variables)).isEqualTo(6);
+        assertThat(builder.getHits()).isEqualTo(3);
+        assertThat(builder.getMisses()).isEqualTo(3);
+        assertThat(builder.getSize()).isEqualTo(3);
+    }
+
+    @Test
+    public void cachingBuilder_Should_evictTheLeastRecentlyUsed() throws IOException {
+        CachingBuilder<NumericExpression> builder = new CachingBuilder<>(new ExpressionBuilder(),
+                10, String::length, exp -> true);
+        NumericExpression a = builder.parse("1 + 1", true).get(); // 5
+        builder.parse("2 + 2", true); // 10
+        builder.parse("1 + 1", true); // "2 + 2" is now the eldest
+        builder.parse("3", true); // 11 : evict "2 + 2"
+        assertThat(builder.getEvictions()).isEqualTo(1);
+        assertThat(builder.getWeight()).isEqualTo(6);
+        assertThat(builder.parse("1 + 1", true).get()).isSameAs(a);
+        builder.parse("2 + 2", true);
+        assertThat(builder.getMisses()).isEqualTo(4);
+        assertThat(builder.getWeight()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    public void cachingBuilder_ShouldNot_cacheMutableValues() throws IOException {
+        CachingBuilder<NumericExpression> builder = new CachingBuilder<>(new ExpressionBuilder(), 10, exp -> false);
+        NumericExpression exp = builder.parse("1 + x", true).get();
+        assertThat(builder.parse("1 + x", true).get()).isNotSameAs(exp);
+        assertThat(builder.getHits()).isEqualTo(0);
+        assertThat(builder.getSize()).isEqualTo(0);
+    }
+
+}
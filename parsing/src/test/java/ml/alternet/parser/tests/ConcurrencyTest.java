@@ -0,0 +1,178 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.EventsHandler.TokenValue;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.util.IncrementalParser;
+import ml.alternet.parser.util.ParseSession;
+import ml.alternet.parser.util.Parser;
+import ml.alternet.parser.util.Profiler;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test that a grammar can be shared by many threads.
+ *
+ * The grammars are initialized lazily by the threads themselves :
+ * each thread MUST get the same rules, and the same results than
+ * a single thread.
+ */
+public class ConcurrencyTest {
+
+    static final int THREADS = 16;
+
+    // each grammar is used once, by threads that race on its first use
+
+    public interface Fresh extends Grammar {
+
+        Token SEP = is('-');
+
+        Token DIGITS = range('0', '9').oneOrMore().asNumber();
+
+        Token NAME = regex("[a-z]+");
+
+        @MainRule
+        Rule Date = DIGITS.seq(SEP, DIGITS, SEP, DIGITS);
+
+        Fresh $ = $();
+
+    }
+
+    public interface FreshTokenizer extends Fresh {
+
+        FreshTokenizer $ = $();
+
+    }
+
+    public interface FreshLexer extends Fresh {
+
+        Token SEP = is('_');
+
+        FreshLexer $ = $();
+
+    }
+
+    public interface FreshMainRule extends Fresh {
+
+        Token SEP = is('/');
+
+        FreshMainRule $ = $();
+
+    }
+
+    static String parse(Grammar grammar, Rule rule, String input) throws IOException {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        ParseSession session = grammar.newSession(Scanner.of(input), handler, rule);
+        return session.parse() && session.isComplete() ? handler.get().toString() : null;
+    }
+
+    static String tokens(Grammar grammar, Rule rule, String input) throws IOException {
+        TokensCollector<LinkedList<TokenValue<?>>> handler = TokensCollector.newTokenValueHandler();
+        grammar.parse(Scanner.of(input), handler, rule, true);
+        return handler.get().stream()
+            .map(value -> value.getRule().getName() + ":" + value)
+            .collect(Collectors.joining(" "));
+    }
+
+    // the results of the threads that perform the first use of a grammar together
+    static <T> List<T> race(Callable<T> firstUse) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    return firstUse.call();
+                }));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> task : tasks) {
+                results.add(task.get(1, TimeUnit.MINUTES));
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static void assertSameInstance(List<?> instances) {
+        assertThat(instances).hasSize(THREADS);
+        for (Object instance : instances) {
+            assertThat(instance).isSameAs(instances.get(0));
+        }
+    }
+
+    @Test
+    public void freshGrammars_Should_publishTheSameTokenizer() throws Exception {
+        List<Rule> tokenizers = race(() -> FreshTokenizer.$.tokenizer());
+        assertSameInstance(tokenizers);
+        assertThat(tokens(FreshTokenizer.$, tokenizers.get(0), "12ab-3"))
+            .isEqualTo("DIGITS:12 NAME:ab SEP:- DIGITS:3");
+    }
+
+    @Test
+    public void freshGrammars_Should_publishTheSameLexer() throws Exception {
+        List<Rule> lexers = race(() -> FreshLexer.$.lexer());
+        assertSameInstance(lexers);
+        assertThat(tokens(FreshLexer.$, lexers.get(0), "12ab_3"))
+            .isEqualTo("DIGITS:12 NAME:ab SEP:_ DIGITS:3");
+    }
+
+    @Test
+    public void freshGrammars_Should_publishTheSameMainRule() throws Exception {
+        List<Rule> mainRules = race(() -> FreshMainRule.$.mainRule().get());
+        assertSameInstance(mainRules);
+        // adopted : the main rule comes from the inherited grammar
+        for (Rule rule : race(() -> FreshMainRule.$.adopt(Fresh.Date))) {
+            assertThat(rule).isSameAs(mainRules.get(0));
+        }
+        for (String result : race(() -> parse(FreshMainRule.$, Fresh.Date, "2026/10/18"))) {
+            assertThat(result).isEqualTo("2026/10/18");
+        }
+        assertThat(parse(FreshMainRule.$, Fresh.Date, "2026-10-18")).isNull();
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void initializedGrammars_Should_keepTheirParsers() throws IOException {
+        Rule[] rules = { Fresh.Date, Fresh.DIGITS, Fresh.SEP, Fresh.NAME };
+        Parser[] parsers = Arrays.stream(rules).map(rule -> rule.parser).toArray(Parser[]::new);
+        try (Profiler profiler = Profiler.profile(Fresh.$);
+                IncrementalParser incremental = IncrementalParser.of(Fresh.$))
+        {
+            assertThat(incremental.parse("1-2-3", TokensCollector.newStringBuilderHandler(), true)).isTrue();
+            assertThat(parse(Fresh.$, Fresh.Date, "4-5-6")).isEqualTo("4-5-6");
+            assertThat(profiler.getStats(Fresh.Date).get().getInvocations()).isEqualTo(2);
+            for (int i = 0; i < rules.length; i++) {
+                assertThat(rules[i].parser).isSameAs(parsers[i]);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void session_ShouldNot_parseTwice() throws IOException {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        ParseSession session = Fresh.$.newSession(Scanner.of("1-2-3"), handler);
+        assertThat(session.parse()).isTrue();
+        session.parse();
+    }
+
+}
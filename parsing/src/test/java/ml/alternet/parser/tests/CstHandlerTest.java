@@ -0,0 +1,81 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.handlers.Cst;
+import ml.alternet.parser.handlers.CstHandler;
+import ml.alternet.parser.step4.Calc;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the concrete syntax trees.
+ *
+ * A syntax tree MUST hold the named rules and tokens,
+ * with the part of the input that they match.
+ *
+ * @see CstHandler
+ */
+public class CstHandlerTest {
+
+    static Cst parse(String input) throws IOException {
+        CstHandler handler = new CstHandler(input);
+        assertThat(Calc.$.parse(Scanner.of(input).asTrackable(), handler, true)).isTrue();
+        return handler.get();
+    }
+
+    @Test
+    public void cst_Should_holdTheNamedRules() throws IOException {
+        Cst cst = parse("sin( x )* (1 + 3)");
+        assertThat(cst.toString()).isEqualTo("Sum[0,17](Product[0,17](Factor[0,8](FUNCTION[0,3] "
+            + "Sum[5,7](Product[5,7](Factor[5,7](VARIABLE[5,6])))) MULTIPLICATIVE[8,9] "
+            + "Factor[10,17](Sum[11,16](Product[11,13](Factor[11,13](NUMBER[11,12])) ADDITIVE[13,14] "
+            + "Product[15,16](Factor[15,16](NUMBER[15,16]))))))");
+        assertThat(cst.size()).isEqualTo(18);
+    }
+
+    @Test
+    public void cursor_Should_navigateInTheTree() throws IOException {
+        Cst cst = parse("1 + 23");
+        Cst.Cursor cursor = cst.cursor();
+        assertThat(cursor.getRule()).isSameAs(Calc.Sum);
+        assertThat(cursor.toNextSibling()).isFalse();
+        assertThat(cursor.toParent()).isFalse();
+        assertThat(cursor.toFirstChild()).isTrue();
+        assertThat(cursor.getRule()).isSameAs(Calc.Product);
+        Cst.Cursor product = cursor.copy();
+        assertThat(cursor.toNextSibling()).isTrue();
+        assertThat(cursor.getRule()).isSameAs(Calc.ADDITIVE);
+        assertThat(cursor.getText().toString()).isEqualTo("+");
+        assertThat(cursor.hasChildren()).isFalse();
+        assertThat(cursor.toNextSibling()).isTrue();
+        assertThat(cursor.toFirstChild()).isTrue();
+        assertThat(cursor.toFirstChild()).isTrue();
+        assertThat(cursor.getRule()).isSameAs(Calc.NUMBER);
+        assertThat(cursor.getText().toString()).isEqualTo("23");
+        assertThat(cursor.toParent()).isTrue();
+        assertThat(cursor.getRule()).isSameAs(Calc.Factor);
+        assertThat(product.getIndex()).isEqualTo(1);
+    }
+
+    @Test
+    public void cstHandler_Should_beReset() throws IOException {
+        CstHandler handler = new CstHandler("x");
+        Calc.$.parse(Scanner.of("x").asTrackable(), handler, true);
+        Cst cst = handler.get();
+        handler.reset("2 * 3");
+        Calc.$.parse(Scanner.of("2 * 3").asTrackable(), handler, true);
+        assertThat(cst.toString()).isEqualTo("Sum[0,1](Product[0,1](Factor[0,1](VARIABLE[0,1])))");
+        assertThat(handler.get().toString()).isEqualTo("Sum[0,5](Product[0,5](Factor[0,2](NUMBER[0,1]) "
+            + "MULTIPLICATIVE[2,3] Factor[4,5](NUMBER[4,5])))");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void cstHandler_Should_requireATrackableScanner() throws IOException {
+        Calc.$.parse(Scanner.of("1 + 2"), new CstHandler("1 + 2"), true);
+    }
+
+}
@@ -0,0 +1,156 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.EventsHandler;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.scan.ReaderScanner;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the cut.
+ *
+ * Once a cut is passed, the enclosing rules MUST NOT backtrack
+ * before it, and the input and events MUST be released.
+ *
+ * @see Grammar#cut()
+ */
+public class CutTest {
+
+    public interface Cuts extends Grammar {
+
+        Token A = is('a');
+        Token B = is('b');
+        Token C = is('c');
+        Token SEMICOLON = is(';');
+        Token DOT = is('.');
+
+        Rule AorB = A.seq(cut(), B).or(A.seq(C));
+
+        @Commit
+        Rule Header = is("H:");
+
+        Rule Doc = Header.seq(is('1')).or(is("H:2"));
+
+        Rule Record = A.seq(B, SEMICOLON);
+
+        Rule Records = Record.seq(cut()).zeroOrMore();
+
+        Rule File = Records.seq(DOT);
+
+        Cuts $ = $();
+
+    }
+
+    @Skip(token = "WS")
+    public interface SpacedCuts extends Grammar {
+
+        @Fragment
+        CharToken WS = isOneOf(" ");
+
+        Token A = is('a');
+        Token B = is('b');
+        Token C = is('c');
+
+        // a sequence of skipped items, not skipped itself
+        @Fragment
+        @Commit
+        Rule AB = A.seq(B);
+
+        Rule Triple = AB.seq(C).or(A.seq(B, B));
+
+        // a skipped choice of skipped items
+        @Commit
+        Rule AorB = A.or(B);
+
+        Rule Pair = AorB.seq(C).or(A.seq(B));
+
+        SpacedCuts $ = $();
+
+    }
+
+    String parse(Rule rule, String input) throws IOException {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        if (Cuts.$.parse(Scanner.of(input), handler, rule, false)) {
+            return handler.get().toString();
+        } else {
+            return null;
+        }
+    }
+
+    @Test
+    public void choice_ShouldNot_backtrackBeforeTheCut() throws IOException {
+        assertThat(parse(Cuts.AorB, "ab")).isEqualTo("ab");
+        assertThat(parse(Cuts.AorB, "ac")).isNull();
+    }
+
+    @Test
+    public void committedRule_ShouldNot_beBacktracked() throws IOException {
+        assertThat(parse(Cuts.Doc, "H:1")).isEqualTo("H:1");
+        assertThat(parse(Cuts.Doc, "H:2")).isNull();
+    }
+
+    String parseSpaced(Rule rule, String input) throws IOException {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        if (SpacedCuts.$.parse(Scanner.of(input), handler, rule, true)) {
+            return handler.get().toString();
+        } else {
+            return null;
+        }
+    }
+
+    @Test
+    public void committedSkippedSequence_ShouldNot_beBacktracked() throws IOException {
+        assertThat(parseSpaced(SpacedCuts.Triple, " a b c ")).isEqualTo("abc");
+        assertThat(parseSpaced(SpacedCuts.Triple, " a b b ")).isNull();
+    }
+
+    @Test
+    public void committedSkippedChoice_ShouldNot_beBacktracked() throws IOException {
+        assertThat(parseSpaced(SpacedCuts.Pair, " b c ")).isEqualTo("bc");
+        assertThat(parseSpaced(SpacedCuts.Pair, " a b ")).isNull();
+    }
+
+    @Test
+    public void repetition_Should_stopAfterTheLastCut() throws IOException {
+        assertThat(parse(Cuts.Records, "ab;ab;ac")).isEqualTo("ab;ab;");
+        assertThat(parse(Cuts.Records, "ab;ab;a")).isEqualTo("ab;ab;"); // failed before the cut
+    }
+
+    @Test
+    public void cut_Should_releaseTheInputAndTheEvents() throws IOException {
+        String input = IntStream.range(0, 10_000)
+            .mapToObj(i -> "ab;")
+            .collect(Collectors.joining("", "", "."));
+        ReaderScanner scanner = new ReaderScanner(new BufferedReader(new StringReader(input), 16));
+        scanner.limit = 16; // much less than the input
+        int[] received = new int[2];
+        EventsHandler handler = new EventsHandler() {
+            @Override
+            public void receive(TokenValue<?> value) {
+                received[0]++;
+                if (! scanner.hasNext()) {
+                    received[1]++; // received at the end
+                }
+            }
+            @Override
+            public void receive(RuleStart ruleStart) { }
+            @Override
+            public void receive(RuleEnd ruleEnd) { }
+        };
+        assertThat(Cuts.$.parse(scanner, handler, Cuts.File, true)).isTrue();
+        assertThat(received[0]).isEqualTo(30_001);
+        assertThat(received[1]).isEqualTo(1); // the dot
+    }
+
+}
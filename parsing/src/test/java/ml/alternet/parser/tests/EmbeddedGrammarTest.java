@@ -0,0 +1,97 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.EventsHandler.TokenValue;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.step4.Calc;
+import ml.alternet.parser.step4.ExpressionBuilder;
+import ml.alternet.parser.step4.NumericExpression;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the grammars exposed as tokens.
+ *
+ * An embedded grammar MUST produce the same values than
+ * a grammar token, and MUST reuse its data handlers.
+ *
+ * @see Grammar#embed(Grammar, java.util.function.Supplier)
+ */
+public class EmbeddedGrammarTest {
+
+    static final AtomicInteger SUPPLIED = new AtomicInteger();
+
+    public interface Template extends Grammar {
+
+        @Fragment Token LCB = is('{');
+        @Fragment Token RCB = is('}');
+
+        Token TEXT = isNot(LCB, RCB).oneOrMore().asToken();
+
+        //   EXPRESSION ::= Calc
+        Token EXPRESSION = is(Calc.$, ExpressionBuilder::new);
+
+        //   Template ::= ( TEXT | '{' EXPRESSION '}' )*
+        @MainRule
+        Rule Template = TEXT.or(LCB.seq(EXPRESSION, RCB)).zeroOrMore();
+
+        Template $ = $();
+
+    }
+
+    public interface EmbeddedTemplate extends Template {
+
+        Token EXPRESSION = embed(Calc.$, () -> {
+            SUPPLIED.incrementAndGet();
+            return new ExpressionBuilder();
+        });
+
+        EmbeddedTemplate $ = $();
+
+    }
+
+    static final String INPUT = "a={ 1 + 2 * 3 }, b={ -2 ^ 2 }, c={ sin( 0 ) }, d={ (1 + 2) * 3 }";
+
+    static List<String> parse(Grammar grammar, String input) throws IOException {
+        TokensCollector<LinkedList<TokenValue<?>>> handler = TokensCollector.newTokenValueHandler();
+        assertThat(grammar.parse(Scanner.of(input), handler, true)).isTrue();
+        return handler.get().stream()
+            .filter(token -> ! token.getRule().isFragment())
+            .map(token -> token.getValue() instanceof NumericExpression
+                ? ((NumericExpression) token.getValue()).eval(Collections.emptyMap()).toString()
+                : token.getValue().toString())
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void embeddedGrammar_Should_parseLikeAGrammarToken() throws IOException {
+        List<String> expected = parse(Template.$, INPUT);
+        assertThat(expected).containsExactly("a=", "7.0", ", b=", "-4.0", ", c=", "0.0", ", d=", "9.0");
+        assertThat(parse(EmbeddedTemplate.$, INPUT)).isEqualTo(expected);
+        // a failure doesn't leave a state in the data handler
+        assertThat(parse(EmbeddedTemplate.$, "{ 1 + }")).isEmpty();
+        assertThat(parse(EmbeddedTemplate.$, INPUT)).isEqualTo(expected);
+    }
+
+    @Test
+    public void embeddedGrammar_Should_reuseTheDataHandlers() throws IOException {
+        parse(EmbeddedTemplate.$, INPUT);
+        int supplied = SUPPLIED.get();
+        assertThat(supplied).isPositive();
+        parse(EmbeddedTemplate.$, INPUT);
+        parse(EmbeddedTemplate.$, "{ 1 }{ 2 }{ 3 }");
+        assertThat(SUPPLIED.get()).isEqualTo(supplied);
+    }
+
+}
@@ -0,0 +1,94 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.util.GrammarProfile;
+import ml.alternet.parser.util.Profiler;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the profile-guided reordering of choices.
+ *
+ * The alternatives of a choice MUST be reordered by frequency,
+ * and MUST NOT be reordered when they are not exclusive.
+ *
+ * @see GrammarProfile
+ */
+public class GrammarProfileTest {
+
+    public interface Trained extends Grammar {
+
+        Token A = is('a');
+        Token B = is('b');
+        Token DIGIT = range('0', '9');
+        Token LETTER = range('a', 'z');
+
+        @MainRule
+        Rule Item = A.seq(A).or(DIGIT.seq(DIGIT), B.seq(B), LETTER.seq(DIGIT));
+
+        Trained $ = $();
+
+    }
+
+    // the same grammar, with the profile GrammarProfileTest$Ordered.profile
+    public interface Ordered extends Grammar {
+
+        Token A = is('a');
+        Token B = is('b');
+        Token DIGIT = range('0', '9');
+        Token LETTER = range('a', 'z');
+
+        @MainRule
+        Rule Item = A.seq(A).or(DIGIT.seq(DIGIT), B.seq(B), LETTER.seq(DIGIT));
+
+        Ordered $ = $();
+
+    }
+
+    static String order(Rule choice) {
+        return ((Choice) choice).getComponent().stream()
+            .map(alternative -> alternative.toPrettyString().toString())
+            .collect(Collectors.joining(" | "));
+    }
+
+    @Test
+    public void profile_Should_recordTheSelections() throws IOException {
+        GrammarProfile profile;
+        try (Profiler profiler = Profiler.profile(Trained.$)) {
+            for (String input : new String[] { "aa", "00", "bb", "bb", "x1", "x2", "b3" }) {
+                assertThat(Trained.$.parse(Scanner.of(input), Handler.NULL_HANDLER, true)).isTrue();
+            }
+            profile = profiler.toGrammarProfile();
+        }
+        assertThat(profile.getSelections("Item", "( A A )")).isEqualTo(1L);
+        assertThat(profile.getSelections("Item", "( B B )")).isEqualTo(2L);
+        assertThat(profile.getSelections("Item", "( LETTER DIGIT )")).isEqualTo(3L);
+
+        StringWriter writer = new StringWriter();
+        profile.store(writer);
+        GrammarProfile loaded = GrammarProfile.load(new StringReader(writer.toString()));
+        assertThat(loaded.getSelections("Item", "( DIGIT DIGIT )")).isEqualTo(1L);
+        assertThat(loaded.getSelections("Item", "( LETTER DIGIT )")).isEqualTo(3L);
+    }
+
+    @Test
+    public void profile_Should_reorderTheExclusiveAlternatives() throws IOException {
+        assertThat(order(Trained.Item)).isEqualTo("( A A ) | ( DIGIT DIGIT ) | ( B B ) | ( LETTER DIGIT )");
+        // ( LETTER DIGIT ) is the most frequent, but can't be moved before ( A A )
+        assertThat(order(Ordered.Item)).isEqualTo("( B B ) | ( DIGIT DIGIT ) | ( A A ) | ( LETTER DIGIT )");
+        for (String input : new String[] { "aa", "00", "bb", "x1", "a1" }) {
+            assertThat(Ordered.$.parse(Scanner.of(input), Handler.NULL_HANDLER, true)).isTrue();
+        }
+    }
+
+}
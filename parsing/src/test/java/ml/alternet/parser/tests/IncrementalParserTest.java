@@ -0,0 +1,165 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.EventsHandler;
+import ml.alternet.parser.step6.ValueTemplate;
+import ml.alternet.parser.step6.ValueTemplateBuilder;
+import ml.alternet.parser.util.IncrementalParser;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the incremental parser.
+ *
+ * After an edit, the incremental parser MUST produce the same
+ * result as a full parse, and MUST parse less rules ; its results
+ * MUST NOT be shared with the other parsings of the grammar.
+ *
+ * @see IncrementalParser
+ */
+public class IncrementalParserTest {
+
+    // collect the events with their positions
+    static class Positions implements EventsHandler {
+
+        List<String> events = new ArrayList<>();
+
+        void add(RuleEvent<?> event, String kind) {
+            this.events.add(kind + ' ' + event.getRule().getName() + " at "
+                + event.getPosition().map(p -> p.getLineNumber() + ":" + p.getColumnNumber()
+                    + " (" + p.getOffset() + ')').orElse("?"));
+        }
+
+        @Override
+        public void receive(TokenValue<?> value) {
+            add(value, "token " + value);
+        }
+
+        @Override
+        public void receive(RuleStart ruleStart) {
+            add(ruleStart, "start");
+        }
+
+        @Override
+        public void receive(RuleEnd ruleEnd) {
+            add(ruleEnd, "end");
+        }
+
+    }
+
+    static String template(int expressions) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 1; i <= expressions; i++) {
+            buf.append("Line ").append(i).append(" is { ").append(i).append(" * x } {{ok}}\n");
+        }
+        return buf.toString();
+    }
+
+    static String eval(IncrementalParser parser, ValueTemplateBuilder builder) throws IOException {
+        Map<String, java.lang.Number> variables = new HashMap<>();
+        variables.put("x", 2);
+        assertThat(parser.reparse(builder, true)).isTrue();
+        String result = builder.get().eval(variables);
+        builder.reset();
+        String expected = ValueTemplateBuilder.forCalcGrammar().parse(parser.getText(), true).get().eval(variables);
+        assertThat(result).isEqualTo(expected);
+        return result;
+    }
+
+    @Test
+    public void incrementalParser_Should_reparseTheEditOnly() throws IOException {
+        String text = template(50);
+        try (IncrementalParser parser = IncrementalParser.of(ValueTemplate.$)) {
+            ValueTemplateBuilder builder = ValueTemplateBuilder.forCalcGrammar();
+            assertThat(parser.parse(text, builder, true)).isTrue();
+            builder.reset();
+            long full = parser.getParsed();
+            assertThat(parser.getReused()).isEqualTo(0);
+
+            int offset = text.indexOf("{ 25 * x }") + 2;
+            parser.edit(offset, 2, "100 + 1");
+            assertThat(eval(parser, builder)).contains("Line 25 is 102 {ok}");
+            assertThat(parser.getReused()).isGreaterThan(0);
+            assertThat(parser.getParsed()).isLessThan(full / 4);
+
+            // typing in a text
+            offset = parser.getText().indexOf("Line 40");
+            parser.edit(offset, 0, "New ");
+            assertThat(eval(parser, builder)).contains("New Line 40 is 80 {ok}");
+            assertThat(parser.getParsed()).isLessThan(full / 4);
+
+            // removing an expression
+            offset = parser.getText().indexOf("{ 10 * x }");
+            parser.edit(offset, 10, "");
+            assertThat(eval(parser, builder)).contains("Line 10 is  {ok}");
+
+            // breaking the template
+            offset = parser.getText().indexOf("{ 30 * x }");
+            parser.edit(offset, 1, "");
+            assertThat(parser.reparse(builder, true)).isFalse();
+            builder.reset();
+            parser.edit(offset, 0, "{");
+            assertThat(eval(parser, builder)).contains("Line 30 is 60 {ok}");
+        }
+    }
+
+    @Test
+    public void incrementalParser_Should_relocateTheEvents() throws IOException {
+        String text = template(5);
+        try (IncrementalParser parser = IncrementalParser.of(ValueTemplate.$)) {
+            parser.parse(text, new Positions().asHandler(), true);
+            parser.edit(text.indexOf("Line 2"), 0, "a\r\nnew\nline ");
+            Positions incremental = new Positions();
+            assertThat(parser.reparse(incremental.asHandler(), true)).isTrue();
+            assertThat(parser.getReused()).isGreaterThan(0);
+
+            Positions full = new Positions();
+            assertThat(ValueTemplate.$.parse(Scanner.of(parser.getText()).asTrackable(),
+                    full.asHandler(), true)).isTrue();
+            assertThat(incremental.events).isEqualTo(full.events);
+        }
+    }
+
+    @Test
+    public void incrementalParsers_ShouldNot_shareTheirResults() throws Exception {
+        String text = template(10);
+        IncrementalParser other = IncrementalParser.of(ValueTemplate.$);
+        try (IncrementalParser parser = IncrementalParser.of(ValueTemplate.$)) {
+            assertThat(other.parse(template(3), new Positions(), true)).isTrue();
+            other.close();
+            ValueTemplateBuilder builder = ValueTemplateBuilder.forCalcGrammar();
+            assertThat(parser.parse(text, builder, true)).isTrue();
+            builder.reset();
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                String unrelated = template(4).replace("x", "(x + 1)");
+                assertThat(executor.submit(() -> ValueTemplate.$.parse(Scanner.of(unrelated).asTrackable(),
+                        new Positions(), true)).get()).isTrue();
+            } finally {
+                executor.shutdown();
+            }
+            parser.edit(text.indexOf("{ 5 * x }") + 2, 1, "7");
+            assertThat(eval(parser, builder)).contains("Line 5 is 14 {ok}");
+            assertThat(parser.getReused()).isGreaterThan(0);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void incrementalParser_ShouldNot_editOutOfTheInput() throws IOException {
+        try (IncrementalParser parser = IncrementalParser.of(ValueTemplate.$)) {
+            parser.parse("{ 1 + 1 }", new Positions(), true);
+            parser.edit(5, 10, "x");
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.EventsHandler.TokenValue;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.util.Lexer;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the lexer rule.
+ *
+ * The lexer MUST yield the longest token, and on equal
+ * length the first token declared.
+ *
+ * @see Lexer
+ */
+public class LexerTest {
+
+    public interface Lexed extends Grammar {
+
+        @Fragment
+        Token DIGIT = range('0', '9');
+
+        @Drop
+        Token SPACE = isOneOf(" \t");
+
+        Token LT = is('<');
+        Token LTE = is("<=");
+        Token NAME = regex("[a-z]+");
+        Token IF = is("if"); // never matched : NAME is declared first
+        Token HEX = is("0x").seq(DIGIT.oneOrMore()).asToken();
+        Token NUMBER = number();
+
+        Lexed $ = $();
+
+    }
+
+    public interface Signed extends Grammar {
+
+        Token MINUS = is('-');
+        Token NUMBER = number(); // not compiled
+
+        Signed $ = $();
+
+    }
+
+    public interface Greedy extends Grammar {
+
+        Token A = is('a');
+        Token AA = is("aa");
+        // compiled to a*a, but never matched : a* consumes all the a's
+        Token AS = is('a').zeroOrMore().seq(is('a')).asToken();
+
+        Greedy $ = $();
+
+    }
+
+    List<String> tokens(Rule rule, String input) throws IOException {
+        return tokens(Lexed.$, rule, input);
+    }
+
+    List<String> tokens(Grammar grammar, Rule rule, String input) throws IOException {
+        TokensCollector<LinkedList<TokenValue<?>>> handler = TokensCollector.newTokenValueHandler();
+        grammar.parse(Scanner.of(input), handler, rule, true);
+        return handler.get().stream()
+            .map(value -> value.getRule().getName() + ":" + value)
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void regularTokens_Should_beCompiled() {
+        Rule lexer = ((Choice) ((ZeroOrMore) Lexed.$.lexer()).getComponent()).getComponent().get(0);
+        assertThat(lexer).isInstanceOf(Lexer.class);
+        assertThat(((Lexer) lexer).getCompiled()).containsExactly(Lexed.SPACE, Lexed.LT, Lexed.LTE,
+                Lexed.NAME, Lexed.IF, Lexed.HEX);
+        assertThat(((Lexer) lexer).getUncompiled()).containsExactly(Lexed.NUMBER);
+    }
+
+    @Test
+    public void lexer_Should_yieldTheLongestToken() throws IOException {
+        assertThat(tokens(Lexed.$.tokenizer(), "a<=b")).containsExactly("NAME:a", "LT:<");
+        assertThat(tokens(Lexed.$.lexer(), "a<=b")).containsExactly("NAME:a", "LTE:<=", "NAME:b");
+        assertThat(tokens(Lexed.$.lexer(), "a < b")).containsExactly("NAME:a", "LT:<", "NAME:b");
+    }
+
+    @Test
+    public void lexer_Should_yieldTheFirstTokenOfSameLength() throws IOException {
+        assertThat(tokens(Lexed.$.lexer(), "if iff")).containsExactly("NAME:if", "NAME:iff");
+    }
+
+    @Test
+    public void lexer_Should_fallbackOnUncompiledTokens() throws IOException {
+        assertThat(tokens(Lexed.$.lexer(), "0x12 12<0")).containsExactly("HEX:0x12", "NUMBER:12",
+                "LT:<", "NUMBER:0");
+    }
+
+    @Test
+    public void lexer_Should_yieldTheLongestUncompiledToken() throws IOException {
+        assertThat(tokens(Signed.$, Signed.$.tokenizer(), "-12-3")).containsExactly("MINUS:-", "NUMBER:12",
+                "MINUS:-", "NUMBER:3");
+        assertThat(tokens(Signed.$, Signed.$.lexer(), "-12-3")).containsExactly("NUMBER:-12", "NUMBER:-3");
+        assertThat(tokens(Signed.$, Signed.$.lexer(), "--1")).containsExactly("MINUS:-", "NUMBER:-1");
+    }
+
+    @Test
+    public void lexer_Should_yieldTheLongestTokenWhenTheLongestMatchIsRejected() throws IOException {
+        assertThat(tokens(Greedy.$, Greedy.$.lexer(), "aaa")).containsExactly("AA:aa", "A:a");
+    }
+
+}
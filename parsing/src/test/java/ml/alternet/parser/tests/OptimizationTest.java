@@ -0,0 +1,98 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.IOException;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.visit.Optimizer;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the optimizations.
+ *
+ * An optimized rule MUST parse like the rule written.
+ *
+ * @see Optimizer
+ */
+public class OptimizationTest {
+
+    public interface Opt extends Grammar {
+
+        Token KEY = is("key");
+        Token EQ = is('=');
+        Token COLON = is(':');
+        Token DIGIT = range('0', '9');
+
+        // merged to a single enum token
+        Rule comparators = is("<=").or(is("<"), is(">="), is(">"));
+
+        // not merged : "a" would match before "ab"
+        Rule prefixed = is("a").or(is("ab"));
+
+        // fused to a single string token
+        Token word = is('a').seq(is('b'), is('c')).asToken();
+
+        // factored to KEY ( EQ DIGIT | COLON DIGIT )
+        Rule entry = KEY.seq(EQ, DIGIT).or(KEY.seq(COLON, DIGIT));
+
+        // collapsed to DIGIT*
+        Rule digits = DIGIT.optional().zeroOrMore();
+
+        Opt $ = $();
+
+    }
+
+    String parse(Rule rule, String input) throws IOException {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        if (Opt.$.parse(Scanner.of(input), handler, rule, true)) {
+            return handler.get().toString();
+        } else {
+            return null;
+        }
+    }
+
+    @Test
+    public void stringChoice_Should_beMergedToEnumToken() throws IOException {
+        assertThat(((Choice) Opt.comparators).getComponent()).hasSize(1);
+        assertThat(((Choice) Opt.comparators).getComponent().get(0)).isInstanceOf(EnumToken.class);
+        assertThat(parse(Opt.comparators, "<=")).isEqualTo("<=");
+        assertThat(parse(Opt.comparators, "<")).isEqualTo("<");
+        assertThat(parse(Opt.comparators, ">")).isEqualTo(">");
+        assertThat(parse(Opt.comparators, "=")).isNull();
+    }
+
+    @Test
+    public void prefixedStringChoice_ShouldNot_beMerged() throws IOException {
+        assertThat(((Choice) Opt.prefixed).getComponent()).hasSize(2);
+        assertThat(parse(Opt.prefixed, "ab")).isEqualTo("a"); // "ab" is never reached
+        assertThat(parse(Opt.prefixed, "a")).isEqualTo("a");
+    }
+
+    @Test
+    public void charSequence_Should_beFusedInToken() throws IOException {
+        assertThat(((TypedToken<?>) Opt.word).getComponent()).isInstanceOf(StringToken.class);
+        assertThat(parse(Opt.word, "abc")).isEqualTo("abc");
+        assertThat(parse(Opt.word, "abd")).isNull();
+    }
+
+    @Test
+    public void commonPrefix_Should_beFactored() throws IOException {
+        assertThat(((Choice) Opt.entry).getComponent()).hasSize(1);
+        assertThat(parse(Opt.entry, "key=1")).isEqualTo("key=1");
+        assertThat(parse(Opt.entry, "key:2")).isEqualTo("key:2");
+        assertThat(parse(Opt.entry, "key!3")).isNull();
+    }
+
+    @Test
+    public void nestedRepeatable_Should_beCollapsed() throws IOException {
+        assertThat(((ZeroOrMore) Opt.digits).getComponent()).isSameAs(Opt.DIGIT);
+        assertThat(parse(Opt.digits, "123")).isEqualTo("123");
+        assertThat(parse(Opt.digits, "")).isEqualTo("");
+    }
+
+}
@@ -0,0 +1,141 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.step4.Calc;
+import ml.alternet.parser.step4.ExpressionBuilder;
+import ml.alternet.parser.util.Profiler;
+import ml.alternet.parser.util.Profiler.Stats;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the profiler.
+ *
+ * The profiler MUST count the invocations and the characters
+ * of each rule, and MUST NOT change the result of the parsing,
+ * nor the parsings of the other threads.
+ *
+ * @see Profiler
+ */
+public class ProfilerTest {
+
+    public interface Profiled extends Grammar {
+
+        Token A = is('a');
+        Token B = is('b');
+        Token C = is('c');
+
+        Rule AthenB = A.seq(B);
+        Rule AthenC = A.seq(C);
+
+        @MainRule
+        Rule AorC = AthenB.or(AthenC);
+
+        Profiled $ = $();
+
+    }
+
+    static Stats stats(Profiler profiler, Rule rule) {
+        return profiler.getStats(rule).get();
+    }
+
+    @Test
+    public void profiler_Should_countTheBacktracking() throws IOException {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        try (Profiler profiler = Profiler.profile(Profiled.$)) {
+            assertThat(Profiled.$.parse(Scanner.of("ac").asTrackable(), handler, true)).isTrue();
+            assertThat(handler.get().toString()).isEqualTo("ac");
+
+            Stats ab = stats(profiler, Profiled.AthenB);
+            assertThat(ab.getInvocations()).isEqualTo(1);
+            assertThat(ab.getFailures()).isEqualTo(1);
+            assertThat(ab.getConsumed()).isEqualTo(0);
+            assertThat(ab.getBacktracked()).isEqualTo(1); // 'a' read again
+
+            Stats ac = stats(profiler, Profiled.AthenC);
+            assertThat(ac.getSuccesses()).isEqualTo(1);
+            assertThat(ac.getConsumed()).isEqualTo(2);
+
+            Stats a = stats(profiler, Profiled.A);
+            assertThat(a.getInvocations()).isEqualTo(2);
+            assertThat(a.getConsumed()).isEqualTo(2);
+
+            Stats main = stats(profiler, Profiled.AorC);
+            assertThat(main.getTotalTime()).isGreaterThanOrEqualTo(ab.getTotalTime() + ac.getTotalTime());
+            assertThat(main.getSelfTime()).isLessThanOrEqualTo(main.getTotalTime());
+
+            assertThat(profiler.dump()).contains("AthenB", "AthenC");
+            assertThat(profiler.toCSV()).startsWith("rule,invocations,")
+                .contains("\"AthenB\",1,0,1,0,");
+            assertThat(profiler.toJSON()).contains("{\"rule\":\"AthenB\",\"invocations\":1,\"successes\":0,");
+        }
+    }
+
+    @Test
+    public void profiler_ShouldNot_changeTheResult() throws IOException {
+        Map<String, java.lang.Number> variables = new HashMap<>();
+        variables.put("x", 2);
+        String input = "sin( x )* (1 + 3) - 2*x ";
+        java.lang.Number expected = new ExpressionBuilder().parse(input, true).get().eval(variables);
+        try (Profiler profiler = Profiler.profile(Calc.$)) {
+            java.lang.Number actual = new ExpressionBuilder().parse(Scanner.of(input).asTrackable(), true).get()
+                .eval(variables);
+            assertThat(actual).isEqualTo(expected);
+            assertThat(stats(profiler, Calc.ADDITIVE).getSuccesses()).isEqualTo(2);
+            assertThat(stats(profiler, Calc.LBRACKET).getSuccesses()).isEqualTo(2);
+            // the nested expressions are counted too
+            assertThat(stats(profiler, Calc.Expression).getInvocations()).isEqualTo(3);
+            assertThat(stats(profiler, Calc.Expression).getConsumed()).isGreaterThan(input.length());
+        }
+        // restored
+        assertThat(new ExpressionBuilder().parse(input, true).get().eval(variables)).isEqualTo(expected);
+    }
+
+    static boolean parseInAnotherThread(Callable<Boolean> parsing) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(parsing).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void profiler_ShouldNot_recordTheOtherThreads() throws Exception {
+        try (Profiler profiler = Profiler.profile(Profiled.$)) {
+            assertThat(parseInAnotherThread(() -> Profiled.$.parse(Scanner.of("ab"), Handler.NULL_HANDLER, true)))
+                .isTrue();
+            assertThat(stats(profiler, Profiled.AorC).getInvocations()).isEqualTo(0);
+            assertThat(Profiled.$.parse(Scanner.of("ab"), Handler.NULL_HANDLER, true)).isTrue();
+            assertThat(stats(profiler, Profiled.AorC).getInvocations()).isEqualTo(1);
+            assertThat(stats(profiler, Profiled.AthenB).getSuccesses()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void profiler_Should_recordTheSessions() throws Exception {
+        Profiler profiler = Profiler.of(Profiled.AorC);
+        assertThat(parseInAnotherThread(() -> Profiled.$.newSession(Scanner.of("ac").asTrackable(),
+                Handler.NULL_HANDLER).setProfiler(profiler).parse()))
+            .isTrue();
+        // not bound to this thread
+        assertThat(Profiled.$.parse(Scanner.of("ac"), Handler.NULL_HANDLER, true)).isTrue();
+        assertThat(stats(profiler, Profiled.AorC).getInvocations()).isEqualTo(1);
+        assertThat(stats(profiler, Profiled.AthenB).getFailures()).isEqualTo(1);
+        assertThat(stats(profiler, Profiled.AthenC).getConsumed()).isEqualTo(2);
+    }
+
+}
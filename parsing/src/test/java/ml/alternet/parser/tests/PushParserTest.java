@@ -0,0 +1,88 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.grammars.JsonBuilder;
+import ml.alternet.grammars.JsonGrammar;
+import ml.alternet.grammars.KeyValueGrammar;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.step4.Calc;
+import ml.alternet.parser.util.PushParser;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the parsing of inputs pushed by chunks.
+ *
+ * A push parser MUST parse like the regular parsing,
+ * wherever the input is split, and MUST send the events
+ * before the end of the input.
+ *
+ * @see PushParser
+ */
+public class PushParserTest {
+
+    static String parse(Grammar grammar, String input) throws IOException {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        boolean matched = grammar.parse(Scanner.of(input), handler, false);
+        return handler.get().toString() + '|' + matched;
+    }
+
+    static String push(Grammar grammar, String... chunks) {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        PushParser parser = new PushParser(grammar, handler);
+        for (String chunk : chunks) {
+            parser.feed(CharBuffer.wrap(chunk));
+        }
+        boolean matched = parser.end();
+        return handler.get().toString() + '|' + matched;
+    }
+
+    @Test
+    public void pushParser_Should_parseLikeTheRegularParsing() throws IOException {
+        for (String input : new String[] { "1", "sin( x )* (1 + 3)", "-2 ^ -3 * (( a + b ))", "1 +", "" }) {
+            String expected = parse(Calc.$, input);
+            assertThat(push(Calc.$, input)).as(input).isEqualTo(expected);
+            assertThat(push(Calc.$, input.split(""))).as(input).isEqualTo(expected);
+            for (int i = 0; i <= input.length(); i++) {
+                assertThat(push(Calc.$, input.substring(0, i), input.substring(i))).as(input).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void pushParser_Should_buildAValue() throws IOException {
+        String input = "{ \"name\" : \"D\\\"o\\u00e9\", \"tags\": [true, null, -2.5e3], \"😀\": {} }";
+        String expected = new JsonBuilder().parse(input, true).get().toString();
+        for (int size = 1; size < 8; size++) {
+            JsonBuilder builder = new JsonBuilder();
+            PushParser parser = new PushParser(JsonGrammar.$, builder);
+            for (int i = 0; i < input.length(); i += size) {
+                int end = java.lang.Math.min(i + size, input.length());
+                assertThat(parser.feed(CharBuffer.wrap(input, i, end))).isFalse();
+            }
+            assertThat(parser.end()).isTrue();
+            assertThat(builder.get().toString()).isEqualTo(expected);
+            assertThat(parser.getScanner().hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void pushParser_Should_sendTheEventsBeforeTheEnd() {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        PushParser parser = new PushParser(KeyValueGrammar.$, handler);
+        assertThat(parser.feed(CharBuffer.wrap("level=info msg=\"user"))).isFalse();
+        assertThat(handler.get().toString()).isEqualTo("level=info");
+        assertThat(parser.feed(CharBuffer.wrap(" x\" cached "))).isFalse();
+        // "cached" may have a value in the next chunk
+        assertThat(handler.get().toString()).isEqualTo("level=infomsg=\"user x\"");
+        assertThat(parser.end()).isTrue();
+        assertThat(handler.get().toString()).isEqualTo("level=infomsg=\"user x\"cached");
+    }
+
+}
@@ -0,0 +1,100 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.grammars.CsvBuilder;
+import ml.alternet.grammars.CsvGrammar;
+import ml.alternet.grammars.JsonBuilder;
+import ml.alternet.grammars.KeyValueBuilder;
+import ml.alternet.grammars.KeyValueGrammar;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the CSV, JSON, and key=value grammars.
+ *
+ * The builders MUST build the values of the valid inputs,
+ * and MUST NOT build a value from a malformed input.
+ *
+ * @see CsvGrammar
+ * @see ml.alternet.grammars.JsonGrammar
+ * @see KeyValueGrammar
+ */
+public class ReferenceGrammarsTest {
+
+    @Test
+    public void csv_Should_buildTheRecords() throws IOException {
+        Scanner scanner = Scanner.of(new StringReader("a,\"b \"\"c\"\"\",\r\n\"x,\r\ny\",,z\n\n1\r\n"));
+        List<List<String>> records = new CsvBuilder().parseAll(scanner, CsvGrammar.EOL)
+            .collect(Collectors.toList());
+        assertThat(records).containsExactly(
+            Arrays.asList("a", "b \"c\"", ""),
+            Arrays.asList("x,\r\ny", "", "z"),
+            Arrays.asList(""),
+            Arrays.asList("1"));
+        assertThat(scanner.hasNext()).isFalse();
+    }
+
+    @Test
+    public void csv_ShouldNot_buildAMalformedRecord() throws IOException {
+        assertThat(new CsvBuilder().parse("a,\"b\"\"\",c", true)).isPresent();
+        assertThat(new CsvBuilder().parse("a,\"b\"c", true)).isEmpty();
+        assertThat(new CsvBuilder().parse("a,\"b", true)).isEmpty();
+        // the remainder is left in the input
+        Scanner scanner = Scanner.of("a,\"b\"c");
+        assertThat(new CsvBuilder().parse(scanner, false).get()).containsExactly("a", "b");
+        assertThat(scanner.hasNext()).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void json_Should_buildTheValues() throws IOException {
+        Map<String, Object> object = (Map<String, Object>) new JsonBuilder().parse(
+            "{ \"name\" : \"D\\\"o\\u00e9\\n\", \"age\":42, \"ratio\": -2.5e3,\n"
+            + "  \"tags\": [true, false, null, {}, []], \"big\": 123456789012345678901234 }", true).get();
+        assertThat(object.keySet()).containsExactly("name", "age", "ratio", "tags", "big");
+        assertThat(object.get("name")).isEqualTo("D\"o\u00e9\n");
+        assertThat(object.get("age")).isEqualTo(42L);
+        assertThat(object.get("ratio")).isEqualTo(-2500d);
+        assertThat((List<Object>) object.get("tags")).containsExactly(
+            Boolean.TRUE, Boolean.FALSE, JsonBuilder.NULL, Collections.emptyMap(), Collections.emptyList());
+        assertThat(object.get("big")).isEqualTo(new BigInteger("123456789012345678901234"));
+        assertThat(new JsonBuilder().parse(" null ", true).get()).isSameAs(JsonBuilder.NULL);
+    }
+
+    @Test
+    public void json_ShouldNot_buildAMalformedValue() throws IOException {
+        for (String input : new String[] { "[1,]", "{\"a\" 1}", "\"\\x\"", "01", "{a:1}", "[\"\u0001\"]" }) {
+            assertThat(new JsonBuilder().parse(input, true)).as(input).isEmpty();
+        }
+        // the remainder is left in the input
+        Scanner scanner = Scanner.of("01");
+        assertThat(new JsonBuilder().parse(scanner, false).get()).isEqualTo(0L);
+        assertThat(scanner.hasNext()).isTrue();
+    }
+
+    @Test
+    public void keyValue_Should_buildTheLines() throws IOException {
+        Scanner scanner = Scanner.of("level=info msg=\"user \\\"x\\\" in\" user=jdoe  cached \r\n"
+            + "\n  a=b=c \t empty= next=\"\"\nbad=\"x");
+        List<Map<String, String>> lines = new KeyValueBuilder().parseAll(scanner, KeyValueGrammar.EOL)
+            .collect(Collectors.toList());
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0).toString()).isEqualTo("{level=info, msg=user \"x\" in, user=jdoe, cached=true}");
+        assertThat(lines.get(1)).isEmpty();
+        assertThat(lines.get(2).toString()).isEqualTo("{a=b=c, empty=, next=}");
+        // the stream ends on the unterminated value
+        assertThat(scanner.hasNext()).isTrue();
+    }
+
+}
@@ -0,0 +1,70 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.IOException;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.util.Parser;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the coalescing of consecutive skips.
+ *
+ * The tokens skipped around the rules of a sequence or a choice
+ * MUST be the same than without coalescing.
+ *
+ * @see Parser.Skip
+ */
+public class SkipTest {
+
+    @Skip(token="WS")
+    public interface Spaced extends Grammar {
+
+        @Fragment
+        CharToken WS = isOneOf(" \t\n\r");
+
+        Token LBRACKET = is('(');
+        Token RBRACKET = is(')');
+        Token A = is("a");
+        Token B = is("b");
+
+        @Fragment
+        Rule Item = LBRACKET.seq(A.or(B), RBRACKET);
+
+        Rule Items = Item.oneOrMore();
+
+        Spaced $ = $();
+
+    }
+
+    String parse(Rule rule, String input) throws IOException {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        if (Spaced.$.parse(Scanner.of(input), handler, rule, true)) {
+            return handler.get().toString();
+        } else {
+            return null;
+        }
+    }
+
+    @Test
+    public void skipOfAlternatives_Should_beHoisted() throws IOException {
+        Rule choice = ((Sequence) Spaced.Item).getComponent().get(1);
+        assertThat(choice.parser).isInstanceOf(Parser.Skip.Hoisted.class);
+        assertThat(parse(Spaced.Item, "(a)")).isEqualTo("(a)");
+        assertThat(parse(Spaced.Item, " ( \tb\n ) ")).isEqualTo("(b)");
+        assertThat(parse(Spaced.Item, "( c )")).isNull();
+    }
+
+    @Test
+    public void consecutiveSkips_Should_beSkippedOnce() throws IOException {
+        assertThat(parse(Spaced.Items, "(a)(b)")).isEqualTo("(a)(b)");
+        assertThat(parse(Spaced.Items, "  ( a )  ( b )  ")).isEqualTo("(a)(b)");
+        assertThat(parse(Spaced.Items, "( a ) b")).isEqualTo("(a)");
+    }
+
+}
@@ -0,0 +1,116 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.IOException;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.handlers.CstHandler;
+import ml.alternet.parser.handlers.TokensCollector;
+import ml.alternet.parser.step4.Calc;
+import ml.alternet.parser.util.ParseSession;
+import ml.alternet.parser.util.StackParser;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the parsing without recursion.
+ *
+ * A stack parser MUST parse like the recursive parsing,
+ * and MUST parse the inputs deeply nested.
+ *
+ * @see StackParser
+ */
+public class StackParserTest {
+
+    public interface Repeats extends Grammar {
+
+        Token A = is('a');
+        Token B = is('b');
+        Token C = is('c');
+        Token SEMICOLON = is(';');
+
+        Rule AorB = A.seq(cut(), B).or(A.seq(C));
+
+        @Commit
+        Rule Header = is("H:");
+
+        Rule Doc = Header.seq(is('1')).or(is("H:2"));
+
+        Rule Some = A.atLeast(2).seq(B.atMost(2), C.bounds(1, 3), SEMICOLON.optional());
+
+        Rule Many = Some.seq(cut()).zeroOrMore();
+
+        Repeats $ = $();
+
+    }
+
+    static final StackParser STACK_PARSER = new StackParser();
+
+    static String parse(Grammar grammar, Rule rule, String input, StackParser stackParser) throws IOException {
+        TokensCollector<StringBuilder> handler = TokensCollector.newStringBuilderHandler();
+        ParseSession session = grammar.newSession(Scanner.of(input), handler, rule)
+            .setStackParser(stackParser);
+        if (session.parse()) {
+            return handler.get().toString() + '|' + session.isComplete();
+        } else {
+            return null;
+        }
+    }
+
+    static String cst(String input, StackParser stackParser) throws IOException {
+        CstHandler handler = new CstHandler(input);
+        ParseSession session = Calc.$.newSession(Scanner.of(input).asTrackable(), handler)
+            .setStackParser(stackParser);
+        assertThat(session.parse()).isTrue();
+        assertThat(session.isComplete()).isTrue();
+        return handler.get().toString();
+    }
+
+    static String nested(int depth) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            buf.append("( ");
+        }
+        buf.append('1');
+        for (int i = 0; i < depth; i++) {
+            buf.append(" )");
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void stackParser_Should_parseLikeTheRecursiveParsing() throws IOException {
+        for (String input : new String[] { "1", "sin( x )* (1 + 3)", "-2 ^ -3 * (( a + b ))", nested(5) }) {
+            assertThat(cst(input, STACK_PARSER)).isEqualTo(cst(input, null));
+        }
+        Object[][] cases = {
+            { Repeats.AorB, "ab" }, { Repeats.AorB, "ac" }, { Repeats.Doc, "H:1" }, { Repeats.Doc, "H:2" },
+            { Repeats.Some, "aabbc;" }, { Repeats.Some, "abbc" }, { Repeats.Some, "aaacccc" },
+            { Repeats.Many, "aac;aabccc;aaab" }, { Repeats.Many, "aac;a" }
+        };
+        for (Object[] c : cases) {
+            assertThat(parse(Repeats.$, (Rule) c[0], (String) c[1], STACK_PARSER))
+                .isEqualTo(parse(Repeats.$, (Rule) c[0], (String) c[1], null));
+        }
+    }
+
+    @Test
+    public void stackParser_Should_parseDeeplyNestedInputs() throws IOException {
+        ParseSession session = Calc.$.newSession(Scanner.of(nested(20_000)), Handler.NULL_HANDLER)
+            .setStackParser(STACK_PARSER);
+        assertThat(session.parse()).isTrue();
+        assertThat(session.isComplete()).isTrue();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void stackParser_Should_limitTheDepth() throws IOException {
+        Calc.$.newSession(Scanner.of(nested(1000)), Handler.NULL_HANDLER)
+            .setStackParser(new StackParser(1000))
+            .parse();
+    }
+
+}
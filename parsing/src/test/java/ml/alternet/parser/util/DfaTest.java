@@ -0,0 +1,55 @@
+package ml.alternet.parser.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the limits of the automaton.
+ *
+ * A long chain of epsilon transitions MUST NOT overflow the stack,
+ * and the number of deterministic states cached MUST be bounded.
+ *
+ * @see Dfa
+ */
+public class DfaTest {
+
+    String match(Dfa dfa, String input) throws IOException {
+        StringBuilder buf = new StringBuilder();
+        return dfa.match(Scanner.of(input), buf) ? buf.toString() : null;
+    }
+
+    @Test
+    public void longEpsilonChain_ShouldNot_overflowTheStack() throws IOException {
+        Dfa dfa = new Dfa("(a?){5000}b");
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 6000; i++) {
+            input.append('a');
+        }
+        assertThat(match(dfa, input.toString())).isNull();
+        assertThat(match(dfa, "aaab")).isEqualTo("aaab");
+    }
+
+    @Test
+    public void exponentialAutomaton_Should_haveBoundedStates() throws IOException {
+        // the deterministic automaton has 2^15 states
+        String regex = "(a|b)*a(a|b){14}";
+        Dfa dfa = new Dfa(regex);
+        Random random = new Random(42);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            input.append(random.nextBoolean() ? 'a' : 'b');
+        }
+        // the longest match ends 14 chars after the last 'a' that has 14 chars after it
+        int end = input.lastIndexOf("a", input.length() - 15) + 15;
+        input.append("c");
+        assertThat(match(dfa, input.toString())).isEqualTo(input.substring(0, end));
+        assertThat(dfa.states.size()).isEqualTo(Dfa.MAX_STATES);
+    }
+
+}
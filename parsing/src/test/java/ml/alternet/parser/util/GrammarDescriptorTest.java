@@ -0,0 +1,280 @@
+package ml.alternet.parser.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ml.alternet.misc.Thrower;
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Handler;
+import ml.alternet.scan.Scanner;
+import ml.alternet.util.gen.GrammarDescriptorGenerator;
+
+/**
+ * Allow to test the descriptors generated at compile time.
+ *
+ * A grammar MUST be initialized with its descriptor when
+ * it is up-to-date, and by reflection otherwise ; in both
+ * cases, it MUST parse the same.
+ *
+ * The descriptors are generated by the annotation processor
+ * from the compiled grammars of this test, before their
+ * initialization.
+ *
+ * @see GrammarDescriptorGenerator
+ */
+public class GrammarDescriptorTest {
+
+    @Skip(token = "WS")
+    public interface Greeting extends Grammar {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        Greeting $ = $();
+
+    }
+
+    @Skip(token = "WS")
+    public interface OldGreeting extends Grammar {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        OldGreeting $ = $();
+
+    }
+
+    @Skip(token = "WS")
+    public interface AddedGreeting extends Grammar {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        AddedGreeting $ = $();
+
+    }
+
+    @Skip(token = "WS")
+    public interface RemovedGreeting extends Grammar {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        RemovedGreeting $ = $();
+
+    }
+
+    public interface Salutation extends Grammar {
+
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+
+    }
+
+    @Skip(token = "WS")
+    public interface DerivedGreeting extends Salutation {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        DerivedGreeting $ = $();
+
+    }
+
+    @Skip(token = "WS")
+    public interface ChangedParentGreeting extends Salutation {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        ChangedParentGreeting $ = $();
+
+    }
+
+    @Skip(token = "WS")
+    public interface RenamedParentGreeting extends Salutation {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        RenamedParentGreeting $ = $();
+
+    }
+
+    @Skip(token = "WS")
+    public interface MissingTokenGreeting extends Grammar {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        MissingTokenGreeting $ = $();
+
+    }
+
+    @Skip(token = "WS")
+    public interface MissingSkipGreeting extends Grammar {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        MissingSkipGreeting $ = $();
+
+    }
+
+    @Skip(token = "WS")
+    public interface MissingMainGreeting extends Grammar {
+
+        @Fragment Token WS = isOneOf(" ");
+        Token HELLO = is("hello");
+        Token NAME = range('a', 'z').oneOrMore().asToken();
+        @MainRule Rule Sentence = HELLO.seq(NAME);
+
+        MissingMainGreeting $ = $();
+
+    }
+
+    static final String[] RULES = { "WS", "HELLO", "NAME", "Sentence" };
+
+    Path generated;
+
+    @BeforeClass
+    public void generate() throws IOException {
+        this.generated = Files.createTempDirectory("grammar");
+        String classpath = Stream.concat(
+                Stream.of(System.getProperty("java.class.path").split(File.pathSeparator)),
+                Stream.of(Grammar.class, Scanner.class, Thrower.class, GrammarDescriptorGenerator.class)
+                    .map(c -> location(c).toString()))
+            .distinct()
+            .collect(Collectors.joining(File.pathSeparator));
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        int status = javac.run(null, null, null, "-proc:only", "-d", this.generated.toString(),
+            "-classpath", classpath, "-processor", GrammarDescriptorGenerator.class.getName(),
+            GrammarDescriptorTest.class.getName());
+        assertThat(status).isEqualTo(0);
+    }
+
+    static Path location(Class<?> c) {
+        try {
+            return Paths.get(c.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            return Thrower.doThrow(e);
+        }
+    }
+
+    // install the descriptor generated for a grammar, with a change,
+    // then initialize the grammar
+    GrammarDescriptor load(Class<? extends Grammar> grammar, Consumer<Properties> change) throws Exception {
+        String resource = grammar.getName().replace('.', '/') + GrammarDescriptor.EXTENSION;
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(this.generated.resolve(resource))) {
+            props.load(in);
+        }
+        assertThat(props.getProperty("version")).isEqualTo(GrammarDescriptor.VERSION);
+        assertThat(props.getProperty("grammar")).isEqualTo(grammar.getName());
+        change.accept(props);
+        try (OutputStream out = Files.newOutputStream(location(grammar).resolve(resource))) {
+            props.store(out, null);
+        }
+        Grammar g = (Grammar) grammar.getField("$").get(null);
+        assertThat(g.parse(Scanner.of("hello world"), Handler.NULL_HANDLER, true)).isTrue();
+        assertThat(g.parse(Scanner.of("hello 42"), Handler.NULL_HANDLER, true)).isFalse();
+        GrammarDescriptor gd = GrammarDescriptor.of(grammar);
+        assertThat(gd.rules).containsExactly(RULES);
+        return gd;
+    }
+
+    @Test
+    public void generatedDescriptor_Should_beUsed() throws Exception {
+        GrammarDescriptor gd = load(Greeting.class, props -> { });
+        assertThat(gd.generated).isTrue();
+        assertThat(gd.fragments).containsOnly("WS");
+        assertThat(gd.skips.keySet()).containsOnly("HELLO", "NAME", "Sentence");
+        assertThat(gd.mainRule.toString()).isEqualTo(Greeting.class.getName() + "#Sentence");
+    }
+
+    @Test
+    public void descriptorOfAnotherVersion_ShouldNot_beUsed() throws Exception {
+        assertThat(load(OldGreeting.class, props -> props.setProperty("version", "1")).generated).isFalse();
+    }
+
+    @Test
+    public void staleDescriptor_ShouldNot_beUsed() throws Exception {
+        // a rule field was added since
+        assertThat(load(AddedGreeting.class, props -> props.setProperty("rules", "WS,HELLO,Sentence"))
+            .generated).isFalse();
+        // a rule field was removed since
+        assertThat(load(RemovedGreeting.class, props -> props.setProperty("rules", "WS,HELLO,NAME,Sentence,GOODBYE"))
+            .generated).isFalse();
+    }
+
+    @Test
+    public void derivedDescriptor_Should_beUsed() throws Exception {
+        GrammarDescriptor gd = load(DerivedGreeting.class, props -> { });
+        assertThat(gd.generated).isTrue();
+        assertThat(gd.supers.keySet()).containsOnly(Salutation.class.getName());
+        assertThat(gd.substitutions.get("HELLO").toString()).isEqualTo(Salutation.class.getName() + "#HELLO");
+    }
+
+    @Test
+    public void descriptorWithAChangedParent_ShouldNot_beUsed() throws Exception {
+        // a field of the inherited grammar was added, removed, or annotated since
+        assertThat(load(ChangedParentGreeting.class, props -> props.setProperty("supers",
+                Salutation.class.getName() + ":0"))
+            .generated).isFalse();
+        // a field of the inherited grammar was renamed since
+        assertThat(load(RenamedParentGreeting.class, props -> props.setProperty("substitution.NAME",
+                Salutation.class.getName() + "#FIRST_NAME"))
+            .generated).isFalse();
+    }
+
+    @Test
+    public void descriptorWithMissingFields_ShouldNot_beUsed() throws Exception {
+        assertThat(load(MissingTokenGreeting.class, props -> props.setProperty("tokens",
+                props.getProperty("tokens") + ',' + MissingTokenGreeting.class.getName() + "#GOODBYE"))
+            .generated).isFalse();
+        assertThat(load(MissingSkipGreeting.class, props -> props.setProperty("skip.NAME",
+                MissingSkipGreeting.class.getName() + "#SPACE,true,true"))
+            .generated).isFalse();
+        assertThat(load(MissingMainGreeting.class, props -> props.setProperty("mainRule",
+                MissingMainGreeting.class.getName() + "#Text"))
+            .generated).isFalse();
+    }
+
+}
@@ -0,0 +1,120 @@
+package ml.alternet.parser.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ml.alternet.parser.Grammar.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.parser.Grammar;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.util.Parser.Match;
+import ml.alternet.scan.Scanner;
+
+/**
+ * Allow to test the interceptions.
+ *
+ * The interceptors MUST be held by the thread that binds them,
+ * and binding them MUST NOT write any state shared by the threads ;
+ * a profiler that is not closed MUST NOT affect the other threads.
+ *
+ * @see Interception
+ */
+public class InterceptionTest {
+
+    public interface Intercepted extends Grammar {
+
+        Token A = is('a');
+        Token B = is('b');
+
+        @MainRule
+        Rule AthenB = A.seq(B);
+
+        Intercepted $ = $();
+
+    }
+
+    // count the invocations of the rules
+    static class Counting implements Interception.Listener {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void enter(Rule rule, Scanner scanner) {
+            this.count.incrementAndGet();
+        }
+
+        @Override
+        public void exit(Rule rule, Scanner scanner, Match match) { }
+
+    }
+
+    static <T> T inAnotherThread(Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(task).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void interception_ShouldNot_haveSharedState() {
+        for (Field field : Interception.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                assertThat(field.getType()).as(field.getName()).isEqualTo(ThreadLocal.class);
+            }
+        }
+    }
+
+    @Test
+    public void bind_ShouldNot_interceptTheOtherThreads() throws Exception {
+        Counting counting = new Counting();
+        assertThat(Interception.bind(counting)).isTrue();
+        try {
+            assertThat(inAnotherThread(() -> Interception.current())).isNull();
+            assertThat(inAnotherThread(() -> Intercepted.$.newSession(Scanner.of("ab"), Handler.NULL_HANDLER)
+                    .setBudget(new Budget().maxInvocations(100))
+                    .parse()))
+                .isTrue();
+            assertThat(counting.count.get()).isEqualTo(0);
+            assertThat(Intercepted.$.parse(Scanner.of("ab"), Handler.NULL_HANDLER, true)).isTrue();
+            assertThat(counting.count.get()).isGreaterThan(0);
+        } finally {
+            assertThat(Interception.unbind(counting)).isTrue();
+        }
+        assertThat(Interception.current()).isNull();
+    }
+
+    @Test
+    public void unclosedProfiler_ShouldNot_interceptTheOtherThreads() throws Exception {
+        Profiler profiler = inAnotherThread(() -> Profiler.profile(Intercepted.$)); // never closed
+        assertThat(Interception.current()).isNull();
+        assertThat(Intercepted.$.parse(Scanner.of("ab"), Handler.NULL_HANDLER, true)).isTrue();
+        assertThat(profiler.getStats(Intercepted.AthenB).get().getInvocations()).isEqualTo(0);
+    }
+
+    @Test
+    public void profilerClosedFromAnotherThread_Should_releaseItsThread() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Profiler profiler = executor.submit(() -> Profiler.profile(Intercepted.$)).get();
+            assertThat(executor.submit(() -> Interception.current()).get()).isNotNull();
+            profiler.close();
+            assertThat(executor.submit(() -> Intercepted.$.parse(Scanner.of("ab"), Handler.NULL_HANDLER, true))
+                    .get())
+                .isTrue();
+            assertThat(executor.submit(() -> Interception.current()).get()).isNull();
+            assertThat(profiler.getStats(Intercepted.AthenB).get().getInvocations()).isEqualTo(0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package ml.alternet.parser.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import ml.alternet.parser.Handler;
+import ml.alternet.parser.step4.Calc;
+import ml.alternet.scan.Scanner;
+import ml.alternet.util.JfrUtil;
+
+/**
+ * Allow to test the JFR events of the parsing.
+ *
+ * Each parse session MUST be recorded with its grammar,
+ * main rule, input length, backtracks and outcome.
+ *
+ * @see ml.alternet.parser.util.ParseSession
+ */
+public class FlightRecorderTest {
+
+    static final String EVENT = "ml.alternet.parser.ParseSession";
+
+    @Test
+    public void parseSession_Should_beRecorded() throws IOException {
+        if (! JfrUtil.AVAILABLE) {
+            throw new SkipException("JFR is not available");
+        }
+        Path file = Files.createTempFile("parsing", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT);
+            recording.start();
+            Calc.$.parse(Scanner.of("sin(x)*(1+var_12)").asTrackable(), Handler.NULL_HANDLER, false);
+            Calc.$.parse(Scanner.of("*").asTrackable(), Handler.NULL_HANDLER, false);
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            events.removeIf(event -> ! event.getEventType().getName().equals(EVENT));
+            assertThat(events).hasSize(2);
+            events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+
+            RecordedEvent event = events.get(0);
+            assertThat(event.getString("grammar")).isEqualTo(Calc.class.getName());
+            assertThat(event.getString("mainRule")).isEqualTo("Expression");
+            assertThat(event.getLong("inputLength")).isEqualTo(17);
+            assertThat(event.getLong("backtracks")).isPositive();
+            assertThat(event.getString("outcome")).isEqualTo("SUCCESS");
+
+            assertThat(events.get(1).getLong("inputLength")).isEqualTo(0);
+            assertThat(events.get(1).getString("outcome")).isEqualTo("FAIL");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,5 @@
+# the alternatives selected by the choices : choice<TAB>alternative=selections
+Item\t(\ A\ A\ )=0
+Item\t(\ DIGIT\ DIGIT\ )=10
+Item\t(\ B\ B\ )=20
+Item\t(\ LETTER\ DIGIT\ )=30
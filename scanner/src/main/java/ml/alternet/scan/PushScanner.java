@@ -0,0 +1,307 @@
+package ml.alternet.scan;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import ml.alternet.io.IOUtil;
+import ml.alternet.misc.Thrower;
+
+/**
+ * A scanner for inputs that are pushed by chunks, for example
+ * the <code>CharBuffer</code>s delivered by a non-blocking channel.
+ *
+ * <p>Reading beyond the characters fed so far doesn't block : until
+ * the {@link #end()} of the input, such a read throws {@link #STARVED}
+ * and leaves the scanner as it was at its last {@link #checkpoint()},
+ * in order to read again once more characters have been fed.</p>
+ *
+ * <p>The characters before the first marked position (or before
+ * the current position when nothing is marked) are released
+ * when a chunk is fed.</p>
+ *
+ * <pre>PushScanner scanner = new PushScanner();
+ *scanner.feed(CharBuffer.wrap("12"));
+ *scanner.checkpoint();
+ *try {
+ *    Number n = scanner.nextNumber();
+ *} catch (PushScanner.Starved e) {
+ *    scanner.rollback(); // the number may have more digits
+ *}</pre>
+ *
+ * <p>A push scanner is not thread safe.</p>
+ *
+ * @see ml.alternet.parser.util.PushParser
+ *
+ * @author Philippe Poulard
+ */
+public class PushScanner extends Scanner {
+
+    /**
+     * Thrown when a character is read beyond the characters
+     * fed so far ; a single instance, without stack trace.
+     */
+    @SuppressWarnings("serial")
+    public static final class Starved extends RuntimeException {
+
+        Starved() {
+            super("More characters are needed", null, false, false);
+        }
+
+    }
+
+    /**
+     * Thrown when a character is read beyond the characters fed so far.
+     */
+    public static final Starved STARVED = new Starved();
+
+    /** The characters fed, that can be read again. */
+    char[] chars = new char[256];
+    int length = 0;
+    boolean ended = false;
+    boolean started = false; // when the first char has been read in advance
+
+    // the state at the last checkpoint
+    int cursor;
+    int next;
+    boolean end;
+    int marks;
+    int cuts;
+    List<Cursor> cursors; // copied only on a cut, that alter the marks
+
+    /**
+     * Create an empty push scanner.
+     */
+    public PushScanner() {
+        // the first char will be read in advance when fed
+    }
+
+    /**
+     * Append a chunk of characters to the input.
+     *
+     * @param chunk The characters from its position to its
+     *      limit are copied, and its position is set to its
+     *      limit.
+     *
+     * @throws IllegalStateException When the end of the input
+     *      has already been reached.
+     */
+    public void feed(CharBuffer chunk) {
+        if (this.ended) {
+            throw new IllegalStateException("Can't feed a chunk after the end of the input");
+        }
+        release();
+        int size = chunk.remaining();
+        if (this.length + size > this.chars.length) {
+            char[] chars = new char[Math.max(this.chars.length * 2, this.length + size)];
+            System.arraycopy(this.chars, 0, chars, 0, this.length);
+            this.chars = chars;
+        }
+        chunk.get(this.chars, this.length, size);
+        this.length += size;
+        start();
+    }
+
+    /**
+     * Indicates that no more characters will be fed.
+     */
+    public void end() {
+        this.ended = true;
+        start();
+    }
+
+    /**
+     * Indicates whether the end of the input has been signaled.
+     *
+     * @return <code>true</code> if no more characters will be fed.
+     */
+    public boolean isEnded() {
+        return this.ended;
+    }
+
+    /**
+     * Indicates whether the scanner can be read : at least one
+     * character has been fed, or the end of the input has
+     * been signaled.
+     *
+     * @return <code>true</code> if the scanner can be read.
+     */
+    public boolean isStarted() {
+        return this.started;
+    }
+
+    /**
+     * Return the number of characters fed and not yet released.
+     *
+     * @return The number of characters kept.
+     */
+    public int getRetained() {
+        return this.length;
+    }
+
+    // read the first char in advance
+    void start() {
+        if (! this.started && (this.length > 0 || this.ended)) {
+            checkpoint();
+            try {
+                read();
+                this.started = true;
+            } catch (Starved e) { // a single high surrogate
+                rollback();
+            }
+        }
+    }
+
+    // drop the characters that can't be read again
+    void release() {
+        if (this.started) {
+            int from = this.state.cursor - (this.state.end ? 0 : Character.charCount(this.state.next));
+            for (Cursor cursor : this.state.cursors) {
+                from = Math.min(from, cursor.mark);
+            }
+            if (from > 0) {
+                System.arraycopy(this.chars, from, this.chars, 0, this.length - from);
+                this.length -= from;
+                this.state.cursor -= from;
+                for (Cursor cursor : this.state.cursors) {
+                    cursor.mark -= from;
+                }
+            }
+        }
+    }
+
+    /**
+     * Save the state of this scanner, that will be restored on
+     * {@link #rollback()}.
+     *
+     * <p>The marks set before the checkpoint are expected to be
+     * kept until the rollback, unless they are cut.</p>
+     */
+    public void checkpoint() {
+        this.cursor = this.state.cursor;
+        this.next = this.state.next;
+        this.end = this.state.end;
+        this.marks = this.state.cursors.size();
+        this.cuts = this.state.cuts;
+        this.cursors = null;
+    }
+
+    /**
+     * Restore the state of this scanner at the last {@link #checkpoint()},
+     * typically after {@link #STARVED} has been thrown.
+     */
+    public void rollback() {
+        this.state.cursor = this.cursor;
+        this.state.next = this.next;
+        this.state.end = this.end;
+        if (this.cursors == null) {
+            this.state.cursors.setSize(this.marks);
+        } else {
+            this.state.cursors.clear();
+            this.state.cursors.addAll(this.cursors);
+        }
+        this.state.cuts = this.cuts;
+    }
+
+    @Override
+    public void cut() {
+        if (this.cursors == null) {
+            this.cursors = new ArrayList<>(this.state.cursors.subList(0, Math.min(this.marks,
+                this.state.cursors.size())));
+        }
+        super.cut();
+    }
+
+    /**
+     * Read the next Unicode character.
+     *
+     * @throws Starved When the next character has not been fed yet.
+     */
+    @Override
+    public void read() throws Starved {
+        if (this.state.cursor == this.length) {
+            if (! this.ended) {
+                throw STARVED;
+            }
+            this.state.end = true;
+            this.state.next = IOUtil.EOF;
+        } else {
+            if (! this.ended && this.state.cursor + 1 == this.length
+                    && Character.isHighSurrogate(this.chars[this.state.cursor]))
+            {
+                throw STARVED; // the low surrogate is in the next chunk
+            }
+            this.state.next = Character.codePointAt(this.chars, this.state.cursor, this.length);
+            this.state.cursor += Character.charCount(this.state.next);
+            this.state.end = false;
+        }
+    }
+
+    @Override
+    public void mark() {
+        // the current cursor has read a char in advance, except on EOF
+        this.state.source.push(this.state.cursor - (this.state.end ? 0 : Character.charCount(this.state.next)));
+    }
+
+    @Override
+    public void cancel() throws IllegalStateException {
+        if (this.state.cursors.isEmpty()) {
+            throw new IllegalStateException("Can't cancel the reading since no position was marked.");
+        } else {
+            this.state.cursor = this.state.source.pop();
+            Thrower.safeCall(this.state.source::read);
+        }
+    }
+
+    @Override
+    public void consume() throws IllegalStateException {
+        if (this.state.cursors.isEmpty()) {
+            throw new IllegalStateException("Can't consume characters since no position was marked.");
+        } else {
+            this.state.source.pop(); // just discard the mark
+        }
+    }
+
+    /**
+     * Return the characters fed and not read yet.
+     *
+     * @return The remainder, or nothing if the end was reached.
+     */
+    @Override
+    public Optional<Reader> getRemainder() {
+        return getRemainderString().map(StringReader::new);
+    }
+
+    /**
+     * Return the characters fed and not read yet.
+     *
+     * @return The remainder, or nothing if the end was reached.
+     */
+    @Override
+    public Optional<String> getRemainderString() {
+        if (! this.started) {
+            return this.length == 0 ? Optional.empty() : Optional.of(new String(this.chars, 0, this.length));
+        } else if (this.state.end) {
+            return Optional.empty();
+        } else {
+            int from = this.state.cursor - Character.charCount(this.state.next);
+            String remainder = new String(this.chars, from, this.length - from);
+            this.state.cursor = this.length;
+            if (this.ended) {
+                read(); // just set internal states
+            } else {
+                this.started = false; // the next char will be read on the next chunk
+            }
+            return Optional.of(remainder);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.chars, 0, this.length) + (this.ended ? "" : "...") + '\n' + this.state;
+    }
+
+}
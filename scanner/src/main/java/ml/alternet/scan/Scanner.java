@@ -107,6 +107,41 @@ public abstract class Scanner implements Trackable, Rewindable {
         return Optional.empty();
     }
 
+    /**
+     * Discard the marked positions : the characters read so far
+     * can't be read again, and are released.
+     *
+     * <p>The marks are still stacked, and have to be consumed or
+     * cancelled as usual, but cancelling them rewinds to the position
+     * of the cut at most.</p>
+     *
+     * @see #getCuts()
+     */
+    @Override
+    public void cut() {
+        int marks = this.state.cursors.size();
+        for (int i = 0; i < marks; i++) {
+            consume();
+        }
+        for (int i = 0; i < marks; i++) {
+            mark();
+        }
+        this.state.cuts++;
+    }
+
+    /**
+     * Return the number of cuts performed on this scanner ;
+     * a parser can check whether the characters read since
+     * it marked its position can still be read again.
+     *
+     * @return The number of cuts so far.
+     *
+     * @see #cut()
+     */
+    public int getCuts() {
+        return this.state.cuts;
+    }
+
     // just wraps the mark // see TrackableScanner.Position
     static class Cursor {
 
@@ -142,6 +177,8 @@ public abstract class Scanner implements Trackable, Rewindable {
         protected boolean end = false;
         /** The index of the source available after parsing items under constraint. */
         int sourceIndex = 0;
+        /** The number of cuts so far. */
+        int cuts = 0;
 
         @Override
         public String toString() {
@@ -827,6 +864,33 @@ public abstract class Scanner implements Trackable, Rewindable {
     @Override
     public abstract void consume() throws IllegalStateException;
 
+    /**
+     * Return the number of characters read since the last
+     * marked position, that is to say the characters that
+     * {@link #cancel()} would read again.
+     *
+     * <p>Allow to compare the lengths of several parsings
+     * from the same position, even when this scanner is not
+     * trackable.</p>
+     *
+     * @return The number of characters, a supplementary
+     *      character counting for 2.
+     *
+     * @throws IllegalStateException When this method is called
+     *              whereas no position was marked so far.
+     */
+    public int getMarkedLength() throws IllegalStateException {
+        if (this.state.cursors.isEmpty()) {
+            throw new IllegalStateException( "Can't measure the characters read since no position was marked." );
+        }
+        int start = this.state.source.peek();
+        // the cursor of the current position, computed as usual
+        mark();
+        int current = this.state.source.peek();
+        consume();
+        return current - start;
+    }
+
     /**
      *  Push a cursor in the stack.
      *
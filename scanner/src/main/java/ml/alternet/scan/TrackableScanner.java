@@ -2,6 +2,7 @@ package ml.alternet.scan;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Arrays;
 import java.util.Optional;
 
 import ml.alternet.facet.Trackable;
@@ -43,9 +44,101 @@ public class TrackableScanner extends Scanner implements Trackable {
 
     }
 
+    /**
+     * The offsets of the lines read so far, that allow to
+     * resolve the position of an offset on demand : the events
+     * of a parser just keep an offset and a reference to this
+     * table instead of a position.
+     *
+     * @author Philippe Poulard
+     */
+    public static class LineTable {
+
+        // the initial position
+        private final long line;
+        private final long column;
+        private final long offset;
+        // the offsets after a new line
+        private long[] lines = new long[16];
+        private int linesCount = 0;
+        // the offsets after '\r' or '\n'
+        private long[] breaks = new long[16];
+        private int breaksCount = 0;
+        // the highest offset tracked, the previous ones are already known
+        private long tracked;
+        private long lastLine;
+
+        LineTable(long line, long column, long offset) {
+            this.line = line;
+            this.column = column;
+            this.offset = offset;
+            this.tracked = offset;
+            this.lastLine = line;
+        }
+
+        // a position is reached for the first time, or again after a cancel
+        void track(long offset, long line, long column) {
+            if (offset > this.tracked) {
+                this.tracked = offset;
+                if (column == 0) {
+                    this.breaks = add(this.breaks, this.breaksCount++, offset);
+                }
+                if (line > this.lastLine) {
+                    this.lastLine = line;
+                    this.lines = add(this.lines, this.linesCount++, offset);
+                }
+            }
+        }
+
+        static long[] add(long[] offsets, int count, long offset) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count] = offset;
+            return offsets;
+        }
+
+        // the number of offsets lower or equal to an offset
+        static int count(long[] offsets, int count, long offset) {
+            int i = Arrays.binarySearch(offsets, 0, count, offset);
+            if (i >= 0) {
+                // the same offset can't be stored twice
+                return i + 1;
+            } else {
+                return -i - 1;
+            }
+        }
+
+        /**
+         * Resolve the position of an offset.
+         *
+         * @param offset An offset already read by the scanner.
+         *
+         * @return The position of that offset, as it was
+         *      tracked when the scanner was there.
+         *
+         * @throws IllegalArgumentException When the offset
+         *      is out of the range read so far.
+         */
+        public ml.alternet.misc.Position at(long offset) {
+            if (offset < this.offset || offset > this.tracked) {
+                throw new IllegalArgumentException("The offset " + offset + " has not been read ["
+                        + this.offset + ", " + this.tracked + "]");
+            }
+            int l = count(this.lines, this.linesCount, offset);
+            int b = count(this.breaks, this.breaksCount, offset);
+            long column = b == 0 ? this.column + offset - this.offset : offset - this.breaks[b - 1];
+            return ml.alternet.misc.Position.$(column, this.line + l, offset);
+        }
+
+    }
+
     // the current position doesn't hold a mark
     private Position position = new Position();
 
+    // the lines read so far
+    private LineTable lineTable;
+
     // the underlying concrete scanner
     private Scanner scanner;
 
@@ -59,10 +152,7 @@ public class TrackableScanner extends Scanner implements Trackable {
      * @throws IOException When an I/O error occur.
      */
     public TrackableScanner(Scanner scanner) throws IOException {
-        this.scanner = scanner;
-        this.state = scanner.state;
-        this.state.source = this; // loop back to this allow trackable methods invokation
-        setNextLocation();
+        this(scanner, 1, 0, 0);
     }
 
     private void setNextLocation() {
@@ -98,10 +188,16 @@ public class TrackableScanner extends Scanner implements Trackable {
      * @throws IOException When an I/O error occur.
      */
     public TrackableScanner(Scanner scanner, long line, long column, long offset) throws IOException {
-        this(scanner);
+        this.scanner = scanner;
+        this.state = scanner.state;
+        this.state.source = this; // loop back to this allow trackable methods invokation
         this.position.line = line;
         this.position.column = column;
         this.position.offset = offset;
+        this.position.nextLine = line;
+        this.position.nextColumn = column;
+        this.lineTable = new LineTable(line, column, offset);
+        setNextLocation();
     }
 
     @Override
@@ -110,6 +206,28 @@ public class TrackableScanner extends Scanner implements Trackable {
             .$(this.position.column, this.position.line, this.position.offset));
     }
 
+    /**
+     * Return the current offset, without building
+     * a position.
+     *
+     * @return The number of characters read.
+     */
+    public long getOffset() {
+        return this.position.offset;
+    }
+
+    /**
+     * Return the table of the lines read so far, that
+     * allow to resolve the position of an offset later.
+     *
+     * @return The line table of this scanner.
+     *
+     * @see LineTable#at(long)
+     */
+    public LineTable getLineTable() {
+        return this.lineTable;
+    }
+
     /**
      * Read a character.
      * The column and line are updated.
@@ -120,10 +238,11 @@ public class TrackableScanner extends Scanner implements Trackable {
     public void read() throws IOException {
         this.position.line = this.position.nextLine;
         this.position.column = this.position.nextColumn;
-        this.scanner.read();
-        if (hasNext()) {
+        if (hasNext()) { // the offset counts the chars read, including the last one
             this.position.offset++;
         }
+        this.lineTable.track(this.position.offset, this.position.line, this.position.column);
+        this.scanner.read();
         setNextLocation();
     }
 
@@ -149,10 +268,13 @@ public class TrackableScanner extends Scanner implements Trackable {
         if (this.state.cursors.isEmpty()) {
             throw new IllegalStateException( "Can't cancel the reading since no position was marked." );
         } else {
-            this.position = (Position) this.state.cursors.peek();
+            Position position = (Position) this.state.cursors.peek();
+            // may read again the char read in advance...
+            this.scanner.cancel();
+            // ...but it was already tracked by the position marked
+            this.position = position;
             // we should set this.position.mark = -1 but it is useless
         }
-        this.scanner.cancel();
     }
 
     /**
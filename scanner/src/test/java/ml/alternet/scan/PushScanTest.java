@@ -0,0 +1,63 @@
+package ml.alternet.scan;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.concurrent.Callable;
+
+import org.assertj.core.api.Assertions;
+import org.testng.annotations.Test;
+
+@Test
+public class PushScanTest extends ScanTest {
+
+    @Override
+    public Scanner scanner(String string) throws IOException {
+        PushScanner scanner = new PushScanner();
+        // 2 chunks
+        scanner.feed(CharBuffer.wrap(string, 0, string.length() / 2));
+        scanner.feed(CharBuffer.wrap(string, string.length() / 2, string.length()));
+        scanner.end();
+        return scanner;
+    }
+
+    static boolean starved(Callable<?> read) throws Exception {
+        try {
+            read.call();
+            return false;
+        } catch (PushScanner.Starved e) {
+            return true;
+        }
+    }
+
+    public void pushScanner_Should_rollbackWhenStarved() throws Exception {
+        PushScanner scan = new PushScanner();
+        scan.feed(CharBuffer.wrap("12"));
+        scan.checkpoint();
+        Assertions.assertThat(starved(scan::nextNumber)).isTrue();
+        scan.rollback();
+        scan.feed(CharBuffer.wrap("34 "));
+        Assertions.assertThat(scan.nextNumber()).isEqualTo(1234);
+        // the char after the space is not known yet
+        Assertions.assertThat(starved(() -> scan.hasNextChar(' ', true))).isTrue();
+        scan.end();
+        Assertions.assertThat(scan.hasNextChar(' ', true)).isTrue();
+        Assertions.assertThat(scan.hasNext()).isFalse();
+    }
+
+    public void pushScanner_Should_releaseTheCharactersRead() throws Exception {
+        PushScanner scan = new PushScanner();
+        scan.feed(CharBuffer.wrap("abc"));
+        Assertions.assertThat(scan.hasNextString("ab", true)).isTrue();
+        scan.mark();
+        // 'c' is available, but not the char after
+        Assertions.assertThat(starved(() -> scan.hasNextChar('c', true))).isTrue();
+        scan.feed(CharBuffer.wrap("def"));
+        Assertions.assertThat(scan.getRetained()).isEqualTo(4); // from the mark
+        scan.cancel();
+        scan.feed(CharBuffer.wrap("g"));
+        Assertions.assertThat(scan.getRetained()).isEqualTo(5);
+        scan.end();
+        Assertions.assertThat(scan.getRemainderString().get()).isEqualTo("cdefg");
+    }
+
+}
@@ -265,4 +265,25 @@ public abstract class ScanTest {
         Assertions.assertThat(scan.hasNext()).isFalse();
     }
 
+    public void scanner_Should_measureTheCharactersReadSinceTheMark() throws IOException {
+        Scanner scan = scanner("abc\uD83D\uDE00d");
+        scan.read();
+        scan.mark();
+        Assertions.assertThat(scan.getMarkedLength()).isEqualTo(0);
+        scan.read();
+        scan.mark();
+        scan.read();
+        scan.read(); // a supplementary char
+        Assertions.assertThat(scan.getMarkedLength()).isEqualTo(3);
+        scan.cancel();
+        Assertions.assertThat(scan.getMarkedLength()).isEqualTo(1);
+        scan.read();
+        scan.read();
+        scan.read();
+        Assertions.assertThat(scan.getMarkedLength()).isEqualTo(5); // up to the end
+        Assertions.assertThat(scan.hasNext()).isFalse();
+        scan.cancel();
+        Assertions.assertThat(scan.lookAhead()).isEqualTo((int) 'b');
+    }
+
 }
@@ -1,9 +1,14 @@
 package ml.alternet.scan;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.assertj.core.api.Assertions;
 import org.testng.annotations.Test;
 
+import ml.alternet.misc.Position;
+
 @Test
 public class TrackableStringScanTest extends StringScanTest {
 
@@ -12,4 +17,31 @@ public class TrackableStringScanTest extends StringScanTest {
         return super.scanner(string).asTrackable();
     }
 
+    static String toString(Position pos) {
+        return pos.getLineNumber() + ":" + pos.getColumnNumber() + " (" + pos.getOffset() + ")";
+    }
+
+    public void lineTable_Should_resolveTheTrackedPositions() throws IOException {
+        TrackableScanner scan = Scanner.of("ab\r\ncd\n\ne\rf").asTrackable();
+        List<String> tracked = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        scan.mark();
+        scan.read();
+        scan.read();
+        scan.read();
+        scan.cancel(); // read again
+        while (scan.hasNext()) {
+            tracked.add(toString(scan.getPosition().get()));
+            offsets.add(scan.getOffset());
+            scan.read();
+        }
+        tracked.add(toString(scan.getPosition().get()));
+        offsets.add(scan.getOffset());
+        List<String> resolved = new ArrayList<>();
+        for (long offset : offsets) {
+            resolved.add(toString(scan.getLineTable().at(offset)));
+        }
+        Assertions.assertThat(resolved).isEqualTo(tracked);
+    }
+
 }
@@ -0,0 +1,337 @@
+package ml.alternet.util.gen;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generate the wiring descriptor of each grammar interface,
+ * that is to say each interface that extends
+ * <code>ml.alternet.parser.Grammar</code>.
+ *
+ * <p>The descriptor is a resource located in the package of the
+ * grammar, named after the grammar with the extension
+ * <code>.grammar</code>. It contains everything that the
+ * grammar initialization would have to discover by reflection :
+ * the rule fields in order, the fragments, the dropped tokens,
+ * the committed rules, the proxy initializers, the substitutions,
+ * the skipped tokens, the main rule, and the tokens of the tokenizer ;
+ * it contains also the fingerprints of the inherited grammars, in order
+ * to tell at runtime whether one of them was changed since.</p>
+ *
+ * <p>This processor doesn't depend on the parser module : the
+ * grammar types and annotations are looked up by name, and
+ * nothing is generated if they are not available. It doesn't
+ * claim any annotation.</p>
+ *
+ * @see <code>ml.alternet.parser.util.GrammarDescriptor</code>
+ *
+ * @author Philippe Poulard
+ */
+@SupportedSourceVersion(SourceVersion.RELEASE_8)
+public class GrammarDescriptorGenerator extends AbstractProcessor {
+
+    static final String GRAMMAR = "ml.alternet.parser.Grammar";
+    static final String RULE = GRAMMAR + ".Rule";
+    static final String TOKEN = GRAMMAR + ".Token";
+    static final String MAIN_RULE = GRAMMAR + ".MainRule";
+    static final String FRAGMENT = GRAMMAR + ".Fragment";
+    static final String DROP = GRAMMAR + ".Drop";
+    static final String COMMIT = GRAMMAR + ".Commit";
+    static final String SKIP = GRAMMAR + ".Skip";
+    static final String REPLACE = GRAMMAR + ".Replace";
+
+    /** The version of the format of the descriptor. */
+    static final String VERSION = "3";
+
+    /** The extension of the descriptor resource. */
+    static final String EXTENSION = ".grammar";
+
+    private Elements elements;
+    private Types types;
+    private TypeElement grammar;
+    private TypeMirror rule;
+    private TypeMirror token;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // grammars don't have to be annotated
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (! roundEnv.processingOver() && init()) {
+            roundEnv.getRootElements().stream()
+                .flatMap(this::types)
+                .filter(this::isGrammar)
+                .forEach(this::processGrammar);
+        }
+        return false; // let other processors work
+    }
+
+    // return false if the parser is not available
+    private boolean init() {
+        if (this.grammar == null) {
+            this.elements = processingEnv.getElementUtils();
+            this.types = processingEnv.getTypeUtils();
+            this.grammar = this.elements.getTypeElement(GRAMMAR);
+            if (this.grammar != null) {
+                this.rule = this.types.erasure(this.elements.getTypeElement(RULE).asType());
+                this.token = this.types.erasure(this.elements.getTypeElement(TOKEN).asType());
+            }
+        }
+        return this.grammar != null;
+    }
+
+    // the type and its nested types
+    private Stream<TypeElement> types(Element element) {
+        if (element instanceof TypeElement) {
+            return Stream.concat(
+                Stream.of((TypeElement) element),
+                ElementFilter.typesIn(element.getEnclosedElements()).stream()
+                    .flatMap(this::types)
+            );
+        } else {
+            return Stream.empty();
+        }
+    }
+
+    private boolean isGrammar(TypeElement type) {
+        return type.getKind() == ElementKind.INTERFACE
+            && ! type.equals(this.grammar)
+            && this.types.isAssignable(this.types.erasure(type.asType()), this.types.erasure(this.grammar.asType()));
+    }
+
+    private boolean isRule(VariableElement field) {
+        return this.types.isAssignable(this.types.erasure(field.asType()), this.rule);
+    }
+
+    private boolean isToken(VariableElement field) {
+        return this.types.isAssignable(this.types.erasure(field.asType()), this.token);
+    }
+
+    // same order as ml.alternet.util.ClassUtil.getClasses()
+    private List<TypeElement> hierarchy(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        hierarchy(type, hierarchy, new HashSet<>());
+        hierarchy.remove(this.grammar);
+        return hierarchy;
+    }
+
+    private void hierarchy(TypeElement type, List<TypeElement> hierarchy, Set<TypeElement> interfaces) {
+        hierarchy.add(type);
+        for (TypeMirror tm : type.getInterfaces()) {
+            TypeElement i = (TypeElement) ((DeclaredType) tm).asElement();
+            if (interfaces.add(i)) {
+                hierarchy(i, hierarchy, interfaces);
+            }
+        }
+    }
+
+    private List<VariableElement> fields(TypeElement type) {
+        return ElementFilter.fieldsIn(type.getEnclosedElements());
+    }
+
+    private String ref(VariableElement field) {
+        return this.elements.getBinaryName((TypeElement) field.getEnclosingElement()) + "#" + field.getSimpleName();
+    }
+
+    // the values of an annotation, with its defaults
+    private Optional<Map<String, Object>> annotation(Element element, String annotation) {
+        for (AnnotationMirror am : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) am.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotation)) {
+                Map<String, Object> values = new HashMap<>();
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e
+                        : this.elements.getElementValuesWithDefaults(am).entrySet())
+                {
+                    Object value = e.getValue().getValue();
+                    if (value instanceof DeclaredType) {
+                        value = ((DeclaredType) value).asElement();
+                    }
+                    values.put(e.getKey().getSimpleName().toString(), value);
+                }
+                return Optional.of(values);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private boolean has(Element element, String annotation) {
+        return annotation(element, annotation).isPresent();
+    }
+
+    // same as ml.alternet.parser.util.GrammarDescriptor.fingerprint()
+    private String fingerprint(TypeElement type) {
+        StringBuilder buf = new StringBuilder();
+        for (VariableElement f : fields(type)) {
+            if (isRule(f)) {
+                buf.append(f.getSimpleName())
+                    .append(isToken(f) ? ":T" : ":R")
+                    .append(has(f, FRAGMENT) ? "F" : "")
+                    .append(has(f, MAIN_RULE) ? "M" : "")
+                    .append(';');
+            }
+        }
+        return Integer.toHexString(buf.toString().hashCode());
+    }
+
+    void processGrammar(TypeElement type) {
+        Messager messager = processingEnv.getMessager();
+        List<TypeElement> hierarchy = hierarchy(type);
+        List<TypeElement> inherited = hierarchy.subList(1, hierarchy.size());
+        List<VariableElement> allFields = hierarchy.stream()
+            .flatMap(t -> fields(t).stream())
+            .filter(f -> ! f.getSimpleName().contentEquals("$any") && ! f.getSimpleName().contentEquals("$empty"))
+            .collect(Collectors.toList());
+        Set<String> methods = ElementFilter.methodsIn(type.getEnclosedElements()).stream()
+            .filter(m -> m.getParameters().isEmpty())
+            .map(m -> m.getSimpleName().toString())
+            .collect(Collectors.toSet());
+        Set<String> declared = fields(type).stream()
+            .map(f -> f.getSimpleName().toString())
+            .collect(Collectors.toSet());
+        Optional<Map<String, Object>> globalSkip = annotation(type, SKIP);
+
+        Map<String, String> descriptor = new LinkedHashMap<>();
+        List<String> rules = new ArrayList<>();
+        List<String> fragments = new ArrayList<>();
+        List<String> drops = new ArrayList<>();
+        List<String> commits = new ArrayList<>();
+        Map<String, String> more = new LinkedHashMap<>();
+        for (VariableElement field : fields(type)) {
+            if (! isRule(field)) {
+                continue;
+            }
+            String name = field.getSimpleName().toString();
+            rules.add(name);
+            boolean isFragment = has(field, FRAGMENT);
+            if (isFragment) {
+                fragments.add(name);
+            }
+            if (has(field, DROP)) {
+                drops.add(name);
+            }
+            if (has(field, COMMIT)) {
+                commits.add(name);
+            }
+            if (methods.contains(name)) {
+                more.put("proxy." + name, "method");
+            } else if (declared.contains('$' + name)) {
+                more.put("proxy." + name, "supplier");
+            }
+            // a substitution is either declared explicitly by @Replace
+            // or because a field has the same name of a field in an inherited grammar
+            Optional<Map<String, Object>> replace = annotation(field, REPLACE);
+            if (! replace.isPresent() || ! (Boolean) replace.get().get("disable")) {
+                List<TypeElement> interfaces = inherited;
+                String target = name;
+                if (replace.isPresent()) {
+                    Object g = replace.get().get("grammar");
+                    if (! this.grammar.equals(g)) { // Grammar.class means : not specified
+                        interfaces = Collections.singletonList((TypeElement) g);
+                    }
+                    String f = (String) replace.get().get("field");
+                    if (! f.isEmpty()) {
+                        target = f;
+                    }
+                }
+                String t = target;
+                Optional<VariableElement> source = interfaces.stream()
+                    .flatMap(i -> fields(i).stream())
+                    .filter(f -> f.getSimpleName().contentEquals(t) && isRule(f))
+                    .findFirst();
+                if (source.isPresent()) {
+                    more.put("substitution." + name, ref(source.get()));
+                } else if (replace.isPresent()) { // with @Replace, we MUST find one
+                    messager.printMessage(Kind.ERROR, "Substitution not found " + target
+                            + " in " + type.getQualifiedName(), field);
+                }
+            }
+            Optional<Map<String, Object>> skip = annotation(field, SKIP);
+            if (! skip.isPresent() && ! isFragment) {
+                // apply global skip
+                skip = globalSkip;
+            }
+            if (skip.isPresent()) {
+                Map<String, Object> s = skip.get();
+                boolean before = (Boolean) s.get("before");
+                boolean after = (Boolean) s.get("after");
+                if (! "$empty".equals(s.get("token")) && (before || after)) {
+                    Object g = s.get("grammar");
+                    TypeElement host = this.grammar.equals(g) ? type : (TypeElement) g;
+                    more.put("skip." + name, this.elements.getBinaryName(host) + "#" + s.get("token")
+                            + ',' + before + ',' + after);
+                }
+            }
+        }
+        String binaryName = this.elements.getBinaryName(type).toString();
+        descriptor.put("version", VERSION);
+        descriptor.put("grammar", binaryName);
+        descriptor.put("supers", inherited.stream()
+            .map(t -> this.elements.getBinaryName(t) + ":" + fingerprint(t))
+            .collect(Collectors.joining(",")));
+        descriptor.put("rules", String.join(",", rules));
+        descriptor.put("fragments", String.join(",", fragments));
+        descriptor.put("drops", String.join(",", drops));
+        descriptor.put("commits", String.join(",", commits));
+        descriptor.putAll(more);
+        allFields.stream()
+            .filter(f -> has(f, MAIN_RULE))
+            .findFirst()
+            .ifPresent(f -> descriptor.put("mainRule", ref(f)));
+        descriptor.put("tokens", allFields.stream()
+            .filter(f -> isToken(f) && ! has(f, FRAGMENT)) // non-fragment tokens
+            .map(this::ref)
+            .collect(Collectors.joining(",")));
+
+        PackageElement pkg = this.elements.getPackageOf(type);
+        String pkgName = pkg.getQualifiedName().toString();
+        String resource = (pkg.isUnnamed() ? binaryName : binaryName.substring(pkgName.length() + 1)) + EXTENSION;
+        Filer filer = processingEnv.getFiler();
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, pkgName, resource, type);
+            try (PrintWriter writer = new PrintWriter(file.openWriter())) {
+                writer.println("# Generated by " + GrammarDescriptorGenerator.class.getName());
+                descriptor.forEach((k, v) -> writer.println(k + '=' + v));
+            }
+        } catch (IOException ioe) {
+            messager.printMessage(Kind.ERROR, ioe.getMessage(), type);
+        }
+    }
+
+}
@@ -47,6 +47,21 @@ public interface Rewindable {
      */
     void consume() throws IllegalStateException;
 
+    /**
+     * Discard the marked positions : the operations performed so
+     * far can't be cancelled anymore, and what was kept to rewind
+     * can be released.
+     *
+     * <p>The marks are still stacked, and have to be consumed or
+     * cancelled as usual, but cancelling them rewinds to the position
+     * of the cut at most.</p>
+     *
+     * <p>By default, nothing is discarded.</p>
+     *
+     * @see #mark()
+     */
+    default void cut() { }
+
     /**
      * Consume or cancel the operations since the last marked position.
      *
@@ -134,6 +134,9 @@ class CharRange$ {
 
         @Override
         public CharRange union(CharRange range) {
+            if (range instanceof Char) {
+                return union((Char) range); // would loop otherwise
+            }
             // delegate to Chars, Range, or Ranges
             return range.union(this);
         }
@@ -182,6 +185,7 @@ class CharRange$ {
 
         String chars;
         boolean equal;
+        Compiled compiled; // on the first lookup
 
         /**
          * Defines a range with the characters given in a string.
@@ -227,7 +231,18 @@ class CharRange$ {
 
         @Override
         public boolean contains(int codepoint) {
-            return this.equal ^ this.chars.indexOf(codepoint) == -1;
+            return compile().contains(codepoint);
+        }
+
+        @Override
+        public Compiled compile() {
+            Compiled compiled = this.compiled;
+            if (compiled == null) {
+                // an invalid codepoint is never one of the chars
+                compiled = new Compiled(this, ! this.equal);
+                this.compiled = compiled;
+            }
+            return compiled;
         }
 
         @Override
@@ -485,6 +500,7 @@ class CharRange$ {
 
         // set of successive ranges ordered by start char
         TreeSet<BoundRange> ranges = new TreeSet<>();
+        Compiled compiled; // on the first lookup
 
         /**
          * Create a non-overlapping ranges of characters.
@@ -518,8 +534,17 @@ class CharRange$ {
 
         @Override
         public boolean contains(int codepoint) {
-            BoundRange exist = this.ranges.floor(new Char(true, codepoint));
-            return exist != null && exist.contains(codepoint);
+            return compile().contains(codepoint);
+        }
+
+        @Override
+        public Compiled compile() {
+            Compiled compiled = this.compiled;
+            if (compiled == null) {
+                compiled = new Compiled(this, false);
+                this.compiled = compiled;
+            }
+            return compiled;
         }
 
         @Override
@@ -717,4 +742,143 @@ class CharRange$ {
 
     }
 
+    /**
+     * Define an immutable range of characters, compiled for the lookups :
+     * a bitmap for the Latin-1 characters, and the sorted boundaries of
+     * the intervals within the BMP and within the supplementary planes.
+     *
+     * @author Philippe Poulard
+     */
+    static final class Compiled extends UnboundRange {
+
+        // the last Latin-1 character
+        static final int LATIN1 = 0xFF;
+
+        final CharRange range;
+        final long[] latin1 = new long[4];
+        // start, end + 1, start, end + 1, ...
+        final int[] bmp;
+        final int[] supplementary;
+        // the lookup of a codepoint that is not a Unicode character, e.g. EOF
+        final boolean invalid;
+
+        /**
+         * Compile a range.
+         *
+         * @param range The range to compile.
+         * @param invalid <code>true</code> if the range contains
+         *      the codepoints that are not Unicode characters,
+         *      <code>false</code> otherwise.
+         */
+        Compiled(CharRange range, boolean invalid) {
+            this.range = range;
+            this.invalid = invalid;
+            IntStream.Builder bmp = IntStream.builder();
+            IntStream.Builder supplementary = IntStream.builder();
+            int[] interval = { 0, -1 }; // merge the intervals that overlap or are adjacent
+            Consumer<int[]> append = i -> {
+                for (int c = i[0]; c <= Math.min(i[1], LATIN1); c++) {
+                    this.latin1[c >>> 6] |= 1L << c;
+                }
+                bounds(bmp, i, LATIN1 + 1, Character.MAX_VALUE);
+                bounds(supplementary, i, Character.MIN_SUPPLEMENTARY_CODE_POINT, Character.MAX_CODE_POINT);
+            };
+            range.asIntervals()
+                .filter(r -> ! r.isEmpty())
+                .sorted()
+                .forEachOrdered(r -> {
+                    if (interval[0] <= interval[1] && r.start() <= interval[1] + 1) {
+                        interval[1] = Math.max(interval[1], r.end());
+                    } else {
+                        append.accept(interval);
+                        interval[0] = r.start();
+                        interval[1] = r.end();
+                    }
+                });
+            append.accept(interval);
+            this.bmp = bmp.build().toArray();
+            this.supplementary = supplementary.build().toArray();
+        }
+
+        // the boundaries of the part of an interval within the given limits
+        static void bounds(IntStream.Builder bounds, int[] interval, int min, int max) {
+            int start = Math.max(interval[0], min);
+            int end = Math.min(interval[1], max);
+            if (start <= end) {
+                bounds.add(start).add(end + 1);
+            }
+        }
+
+        // the number of boundaries lower or equal to the codepoint is odd inside an interval
+        static boolean contains(int[] bounds, int codepoint) {
+            int n = bounds.length;
+            if (n == 0) {
+                return false;
+            }
+            int base = 0;
+            while (n > 1) { // without branch on the comparison
+                int half = n >>> 1;
+                base = bounds[base + half] <= codepoint ? base + half : base;
+                n -= half;
+            }
+            return (base + (bounds[base] <= codepoint ? 1 : 0) & 1) == 1;
+        }
+
+        @Override
+        public boolean contains(int codepoint) {
+            if (codepoint <= LATIN1) {
+                return codepoint < 0
+                    ? this.invalid
+                    : (this.latin1[codepoint >>> 6] & 1L << codepoint) != 0;
+            } else if (codepoint <= Character.MAX_VALUE) {
+                return contains(this.bmp, codepoint);
+            } else if (codepoint <= Character.MAX_CODE_POINT) {
+                return contains(this.supplementary, codepoint);
+            } else {
+                return this.invalid;
+            }
+        }
+
+        @Override
+        public CharRange compile() {
+            return this;
+        }
+
+        @Override
+        public Stream<BoundRange> asIntervals() {
+            return this.range.asIntervals();
+        }
+
+        @Override
+        public CharRange except(CharRange range) {
+            return this.range.except(range);
+        }
+
+        @Override
+        public CharRange except(CharRange... ranges) {
+            return this.range.except(ranges);
+        }
+
+        @Override
+        public CharRange union(CharRange range) {
+            return this.range.union(range);
+        }
+
+        @Override
+        public CharRange union(CharRange... ranges) {
+            return this.range.union(ranges);
+        }
+
+        @Override
+        public StringBuilder toPrettyString(StringBuilder buf) {
+            return this.range.toPrettyString(buf);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.range.hashCode();
+        }
+
+    }
+
 }
@@ -10,6 +10,7 @@ import java.util.stream.Stream;
 import ml.alternet.facet.Presentable;
 import ml.alternet.misc.CharRange$.Char;
 import ml.alternet.misc.CharRange$.Chars;
+import ml.alternet.misc.CharRange$.Compiled;
 import ml.alternet.misc.CharRange$.Range;
 import ml.alternet.misc.CharRange$.Ranges;
 
@@ -30,6 +31,25 @@ public interface CharRange extends Presentable {
      */
     boolean contains(int codepoint);
 
+    /**
+     * Return an immutable form of this range, optimized for
+     * {@link #contains(int)} : the Latin-1 characters are looked up
+     * in a bitmap, the other characters by a binary search in the
+     * sorted boundaries of the intervals of the BMP or of the
+     * supplementary planes.
+     *
+     * <p>The ranges made of several characters or intervals are
+     * compiled on their first lookup, therefore it is not necessary
+     * to compile them explicitly, unless the lookups have to be
+     * performed on a custom implementation.</p>
+     *
+     * @return The compiled range, that has the same characters
+     *      and intervals than this range.
+     */
+    default CharRange compile() {
+        return new Compiled(this, contains(-1));
+    }
+
     /**
      * Return all the inclusive intervals that compose this range.
      *
@@ -351,6 +371,16 @@ public interface CharRange extends Presentable {
             return IntStream.rangeClosed(start(), end());
         }
 
+        /**
+         * A single interval is already optimized.
+         *
+         * @return This range.
+         */
+        @Override
+        public CharRange compile() {
+            return this;
+        }
+
         /**
          * Indicates whether this range is empty or not.
          *
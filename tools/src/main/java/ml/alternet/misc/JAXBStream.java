@@ -39,6 +39,7 @@ import org.xml.sax.InputSource;
 import ml.alternet.facet.Localizable;
 import ml.alternet.io.TeeInputStream;
 import ml.alternet.io.TeeReader;
+import ml.alternet.util.JfrUtil;
 
 /**
  * Stream repeatable elements from an XML document to objects with JAXB.
@@ -60,6 +61,10 @@ import ml.alternet.io.TeeReader;
  * This class embeds a cache strategy but doesn't define a retention strategy ;
  * however the cache can be clear at will.
  *
+ * When Java Flight Recorder is available, each read of the XML source is
+ * recorded as an event "ml.alternet.misc.JAXBStream", committed when the
+ * stream is exhausted or closed.
+ *
  * @author Philippe Poulard
  *
  * @param <T> The type of the items.
@@ -222,8 +227,10 @@ public class JAXBStream<T> {
         Stream<T> stream() {
             LOG.info(() -> "⚙ Getting " + JAXBStream.this.clazz.getName()
                 + (getLocation().isPresent() ? " from " + getLocation().get() + " " : ""));
+            Recording recording = Recording.start(JAXBStream.this);
             // put items in cache or intercept the input
             Interceptor interceptor = cacheStrategy.newInterceptor(JAXBStream.this);
+            long[] items = { 0 };
             try {
                 return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
                         Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL) {
@@ -248,6 +255,7 @@ public class JAXBStream<T> {
                                     T item = unmarshaller.unmarshal(xml, clazz).getValue();
                                     // useful when the interceptor save items to a list in memory
                                     interceptor.cache(item);
+                                    items[0]++;
                                     action.accept(item);
                                     return true;
                                 } else {
@@ -256,12 +264,19 @@ public class JAXBStream<T> {
                             }
                             // useful when the interceptor has intercepted something
                             interceptor.cacheSource();
+                            if (recording != null) {
+                                recording.stop(items[0]);
+                            }
                             return false;
                         } catch (XMLStreamException | JAXBException | IOException e) {
                             throw new RuntimeException(e);
                         }
                     }
-                }, false);
+                }, false).onClose(() -> {
+                    if (recording != null) {
+                        recording.stop(items[0]);
+                    }
+                });
             } catch (XMLStreamException | FactoryConfigurationError | JAXBException e) {
                 throw new RuntimeException(e);
             }
@@ -397,4 +412,23 @@ public class JAXBStream<T> {
 
     }
 
+    // the JFR event of a read of the XML source, see JAXBStreamEvent, loaded only if JFR is available
+    interface Recording {
+
+        Supplier<Recording> EVENTS = JfrUtil.events(Recording.class, "ml.alternet.misc.JAXBStreamEvent");
+
+        // null if the event is not recorded
+        static Recording start(JAXBStream<?> stream) {
+            Recording recording = EVENTS == null ? null : EVENTS.get();
+            return recording == null || ! recording.open(stream) ? null : recording;
+        }
+
+        // false if the event is not recorded
+        boolean open(JAXBStream<?> stream);
+
+        // when exhausted or closed, whichever comes first
+        void stop(long items);
+
+    }
+
 }
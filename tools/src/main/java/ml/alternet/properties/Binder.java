@@ -23,6 +23,7 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.WeakHashMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -43,6 +44,7 @@ import javax.el.ValueExpression;
 import javax.el.VariableMapper;
 
 import ml.alternet.misc.Type;
+import ml.alternet.util.JfrUtil;
 import static ml.alternet.properties.NamesUtil.asPropName;
 import static ml.alternet.properties.NamesUtil.asClassName;
 import static java.util.stream.Collectors.joining;
@@ -53,6 +55,9 @@ import static java.util.stream.Collectors.joining;
  * The target objects can be either made by yourself or generated with a
  * properties template. The generator can be run with Maven.
  *
+ * When Java Flight Recorder is available, each unmarshalling is
+ * recorded as an event "ml.alternet.properties.Unmarshall".
+ *
  * @author Philippe Poulard
  *
  * @see Generator
@@ -189,7 +194,7 @@ public class Binder {
     public static <T> T unmarshall(InputStream input, Class<T> clazz, Adapter<?, ?>... adapters) throws IOException {
         HierarchicProperties<T> p = new HierarchicProperties<T>(clazz, adapters);
         p.load(input);
-        return p.properties;
+        return p.unmarshalled();
     }
 
     /**
@@ -205,7 +210,7 @@ public class Binder {
     public static <T> T unmarshall(Reader input, Class<T> clazz, Adapter<?, ?>... adapters) throws IOException {
         HierarchicProperties<T> p = new HierarchicProperties<T>(clazz, adapters);
         p.load(input);
-        return p.properties;
+        return p.unmarshalled();
     }
 
     /**
@@ -223,7 +228,7 @@ public class Binder {
     {
         HierarchicProperties<T> p = new HierarchicProperties<T>(clazz, adapters);
         properties.forEach((k, v) -> p.put(k, v));
-        return p.properties;
+        return p.unmarshalled();
     }
 
     /**
@@ -241,7 +246,7 @@ public class Binder {
     {
         HierarchicProperties<T> p = new HierarchicProperties<T>(defaultValues, adapters);
         p.load(input);
-        return p.properties;
+        return p.unmarshalled();
     }
 
     /**
@@ -259,7 +264,7 @@ public class Binder {
     {
         HierarchicProperties<T> p = new HierarchicProperties<T>(defaultValues, adapters);
         p.load(input);
-        return p.properties;
+        return p.unmarshalled();
     }
 
     /**
@@ -277,7 +282,7 @@ public class Binder {
     {
         HierarchicProperties<T> p = new HierarchicProperties<T>(defaultValues, adapters);
         properties.forEach((k, v) -> p.put(k, v));
-        return p.properties;
+        return p.unmarshalled();
     }
 
     @SuppressWarnings("serial")
@@ -288,6 +293,8 @@ public class Binder {
         Hashtable<Pattern, Function<String, Object>> regexpKeyMappers = new Hashtable<>();
         Hashtable<Class<?>, Function<String, ?>> classMappers = new Hashtable<>();
         Logger log;
+        Recording recording = Recording.start();
+        int keys;
 
         HierarchicProperties(T defaultValues, Adapter<?, ?>[] adapters) {
             LOG.info("Start populating " + defaultValues.getClass().getCanonicalName());
@@ -332,8 +339,17 @@ public class Binder {
             });
         }
 
+        // the properties are populated
+        T unmarshalled() {
+            if (this.recording != null) {
+                this.recording.stop(this.properties.getClass(), this.keys);
+            }
+            return this.properties;
+        }
+
         @Override
         public synchronized Object put(Object key, Object value) {
+            this.keys++;
             // aaaaa.bbb.ccccc.dd -> [aaaaa, bbb, ccccc, dd]
             String[] keys = ((String) key).split("\\.");
             Object current = this.properties;
@@ -689,4 +705,22 @@ public class Binder {
 
     }
 
+    // the JFR event of an unmarshalling, see UnmarshallEvent, loaded only if JFR is available
+    interface Recording {
+
+        Supplier<Recording> EVENTS = JfrUtil.events(Recording.class, "ml.alternet.properties.UnmarshallEvent");
+
+        // null if the event is not recorded
+        static Recording start() {
+            Recording recording = EVENTS == null ? null : EVENTS.get();
+            return recording == null || ! recording.open() ? null : recording;
+        }
+
+        // false if the event is not recorded
+        boolean open();
+
+        void stop(Class<?> target, int keys);
+
+    }
+
 }
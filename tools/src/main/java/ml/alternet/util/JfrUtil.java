@@ -0,0 +1,112 @@
+package ml.alternet.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
+
+import ml.alternet.misc.Thrower;
+
+/**
+ * Java Flight Recorder utilities.
+ *
+ * <p>The libraries emit custom JFR events (parse sessions,
+ * property bindings, JAXB streams) in the category "Alternet".
+ * The event types extend <code>jdk.jfr.Event</code>, that is
+ * not available on every Java 8 runtime : they are compiled
+ * apart, in the source directory <code>src/main/jfr</code> of
+ * each module, and the other classes use them through an
+ * interface, with {@link #events(Class, String)}. They are
+ * loaded only when {@link #AVAILABLE} is <code>true</code>,
+ * otherwise nothing is recorded and nothing is loaded.</p>
+ *
+ * <p>Compiling the events requires a JDK 8u262+ or 11+ ; with
+ * an older JDK, the libraries are built without them :</p>
+ * <pre>mvn -Dno-jfr install</pre>
+ *
+ * <p>When JFR is available but not recording, the cost of
+ * an event is a single check : nothing is allocated.</p>
+ *
+ * <p>The events can be turned off with the system property :</p>
+ * <pre>-Dml.alternet.util.JfrUtil.enabled=false</pre>
+ *
+ * @author Philippe Poulard
+ */
+@Util
+public final class JfrUtil {
+
+    private JfrUtil() {
+    }
+
+    /**
+     * The category of the events of the libraries.
+     */
+    public static final String CATEGORY = "Alternet";
+
+    /**
+     * Indicates whether the JFR events can be emitted : JFR
+     * is present in the runtime (Java 11+, or Java 8u262+),
+     * and the events haven't been turned off.
+     */
+    public static final boolean AVAILABLE = isAvailable();
+
+    /**
+     * Get the events of a given type.
+     *
+     * @param type The interface of the events, in the
+     *      main classes of a module.
+     * @param eventClass The name of the event class, that
+     *      extends <code>jdk.jfr.Event</code> and implements
+     *      the interface, with a constructor without parameter.
+     *
+     * @param <T> The type of the events.
+     *
+     * @return A supplier of new events, that supplies
+     *      <code>null</code> while the events are not enabled
+     *      in a recording, or <code>null</code> if JFR is not
+     *      available, or if the events were not compiled.
+     */
+    public static <T> Supplier<T> events(Class<T> type, String eventClass) {
+        if (! AVAILABLE) {
+            return null;
+        }
+        try {
+            Constructor<? extends T> constructor = Class.forName(eventClass, true, type.getClassLoader())
+                .asSubclass(type)
+                .getDeclaredConstructor();
+            constructor.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle newEvent = lookup.unreflectConstructor(constructor)
+                .asType(MethodType.methodType(Object.class));
+            // the state of an event type is shared by its instances
+            MethodHandle isEnabled = lookup.findVirtual(Class.forName("jdk.jfr.Event"), "isEnabled",
+                    MethodType.methodType(boolean.class))
+                .bindTo(constructor.newInstance());
+            return () -> {
+                try {
+                    return (boolean) isEnabled.invokeExact() ? type.cast(newEvent.invokeExact()) : null;
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    return Thrower.doThrow((Exception) t);
+                }
+            };
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static boolean isAvailable() {
+        if (! Boolean.parseBoolean(System.getProperty(JfrUtil.class.getName() + ".enabled", "true"))) {
+            return false;
+        }
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrUtil.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+}
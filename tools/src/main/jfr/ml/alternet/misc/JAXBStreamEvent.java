@@ -0,0 +1,60 @@
+package ml.alternet.misc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import ml.alternet.util.JfrUtil;
+
+/**
+ * The JFR event of a read of the XML source of a JAXB stream.
+ *
+ * <p>This class is compiled only with a JDK that contains JFR.</p>
+ *
+ * @see JAXBStream
+ *
+ * @author Philippe Poulard
+ */
+@Name("ml.alternet.misc.JAXBStream")
+@Label("JAXB Stream Fetch")
+@Description("The read of items from an XML source")
+@Category({ JfrUtil.CATEGORY, "JAXB" })
+class JAXBStreamEvent extends jdk.jfr.Event implements JAXBStream.Recording {
+
+    @Label("Class")
+    @Description("The class of the items")
+    Class<?> itemClass;
+
+    @Label("Items")
+    long items;
+
+    @Label("Cache Strategy")
+    String cacheStrategy;
+
+    transient boolean stopped;
+
+    @Override
+    public boolean open(JAXBStream<?> stream) {
+        if (! isEnabled()) {
+            return false;
+        }
+        this.itemClass = stream.clazz;
+        // set before the cache strategy is changed by the interceptor
+        this.cacheStrategy = stream.cacheStrategy.name();
+        begin();
+        return true;
+    }
+
+    @Override
+    public void stop(long items) {
+        if (! this.stopped) {
+            this.stopped = true;
+            end();
+            if (shouldCommit()) {
+                this.items = items;
+                commit();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package ml.alternet.properties;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import ml.alternet.util.JfrUtil;
+
+/**
+ * The JFR event of the binding of properties.
+ *
+ * <p>This class is compiled only with a JDK that contains JFR.</p>
+ *
+ * @see Binder
+ *
+ * @author Philippe Poulard
+ */
+@Name("ml.alternet.properties.Unmarshall")
+@Label("Properties Unmarshall")
+@Description("The binding of properties to a tree of objects")
+@Category({ JfrUtil.CATEGORY, "Properties" })
+class UnmarshallEvent extends jdk.jfr.Event implements Binder.Recording {
+
+    @Label("Class")
+    @Description("The class of the tree root")
+    Class<?> target;
+
+    @Label("Key Count")
+    int keys;
+
+    @Override
+    public boolean open() {
+        if (! isEnabled()) {
+            return false;
+        }
+        begin();
+        return true;
+    }
+
+    @Override
+    public void stop(Class<?> target, int keys) {
+        end();
+        if (shouldCommit()) {
+            this.target = target;
+            this.keys = keys;
+            commit();
+        }
+    }
+
+}
@@ -23,6 +23,13 @@ public class CharRangeCombine {
         assertThat(notA).usingComparator(CHAR_RANGE_COMPARATOR).isEqualTo(anyExceptA);
     }
 
+    public void charsUnionAsCharRange_Shoud_beMerged() {
+        CharRange a = CharRange.is('a');
+        CharRange b = CharRange.is('b');
+        assertThat(a.union(b).asIntervals().collect(Collectors.toList()))
+            .containsExactly(CharRange.range('a', 'b'));
+    }
+
     public void doubleNegateForChar_Shoud_giveTheSame() {
         CharRange a = CharRange.is('a');
         CharRange anyExceptA = ANY.except(a);
@@ -0,0 +1,63 @@
+package ml.alternet.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import ml.alternet.misc.CharRange.BoundRange;
+
+@Test
+public class CharRangeCompileTest {
+
+    static final int[] CODEPOINTS = { -1, 0, 'A', 'Z', '_', 'a', 'z', 0xBF, 0xC0, 0xFF, 0x100,
+        0x3B1, 0xD7FF, 0xE000, 0xFFFF, 0x10000, 0x1F600, 0x1F60E, 0x1F64F, 0x10FFFF, 0x110000 };
+
+    static void assertSameLookups(CharRange range) {
+        CharRange compiled = range.compile();
+        List<BoundRange> intervals = range.asIntervals().collect(Collectors.toList());
+        for (int cp : CODEPOINTS) {
+            boolean expected = cp < 0 || cp > Character.MAX_CODE_POINT
+                ? range.contains(cp)
+                : intervals.stream().anyMatch(r -> cp >= r.start() && cp <= r.end());
+            assertThat(compiled.contains(cp)).as(range + " contains " + cp).isEqualTo(expected);
+        }
+        for (BoundRange r : intervals) {
+            assertThat(compiled.contains(r.start())).isTrue();
+            assertThat(compiled.contains(r.end())).isTrue();
+            if (r.start() > Character.MIN_CODE_POINT) {
+                assertThat(compiled.contains(r.start() - 1)).isFalse();
+            }
+            if (r.end() < Character.MAX_CODE_POINT) {
+                assertThat(compiled.contains(r.end() + 1)).isFalse();
+            }
+        }
+    }
+
+    public void compiledRanges_Should_containTheSameChars() {
+        assertSameLookups(CharRange.isOneOf("abcz_"));
+        assertSameLookups(CharRange.isNotOneOf("abcz_"));
+        assertSameLookups(CharRange.isOneOf("α😀😎"));
+        assertSameLookups(CharRange.isNotOneOf("α😀😎"));
+        assertSameLookups(CharRange.range('a', 'z').union(CharRange.range('A', 'Z'), CharRange.is('_')));
+        assertSameLookups(CharRange.range(0xC0, 0x24F).union(CharRange.range(0x1F600, 0x1F64F)));
+        assertSameLookups(CharRange.ANY.except(CharRange.range(0xA0, 0x1F60E)));
+        assertSameLookups(CharRange.range('a', 'z').except(CharRange.isOneOf("aeiou")));
+        assertSameLookups(CharRange.isOneOf("ab").union(CharRange.isNotOneOf("bc")));
+    }
+
+    public void compiledRange_Should_beTheSameRange() {
+        CharRange range = CharRange.range('a', 'z').union(CharRange.isOneOf("_😀"));
+        CharRange compiled = range.compile();
+        assertThat(compiled.compile()).isSameAs(compiled);
+        assertThat(compiled).isEqualTo(range);
+        assertThat(compiled.toString()).isEqualTo(range.toString());
+        assertThat(compiled.union(CharRange.is('0')).contains('0')).isTrue();
+        assertThat(compiled.except(CharRange.is('a')).contains('a')).isFalse();
+        // a single interval is not compiled
+        assertThat(CharRange.range('a', 'z').compile()).isEqualTo(CharRange.range('a', 'z'));
+    }
+
+}
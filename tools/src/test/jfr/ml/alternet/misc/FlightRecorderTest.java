@@ -0,0 +1,63 @@
+package ml.alternet.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import ml.alternet.misc.JAXBTest.Item;
+import ml.alternet.util.JfrUtil;
+
+/**
+ * Allow to test the JFR events of the JAXB streams.
+ *
+ * Each read of an XML source MUST be recorded with its item
+ * class, its number of items and its cache strategy, and no
+ * event MUST be created while the events are not enabled.
+ *
+ * @see JAXBStream
+ */
+public class FlightRecorderTest {
+
+    static final String EVENT = "ml.alternet.misc.JAXBStream";
+
+    @Test
+    public void fetch_Should_beRecorded() throws IOException {
+        if (! JfrUtil.AVAILABLE) {
+            throw new SkipException("JFR is not available");
+        }
+        // not recording
+        assertThat(JAXBStream.Recording.EVENTS.get()).isNull();
+        Path file = Files.createTempFile("jaxb", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT);
+            recording.start();
+            JAXBStream<Item> xml = new JAXBStream<Item>(JAXBTest.LIST, JAXBTest.ITEM, Item.class,
+                JAXBStream.CacheStrategy.memoryCache);
+            assertThat(xml.stream().collect(Collectors.toList())).hasSize(3);
+            xml.stream().count(); // read from the cache
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            events.removeIf(event -> ! event.getEventType().getName().equals(EVENT));
+            assertThat(events).hasSize(1);
+
+            RecordedEvent event = events.get(0);
+            assertThat(event.getClass("itemClass").getName()).isEqualTo(Item.class.getName());
+            assertThat(event.getLong("items")).isEqualTo(3);
+            assertThat(event.getString("cacheStrategy")).isEqualTo("memoryCache");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package ml.alternet.properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import ml.alternet.util.JfrUtil;
+
+/**
+ * Allow to test the JFR events of the binder.
+ *
+ * Each unmarshalling MUST be recorded with its target class
+ * and its number of keys, and no event MUST be created while
+ * the events are not enabled.
+ *
+ * @see Binder
+ */
+public class FlightRecorderTest {
+
+    static final String EVENT = "ml.alternet.properties.Unmarshall";
+
+    public static class Conf {
+        public String name;
+        public String size;
+    }
+
+    @Test
+    public void unmarshall_Should_beRecorded() throws IOException {
+        if (! JfrUtil.AVAILABLE) {
+            throw new SkipException("JFR is not available");
+        }
+        // not recording
+        assertThat(Binder.Recording.EVENTS.get()).isNull();
+        Path file = Files.createTempFile("binding", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT);
+            recording.start();
+            Conf conf = Binder.unmarshall(new StringReader("name=foo\nsize=42\n"), Conf.class);
+            recording.stop();
+            assertThat(conf.name).isEqualTo("foo");
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            events.removeIf(event -> ! event.getEventType().getName().equals(EVENT));
+            assertThat(events).hasSize(1);
+
+            RecordedEvent event = events.get(0);
+            assertThat(event.getClass("target").getName()).isEqualTo(Conf.class.getName());
+            assertThat(event.getInt("keys")).isEqualTo(2);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}